@@ -0,0 +1,161 @@
+package com.baidu.tv.player.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.FutureTarget;
+import com.bumptech.glide.request.RequestOptions;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 4800万像素照片解码到显示尺寸的耗时和内存对比
+ * 分别使用低档（RGB_565，禁用HARDWARE）和均衡档（ARGB_8888，Android 8.0起为HARDWARE）设备实际生效的Glide默认选项
+ * 在设备上运行：./gradlew connectedAndroidTest，结果输出到logcat（TAG=ImageDecodeBenchmark）
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageDecodeBenchmark {
+    private static final String TAG = "ImageDecodeBenchmark";
+
+    // 4800万像素（8000x6000），与手机主摄的全像素照片相同
+    private static final int SOURCE_WIDTH = 8000;
+    private static final int SOURCE_HEIGHT = 6000;
+    private static final int WARMUP_RUNS = 1;
+    private static final int MEASURED_RUNS = 5;
+
+    private static File jpegFile;
+
+    @BeforeClass
+    public static void createJpeg() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        jpegFile = new File(context.getCacheDir(), "decode_benchmark_48mp.jpg");
+        // 生成用RGB_565，原图像素只在这里占用一次内存
+        Bitmap source = Bitmap.createBitmap(SOURCE_WIDTH, SOURCE_HEIGHT, Bitmap.Config.RGB_565);
+        Canvas canvas = new Canvas(source);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setShader(new LinearGradient(0, 0, SOURCE_WIDTH, SOURCE_HEIGHT,
+                Color.rgb(30, 90, 160), Color.rgb(230, 180, 90), Shader.TileMode.CLAMP));
+        canvas.drawRect(0, 0, SOURCE_WIDTH, SOURCE_HEIGHT, paint);
+        paint.setShader(null);
+        // 随机色块，让JPEG的压缩率接近真实照片
+        Random random = new Random(48);
+        for (int i = 0; i < 4000; i++) {
+            paint.setColor(Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            float x = random.nextInt(SOURCE_WIDTH);
+            float y = random.nextInt(SOURCE_HEIGHT);
+            canvas.drawCircle(x, y, 20 + random.nextInt(200), paint);
+        }
+        try (OutputStream out = new FileOutputStream(jpegFile)) {
+            source.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        } finally {
+            source.recycle();
+        }
+        Log.i(TAG, "测试图片: " + SOURCE_WIDTH + "x" + SOURCE_HEIGHT + ", " + jpegFile.length() / 1024 + "KB");
+    }
+
+    @AfterClass
+    public static void deleteJpeg() {
+        if (jpegFile != null) {
+            jpegFile.delete();
+        }
+    }
+
+    @Test
+    public void decodeAtDisplaySizeLowVsMediumClass() throws Exception {
+        ImageDecodePolicy low = new ImageDecodePolicy(ImageDecodePolicy.DEVICE_CLASS_LOW, false, 128);
+        ImageDecodePolicy medium = new ImageDecodePolicy(ImageDecodePolicy.DEVICE_CLASS_MEDIUM, false, 256);
+        int[] size = medium.limitDecodeSize(1920, 1080);
+
+        Result lowResult = measure(low.getDefaultRequestOptions(), size);
+        Result mediumResult = measure(medium.getDefaultRequestOptions(), size);
+        Log.i(TAG, "显示尺寸 " + size[0] + "x" + size[1] + ": 省内存档 " + lowResult + "; 均衡档 " + mediumResult);
+
+        // 解码结果不超过显示尺寸；低档设备的默认选项确实解码成RGB_565，占用一半内存
+        assertTrue(lowResult.width <= size[0] && lowResult.height <= size[1]);
+        assertTrue(mediumResult.width <= size[0] && mediumResult.height <= size[1]);
+        assertEquals(Bitmap.Config.RGB_565, lowResult.config);
+        assertEquals(mediumResult.bytes / 2, lowResult.bytes);
+    }
+
+    private Result measure(RequestOptions defaults, int[] size) throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        long[] times = new long[MEASURED_RUNS];
+        Result result = null;
+        for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+            long start = SystemClock.elapsedRealtime();
+            FutureTarget<Bitmap> target = Glide.with(context)
+                    .asBitmap()
+                    .load(jpegFile)
+                    .apply(defaults)
+                    .override(size[0], size[1])
+                    .fitCenter()
+                    // 每次都从文件解码
+                    .skipMemoryCache(true)
+                    .diskCacheStrategy(DiskCacheStrategy.NONE)
+                    .submit();
+            Bitmap bitmap = target.get();
+            long elapsed = SystemClock.elapsedRealtime() - start;
+            if (run >= WARMUP_RUNS) {
+                times[run - WARMUP_RUNS] = elapsed;
+            }
+            result = new Result(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig(),
+                    bitmap.getWidth() * bitmap.getHeight() * bytesPerPixel(bitmap.getConfig()));
+            Glide.with(context).clear(target);
+        }
+        Arrays.sort(times);
+        result.medianMs = times[MEASURED_RUNS / 2];
+        return result;
+    }
+
+    /**
+     * HARDWARE Bitmap的像素在显存中，按ARGB_8888计算占用
+     */
+    private static int bytesPerPixel(Bitmap.Config config) {
+        return config == Bitmap.Config.RGB_565 ? 2 : 4;
+    }
+
+    private static final class Result {
+        final int width;
+        final int height;
+        final Bitmap.Config config;
+        final int bytes;
+        long medianMs;
+
+        Result(int width, int height, Bitmap.Config config, int bytes) {
+            this.width = width;
+            this.height = height;
+            this.config = config;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return width + "x" + height + " " + config + ", " + bytes / 1024 + "KB, 中位耗时=" + medianMs + "ms";
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.baidu.tv.player;
 
 import android.app.Application;
 import com.baidu.tv.player.database.AppDatabase;
+import com.baidu.tv.player.network.HttpClientProvider;
+import com.baidu.tv.player.utils.PreferenceUtils;
+import com.baidu.tv.player.utils.VideoCacheManager;
 
 /**
  * 应用程序类
@@ -18,6 +21,12 @@ public class BaiduTVApplication extends Application {
         
         // 初始化数据库
         database = AppDatabase.getInstance(this);
+        
+        // 恢复网络调试模式（默认关闭，不输出请求日志）
+        HttpClientProvider.setDebugMode(PreferenceUtils.getNetworkDebugMode(this));
+        
+        // 在后台线程提前加载视频缓存索引，避免首次播放时在主线程等待
+        VideoCacheManager.getInstance();
     }
     
     public static BaiduTVApplication getInstance() {
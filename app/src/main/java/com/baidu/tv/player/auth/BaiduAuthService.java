@@ -147,6 +147,37 @@ public class BaiduAuthService {
         return authInfo;
     }
     
+    /**
+     * 获取当前账号的uk（网盘用户ID），首次调用时请求uinfo接口并保存
+     * 会发起同步网络请求，只能在后台线程调用
+     * @return uk，未登录或请求失败时返回null
+     */
+    public synchronized String getAccountUk() {
+        String userId = authInfo.getUserId();
+        if (userId != null && !userId.isEmpty()) {
+            return userId;
+        }
+        String accessToken = authInfo.getAccessToken();
+        if (accessToken == null || accessToken.isEmpty()) {
+            return null;
+        }
+        try {
+            Response<UserInfoResponse> response = RetrofitClient.getPanApiInstance()
+                    .create(BaiduPanService.class)
+                    .getUserInfo("uinfo", accessToken)
+                    .execute();
+            UserInfoResponse userInfo = response.body();
+            if (!response.isSuccessful() || userInfo == null || userInfo.getErrno() != 0 || userInfo.getUk() <= 0) {
+                return null;
+            }
+            authInfo.setUserId(String.valueOf(userInfo.getUk()));
+            saveAuthInfo();
+            return authInfo.getUserId();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
     /**
      * 获取设备码
      */
@@ -213,6 +244,8 @@ public class BaiduAuthService {
                         authInfo.setScope(tokenResponse.getScope());
                         authInfo.setSessionKey(tokenResponse.getSessionKey());
                         authInfo.setSessionSecret(tokenResponse.getSessionSecret());
+                        // 可能登录了另一个账号，uk在下次需要时重新获取
+                        authInfo.setUserId("");
                         authInfo.setLoggedIn(true);
                         saveAuthInfo();
                         callback.onSuccess(true);
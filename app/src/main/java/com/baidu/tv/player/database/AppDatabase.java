@@ -4,11 +4,18 @@ import android.content.Context;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.baidu.tv.player.model.CrawlCheckpoint;
+import com.baidu.tv.player.model.CrawlFileBatch;
+import com.baidu.tv.player.model.DirectoryCache;
+import com.baidu.tv.player.model.DlinkCache;
 import com.baidu.tv.player.model.PlaybackHistory;
 import com.baidu.tv.player.model.Playlist;
 import com.baidu.tv.player.model.PlaylistItem;
 
-@Database(entities = {PlaybackHistory.class, Playlist.class, PlaylistItem.class}, version = 2, exportSchema = false)
+@Database(entities = {PlaybackHistory.class, Playlist.class, PlaylistItem.class, DirectoryCache.class, DlinkCache.class,
+        CrawlCheckpoint.class, CrawlFileBatch.class}, version = 5, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
     
     private static volatile AppDatabase INSTANCE;
@@ -16,6 +23,51 @@ public abstract class AppDatabase extends RoomDatabase {
     public abstract PlaybackHistoryDao playbackHistoryDao();
     public abstract PlaylistDao playlistDao();
     public abstract PlaylistItemDao playlistItemDao();
+    public abstract DirectoryCacheDao directoryCacheDao();
+    public abstract DlinkCacheDao dlinkCacheDao();
+    public abstract CrawlCheckpointDao crawlCheckpointDao();
+    
+    /**
+     * 版本2 -> 3：新增目录列表缓存表（保留已有的播放列表和历史记录）
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `directory_cache` (" +
+                    "`path` TEXT NOT NULL, `listingJson` TEXT, `dirMtime` INTEGER NOT NULL, " +
+                    "`fetchedAt` INTEGER NOT NULL, `lastAccessAt` INTEGER NOT NULL, " +
+                    "`itemCount` INTEGER NOT NULL, `hasMore` INTEGER NOT NULL, PRIMARY KEY(`path`))");
+        }
+    };
+    
+    /**
+     * 版本3 -> 4：新增dlink缓存表
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `dlink_cache` (" +
+                    "`fsId` INTEGER NOT NULL, `dlink` TEXT, `fetchedAt` INTEGER NOT NULL, PRIMARY KEY(`fsId`))");
+        }
+    };
+    
+    /**
+     * 版本4 -> 5：新增递归扫描断点表（按账号uk和根目录区分，已完成目录随进度批次增量保存）
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `crawl_checkpoints` (" +
+                    "`uk` TEXT NOT NULL, `rootPath` TEXT NOT NULL, `pendingJson` TEXT, " +
+                    "`dirsDone` INTEGER NOT NULL, `filesFound` INTEGER NOT NULL, " +
+                    "`updatedAt` INTEGER NOT NULL, PRIMARY KEY(`uk`, `rootPath`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `crawl_file_batches` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `uk` TEXT, `rootPath` TEXT, " +
+                    "`filesJson` TEXT, `visitedDirsJson` TEXT)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_crawl_file_batches_uk_rootPath` " +
+                    "ON `crawl_file_batches` (`uk`, `rootPath`)");
+        }
+    };
     
     public static AppDatabase getInstance(Context context) {
         if (INSTANCE == null) {
@@ -23,6 +75,7 @@ public abstract class AppDatabase extends RoomDatabase {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                             AppDatabase.class, "baidu_tv_player.db")
+                            .addMigrations(MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5)
                             .fallbackToDestructiveMigration()
                             .build();
                 }
@@ -0,0 +1,57 @@
+package com.baidu.tv.player.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.baidu.tv.player.model.CrawlCheckpoint;
+import com.baidu.tv.player.model.CrawlFileBatch;
+
+import java.util.List;
+
+/**
+ * 递归扫描断点DAO
+ */
+@Dao
+public abstract class CrawlCheckpointDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertCheckpoint(CrawlCheckpoint checkpoint);
+
+    @Insert
+    public abstract void insertFileBatch(CrawlFileBatch batch);
+
+    @Query("SELECT * FROM crawl_checkpoints WHERE uk = :uk AND rootPath = :rootPath")
+    public abstract CrawlCheckpoint getCheckpoint(String uk, String rootPath);
+
+    @Query("SELECT * FROM crawl_file_batches WHERE uk = :uk AND rootPath = :rootPath ORDER BY id ASC")
+    public abstract List<CrawlFileBatch> getFileBatches(String uk, String rootPath);
+
+    @Query("DELETE FROM crawl_checkpoints WHERE uk = :uk AND rootPath = :rootPath")
+    public abstract void deleteCheckpoint(String uk, String rootPath);
+
+    @Query("DELETE FROM crawl_file_batches WHERE uk = :uk AND rootPath = :rootPath")
+    public abstract void deleteFileBatches(String uk, String rootPath);
+
+    /**
+     * 保存断点：追加新的进度批次并更新断点，保证两者一致
+     */
+    @Transaction
+    public void saveCheckpoint(CrawlCheckpoint checkpoint, CrawlFileBatch newFiles) {
+        if (newFiles != null) {
+            insertFileBatch(newFiles);
+        }
+        insertCheckpoint(checkpoint);
+    }
+
+    /**
+     * 删除某个账号某个根目录的断点及已保存的进度
+     */
+    @Transaction
+    public void clear(String uk, String rootPath) {
+        deleteFileBatches(uk, rootPath);
+        deleteCheckpoint(uk, rootPath);
+    }
+}
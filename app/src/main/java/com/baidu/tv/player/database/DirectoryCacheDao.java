@@ -0,0 +1,40 @@
+package com.baidu.tv.player.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.baidu.tv.player.model.DirectoryCache;
+
+/**
+ * 目录列表缓存DAO
+ */
+@Dao
+public interface DirectoryCacheDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(DirectoryCache cache);
+
+    @Query("SELECT * FROM directory_cache WHERE path = :path LIMIT 1")
+    DirectoryCache getByPath(String path);
+
+    @Query("UPDATE directory_cache SET lastAccessAt = :time WHERE path = :path")
+    void updateLastAccess(String path, long time);
+
+    @Query("SELECT COUNT(*) FROM directory_cache")
+    int getCount();
+
+    /**
+     * LRU淘汰：只保留最近访问的 keepCount 条
+     */
+    @Query("DELETE FROM directory_cache WHERE path NOT IN " +
+            "(SELECT path FROM directory_cache ORDER BY lastAccessAt DESC LIMIT :keepCount)")
+    void trimToSize(int keepCount);
+
+    @Query("DELETE FROM directory_cache WHERE path = :path")
+    void deleteByPath(String path);
+
+    @Query("DELETE FROM directory_cache")
+    void deleteAll();
+}
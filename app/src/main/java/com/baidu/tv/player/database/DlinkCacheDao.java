@@ -0,0 +1,32 @@
+package com.baidu.tv.player.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.baidu.tv.player.model.DlinkCache;
+
+import java.util.List;
+
+/**
+ * dlink缓存DAO
+ */
+@Dao
+public interface DlinkCacheDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<DlinkCache> caches);
+
+    @Query("SELECT * FROM dlink_cache WHERE fsId IN (:fsIds) AND fetchedAt > :validAfter")
+    List<DlinkCache> getValidByFsIds(List<Long> fsIds, long validAfter);
+
+    @Query("DELETE FROM dlink_cache WHERE fsId = :fsId")
+    void deleteByFsId(long fsId);
+
+    @Query("DELETE FROM dlink_cache WHERE fetchedAt <= :validAfter")
+    void deleteExpired(long validAfter);
+
+    @Query("DELETE FROM dlink_cache")
+    void deleteAll();
+}
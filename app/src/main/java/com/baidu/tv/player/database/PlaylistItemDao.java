@@ -6,6 +6,7 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Update;
 
 import com.baidu.tv.player.model.PlaylistItem;
 
@@ -23,9 +24,15 @@ public interface PlaylistItemDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<PlaylistItem> items);
     
+    @Update
+    void updateAll(List<PlaylistItem> items);
+    
     @Delete
     void delete(PlaylistItem item);
     
+    @Query("DELETE FROM playlist_items WHERE id IN (:ids)")
+    void deleteByIds(List<Long> ids);
+    
     @Query("SELECT * FROM playlist_items WHERE playlistId = :playlistId ORDER BY sortOrder ASC")
     LiveData<List<PlaylistItem>> getItemsByPlaylistId(long playlistId);
     
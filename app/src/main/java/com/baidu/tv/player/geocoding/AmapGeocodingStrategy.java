@@ -4,14 +4,16 @@ import android.content.Context;
 import android.util.Log;
 
 import com.baidu.tv.player.config.BaiduConfig;
+import com.baidu.tv.player.network.HttpClientProvider;
 
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 
 /**
  * 高德地图逆地理编码策略
@@ -25,6 +27,12 @@ public class AmapGeocodingStrategy implements GeocodingStrategy {
     private static final int CONNECTION_TIMEOUT = 3000;  // 3秒
     private static final int READ_TIMEOUT = 5000;        // 5秒
     
+    // 基于全局共享客户端派生，复用连接池和DNS缓存
+    private static final OkHttpClient HTTP_CLIENT = HttpClientProvider.getSharedClient().newBuilder()
+            .connectTimeout(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
+            .readTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
+            .build();
+    
     // WGS84转GCJ02坐标转换常量
     private static final double PI = 3.1415926535897932384626;
     private static final double A = 6378245.0;
@@ -71,25 +79,23 @@ public class AmapGeocodingStrategy implements GeocodingStrategy {
                     "?key=%s&location=%f,%f&output=json&extensions=base",
                     apiKey, gcjLon, gcjLat);
             
-            URL url = new URL(urlString);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestProperty("User-Agent", "BaiduTVPlayer/1.0");
-            connection.setConnectTimeout(CONNECTION_TIMEOUT);
-            connection.setReadTimeout(READ_TIMEOUT);
+            Request request = new Request.Builder()
+                    .url(urlString)
+                    .header("User-Agent", "BaiduTVPlayer/1.0")
+                    .build();
             
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(connection.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
+            int responseCode;
+            String body = null;
+            try (Response httpResponse = HTTP_CLIENT.newCall(request).execute()) {
+                responseCode = httpResponse.code();
+                if (responseCode == 200 && httpResponse.body() != null) {
+                    body = httpResponse.body().string();
                 }
-                reader.close();
-                
+            }
+            
+            if (body != null) {
                 // 解析JSON响应
-                JSONObject json = new JSONObject(response.toString());
+                JSONObject json = new JSONObject(body);
                 String status = json.optString("status", "0");
                 
                 if ("1".equals(status)) {
@@ -98,7 +104,6 @@ public class AmapGeocodingStrategy implements GeocodingStrategy {
                         String formattedAddress = regeocode.optString("formatted_address", "");
                         if (!formattedAddress.isEmpty()) {
                             Log.d(TAG, "✅ 高德地图地址: " + formattedAddress);
-                            connection.disconnect();
                             return formattedAddress;
                         }
                     }
@@ -109,7 +114,6 @@ public class AmapGeocodingStrategy implements GeocodingStrategy {
             } else {
                 Log.w(TAG, "⚠️ HTTP错误: " + responseCode);
             }
-            connection.disconnect();
             
         } catch (Exception e) {
             Log.e(TAG, "❌ 高德地图API调用失败: " + e.getMessage());
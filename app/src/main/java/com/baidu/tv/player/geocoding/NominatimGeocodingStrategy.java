@@ -3,13 +3,16 @@ package com.baidu.tv.player.geocoding;
 import android.content.Context;
 import android.util.Log;
 
+import com.baidu.tv.player.network.HttpClientProvider;
+
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 
 /**
  * OpenStreetMap Nominatim逆地理编码策略
@@ -23,6 +26,12 @@ public class NominatimGeocodingStrategy implements GeocodingStrategy {
     private static final int CONNECTION_TIMEOUT = 3000;  // 3秒
     private static final int READ_TIMEOUT = 5000;        // 5秒
     
+    // 基于全局共享客户端派生，复用连接池和DNS缓存
+    private static final OkHttpClient HTTP_CLIENT = HttpClientProvider.getSharedClient().newBuilder()
+            .connectTimeout(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
+            .readTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
+            .build();
+    
     @Override
     public String getName() {
         return "Nominatim";
@@ -49,25 +58,23 @@ public class NominatimGeocodingStrategy implements GeocodingStrategy {
                     "?format=json&lat=%f&lon=%f&accept-language=zh",
                     latitude, longitude);
             
-            URL url = new URL(urlString);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestProperty("User-Agent", "BaiduTVPlayer/1.0");
-            connection.setConnectTimeout(CONNECTION_TIMEOUT);
-            connection.setReadTimeout(READ_TIMEOUT);
+            Request request = new Request.Builder()
+                    .url(urlString)
+                    .header("User-Agent", "BaiduTVPlayer/1.0")
+                    .build();
             
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(connection.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
+            int responseCode;
+            String body = null;
+            try (Response httpResponse = HTTP_CLIENT.newCall(request).execute()) {
+                responseCode = httpResponse.code();
+                if (responseCode == 200 && httpResponse.body() != null) {
+                    body = httpResponse.body().string();
                 }
-                reader.close();
-                
+            }
+            
+            if (body != null) {
                 // 解析JSON响应
-                JSONObject json = new JSONObject(response.toString());
+                JSONObject json = new JSONObject(body);
                 
                 // 尝试从 address 对象构建最详细的地址
                 JSONObject address = json.optJSONObject("address");
@@ -156,7 +163,6 @@ public class NominatimGeocodingStrategy implements GeocodingStrategy {
                     String detailedAddress = sb.toString();
                     if (!detailedAddress.isEmpty()) {
                         Log.d(TAG, "✅ Nominatim详细地址: " + detailedAddress);
-                        connection.disconnect();
                         return detailedAddress;
                     }
                 }
@@ -165,13 +171,11 @@ public class NominatimGeocodingStrategy implements GeocodingStrategy {
                 String displayName = json.optString("display_name", "");
                 if (!displayName.isEmpty()) {
                     Log.d(TAG, "✅ Nominatim完整地址: " + displayName);
-                    connection.disconnect();
                     return displayName;
                 }
             } else {
                 Log.w(TAG, "⚠️ HTTP错误: " + responseCode);
             }
-            connection.disconnect();
             
         } catch (Exception e) {
             Log.e(TAG, "❌ Nominatim API调用失败: " + e.getMessage());
@@ -0,0 +1,283 @@
+package com.baidu.tv.player.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑的播放列表（按列存储）
+ * 十万级的播放列表如果保存为 List&lt;FileInfo&gt;，每个条目都带有完整路径、缩略图等十几个字段，
+ * 在1~2GB内存的电视盒子上会占用数百MB。这里只保留播放需要的字段，按列存放在基本类型数组中：
+ * fsId、媒体类型、文件大小各占一个数组，路径拆成目录前缀（同一目录只存一份）和文件名。
+ * FileInfo 只在访问当前及附近的条目时才按需创建，并缓存最近访问的少量对象。
+ * 构建完成后条目不可修改，可以在多个线程中读取。
+ */
+public class CompactMediaList {
+
+    public static final byte TYPE_OTHER = 0;
+    public static final byte TYPE_IMAGE = 1;
+    public static final byte TYPE_VIDEO = 2;
+    public static final byte TYPE_DIRECTORY = 3;
+
+    // 按需创建的FileInfo最多缓存的个数（当前条目及前后预加载的条目）
+    private static final int FILE_INFO_CACHE_SIZE = 32;
+
+    private static final CompactMediaList EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final long[] fsIds;
+    private final byte[] mediaTypes;
+    private final long[] sizes;
+    // 条目所在目录在 directories 中的下标，-1 表示路径不能拆分（见 irregularPaths）
+    private final int[] directoryIndexes;
+    private final String[] directories;
+    private final String[] fileNames;
+    // 路径不是“目录/文件名”形式的少数条目：下标 -> 完整路径
+    private final Map<Integer, String> irregularPaths;
+    // 构建时已带有dlink的条目：下标 -> dlink（通常为空，dlink由DlinkResolver按fsId缓存）
+    private final Map<Integer, String> dlinks;
+
+    // 最近创建的FileInfo，按访问顺序淘汰
+    private final LinkedHashMap<Integer, FileInfo> fileInfoCache =
+            new LinkedHashMap<Integer, FileInfo>(FILE_INFO_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, FileInfo> eldest) {
+                    return size() > FILE_INFO_CACHE_SIZE;
+                }
+            };
+
+    private CompactMediaList(Builder builder) {
+        size = builder.size;
+        fsIds = Arrays.copyOf(builder.fsIds, size);
+        mediaTypes = Arrays.copyOf(builder.mediaTypes, size);
+        sizes = Arrays.copyOf(builder.sizes, size);
+        directoryIndexes = Arrays.copyOf(builder.directoryIndexes, size);
+        fileNames = Arrays.copyOf(builder.fileNames, size);
+        directories = new String[builder.directoryLookup.size()];
+        for (Map.Entry<String, Integer> entry : builder.directoryLookup.entrySet()) {
+            directories[entry.getValue()] = entry.getKey();
+        }
+        irregularPaths = builder.irregularPaths;
+        dlinks = builder.dlinks;
+    }
+
+    public static CompactMediaList empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 由FileInfo列表构建
+     */
+    public static CompactMediaList fromFiles(List<FileInfo> files) {
+        if (files == null || files.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder(files.size());
+        for (FileInfo file : files) {
+            builder.add(file);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 根据文件信息判断紧凑列表中使用的媒体类型
+     */
+    public static byte mediaTypeOf(FileInfo file) {
+        if (file.isDirectory()) {
+            return TYPE_DIRECTORY;
+        }
+        if (file.isVideo()) {
+            return TYPE_VIDEO;
+        }
+        if (file.isImage()) {
+            return TYPE_IMAGE;
+        }
+        return TYPE_OTHER;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getFsId(int index) {
+        return fsIds[index];
+    }
+
+    public byte getMediaType(int index) {
+        return mediaTypes[index];
+    }
+
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    public boolean isDirectory(int index) {
+        return mediaTypes[index] == TYPE_DIRECTORY;
+    }
+
+    public String getFileName(int index) {
+        return fileNames[index];
+    }
+
+    /**
+     * 拼接条目的完整路径
+     */
+    public String getPath(int index) {
+        int dir = directoryIndexes[index];
+        if (dir < 0) {
+            return irregularPaths.get(index);
+        }
+        return directories[dir] + "/" + fileNames[index];
+    }
+
+    /**
+     * 构建时带有的dlink，没有则返回null
+     */
+    public synchronized String getDlink(int index) {
+        return dlinks.get(index);
+    }
+
+    /**
+     * 清除条目的dlink（dlink失效时），已创建的FileInfo一并清除
+     */
+    public synchronized void clearDlink(int index) {
+        dlinks.remove(index);
+        FileInfo cached = fileInfoCache.get(index);
+        if (cached != null) {
+            cached.setDlink(null);
+        }
+    }
+
+    /**
+     * 获取条目对应的FileInfo，最近访问过的条目返回同一个对象
+     */
+    public synchronized FileInfo get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+        }
+        FileInfo file = fileInfoCache.get(index);
+        if (file == null) {
+            file = createFileInfo(index);
+            fileInfoCache.put(index, file);
+        }
+        return file;
+    }
+
+    private FileInfo createFileInfo(int index) {
+        FileInfo file = new FileInfo();
+        file.setFsId(fsIds[index]);
+        file.setServerFilename(fileNames[index]);
+        file.setPath(getPath(index));
+        file.setSize(sizes[index]);
+        file.setDlink(dlinks.get(index));
+        switch (mediaTypes[index]) {
+            case TYPE_DIRECTORY:
+                file.setIsdir(1);
+                break;
+            case TYPE_VIDEO:
+                file.setCategory(1);
+                break;
+            case TYPE_IMAGE:
+                file.setCategory(3);
+                break;
+            default:
+                break;
+        }
+        return file;
+    }
+
+    /**
+     * 逐条构建紧凑列表，数组按需扩容
+     */
+    public static class Builder {
+        private int size;
+        private long[] fsIds;
+        private byte[] mediaTypes;
+        private long[] sizes;
+        private int[] directoryIndexes;
+        private String[] fileNames;
+        // 目录前缀 -> 下标（同一目录下的文件共享一个字符串）
+        private final LinkedHashMap<String, Integer> directoryLookup = new LinkedHashMap<>();
+        private final Map<Integer, String> irregularPaths = new HashMap<>();
+        private final Map<Integer, String> dlinks = new HashMap<>();
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            fsIds = new long[capacity];
+            mediaTypes = new byte[capacity];
+            sizes = new long[capacity];
+            directoryIndexes = new int[capacity];
+            fileNames = new String[capacity];
+        }
+
+        public Builder add(FileInfo file) {
+            String dlink = file.getDlink();
+            return add(file.getFsId(), file.getPath(), file.getServerFilename(), file.getSize(),
+                    mediaTypeOf(file), dlink != null && dlink.startsWith("http") ? dlink : null);
+        }
+
+        /**
+         * 添加一个条目
+         * @param path 完整路径，可为null
+         * @param fileName 文件名
+         * @param mediaType TYPE_* 之一
+         * @param dlink 已知的dlink，可为null
+         */
+        public Builder add(long fsId, String path, String fileName, long size, byte mediaType, String dlink) {
+            ensureCapacity(this.size + 1);
+            int index = this.size;
+            fsIds[index] = fsId;
+            mediaTypes[index] = mediaType;
+            sizes[index] = size;
+
+            String name = fileName;
+            if (name == null && path != null) {
+                name = path.substring(path.lastIndexOf('/') + 1);
+            }
+            fileNames[index] = name;
+
+            if (path != null && name != null && path.endsWith("/" + name)) {
+                String directory = path.substring(0, path.length() - name.length() - 1);
+                Integer dirIndex = directoryLookup.get(directory);
+                if (dirIndex == null) {
+                    dirIndex = directoryLookup.size();
+                    directoryLookup.put(directory, dirIndex);
+                }
+                directoryIndexes[index] = dirIndex;
+            } else {
+                directoryIndexes[index] = -1;
+                if (path != null) {
+                    irregularPaths.put(index, path);
+                }
+            }
+
+            if (dlink != null) {
+                dlinks.put(index, dlink);
+            }
+            this.size++;
+            return this;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= fsIds.length) {
+                return;
+            }
+            int capacity = Math.max(required, fsIds.length * 2);
+            fsIds = Arrays.copyOf(fsIds, capacity);
+            mediaTypes = Arrays.copyOf(mediaTypes, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            directoryIndexes = Arrays.copyOf(directoryIndexes, capacity);
+            fileNames = Arrays.copyOf(fileNames, capacity);
+        }
+
+        public CompactMediaList build() {
+            return new CompactMediaList(this);
+        }
+    }
+}
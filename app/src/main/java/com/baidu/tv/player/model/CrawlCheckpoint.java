@@ -0,0 +1,78 @@
+package com.baidu.tv.player.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * 递归扫描断点实体
+ * 记录一次目录树扫描的进度（待处理队列），扫描中断后可从断点继续。按账号（uk）和根目录区分，
+ * 切换账号后不会用到其他账号的断点。
+ * 已找到的文件和已完成的目录分批保存在 crawl_file_batches 表中，避免每次保存断点都重写全部内容。
+ */
+@Entity(tableName = "crawl_checkpoints", primaryKeys = {"uk", "rootPath"})
+public class CrawlCheckpoint {
+
+    @NonNull
+    private String uk = "";         // 网盘账号的uk
+
+    @NonNull
+    private String rootPath = "";   // 扫描的根目录
+
+    private String pendingJson;     // 待处理目录队列（JSON数组，包含保存时正在请求中的目录）
+    private int dirsDone;           // 已完成目录数
+    private int filesFound;         // 已找到的文件数
+    private long updatedAt;         // 最后保存时间（毫秒）
+
+    public CrawlCheckpoint() {
+    }
+
+    @NonNull
+    public String getUk() {
+        return uk;
+    }
+
+    public void setUk(@NonNull String uk) {
+        this.uk = uk;
+    }
+
+    @NonNull
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    public void setRootPath(@NonNull String rootPath) {
+        this.rootPath = rootPath;
+    }
+
+    public String getPendingJson() {
+        return pendingJson;
+    }
+
+    public void setPendingJson(String pendingJson) {
+        this.pendingJson = pendingJson;
+    }
+
+    public int getDirsDone() {
+        return dirsDone;
+    }
+
+    public void setDirsDone(int dirsDone) {
+        this.dirsDone = dirsDone;
+    }
+
+    public int getFilesFound() {
+        return filesFound;
+    }
+
+    public void setFilesFound(int filesFound) {
+        this.filesFound = filesFound;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,67 @@
+package com.baidu.tv.player.model;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 递归扫描断点中的一批进度
+ * 每次保存断点只追加自上次断点以来新找到的文件和新完成的目录
+ */
+@Entity(
+    tableName = "crawl_file_batches",
+    indices = {@Index({"uk", "rootPath"})}
+)
+public class CrawlFileBatch {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    private String uk;              // 所属扫描的账号uk
+    private String rootPath;        // 所属扫描的根目录
+    private String filesJson;       // 文件列表（FileInfo的JSON数组）
+    private String visitedDirsJson; // 本批次完成的目录（JSON数组）
+
+    public CrawlFileBatch() {
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getUk() {
+        return uk;
+    }
+
+    public void setUk(String uk) {
+        this.uk = uk;
+    }
+
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    public void setRootPath(String rootPath) {
+        this.rootPath = rootPath;
+    }
+
+    public String getFilesJson() {
+        return filesJson;
+    }
+
+    public void setFilesJson(String filesJson) {
+        this.filesJson = filesJson;
+    }
+
+    public String getVisitedDirsJson() {
+        return visitedDirsJson;
+    }
+
+    public void setVisitedDirsJson(String visitedDirsJson) {
+        this.visitedDirsJson = visitedDirsJson;
+    }
+}
@@ -0,0 +1,84 @@
+package com.baidu.tv.player.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * 目录列表缓存实体
+ * 按目录路径缓存 xpan/file?method=list 的原始结果（未过滤），用于返回上级或重复进入目录时直接显示
+ */
+@Entity(tableName = "directory_cache")
+public class DirectoryCache {
+
+    @PrimaryKey
+    @NonNull
+    private String path = "";
+
+    private String listingJson;   // 文件列表JSON（FileInfo数组）
+    private long dirMtime;        // 缓存时目录自身的server_mtime（来自上级目录列表，0表示未知）
+    private long fetchedAt;       // 从网络获取的时间
+    private long lastAccessAt;    // 最后访问时间（用于LRU淘汰）
+    private int itemCount;        // 缓存的项目数
+    private boolean hasMore;      // 是否因页数限制未加载完全
+
+    public DirectoryCache() {
+    }
+
+    @NonNull
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(@NonNull String path) {
+        this.path = path;
+    }
+
+    public String getListingJson() {
+        return listingJson;
+    }
+
+    public void setListingJson(String listingJson) {
+        this.listingJson = listingJson;
+    }
+
+    public long getDirMtime() {
+        return dirMtime;
+    }
+
+    public void setDirMtime(long dirMtime) {
+        this.dirMtime = dirMtime;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public void setFetchedAt(long fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+
+    public long getLastAccessAt() {
+        return lastAccessAt;
+    }
+
+    public void setLastAccessAt(long lastAccessAt) {
+        this.lastAccessAt = lastAccessAt;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
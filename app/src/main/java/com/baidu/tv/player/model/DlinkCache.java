@@ -0,0 +1,45 @@
+package com.baidu.tv.player.model;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * 文件下载链接（dlink）缓存实体
+ * dlink有效期为数小时，持久化后重新打开播放列表时无需再次请求filemetas接口
+ */
+@Entity(tableName = "dlink_cache")
+public class DlinkCache {
+
+    @PrimaryKey
+    private long fsId;
+
+    private String dlink;
+    private long fetchedAt;   // 获取时间（毫秒）
+
+    public DlinkCache() {
+    }
+
+    public long getFsId() {
+        return fsId;
+    }
+
+    public void setFsId(long fsId) {
+        this.fsId = fsId;
+    }
+
+    public String getDlink() {
+        return dlink;
+    }
+
+    public void setDlink(String dlink) {
+        this.dlink = dlink;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public void setFetchedAt(long fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+}
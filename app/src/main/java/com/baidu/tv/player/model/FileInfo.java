@@ -276,6 +276,9 @@ public class FileInfo implements Parcelable {
         private String url2;
         private String url3;
 
+        public Thumbs() {
+        }
+
         public String getIcon() {
             return icon;
         }
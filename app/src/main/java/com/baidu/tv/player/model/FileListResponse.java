@@ -26,6 +26,9 @@ public class FileListResponse {
     private int hasMore;
     
     private String cursor;
+    
+    // 响应中原始的条目数（流式解析时过滤掉的条目也计算在内），-1表示未过滤
+    private transient int rawCount = -1;
 
     public int getErrno() {
         return errno;
@@ -83,6 +86,20 @@ public class FileListResponse {
         this.cursor = cursor;
     }
 
+    /**
+     * 响应中原始的条目数，用于判断是否满页；解析时过滤过条目的话大于 getList().size()
+     */
+    public int getRawCount() {
+        if (rawCount >= 0) {
+            return rawCount;
+        }
+        return list != null ? list.size() : 0;
+    }
+
+    public void setRawCount(int rawCount) {
+        this.rawCount = rawCount;
+    }
+
     /**
      * 是否成功
      */
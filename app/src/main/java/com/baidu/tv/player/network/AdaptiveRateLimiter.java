@@ -0,0 +1,317 @@
+package com.baidu.tv.player.network;
+
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 网盘接口自适应限流器
+ * 令牌桶控制发往网盘接口的请求速率：请求成功时缓慢提高速率（加性增），
+ * 遇到频控errno、429或5xx时速率减半（乘性减），最终稳定在账号允许的最高速率附近。
+ * 连续多次被限流时打开熔断器，熔断期间的请求延后发出而不是失败，
+ * 冷却结束后先放行一个探测请求，成功则恢复，失败则加倍冷却时间。
+ * 调用方在发出请求之前通过 runWhenPermitted 申请令牌，令牌不足时由限流器的定时线程延后发出，
+ * 不会占用OkHttp的调度线程；请求的结果由 RateLimitInterceptor 反馈。
+ */
+public class AdaptiveRateLimiter {
+    private static final String TAG = "AdaptiveRateLimiter";
+
+    // 初始速率（请求/秒）
+    private static final double INITIAL_RATE = 8;
+    // 最低速率
+    private static final double MIN_RATE = 1;
+    // 最高速率
+    private static final double MAX_RATE = 30;
+    // 每次加性增加的速率
+    private static final double RATE_INCREASE_STEP = 1;
+    // 两次降速之间的最小间隔，避免同一波并发请求的限流响应把速率连续减半
+    private static final long DECREASE_INTERVAL_MS = 1000;
+    // 连续被限流多少次后打开熔断器
+    private static final int BREAKER_THRESHOLD = 5;
+    // 熔断冷却时间（首次），之后每次加倍
+    private static final long BASE_COOLDOWN_MS = 5000;
+    private static final long MAX_COOLDOWN_MS = 60000;
+    // 最近一次限流后多长时间内视为处于退避状态
+    private static final long BACKOFF_WINDOW_MS = 10000;
+    // 等待探测请求结果时的检查间隔
+    private static final long PROBE_POLL_MS = 200;
+    // 探测请求超过该时间没有结果（如发出前被取消）时放行新的探测请求
+    private static final long PROBE_TIMEOUT_MS = ApiConstants.READ_TIMEOUT;
+    // 被限流请求重试的首次退避时间和上限
+    private static final long BASE_RETRY_BACKOFF_MS = 500;
+    private static final long MAX_RETRY_BACKOFF_MS = 8000;
+
+    private static AdaptiveRateLimiter instance;
+
+    private enum BreakerState { CLOSED, OPEN, HALF_OPEN }
+
+    private double rate = INITIAL_RATE;
+    private double tokens = 1;
+    private long lastRefillAt = System.currentTimeMillis();
+    private int successesSinceIncrease = 0;
+    // 上次提速以来是否有请求因令牌不足而等待（速率没有成为瓶颈时不提速）
+    private boolean saturatedSinceIncrease = false;
+    private long lastDecreaseAt = 0;
+    private long lastThrottledAt = 0;
+
+    private BreakerState breakerState = BreakerState.CLOSED;
+    private int consecutiveThrottles = 0;
+    private int breakerTrips = 0;
+    private long breakerOpenUntil = 0;
+    private long currentCooldownMs = BASE_COOLDOWN_MS;
+    private boolean probeInFlight = false;
+    private long probeStartedAt = 0;
+    // 服务器通过Retry-After要求暂停请求的截止时间
+    private long retryAfterUntil = 0;
+
+    // 延后发出请求的定时线程（只负责发出请求，不执行网络操作）
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RateLimiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 统计
+    private long throttledResponses = 0;
+    private long retries = 0;
+    private long totalWaitMs = 0;
+
+    private AdaptiveRateLimiter() {
+    }
+
+    public static synchronized AdaptiveRateLimiter getInstance() {
+        if (instance == null) {
+            instance = new AdaptiveRateLimiter();
+        }
+        return instance;
+    }
+
+    /**
+     * 申请到令牌后执行task（通常是发出请求），令牌不足或熔断期间由定时线程延后执行
+     * 有令牌时直接在调用线程上执行
+     * @param canceled 请求是否已被取消，取消后不再执行task，也不消耗令牌
+     */
+    public void runWhenPermitted(BooleanSupplier canceled, Runnable task) {
+        runWhenPermitted(0, canceled, task);
+    }
+
+    /**
+     * 等待delayMs（如重试的退避时间）后再申请令牌并执行task
+     */
+    public void runWhenPermitted(long delayMs, BooleanSupplier canceled, Runnable task) {
+        long waitStart = System.currentTimeMillis();
+        if (delayMs > 0) {
+            scheduler.schedule(() -> tryRun(waitStart, canceled, task), delayMs, TimeUnit.MILLISECONDS);
+        } else {
+            tryRun(waitStart, canceled, task);
+        }
+    }
+
+    private void tryRun(long waitStart, BooleanSupplier canceled, Runnable task) {
+        if (canceled.getAsBoolean()) {
+            return;
+        }
+        long waitMs = tryAcquire(waitStart);
+        if (waitMs > 0) {
+            scheduler.schedule(() -> tryRun(waitStart, canceled, task), waitMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "发出请求失败", e);
+        }
+    }
+
+    /**
+     * 尝试获取一个令牌
+     * @return 0表示已获取；否则为建议的等待时间（毫秒）
+     */
+    private synchronized long tryAcquire(long waitStart) {
+        long now = System.currentTimeMillis();
+        if (breakerState == BreakerState.OPEN && now >= breakerOpenUntil) {
+            breakerState = BreakerState.HALF_OPEN;
+            probeInFlight = false;
+            Log.d(TAG, "熔断冷却结束，放行探测请求");
+        }
+        if (breakerState == BreakerState.HALF_OPEN && probeInFlight && now - probeStartedAt >= PROBE_TIMEOUT_MS) {
+            Log.w(TAG, "探测请求没有结果，重新放行探测请求");
+            probeInFlight = false;
+        }
+
+        if (breakerState == BreakerState.OPEN) {
+            return breakerOpenUntil - now;
+        }
+        if (breakerState == BreakerState.HALF_OPEN && probeInFlight) {
+            // 等待探测请求的结果
+            return PROBE_POLL_MS;
+        }
+        if (now < retryAfterUntil) {
+            return retryAfterUntil - now;
+        }
+        refill(now);
+        if (tokens >= 1) {
+            tokens -= 1;
+            if (breakerState == BreakerState.HALF_OPEN) {
+                probeInFlight = true;
+                probeStartedAt = now;
+            }
+            totalWaitMs += now - waitStart;
+            return 0;
+        }
+        saturatedSinceIncrease = true;
+        return Math.max(1, (long) Math.ceil((1 - tokens) * 1000 / rate));
+    }
+
+    /**
+     * 按当前速率补充令牌，桶容量为1秒的请求量（需持有锁）
+     */
+    private void refill(long now) {
+        long elapsed = now - lastRefillAt;
+        if (elapsed > 0) {
+            tokens = Math.min(Math.max(1, rate), tokens + elapsed * rate / 1000);
+            lastRefillAt = now;
+        }
+    }
+
+    /**
+     * 请求正常返回
+     */
+    synchronized void onSuccess() {
+        consecutiveThrottles = 0;
+        if (breakerState == BreakerState.HALF_OPEN) {
+            Log.d(TAG, "探测请求成功，关闭熔断器, 速率=" + formatRate(rate));
+            breakerState = BreakerState.CLOSED;
+            probeInFlight = false;
+            currentCooldownMs = BASE_COOLDOWN_MS;
+        }
+        // 速率成为瓶颈、且大约一秒的请求都成功后，速率加1
+        successesSinceIncrease++;
+        if (saturatedSinceIncrease && successesSinceIncrease >= rate && rate < MAX_RATE) {
+            rate = Math.min(MAX_RATE, rate + RATE_INCREASE_STEP);
+            successesSinceIncrease = 0;
+            saturatedSinceIncrease = false;
+        }
+    }
+
+    /**
+     * 请求被限流（频控errno、429或5xx）
+     * @param retryAfterMs 服务器通过Retry-After要求的等待时间，没有时传0
+     */
+    synchronized void onThrottled(long retryAfterMs) {
+        long now = System.currentTimeMillis();
+        if (retryAfterMs > 0) {
+            retryAfterUntil = Math.max(retryAfterUntil, now + Math.min(retryAfterMs, MAX_COOLDOWN_MS));
+        }
+        throttledResponses++;
+        consecutiveThrottles++;
+        lastThrottledAt = now;
+        successesSinceIncrease = 0;
+
+        if (now - lastDecreaseAt >= DECREASE_INTERVAL_MS) {
+            rate = Math.max(MIN_RATE, rate / 2);
+            lastDecreaseAt = now;
+            Log.w(TAG, "接口被限流，降低请求速率至 " + formatRate(rate));
+        }
+        // 清空令牌，后续请求按新速率重新排队
+        tokens = Math.min(tokens, 0);
+
+        if (breakerState == BreakerState.HALF_OPEN) {
+            currentCooldownMs = Math.min(MAX_COOLDOWN_MS, currentCooldownMs * 2);
+            openBreaker(now);
+        } else if (breakerState == BreakerState.CLOSED && consecutiveThrottles >= BREAKER_THRESHOLD) {
+            openBreaker(now);
+        }
+    }
+
+    private void openBreaker(long now) {
+        breakerState = BreakerState.OPEN;
+        breakerOpenUntil = now + currentCooldownMs;
+        probeInFlight = false;
+        breakerTrips++;
+        Log.w(TAG, "连续 " + consecutiveThrottles + " 次被限流，熔断 " + currentCooldownMs + "ms");
+    }
+
+    /**
+     * 请求因网络错误失败（没有拿到响应），不影响速率，只释放探测名额
+     */
+    synchronized void onRequestFailed() {
+        if (breakerState == BreakerState.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * 请求命中本地HTTP缓存（没有发往服务器）：退还令牌，是探测请求时放行新的探测请求
+     */
+    synchronized void onCacheHit() {
+        tokens = Math.min(Math.max(1, rate), tokens + 1);
+        if (breakerState == BreakerState.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized void recordRetry() {
+        retries++;
+    }
+
+    /**
+     * 被限流请求第attempt次（从0开始）重试前的退避时间：
+     * 指数增长，在上限的一半到上限之间随机取值，避免并发请求同时重试
+     */
+    public long retryDelayMs(int attempt) {
+        long cap = Math.min(MAX_RETRY_BACKOFF_MS, BASE_RETRY_BACKOFF_MS << Math.min(attempt, 16));
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    /**
+     * 是否处于退避状态（熔断中或最近刚被限流），此时的请求失败多半是暂时性的
+     */
+    public synchronized boolean isBackingOff() {
+        return breakerState != BreakerState.CLOSED
+                || System.currentTimeMillis() - lastThrottledAt < BACKOFF_WINDOW_MS;
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * 获取限流状态摘要
+     */
+    public synchronized String getSummary() {
+        String breaker;
+        if (breakerState == BreakerState.OPEN) {
+            long remaining = Math.max(0, breakerOpenUntil - System.currentTimeMillis());
+            breaker = "熔断中(剩余" + remaining / 1000 + "s)";
+        } else if (breakerState == BreakerState.HALF_OPEN) {
+            breaker = "探测中";
+        } else {
+            breaker = "正常";
+        }
+        return "限流: 速率=" + formatRate(rate) + "/s, 状态=" + breaker
+                + ", 限流响应=" + throttledResponses
+                + ", 重试=" + retries
+                + ", 熔断次数=" + breakerTrips
+                + ", 累计等待=" + totalWaitMs + "ms";
+    }
+
+    /**
+     * 重置统计（不影响当前速率和熔断状态）
+     */
+    public synchronized void resetStats() {
+        throttledResponses = 0;
+        retries = 0;
+        breakerTrips = 0;
+        totalWaitMs = 0;
+    }
+
+    private static String formatRate(double value) {
+        return String.format(Locale.US, "%.1f", value);
+    }
+}
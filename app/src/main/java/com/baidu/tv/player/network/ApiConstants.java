@@ -21,6 +21,15 @@ public class ApiConstants {
     public static final String ENDPOINT_DEVICE_CODE = "device/code";
     public static final String ENDPOINT_REVOKE = "revoke";
     
+    // 强制刷新时请求携带的Cache-Control（跳过本地HTTP缓存，重新从服务器获取并更新缓存）
+    public static final String CACHE_CONTROL_FORCE_REFRESH = "no-cache";
+    
+    // 接口频控errno（请求过于频繁）
+    public static final int ERRNO_RATE_LIMITED = 31034;
+    
+    // 文件或目录不存在
+    public static final int ERRNO_FILE_NOT_FOUND = -9;
+    
     // 请求超时时间（毫秒）
     public static final int CONNECT_TIMEOUT = 30000;
     public static final int READ_TIMEOUT = 30000;
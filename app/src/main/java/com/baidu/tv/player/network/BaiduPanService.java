@@ -11,6 +11,7 @@ import java.util.Map;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Query;
 import retrofit2.http.QueryMap;
 
@@ -61,8 +62,9 @@ public interface BaiduPanService {
     );
     
     /**
-     * 获取文件列表
+     * 获取文件列表（解析时只保留目录和图片/视频）
      */
+    @MediaEntriesOnly
     @GET(ApiConstants.ENDPOINT_FILE)
     Call<FileListResponse> getFileList(
             @Query("method") String method,
@@ -73,21 +75,46 @@ public interface BaiduPanService {
             @Query("limit") int limit,
             @Query("web") int web,
             @Query("folder") int folder,
-            @Query("access_token") String accessToken
+            @Query("access_token") String accessToken,
+            @Header("Cache-Control") String cacheControl
     );
     
     /**
-     * 递归获取文件列表
+     * 递归获取文件列表（listall，通过响应中的has_more/cursor翻页，解析时只保留目录和图片/视频）
      */
+    @MediaEntriesOnly
     @GET(ApiConstants.ENDPOINT_MULTIMEDIA)
     Call<FileListResponse> getFileListRecursive(
             @Query("method") String method,
             @Query("path") String path,
             @Query("order") String order,
             @Query("desc") int desc,
+            @Query("start") int start,
             @Query("limit") int limit,
             @Query("recursion") int recursion,
-            @Query("access_token") String accessToken
+            @Query("access_token") String accessToken,
+            @Header("Cache-Control") String cacheControl
+    );
+    
+    /**
+     * 按类型获取目录下的文件（categorylist，服务端过滤，结果字段为info，通过has_more/cursor翻页）
+     * @param category 文件类型：1视频、3图片
+     * @param showDir 是否同时返回目录，0不返回
+     */
+    @MediaEntriesOnly
+    @GET(ApiConstants.ENDPOINT_MULTIMEDIA)
+    Call<FileListResponse> getCategoryList(
+            @Query("method") String method,
+            @Query("category") String category,
+            @Query("show_dir") int showDir,
+            @Query("parent_path") String parentPath,
+            @Query("recursion") int recursion,
+            @Query("order") String order,
+            @Query("desc") int desc,
+            @Query("start") int start,
+            @Query("limit") int limit,
+            @Query("access_token") String accessToken,
+            @Header("Cache-Control") String cacheControl
     );
     
     /**
@@ -98,6 +125,7 @@ public interface BaiduPanService {
             @Query("method") String method,
             @Query("fsids") String fsids,
             @Query("dlink") int dlink,
-            @Query("access_token") String accessToken
+            @Query("access_token") String accessToken,
+            @Header("Cache-Control") String cacheControl
     );
 }
\ No newline at end of file
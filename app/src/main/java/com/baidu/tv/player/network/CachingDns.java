@@ -0,0 +1,77 @@
+package com.baidu.tv.player.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Dns;
+
+/**
+ * 带缓存的DNS解析
+ * 百度网盘API、缩略图和PCS下载域名会被反复解析，缓存解析结果可减少新建连接时的DNS耗时。
+ * 缓存过期后重新解析；解析失败时在过期宽限期内继续使用旧结果。
+ */
+public class CachingDns implements Dns {
+    private static final String TAG = "CachingDns";
+
+    // 解析结果缓存时间
+    private static final long CACHE_TTL_MS = 5 * 60 * 1000;
+    // 解析失败时仍可使用旧结果的最长时间
+    private static final long STALE_GRACE_MS = 30 * 60 * 1000;
+
+    private final Dns delegate;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+
+        Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    public CachingDns() {
+        this(Dns.SYSTEM);
+    }
+
+    public CachingDns(Dns delegate) {
+        this.delegate = delegate;
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(hostname);
+        if (entry != null && now - entry.resolvedAt < CACHE_TTL_MS) {
+            return entry.addresses;
+        }
+
+        try {
+            List<InetAddress> addresses = delegate.lookup(hostname);
+            cache.put(hostname, new Entry(addresses, now));
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (entry != null && now - entry.resolvedAt < STALE_GRACE_MS) {
+                Log.w(TAG, "DNS解析失败，使用缓存结果: " + hostname);
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 清空缓存（如网络切换后）
+     */
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -0,0 +1,200 @@
+package com.baidu.tv.player.network;
+
+import com.baidu.tv.player.model.FileInfo;
+import com.baidu.tv.player.model.FileListResponse;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * 文件列表响应的流式解析
+ * 标记了 @MediaEntriesOnly 的接口（list/listall/categorylist）由这里用 JsonReader 边读边解析：
+ * 只读取用到的字段，其余字段直接跳过；既不是目录也不是图片/视频的条目解析后立即丢弃，
+ * 不进入结果列表。每页1000条的响应不再先生成完整的 List&lt;FileInfo&gt; 再过滤一遍。
+ * 其他接口仍交给后面注册的 GsonConverterFactory。
+ */
+public class FileListConverterFactory extends Converter.Factory {
+
+    public static FileListConverterFactory create() {
+        return new FileListConverterFactory();
+    }
+
+    private FileListConverterFactory() {
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                            Retrofit retrofit) {
+        if (type != FileListResponse.class) {
+            return null;
+        }
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof MediaEntriesOnly) {
+                return new MediaListConverter();
+            }
+        }
+        return null;
+    }
+
+    private static final class MediaListConverter implements Converter<ResponseBody, FileListResponse> {
+
+        @Override
+        public FileListResponse convert(ResponseBody value) throws IOException {
+            try {
+                JsonReader reader = new JsonReader(value.charStream());
+                FileListResponse response = readResponse(reader);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonIOException("JSON document was not fully consumed.");
+                }
+                return response;
+            } finally {
+                value.close();
+            }
+        }
+
+        private FileListResponse readResponse(JsonReader reader) throws IOException {
+            FileListResponse response = new FileListResponse();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "errno":
+                        response.setErrno(reader.nextInt());
+                        break;
+                    case "errmsg":
+                        response.setErrmsg(reader.nextString());
+                        break;
+                    case "has_more":
+                        response.setHasMore(readFlag(reader));
+                        break;
+                    case "cursor":
+                        response.setCursor(reader.nextString());
+                        break;
+                    case "list":
+                    case "info": // categorylist接口的结果字段
+                        readList(reader, response);
+                        break;
+                    default:
+                        // guid_info、request_id等字段不使用
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            return response;
+        }
+
+        private void readList(JsonReader reader, FileListResponse response) throws IOException {
+            List<FileInfo> files = new ArrayList<>();
+            int rawCount = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                FileInfo file = readFile(reader);
+                rawCount++;
+                if (file.isDirectory() || file.isImage() || file.isVideo()) {
+                    files.add(file);
+                }
+            }
+            reader.endArray();
+            response.setList(files);
+            response.setRawCount(rawCount);
+        }
+
+        /**
+         * 读取一个条目，只保留界面和播放用到的字段
+         */
+        private FileInfo readFile(JsonReader reader) throws IOException {
+            FileInfo file = new FileInfo();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "fs_id":
+                        file.setFsId(reader.nextLong());
+                        break;
+                    case "path":
+                        file.setPath(reader.nextString());
+                        break;
+                    case "server_filename":
+                        file.setServerFilename(reader.nextString());
+                        break;
+                    case "size":
+                        file.setSize(reader.nextLong());
+                        break;
+                    case "server_mtime":
+                        file.setServerMtime(reader.nextLong());
+                        break;
+                    case "isdir":
+                        file.setIsdir(readFlag(reader));
+                        break;
+                    case "category":
+                        file.setCategory(reader.nextInt());
+                        break;
+                    case "dlink":
+                        file.setDlink(reader.nextString());
+                        break;
+                    case "thumbs":
+                        file.setThumbs(readThumbs(reader));
+                        break;
+                    default:
+                        // md5、server_ctime、local_mtime等字段不使用
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            return file;
+        }
+
+        /**
+         * 缩略图只使用url1
+         */
+        private FileInfo.Thumbs readThumbs(JsonReader reader) throws IOException {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                return null;
+            }
+            FileInfo.Thumbs thumbs = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("url1".equals(name) && reader.peek() == JsonToken.STRING) {
+                    thumbs = new FileInfo.Thumbs();
+                    thumbs.setUrl1(reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return thumbs;
+        }
+
+        /**
+         * 读取0/1标志，兼容布尔值
+         */
+        private int readFlag(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.BOOLEAN) {
+                return reader.nextBoolean() ? 1 : 0;
+            }
+            return reader.nextInt();
+        }
+    }
+}
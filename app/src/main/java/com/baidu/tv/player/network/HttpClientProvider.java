@@ -0,0 +1,204 @@
+package com.baidu.tv.player.network;
+
+import android.util.Log;
+
+import com.baidu.tv.player.BaiduTVApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.logging.HttpLoggingInterceptor;
+
+/**
+ * 全局共享的OkHttpClient
+ * Retrofit、Glide、ExoPlayer和地点识别都基于同一个客户端，
+ * 共享连接池、TLS会话、HTTP/2连接和DNS缓存，避免对相同的百度/PCS域名重复握手。
+ * 各使用方通过 newBuilder() 派生出自己的超时和拦截器配置，派生的客户端仍共享上述资源。
+ * 所有请求的耗时和流量由 MetricsEventListener 记录到 NetworkMetrics；请求日志只在网络调试模式下输出。
+ */
+public class HttpClientProvider {
+    private static final String TAG = "HttpClientProvider";
+
+    // 连接池最大空闲连接数（API、缩略图、视频分段请求会同时访问多个域名）
+    private static final int MAX_IDLE_CONNECTIONS = 16;
+    // 空闲连接保持时间（分钟）
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    // 同时进行的最大请求数
+    private static final int MAX_REQUESTS = 64;
+    // 单个域名同时进行的最大请求数（目录并发扫描+分页并发+缩略图）
+    private static final int MAX_REQUESTS_PER_HOST = 16;
+
+    // 网盘接口磁盘缓存大小
+    private static final long PAN_API_CACHE_SIZE = 20L * 1024 * 1024;
+
+    private static volatile OkHttpClient sharedClient;
+    private static volatile Cache panApiCache;
+    private static final CachingDns dns = new CachingDns();
+
+    // 网络调试模式（开启后输出请求日志）
+    private static volatile boolean debugMode = false;
+    // 已创建的日志拦截器及其调试模式下的日志级别
+    private static final List<DebugLogging> loggingInterceptors = new CopyOnWriteArrayList<>();
+
+    private static class DebugLogging {
+        final HttpLoggingInterceptor interceptor;
+        final HttpLoggingInterceptor.Level debugLevel;
+
+        DebugLogging(HttpLoggingInterceptor interceptor, HttpLoggingInterceptor.Level debugLevel) {
+            this.interceptor = interceptor;
+            this.debugLevel = debugLevel;
+        }
+    }
+
+    /**
+     * 获取共享的OkHttpClient
+     */
+    public static OkHttpClient getSharedClient() {
+        if (sharedClient == null) {
+            synchronized (HttpClientProvider.class) {
+                if (sharedClient == null) {
+                    sharedClient = createClient();
+                }
+            }
+        }
+        return sharedClient;
+    }
+
+    /**
+     * 获取共享的DNS缓存
+     */
+    public static CachingDns getDns() {
+        return dns;
+    }
+
+    /**
+     * 获取网盘接口的磁盘缓存
+     */
+    public static Cache getPanApiCache() {
+        if (panApiCache == null) {
+            synchronized (HttpClientProvider.class) {
+                if (panApiCache == null) {
+                    File dir = new File(BaiduTVApplication.getInstance().getCacheDir(), "http_cache");
+                    panApiCache = new Cache(dir, PAN_API_CACHE_SIZE);
+                }
+            }
+        }
+        return panApiCache;
+    }
+
+    /**
+     * 网盘接口缓存策略拦截器（作为网络拦截器添加）
+     */
+    public static Interceptor createPanCacheInterceptor() {
+        return new PanCacheInterceptor();
+    }
+
+    /**
+     * 网盘接口限流拦截器（作为网络拦截器添加）
+     */
+    public static Interceptor createRateLimitInterceptor() {
+        return new RateLimitInterceptor();
+    }
+
+    /**
+     * 获取磁盘缓存的命中统计
+     */
+    public static String getCacheSummary() {
+        Cache cache = panApiCache;
+        if (cache == null) {
+            return "HTTP缓存: 未启用";
+        }
+        long size;
+        try {
+            size = cache.size();
+        } catch (IOException e) {
+            size = -1;
+        }
+        return "HTTP缓存: 请求=" + cache.requestCount()
+                + ", 命中=" + cache.hitCount()
+                + ", 网络=" + cache.networkCount()
+                + ", 占用=" + (size >= 0 ? NetworkMetrics.formatBytes(size) : "未知")
+                + "/" + NetworkMetrics.formatBytes(cache.maxSize());
+    }
+
+    /**
+     * 清空网盘接口磁盘缓存
+     */
+    public static void clearPanApiCache() {
+        Cache cache = panApiCache;
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.evictAll();
+        } catch (IOException e) {
+            Log.e(TAG, "清空HTTP缓存失败", e);
+        }
+    }
+
+    /**
+     * 网盘接口errno统计拦截器（只预读响应开头，不缓冲整个响应）
+     */
+    public static Interceptor createMetricsInterceptor() {
+        return new NetworkMetricsInterceptor();
+    }
+
+    /**
+     * 创建受网络调试模式控制的日志拦截器
+     * 调试模式关闭时日志级别为NONE，不会缓冲或输出任何请求内容
+     * @param logger 日志输出（为null时使用OkHttp默认输出）
+     * @param debugLevel 调试模式下的日志级别
+     */
+    public static HttpLoggingInterceptor createLoggingInterceptor(HttpLoggingInterceptor.Logger logger,
+                                                                  HttpLoggingInterceptor.Level debugLevel) {
+        HttpLoggingInterceptor interceptor = logger != null
+                ? new HttpLoggingInterceptor(logger) : new HttpLoggingInterceptor();
+        interceptor.setLevel(debugMode ? debugLevel : HttpLoggingInterceptor.Level.NONE);
+        loggingInterceptors.add(new DebugLogging(interceptor, debugLevel));
+        return interceptor;
+    }
+
+    /**
+     * 开启或关闭网络调试模式，立即作用于所有已创建的日志拦截器
+     */
+    public static void setDebugMode(boolean enabled) {
+        debugMode = enabled;
+        for (DebugLogging logging : loggingInterceptors) {
+            logging.interceptor.setLevel(enabled ? logging.debugLevel : HttpLoggingInterceptor.Level.NONE);
+        }
+        Log.d(TAG, "网络调试模式: " + (enabled ? "开启" : "关闭"));
+    }
+
+    public static boolean isDebugMode() {
+        return debugMode;
+    }
+
+    private static OkHttpClient createClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .dns(dns)
+                .eventListenerFactory(MetricsEventListener.FACTORY)
+                // 优先使用HTTP/2，同一域名的并发请求复用一条连接
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(ApiConstants.CONNECT_TIMEOUT, TimeUnit.MILLISECONDS)
+                .readTimeout(ApiConstants.READ_TIMEOUT, TimeUnit.MILLISECONDS)
+                .writeTimeout(ApiConstants.WRITE_TIMEOUT, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+}
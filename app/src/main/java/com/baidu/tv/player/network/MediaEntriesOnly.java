@@ -0,0 +1,17 @@
+package com.baidu.tv.player.network;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记返回 FileListResponse 的列表接口：解析响应时只保留目录和图片/视频条目
+ * 其余文件在解析过程中直接丢弃，不会创建 FileInfo 对象（见 FileListConverterFactory）
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MediaEntriesOnly {
+}
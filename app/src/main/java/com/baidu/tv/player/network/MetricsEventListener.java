@@ -0,0 +1,138 @@
+package com.baidu.tv.player.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 基于OkHttp EventListener的请求耗时记录
+ * 每个请求一个实例，在请求结束时把DNS、建连、TLS、首字节耗时和流量写入 NetworkMetrics。
+ * 复用已有连接时不会触发DNS/建连/TLS事件，对应直方图只统计真正新建连接的请求。
+ */
+class MetricsEventListener extends EventListener {
+
+    static final EventListener.Factory FACTORY = call -> new MetricsEventListener();
+
+    private long callStartNs;
+    private long dnsStartNs;
+    private long connectStartNs;
+    private long secureConnectStartNs;
+    private long requestStartNs;
+    private long bytesSent;
+    private long bytesReceived;
+    private boolean ttfbRecorded;
+    private NetworkMetrics.EndpointStats stats;
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStartNs = System.nanoTime();
+        stats = NetworkMetrics.getInstance().stats(NetworkMetrics.endpointOf(call.request().url()));
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStartNs = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+        stats.dns.record(elapsedMs(dnsStartNs));
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        connectStartNs = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        secureConnectStartNs = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+        stats.tls.record(elapsedMs(secureConnectStartNs));
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, Protocol protocol) {
+        stats.connect.record(elapsedMs(connectStartNs));
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        requestStartNs = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(@NonNull Call call, long byteCount) {
+        bytesSent += byteCount;
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        // 重定向或重试时只记录第一次响应的首字节时间
+        if (!ttfbRecorded && requestStartNs > 0) {
+            stats.ttfb.record(elapsedMs(requestStartNs));
+            ttfbRecorded = true;
+        }
+    }
+
+    @Override
+    public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+        // 响应头大小计入下行流量（近似值）
+        bytesReceived += response.headers().byteCount();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        bytesReceived += byteCount;
+    }
+
+    @Override
+    public void cacheHit(@NonNull Call call, @NonNull Response response) {
+        ResponseBody body = response.body();
+        stats.recordCacheHit(body != null ? body.contentLength() : 0);
+        // 只有网盘接口客户端配置了缓存，请求发出前申请的令牌没有用到
+        AdaptiveRateLimiter.getInstance().onCacheHit();
+    }
+
+    @Override
+    public void cacheMiss(@NonNull Call call) {
+        stats.recordCacheMiss();
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        finish(false);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        finish(true);
+    }
+
+    private void finish(boolean failed) {
+        if (stats == null) {
+            return;
+        }
+        stats.total.record(elapsedMs(callStartNs));
+        stats.recordCall(failed, bytesSent, bytesReceived);
+    }
+
+    private static long elapsedMs(long startNs) {
+        return (System.nanoTime() - startNs) / 1_000_000;
+    }
+}
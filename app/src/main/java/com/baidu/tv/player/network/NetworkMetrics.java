@@ -0,0 +1,325 @@
+package com.baidu.tv.player.network;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.HttpUrl;
+
+/**
+ * 网络请求指标
+ * 由 MetricsEventListener 和 NetworkMetricsInterceptor 按接口记录DNS、建连、TLS、首字节时间、
+ * 流量、缓存命中和errno，汇总为内存中的直方图，可通过API或设置页的调试区域查看。
+ * 只记录计数和耗时，不缓冲响应内容，开销远小于BODY级别的日志。
+ */
+public class NetworkMetrics {
+    private static final String TAG = "NetworkMetrics";
+
+    private static NetworkMetrics instance;
+
+    // 接口 -> 指标
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * 耗时直方图（固定分桶，单位毫秒）
+     */
+    public static class LatencyHistogram {
+        // 各分桶的上界，最后一个分桶收集超过10秒的耗时
+        private static final long[] BOUNDS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, Long.MAX_VALUE};
+
+        private final long[] counts = new long[BOUNDS.length];
+        private long count;
+        private long sum;
+        private long max;
+
+        synchronized void record(long ms) {
+            if (ms < 0) {
+                return;
+            }
+            int bucket = 0;
+            while (ms > BOUNDS[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+            count++;
+            sum += ms;
+            max = Math.max(max, ms);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getMean() {
+            return count > 0 ? sum / count : 0;
+        }
+
+        public synchronized long getMax() {
+            return max;
+        }
+
+        /**
+         * 近似分位数（返回所在分桶的上界，最后一个分桶返回最大值）
+         * @param percentile 0~100
+         */
+        public synchronized long getPercentile(int percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return BOUNDS[i] == Long.MAX_VALUE ? max : Math.min(BOUNDS[i], max);
+                }
+            }
+            return max;
+        }
+
+        synchronized void reset() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = 0;
+            }
+            count = 0;
+            sum = 0;
+            max = 0;
+        }
+    }
+
+    /**
+     * 单个接口的指标
+     */
+    public static class EndpointStats {
+        private final String endpoint;
+        final LatencyHistogram dns = new LatencyHistogram();
+        final LatencyHistogram connect = new LatencyHistogram();
+        final LatencyHistogram tls = new LatencyHistogram();
+        final LatencyHistogram ttfb = new LatencyHistogram();
+        final LatencyHistogram total = new LatencyHistogram();
+
+        private long calls;
+        private long failures;
+        private long bytesSent;
+        private long bytesReceived;
+        private long cacheHits;
+        private long cacheMisses;
+        private long cachedBytes;
+        private final Map<Integer, Long> errnoCounts = new HashMap<>();
+
+        EndpointStats(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized void recordCall(boolean failed, long sent, long received) {
+            calls++;
+            if (failed) {
+                failures++;
+            }
+            bytesSent += Math.max(0, sent);
+            bytesReceived += Math.max(0, received);
+        }
+
+        synchronized void recordCacheHit(long bodyBytes) {
+            cacheHits++;
+            cachedBytes += Math.max(0, bodyBytes);
+        }
+
+        synchronized void recordCacheMiss() {
+            cacheMisses++;
+        }
+
+        synchronized void recordErrno(int errno) {
+            Long current = errnoCounts.get(errno);
+            errnoCounts.put(errno, current != null ? current + 1 : 1);
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public LatencyHistogram getDns() {
+            return dns;
+        }
+
+        public LatencyHistogram getConnect() {
+            return connect;
+        }
+
+        public LatencyHistogram getTls() {
+            return tls;
+        }
+
+        public LatencyHistogram getTtfb() {
+            return ttfb;
+        }
+
+        public LatencyHistogram getTotal() {
+            return total;
+        }
+
+        public synchronized long getCalls() {
+            return calls;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        public synchronized long getBytesSent() {
+            return bytesSent;
+        }
+
+        public synchronized long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        public synchronized long getCacheHits() {
+            return cacheHits;
+        }
+
+        public synchronized long getCacheMisses() {
+            return cacheMisses;
+        }
+
+        /**
+         * 由缓存直接返回、节省的下行流量（字节）
+         */
+        public synchronized long getCachedBytes() {
+            return cachedBytes;
+        }
+
+        /**
+         * 各errno出现的次数（errno=0表示成功）
+         */
+        public synchronized Map<Integer, Long> getErrnoCounts() {
+            return new HashMap<>(errnoCounts);
+        }
+
+        synchronized String describe() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(endpoint).append('\n');
+            sb.append(String.format(Locale.US, "  请求=%d 失败=%d 下行=%s 上行=%s%n",
+                    calls, failures, formatBytes(bytesReceived), formatBytes(bytesSent)));
+            sb.append(String.format(Locale.US, "  总耗时 p50=%dms p90=%dms p99=%dms max=%dms%n",
+                    total.getPercentile(50), total.getPercentile(90), total.getPercentile(99), total.getMax()));
+            sb.append(String.format(Locale.US, "  首字节 p50=%dms p90=%dms | DNS均值=%dms(%d次) 建连均值=%dms(%d次) TLS均值=%dms(%d次)",
+                    ttfb.getPercentile(50), ttfb.getPercentile(90),
+                    dns.getMean(), dns.getCount(), connect.getMean(), connect.getCount(),
+                    tls.getMean(), tls.getCount()));
+            if (cacheHits > 0 || cacheMisses > 0) {
+                sb.append(String.format(Locale.US, "%n  缓存命中=%d 未命中=%d 节省流量=%s",
+                        cacheHits, cacheMisses, formatBytes(cachedBytes)));
+            }
+            if (!errnoCounts.isEmpty()) {
+                sb.append("\n  errno=").append(errnoCounts);
+            }
+            return sb.toString();
+        }
+
+        synchronized void reset() {
+            dns.reset();
+            connect.reset();
+            tls.reset();
+            ttfb.reset();
+            total.reset();
+            calls = 0;
+            failures = 0;
+            bytesSent = 0;
+            bytesReceived = 0;
+            cacheHits = 0;
+            cacheMisses = 0;
+            cachedBytes = 0;
+            errnoCounts.clear();
+        }
+    }
+
+    private NetworkMetrics() {
+    }
+
+    public static synchronized NetworkMetrics getInstance() {
+        if (instance == null) {
+            instance = new NetworkMetrics();
+        }
+        return instance;
+    }
+
+    /**
+     * 请求对应的接口名
+     * 网盘开放接口按 路径+method 区分（如 /rest/2.0/xpan/file?method=list），其他请求（缩略图、视频、地理编码）按域名区分
+     */
+    public static String endpointOf(HttpUrl url) {
+        String method = url.queryParameter("method");
+        if (method != null) {
+            return url.encodedPath() + "?method=" + method;
+        }
+        return url.host();
+    }
+
+    EndpointStats stats(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, EndpointStats::new);
+    }
+
+    /**
+     * 获取某个接口的指标，没有记录时返回null
+     */
+    public EndpointStats getStats(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * 获取所有接口的指标（按请求数降序）
+     */
+    public List<EndpointStats> getAllStats() {
+        List<EndpointStats> list = new ArrayList<>(endpoints.values());
+        Collections.sort(list, (a, b) -> Long.compare(b.getCalls(), a.getCalls()));
+        return list;
+    }
+
+    /**
+     * 获取指标摘要（用于调试界面和日志）
+     */
+    public String getSummary() {
+        List<EndpointStats> list = getAllStats();
+        if (list.isEmpty()) {
+            return "暂无网络请求记录";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (EndpointStats stats : list) {
+            if (sb.length() > 0) {
+                sb.append("\n\n");
+            }
+            sb.append(stats.describe());
+        }
+        return sb.toString();
+    }
+
+    public void logSummary() {
+        Log.d(TAG, getSummary());
+    }
+
+    /**
+     * 重置所有指标
+     */
+    public void reset() {
+        for (EndpointStats stats : endpoints.values()) {
+            stats.reset();
+        }
+        endpoints.clear();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + "B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format(Locale.US, "%.1fKB", bytes / 1024.0);
+        }
+        return String.format(Locale.US, "%.1fMB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,83 @@
+package com.baidu.tv.player.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.GzipSource;
+
+/**
+ * 记录网盘接口返回的errno
+ * 网盘接口的errno位于JSON开头，只预读响应的前几百字节解析，不缓冲整个响应。
+ */
+class NetworkMetricsInterceptor implements Interceptor {
+
+    // 预读的最大字节数
+    private static final long PEEK_BYTES = 256;
+    // 网络拦截器中响应体可能仍是gzip压缩的，预读更多压缩数据再解压开头部分
+    private static final long GZIP_PEEK_BYTES = 1024;
+    private static final Pattern ERRNO_PATTERN = Pattern.compile("\"errno\"\\s*:\\s*(-?\\d+)");
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        Integer errno = peekErrno(response);
+        if (errno != null) {
+            NetworkMetrics.getInstance()
+                    .stats(NetworkMetrics.endpointOf(chain.request().url()))
+                    .recordErrno(errno);
+        }
+        return response;
+    }
+
+    /**
+     * 预读JSON响应开头解析errno，不是JSON或没有errno时返回null
+     */
+    static Integer peekErrno(Response response) throws IOException {
+        ResponseBody body = response.body();
+        MediaType contentType = body != null ? body.contentType() : null;
+        if (contentType == null || !"json".equals(contentType.subtype()) && !"plain".equals(contentType.subtype())) {
+            return null;
+        }
+
+        String head;
+        if ("gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+            head = gunzipHead(response.peekBody(GZIP_PEEK_BYTES).bytes());
+        } else {
+            head = response.peekBody(PEEK_BYTES).string();
+        }
+        Matcher matcher = ERRNO_PATTERN.matcher(head);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(matcher.group(1));
+        } catch (NumberFormatException e) {
+            // errno超出int范围，忽略
+            return null;
+        }
+    }
+
+    /**
+     * 解压gzip数据的开头部分（只预读了部分压缩数据，解压到末尾时会抛出EOFException，已解压的内容仍然有效）
+     */
+    private static String gunzipHead(byte[] compressed) {
+        Buffer head = new Buffer();
+        try (GzipSource gzip = new GzipSource(new Buffer().write(compressed))) {
+            while (head.size() < PEEK_BYTES && gzip.read(head, PEEK_BYTES) != -1) {
+                // 继续解压
+            }
+        } catch (IOException ignored) {
+            // 压缩数据不完整，使用已解压的部分
+        }
+        return head.readUtf8();
+    }
+}
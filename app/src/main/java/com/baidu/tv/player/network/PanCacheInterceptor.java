@@ -0,0 +1,72 @@
+package com.baidu.tv.player.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 网盘接口缓存策略（网络拦截器）
+ * 百度网盘接口不返回可用的缓存头，这里按接口改写响应的Cache-Control，让OkHttp的磁盘缓存生效：
+ * uinfo缓存1天，list/listall/categorylist缓存几分钟。
+ * filemetas不缓存：dlink的实际有效期由服务器决定，已由 DlinkResolver 按fsId缓存并在失效时重新获取。
+ * 只缓存errno=0的成功响应；请求携带 Cache-Control: no-cache 时强制从服务器获取并更新缓存。
+ */
+class PanCacheInterceptor implements Interceptor {
+
+    // 用户信息缓存时间（秒）
+    static final long UINFO_MAX_AGE_SECONDS = 24 * 60 * 60;
+    // 目录列表缓存时间（秒）
+    static final long LIST_MAX_AGE_SECONDS = 5 * 60;
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        if (!"GET".equals(request.method()) || response.code() != 200) {
+            return response;
+        }
+
+        long maxAgeSeconds = maxAgeSeconds(request.url());
+        if (maxAgeSeconds <= 0) {
+            return response;
+        }
+
+        // 错误响应（如token过期、频率限制）不缓存
+        Integer errno = NetworkMetricsInterceptor.peekErrno(response);
+        if (errno == null || errno != 0) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .removeHeader("Expires")
+                .header("Cache-Control", "public, max-age=" + maxAgeSeconds)
+                .build();
+    }
+
+    /**
+     * 各接口的缓存时间（秒），0表示不缓存
+     */
+    static long maxAgeSeconds(HttpUrl url) {
+        String path = url.encodedPath();
+        String method = url.queryParameter("method");
+        if (method == null) {
+            return 0;
+        }
+        if (path.endsWith(ApiConstants.ENDPOINT_NAS) && "uinfo".equals(method)) {
+            return UINFO_MAX_AGE_SECONDS;
+        }
+        if (path.endsWith(ApiConstants.ENDPOINT_FILE) && "list".equals(method)
+                || path.endsWith(ApiConstants.ENDPOINT_MULTIMEDIA)
+                        && ("listall".equals(method) || "categorylist".equals(method))) {
+            return LIST_MAX_AGE_SECONDS;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,640 @@
+package com.baidu.tv.player.network;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 多连接分段下载的视频数据源
+ * PCS对单个连接限速，手机拍摄的4K HEVC等高码率视频即使在很快的网络下也会卡顿。
+ * 这里把读取范围切成固定大小的分段，用多条连接并行下载，再按顺序交给播放器：
+ * 第一个分段的请求同时用来探测服务器是否支持Range（206），
+ * 服务器忽略Range（返回200）时退回单连接顺序读取。
+ * 已下载和正在下载的分段数不超过 maxBufferedChunks，预读占用的内存有上限；
+ * 每个数据源同时下载的分段数不超过 connections。下载线程池由工厂创建，同一个工厂的数据源共用。
+ * 分段请求使用HTTP/1.1，保证每个分段走独立的TCP连接（HTTP/2会把并发请求复用到同一条连接上）。
+ */
+public class ParallelRangeDataSource extends BaseDataSource {
+    private static final String TAG = "ParallelRangeDataSource";
+
+    public static final int DEFAULT_CONNECTIONS = 4;
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_BUFFERED_CHUNKS = 8;
+
+    // 单个分段失败后的重试次数（从已下载的位置继续）
+    private static final int MAX_CHUNK_RETRIES = 2;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    private static final Pattern UNSATISFIED_RANGE = Pattern.compile("bytes \\*/(\\d+)");
+    // 下载线程空闲多久后退出
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * 数据源工厂，替换 OkHttpDataSource.Factory 使用
+     */
+    public static final class Factory implements DataSource.Factory {
+        private final OkHttpClient client;
+        @Nullable
+        private String userAgent;
+        private int connections = DEFAULT_CONNECTIONS;
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private int maxBufferedChunks = DEFAULT_MAX_BUFFERED_CHUNKS;
+        @Nullable
+        private ThreadPoolExecutor executor;
+
+        public Factory(OkHttpClient client) {
+            this.client = client.newBuilder()
+                    .protocols(Collections.singletonList(Protocol.HTTP_1_1))
+                    .build();
+        }
+
+        public Factory setUserAgent(@Nullable String userAgent) {
+            this.userAgent = userAgent;
+            return this;
+        }
+
+        /**
+         * 每个数据源同时下载的连接数（需在创建数据源之前设置）
+         */
+        public Factory setConnections(int connections) {
+            this.connections = Math.max(1, connections);
+            return this;
+        }
+
+        /**
+         * 每个分段的字节数
+         */
+        public Factory setChunkSize(int chunkSize) {
+            this.chunkSize = Math.max(64 * 1024, chunkSize);
+            return this;
+        }
+
+        /**
+         * 最多预读的分段数（包括正在下载的），预读内存上限为 maxBufferedChunks * chunkSize
+         */
+        public Factory setMaxBufferedChunks(int maxBufferedChunks) {
+            this.maxBufferedChunks = Math.max(1, maxBufferedChunks);
+            return this;
+        }
+
+        @Override
+        public ParallelRangeDataSource createDataSource() {
+            return new ParallelRangeDataSource(client, getExecutor(), userAgent, connections, chunkSize,
+                    Math.max(maxBufferedChunks, connections));
+        }
+
+        /**
+         * 所有数据源共用的下载线程池
+         * 线程数为两倍连接数：切换视频时旧数据源的下载还在收尾，新数据源也能立即开始；
+         * 空闲的线程会自动退出，不需要手动释放
+         */
+        private synchronized ExecutorService getExecutor() {
+            if (executor == null) {
+                int threads = connections * 2;
+                AtomicInteger threadCount = new AtomicInteger();
+                executor = new ThreadPoolExecutor(threads, threads, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(),
+                        r -> new Thread(r, "ParallelRange-" + threadCount.incrementAndGet()));
+                executor.allowCoreThreadTimeOut(true);
+            }
+            return executor;
+        }
+    }
+
+    /**
+     * 一个分段：下载线程写入 data[0, filled)，读取线程从 readOffset 开始读
+     */
+    private static final class Chunk {
+        final long start;
+        final int length;
+        final byte[] data;
+        int filled;
+        int readOffset;
+        int retries;
+        boolean started;
+        @Nullable
+        Call call;
+        // 第一个分段直接使用探测请求的响应
+        @Nullable
+        Response initialResponse;
+        @Nullable
+        IOException error;
+
+        Chunk(long start, int length) {
+            this.start = start;
+            this.length = length;
+            this.data = new byte[length];
+        }
+    }
+
+    private final OkHttpClient client;
+    private final ExecutorService executor;
+    @Nullable
+    private final String userAgent;
+    private final int connections;
+    private final int chunkSize;
+    private final int maxBufferedChunks;
+
+    private final Object lock = new Object();
+    // 从当前读取位置起依次排列的分段
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+
+    @Nullable
+    private DataSpec dataSpec;
+    @Nullable
+    private Uri uri;
+    private Map<String, List<String>> responseHeaders = Collections.emptyMap();
+    private boolean opened;
+    private boolean closed;
+    private long bytesRemaining;
+
+    // 单连接模式（服务器不支持Range）
+    @Nullable
+    private Response singleResponse;
+    @Nullable
+    private InputStream singleStream;
+
+    // 多连接模式
+    @Nullable
+    private HttpUrl rangeUrl;
+    // 每次open递增，用于识别上一次打开时提交、还在线程池中排队的下载任务
+    private int session;
+    // 当前正在下载的分段数
+    private int runningDownloads;
+    private long nextChunkStart;
+    private long rangeEnd;
+    private long openTime;
+    private long bytesRead;
+
+    private ParallelRangeDataSource(OkHttpClient client, ExecutorService executor, @Nullable String userAgent,
+                                    int connections, int chunkSize, int maxBufferedChunks) {
+        super(/* isNetwork= */ true);
+        this.client = client;
+        this.executor = executor;
+        this.userAgent = userAgent;
+        this.connections = connections;
+        this.chunkSize = chunkSize;
+        this.maxBufferedChunks = maxBufferedChunks;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        this.dataSpec = dataSpec;
+        synchronized (lock) {
+            closed = false;
+            session++;
+            runningDownloads = 0;
+        }
+        bytesRead = 0;
+        openTime = SystemClock.elapsedRealtime();
+        transferInitializing(dataSpec);
+
+        HttpUrl url = HttpUrl.parse(dataSpec.uri.toString());
+        if (url == null) {
+            throw new DataSourceException(PlaybackException.ERROR_CODE_IO_BAD_HTTP_STATUS);
+        }
+        long position = dataSpec.position;
+        long requestedEnd = dataSpec.length != C.LENGTH_UNSET ? position + dataSpec.length : C.LENGTH_UNSET;
+        long probeEnd = position + chunkSize;
+        if (requestedEnd != C.LENGTH_UNSET) {
+            probeEnd = Math.min(probeEnd, requestedEnd);
+        }
+
+        // 第一个分段的请求同时用来探测是否支持Range
+        Call probeCall = client.newCall(newRequest(url, position, probeEnd));
+        Response response = probeCall.execute();
+        uri = Uri.parse(response.request().url().toString());
+        responseHeaders = response.headers().toMultimap();
+        int code = response.code();
+
+        if (code == 206) {
+            long[] range = parseContentRange(response.header("Content-Range"));
+            if (range == null || range[0] != position) {
+                // Content-Range异常，放弃分段，改用不限范围的单个请求
+                Log.w(TAG, "Content-Range不符合预期，改用单连接: " + response.header("Content-Range"));
+                response.close();
+                openSingleStream(url, position, requestedEnd);
+            } else {
+                long total = range[2];
+                long end = requestedEnd == C.LENGTH_UNSET ? total
+                        : total == C.LENGTH_UNSET ? requestedEnd : Math.min(requestedEnd, total);
+                if (end == C.LENGTH_UNSET) {
+                    // 文件总长度未知时无法安排后面的分段
+                    response.close();
+                    openSingleStream(url, position, requestedEnd);
+                } else {
+                    startParallel(response, probeCall, position, range[1] + 1, end);
+                    bytesRemaining = end - position;
+                }
+            }
+        } else if (code == 200) {
+            // 服务器忽略了Range，从文件开头返回全部数据
+            Log.w(TAG, "服务器不支持Range，使用单连接读取");
+            useSingleResponse(response, position, requestedEnd, true);
+        } else if (code == 416) {
+            // 读取位置正好在文件末尾时视为没有数据
+            long total = parseUnsatisfiedRangeTotal(response.header("Content-Range"));
+            response.close();
+            if (total != position) {
+                throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+            }
+            bytesRemaining = 0;
+        } else {
+            throw invalidResponse(response, dataSpec);
+        }
+
+        opened = true;
+        transferStarted(dataSpec);
+        return bytesRemaining;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (bytesRemaining == 0) {
+            return C.RESULT_END_OF_INPUT;
+        }
+        if (singleStream != null) {
+            return readSingle(buffer, offset, length);
+        }
+
+        int read;
+        synchronized (lock) {
+            Chunk chunk = chunks.peekFirst();
+            if (chunk == null) {
+                return C.RESULT_END_OF_INPUT;
+            }
+            while (chunk.readOffset == chunk.filled) {
+                if (chunk.error != null) {
+                    throw chunk.error;
+                }
+                if (closed) {
+                    throw new InterruptedIOException("数据源已关闭");
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            read = Math.min(length, chunk.filled - chunk.readOffset);
+            System.arraycopy(chunk.data, chunk.readOffset, buffer, offset, read);
+            chunk.readOffset += read;
+            if (chunk.readOffset == chunk.length) {
+                // 读完一个分段，释放它的内存并安排后面的分段
+                chunks.pollFirst();
+                scheduleChunks();
+            }
+        }
+        if (bytesRemaining != C.LENGTH_UNSET) {
+            bytesRemaining -= read;
+        }
+        bytesRead += read;
+        bytesTransferred(read);
+        return read;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return uri;
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            for (Chunk chunk : chunks) {
+                if (chunk.call != null) {
+                    chunk.call.cancel();
+                }
+            }
+            chunks.clear();
+            lock.notifyAll();
+        }
+        if (rangeUrl != null) {
+            rangeUrl = null;
+            long elapsed = Math.max(1, SystemClock.elapsedRealtime() - openTime);
+            Log.d(TAG, "分段下载结束, 读取=" + bytesRead / 1024 + "KB, 耗时=" + elapsed + "ms, 平均速度="
+                    + bytesRead * 1000 / elapsed / 1024 + "KB/s");
+        }
+        if (singleResponse != null) {
+            singleResponse.close();
+            singleResponse = null;
+            singleStream = null;
+        }
+        uri = null;
+        if (opened) {
+            opened = false;
+            transferEnded();
+        }
+    }
+
+    private void startParallel(Response probeResponse, Call probeCall, long position, long probeEnd, long end) {
+        rangeUrl = probeResponse.request().url();
+        rangeEnd = end;
+        Log.d(TAG, "分段下载: 范围=" + position + "-" + end + ", 连接数=" + connections
+                + ", 分段大小=" + chunkSize / 1024 + "KB");
+
+        synchronized (lock) {
+            // 探测请求可能只覆盖第一个分段的一部分（文件比分段还小）
+            Chunk first = new Chunk(position, (int) (Math.min(probeEnd, end) - position));
+            first.initialResponse = probeResponse;
+            first.call = probeCall;
+            chunks.addLast(first);
+            nextChunkStart = position + first.length;
+            scheduleChunks();
+        }
+    }
+
+    /**
+     * 在预读上限内安排后面的分段，并在连接数内开始下载（需持有lock）
+     */
+    private void scheduleChunks() {
+        while (!closed && rangeUrl != null && chunks.size() < maxBufferedChunks && nextChunkStart < rangeEnd) {
+            int length = (int) Math.min(chunkSize, rangeEnd - nextChunkStart);
+            chunks.addLast(new Chunk(nextChunkStart, length));
+            nextChunkStart += length;
+        }
+        // 按顺序开始下载，保证读取位置所在的分段最先下载
+        for (Chunk chunk : chunks) {
+            if (closed || runningDownloads >= connections) {
+                break;
+            }
+            if (!chunk.started) {
+                chunk.started = true;
+                runningDownloads++;
+                int chunkSession = session;
+                executor.execute(() -> download(chunk, chunkSession));
+            }
+        }
+    }
+
+    /**
+     * 下载一个分段（在下载线程中执行），结束后开始下载后面的分段
+     */
+    private void download(Chunk chunk, int chunkSession) {
+        try {
+            downloadChunk(chunk, chunkSession);
+        } finally {
+            synchronized (lock) {
+                if (chunkSession == session) {
+                    runningDownloads--;
+                    scheduleChunks();
+                }
+            }
+        }
+    }
+
+    /**
+     * 数据源已关闭或已重新打开，不再继续该次打开的下载（需持有lock）
+     */
+    private boolean isStale(int chunkSession) {
+        return closed || chunkSession != session;
+    }
+
+    /**
+     * 下载一个分段的数据，失败时从已下载的位置重试
+     */
+    private void downloadChunk(Chunk chunk, int chunkSession) {
+        while (true) {
+            Response response = null;
+            try {
+                synchronized (lock) {
+                    if (isStale(chunkSession)) {
+                        if (chunk.initialResponse != null) {
+                            chunk.initialResponse.close();
+                        }
+                        return;
+                    }
+                    response = chunk.initialResponse;
+                    chunk.initialResponse = null;
+                    if (response == null) {
+                        long from = chunk.start + chunk.filled;
+                        chunk.call = client.newCall(newRequest(rangeUrl, from, chunk.start + chunk.length));
+                    }
+                }
+                if (response == null) {
+                    response = chunk.call.execute();
+                    if (response.code() != 206) {
+                        if (response.code() == 200) {
+                            throw new IOException("服务器在分段请求中忽略了Range");
+                        }
+                        throw invalidResponse(response, dataSpec);
+                    }
+                }
+
+                ResponseBody body = response.body();
+                if (body == null) {
+                    throw new EOFException("分段响应没有内容");
+                }
+                InputStream in = body.byteStream();
+                while (true) {
+                    int filled;
+                    synchronized (lock) {
+                        if (isStale(chunkSession)) {
+                            return;
+                        }
+                        filled = chunk.filled;
+                    }
+                    if (filled == chunk.length) {
+                        break;
+                    }
+                    int n = in.read(chunk.data, filled, chunk.length - filled);
+                    if (n == -1) {
+                        throw new EOFException("分段提前结束, start=" + chunk.start + ", 已下载=" + filled);
+                    }
+                    synchronized (lock) {
+                        chunk.filled += n;
+                        lock.notifyAll();
+                    }
+                }
+                synchronized (lock) {
+                    chunk.call = null;
+                }
+                return;
+            } catch (IOException e) {
+                synchronized (lock) {
+                    if (isStale(chunkSession)) {
+                        return;
+                    }
+                    // 链接失效等HTTP错误重试也没有意义，直接交给播放器处理
+                    if (chunk.retries < MAX_CHUNK_RETRIES
+                            && !(e instanceof HttpDataSource.InvalidResponseCodeException)) {
+                        chunk.retries++;
+                        Log.w(TAG, "分段下载失败，重试(" + chunk.retries + "/" + MAX_CHUNK_RETRIES + "), start="
+                                + chunk.start + ": " + e.getMessage());
+                        continue;
+                    }
+                    Log.e(TAG, "分段下载失败, start=" + chunk.start, e);
+                    chunk.error = e;
+                    lock.notifyAll();
+                }
+                return;
+            } finally {
+                if (response != null) {
+                    response.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 不分段，用一个请求顺序读取
+     */
+    private void openSingleStream(HttpUrl url, long position, long requestedEnd) throws IOException {
+        Response response = client.newCall(newRequest(url, position, requestedEnd)).execute();
+        int code = response.code();
+        if (code != 200 && code != 206) {
+            throw invalidResponse(response, dataSpec);
+        }
+        useSingleResponse(response, position, requestedEnd, code == 200);
+    }
+
+    private void useSingleResponse(Response response, long position, long requestedEnd, boolean fromFileStart)
+            throws IOException {
+        ResponseBody body = response.body();
+        if (body == null) {
+            response.close();
+            throw new EOFException("响应没有内容");
+        }
+        singleResponse = response;
+        singleStream = body.byteStream();
+        long contentLength = body.contentLength();
+        if (fromFileStart && position > 0) {
+            skipFully(singleStream, position);
+            if (contentLength != C.LENGTH_UNSET) {
+                contentLength -= position;
+            }
+        }
+        if (requestedEnd != C.LENGTH_UNSET) {
+            bytesRemaining = requestedEnd - position;
+        } else {
+            bytesRemaining = contentLength;
+        }
+    }
+
+    private int readSingle(byte[] buffer, int offset, int length) throws IOException {
+        int toRead = bytesRemaining == C.LENGTH_UNSET ? length : (int) Math.min(length, bytesRemaining);
+        int read = singleStream.read(buffer, offset, toRead);
+        if (read == -1) {
+            return C.RESULT_END_OF_INPUT;
+        }
+        if (bytesRemaining != C.LENGTH_UNSET) {
+            bytesRemaining -= read;
+        }
+        bytesRead += read;
+        bytesTransferred(read);
+        return read;
+    }
+
+    private Request newRequest(HttpUrl url, long from, long toExclusive) {
+        String range = "bytes=" + from + "-" + (toExclusive != C.LENGTH_UNSET ? String.valueOf(toExclusive - 1) : "");
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .header("Range", range)
+                // 分段按原始字节拼接，不能让OkHttp透明地使用gzip
+                .header("Accept-Encoding", "identity");
+        if (userAgent != null) {
+            builder.header("User-Agent", userAgent);
+        }
+        if (dataSpec != null) {
+            for (Map.Entry<String, String> header : dataSpec.httpRequestHeaders.entrySet()) {
+                builder.header(header.getKey(), header.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    private static HttpDataSource.InvalidResponseCodeException invalidResponse(Response response, DataSpec dataSpec) {
+        Map<String, List<String>> headers = response.headers().toMultimap();
+        int code = response.code();
+        String message = response.message();
+        response.close();
+        return new HttpDataSource.InvalidResponseCodeException(code, message, null, headers, dataSpec, new byte[0]);
+    }
+
+    private static void skipFully(InputStream in, long bytes) throws IOException {
+        byte[] skipBuffer = new byte[8192];
+        long remaining = bytes;
+        while (remaining > 0) {
+            int read = in.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+            if (read == -1) {
+                throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+            }
+            remaining -= read;
+        }
+    }
+
+    /**
+     * 解析 "bytes start-end/total"，返回 {start, end, total}，total未知时为 C.LENGTH_UNSET
+     */
+    @Nullable
+    private static long[] parseContentRange(@Nullable String contentRange) {
+        if (contentRange == null) {
+            return null;
+        }
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String total = matcher.group(3);
+        return new long[]{
+                Long.parseLong(matcher.group(1)),
+                Long.parseLong(matcher.group(2)),
+                "*".equals(total) ? C.LENGTH_UNSET : Long.parseLong(total)
+        };
+    }
+
+    /**
+     * 解析416响应中的 "bytes *&#47;total"，无法解析时返回 C.LENGTH_UNSET
+     */
+    private static long parseUnsatisfiedRangeTotal(@Nullable String contentRange) {
+        if (contentRange == null) {
+            return C.LENGTH_UNSET;
+        }
+        Matcher matcher = UNSATISFIED_RANGE.matcher(contentRange);
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : C.LENGTH_UNSET;
+    }
+}
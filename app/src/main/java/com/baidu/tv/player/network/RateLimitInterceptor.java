@@ -0,0 +1,65 @@
+package com.baidu.tv.player.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * 网盘接口限流拦截器（作为网络拦截器添加，只统计真正发往服务器的请求）
+ * 根据响应是否被限流调整 AdaptiveRateLimiter 的速率。
+ * 令牌在发出请求之前申请（见 AdaptiveRateLimiter.runWhenPermitted），这里不做任何等待。
+ */
+class RateLimitInterceptor implements Interceptor {
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        AdaptiveRateLimiter limiter = AdaptiveRateLimiter.getInstance();
+
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException e) {
+            limiter.onRequestFailed();
+            throw e;
+        }
+
+        if (isThrottled(response)) {
+            limiter.onThrottled(parseRetryAfterMs(response.header("Retry-After")));
+        } else {
+            limiter.onSuccess();
+        }
+        return response;
+    }
+
+    /**
+     * 响应是否表示被限流：429、5xx或频控errno
+     */
+    static boolean isThrottled(Response response) throws IOException {
+        int code = response.code();
+        if (code == HTTP_TOO_MANY_REQUESTS || code >= 500) {
+            return true;
+        }
+        Integer errno = NetworkMetricsInterceptor.peekErrno(response);
+        return errno != null && errno == ApiConstants.ERRNO_RATE_LIMITED;
+    }
+
+    /**
+     * 解析秒数格式的Retry-After，没有或为日期格式时返回0
+     */
+    private static long parseRetryAfterMs(String retryAfter) {
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
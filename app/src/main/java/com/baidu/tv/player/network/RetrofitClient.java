@@ -47,11 +47,16 @@ public class RetrofitClient {
      * 创建Retrofit实例
      */
     private static Retrofit createRetrofit(String baseUrl) {
-        OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder();
+        // 基于全局共享客户端派生，复用连接池和DNS缓存
+        OkHttpClient.Builder httpClientBuilder = HttpClientProvider.getSharedClient().newBuilder();
+        boolean isPanApi = ApiConstants.PAN_API_BASE_URL.equals(baseUrl);
         
-        // 添加日志拦截器
-        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+        // 记录接口返回的errno
+        httpClientBuilder.addInterceptor(HttpClientProvider.createMetricsInterceptor());
+        
+        // 添加日志拦截器（仅在网络调试模式下输出完整响应内容）
+        HttpLoggingInterceptor loggingInterceptor =
+                HttpClientProvider.createLoggingInterceptor(null, HttpLoggingInterceptor.Level.BODY);
         httpClientBuilder.addInterceptor(loggingInterceptor);
         
         // 设置超时时间
@@ -59,6 +64,13 @@ public class RetrofitClient {
         httpClientBuilder.readTimeout(ApiConstants.READ_TIMEOUT, TimeUnit.MILLISECONDS);
         httpClientBuilder.writeTimeout(ApiConstants.WRITE_TIMEOUT, TimeUnit.MILLISECONDS);
         
+        // 网盘接口限流反馈，并使用磁盘缓存按接口设置缓存时间（命中缓存的请求不经过网络拦截器，退还令牌）
+        if (isPanApi) {
+            httpClientBuilder.addNetworkInterceptor(HttpClientProvider.createRateLimitInterceptor());
+            httpClientBuilder.cache(HttpClientProvider.getPanApiCache());
+            httpClientBuilder.addNetworkInterceptor(HttpClientProvider.createPanCacheInterceptor());
+        }
+        
         // 添加User-Agent
         httpClientBuilder.addInterceptor(chain -> {
             okhttp3.Request original = chain.request();
@@ -74,6 +86,8 @@ public class RetrofitClient {
         return new Retrofit.Builder()
                 .baseUrl(baseUrl)
                 .client(client)
+                // 文件列表响应流式解析并过滤，其余响应由Gson解析
+                .addConverterFactory(FileListConverterFactory.create())
                 .addConverterFactory(GsonConverterFactory.create())
                 .build();
     }
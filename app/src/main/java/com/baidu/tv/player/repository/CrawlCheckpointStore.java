@@ -0,0 +1,225 @@
+package com.baidu.tv.player.repository;
+
+import android.util.Log;
+
+import com.baidu.tv.player.BaiduTVApplication;
+import com.baidu.tv.player.auth.BaiduAuthService;
+import com.baidu.tv.player.database.CrawlCheckpointDao;
+import com.baidu.tv.player.model.CrawlCheckpoint;
+import com.baidu.tv.player.model.CrawlFileBatch;
+import com.baidu.tv.player.model.FileInfo;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 递归扫描断点存储
+ * 扫描过程中定期把进度写入数据库，扫描被中断（离开页面、网络断开、等待超时）后，
+ * 下一次扫描同一根目录时从断点继续，而不是重新请求整棵目录树。
+ * 断点按账号（uk）和根目录区分；同一个账号的同一根目录同时只有一个扫描可以读写断点，
+ * 其他同时进行的扫描不使用断点，避免互相覆盖进度。
+ * 所有数据库操作在同一个单线程执行器上按顺序执行，uk、持有状态等字段也只在该线程上访问。
+ */
+class CrawlCheckpointStore {
+    private static final String TAG = "CrawlCheckpointStore";
+
+    // 断点有效期，超过后视为过期，重新完整扫描（避免长期使用旧的目录内容）
+    private static final long CHECKPOINT_MAX_AGE_MS = 12 * 60 * 60 * 1000L;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // 正在使用断点的扫描（uk + 根目录）
+    private static final Set<String> activeKeys = new HashSet<>();
+
+    private final String rootPath;
+    private String uk;
+    // 是否持有该账号该目录的断点（load成功占用后才会读写断点）
+    private boolean owner;
+    private final Gson gson = new Gson();
+    private final Type fileListType = new TypeToken<List<FileInfo>>() {}.getType();
+    private final Type pathListType = new TypeToken<List<String>>() {}.getType();
+
+    /**
+     * 从数据库恢复的扫描进度
+     */
+    static class Snapshot {
+        final List<String> pendingDirs;
+        final Set<String> visitedDirs;
+        final List<FileInfo> files;
+        final int dirsDone;
+
+        Snapshot(List<String> pendingDirs, Set<String> visitedDirs, List<FileInfo> files, int dirsDone) {
+            this.pendingDirs = pendingDirs;
+            this.visitedDirs = visitedDirs;
+            this.files = files;
+            this.dirsDone = dirsDone;
+        }
+    }
+
+    /**
+     * 断点加载回调（在存储线程上回调）
+     */
+    interface LoadCallback {
+        /**
+         * @param snapshot 断点进度，没有可用断点时为null
+         */
+        void onLoaded(Snapshot snapshot);
+    }
+
+    CrawlCheckpointStore(String rootPath) {
+        this.rootPath = rootPath;
+    }
+
+    /**
+     * 占用并读取断点，过期或损坏的断点会被删除
+     * 无法获取账号uk或同一目录已有扫描在进行时，本次扫描不使用断点（回调null，之后的保存也会忽略）
+     * @param notBefore 早于该时间保存的断点直接丢弃（传0时只丢弃过期的断点）
+     */
+    void load(long notBefore, LoadCallback callback) {
+        executor.execute(() -> {
+            uk = BaiduAuthService.getInstance(BaiduTVApplication.getInstance()).getAccountUk();
+            if (uk == null) {
+                Log.w(TAG, "无法获取账号uk，本次扫描不使用断点: " + rootPath);
+                callback.onLoaded(null);
+                return;
+            }
+            if (!activeKeys.add(activeKey())) {
+                Log.w(TAG, "该目录已有扫描在进行，本次扫描不使用断点: " + rootPath);
+                callback.onLoaded(null);
+                return;
+            }
+            owner = true;
+
+            Snapshot snapshot = null;
+            try {
+                CrawlCheckpointDao dao = getDao();
+                CrawlCheckpoint checkpoint = dao.getCheckpoint(uk, rootPath);
+                if (checkpoint != null) {
+                    if (System.currentTimeMillis() - checkpoint.getUpdatedAt() > CHECKPOINT_MAX_AGE_MS) {
+                        Log.d(TAG, "断点已过期，重新扫描: " + rootPath);
+                        dao.clear(uk, rootPath);
+                    } else if (checkpoint.getUpdatedAt() < notBefore) {
+                        Log.d(TAG, "断点早于本次扫描允许的时间，重新扫描: " + rootPath);
+                        dao.clear(uk, rootPath);
+                    } else {
+                        snapshot = toSnapshot(checkpoint, dao.getFileBatches(uk, rootPath));
+                    }
+                } else {
+                    // 没有断点时清理可能残留的进度批次
+                    dao.deleteFileBatches(uk, rootPath);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "读取扫描断点失败: " + rootPath, e);
+                snapshot = null;
+                clearQuietly();
+            }
+            callback.onLoaded(snapshot);
+        });
+    }
+
+    private Snapshot toSnapshot(CrawlCheckpoint checkpoint, List<CrawlFileBatch> batches) {
+        List<String> pending = gson.fromJson(checkpoint.getPendingJson(), pathListType);
+        Set<String> visited = new HashSet<>();
+        List<FileInfo> files = new ArrayList<>();
+        for (CrawlFileBatch batch : batches) {
+            List<FileInfo> batchFiles = gson.fromJson(batch.getFilesJson(), fileListType);
+            if (batchFiles != null) {
+                files.addAll(batchFiles);
+            }
+            List<String> batchDirs = gson.fromJson(batch.getVisitedDirsJson(), pathListType);
+            if (batchDirs != null) {
+                visited.addAll(batchDirs);
+            }
+        }
+        Log.d(TAG, "恢复扫描断点: " + rootPath + ", 已完成目录=" + checkpoint.getDirsDone()
+                + ", 待处理目录=" + (pending != null ? pending.size() : 0) + ", 已找到文件=" + files.size());
+        return new Snapshot(pending != null ? pending : new ArrayList<>(), visited, files, checkpoint.getDirsDone());
+    }
+
+    /**
+     * 保存断点（没有持有断点时忽略）
+     * @param pendingDirs 待处理目录（包含正在请求中的目录，恢复时重新请求）
+     * @param newVisitedDirs 自上次保存以来新完成的目录
+     * @param newFiles 自上次保存以来新找到的文件
+     * @param dirsDone 已完成目录数
+     * @param filesFound 已找到的文件总数
+     */
+    void save(List<String> pendingDirs, List<String> newVisitedDirs, List<FileInfo> newFiles,
+              int dirsDone, int filesFound) {
+        executor.execute(() -> {
+            if (!owner) {
+                return;
+            }
+            try {
+                CrawlCheckpoint checkpoint = new CrawlCheckpoint();
+                checkpoint.setUk(uk);
+                checkpoint.setRootPath(rootPath);
+                checkpoint.setPendingJson(gson.toJson(pendingDirs, pathListType));
+                checkpoint.setDirsDone(dirsDone);
+                checkpoint.setFilesFound(filesFound);
+                checkpoint.setUpdatedAt(System.currentTimeMillis());
+
+                // 已完成的目录和文件只追加新增部分
+                CrawlFileBatch batch = null;
+                if (!newFiles.isEmpty() || !newVisitedDirs.isEmpty()) {
+                    batch = new CrawlFileBatch();
+                    batch.setUk(uk);
+                    batch.setRootPath(rootPath);
+                    batch.setFilesJson(gson.toJson(newFiles, fileListType));
+                    batch.setVisitedDirsJson(gson.toJson(newVisitedDirs, pathListType));
+                }
+                getDao().saveCheckpoint(checkpoint, batch);
+                Log.d(TAG, "保存扫描断点: " + rootPath + ", 已完成目录=" + dirsDone + ", 已找到文件=" + filesFound);
+            } catch (Exception e) {
+                Log.e(TAG, "保存扫描断点失败: " + rootPath, e);
+            }
+        });
+    }
+
+    /**
+     * 扫描结束后删除断点（没有持有断点时忽略）
+     */
+    void clear() {
+        executor.execute(() -> {
+            if (owner) {
+                clearQuietly();
+            }
+        });
+    }
+
+    /**
+     * 扫描结束或取消后释放断点，之后同一目录的新扫描才能使用断点
+     * 在之前提交的保存/删除完成后执行
+     */
+    void release() {
+        executor.execute(() -> {
+            if (owner) {
+                owner = false;
+                activeKeys.remove(activeKey());
+            }
+        });
+    }
+
+    private void clearQuietly() {
+        try {
+            getDao().clear(uk, rootPath);
+        } catch (Exception e) {
+            Log.e(TAG, "删除扫描断点失败: " + rootPath, e);
+        }
+    }
+
+    private String activeKey() {
+        return uk + ":" + rootPath;
+    }
+
+    private CrawlCheckpointDao getDao() {
+        return BaiduTVApplication.getInstance().getDatabase().crawlCheckpointDao();
+    }
+}
@@ -0,0 +1,165 @@
+package com.baidu.tv.player.repository;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 目录列表预取调度器
+ * 文件浏览界面中焦点在目录上停留、或列表刚显示出来时，提前把目录列表加载到目录缓存，
+ * 进入目录时即可直接命中缓存。
+ * 同时进行的预取数受 maxConcurrent 限制：焦点预取插到队首，列表预取排在队尾，
+ * 排队数超出上限时丢弃最早排队的列表预取（没有列表预取时丢弃最早的焦点预取）。真正的目录导航开始时调用 preempt 取消其余预取。
+ * 只在主线程调用。
+ */
+public class DirectoryPrefetcher {
+    private static final String TAG = "DirectoryPrefetcher";
+
+    // 最多排队的预取任务数
+    private static final int MAX_QUEUED = 8;
+    // 已预取的目录在该时间内不再重复预取
+    private static final long RECENT_PREFETCH_MS = 60 * 1000;
+
+    private final FileRepository repository;
+    private final int maxConcurrent;
+
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+    // 正在预取的目录 -> 请求句柄
+    private final Map<String, RequestHandle> running = new HashMap<>();
+    // 最近预取完成的目录 -> 完成时间
+    private final Map<String, Long> recentlyPrefetched = new HashMap<>();
+
+    private static class Task {
+        final String accessToken;
+        final String path;
+        final long dirMtime;
+        final boolean priority;
+
+        Task(String accessToken, String path, long dirMtime, boolean priority) {
+            this.accessToken = accessToken;
+            this.path = path;
+            this.dirMtime = dirMtime;
+            this.priority = priority;
+        }
+    }
+
+    public DirectoryPrefetcher(FileRepository repository, int maxConcurrent) {
+        this.repository = repository;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+    }
+
+    /**
+     * 预取目录列表
+     * @param dirMtime 目录的server_mtime（来自当前列表），用于判断缓存是否有效
+     * @param priority 为true时（如焦点停留）插到队首优先预取
+     */
+    public void prefetch(String accessToken, String path, long dirMtime, boolean priority) {
+        if (accessToken == null || path == null || running.containsKey(path)) {
+            return;
+        }
+        Long finishedAt = recentlyPrefetched.get(path);
+        if (finishedAt != null && System.currentTimeMillis() - finishedAt < RECENT_PREFETCH_MS) {
+            return;
+        }
+
+        removeQueued(path);
+        Task task = new Task(accessToken, path, dirMtime, priority);
+        if (priority) {
+            queue.addFirst(task);
+        } else {
+            queue.addLast(task);
+        }
+        while (queue.size() > MAX_QUEUED) {
+            dropOldest();
+        }
+        pump();
+    }
+
+    /**
+     * 真正的目录导航开始：取消除目标目录以外的所有预取
+     * 目标目录的预取保留，导航请求会与其合并
+     */
+    public void preempt(String keepPath) {
+        queue.clear();
+        Iterator<Map.Entry<String, RequestHandle>> it = running.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, RequestHandle> entry = it.next();
+            if (entry.getKey().equals(keepPath)) {
+                continue;
+            }
+            entry.getValue().cancel();
+            it.remove();
+            RepositoryMetrics.getInstance().recordPreemptedPrefetch();
+            Log.d(TAG, "导航抢占，取消预取: " + entry.getKey());
+        }
+    }
+
+    /**
+     * 取消所有预取（界面销毁时）
+     */
+    public void cancelAll() {
+        queue.clear();
+        for (RequestHandle handle : running.values()) {
+            handle.cancel();
+        }
+        running.clear();
+    }
+
+    /**
+     * 丢弃最早排队的任务
+     * 列表预取按顺序排在队尾，最早的是第一个列表预取；
+     * 焦点预取插在队首，全是焦点预取时最早的在队尾
+     */
+    private void dropOldest() {
+        Iterator<Task> it = queue.iterator();
+        while (it.hasNext()) {
+            Task task = it.next();
+            if (!task.priority) {
+                it.remove();
+                Log.d(TAG, "排队已满，丢弃预取: " + task.path);
+                return;
+            }
+        }
+        Task task = queue.pollLast();
+        Log.d(TAG, "排队已满，丢弃预取: " + task.path);
+    }
+
+    private void pump() {
+        while (running.size() < maxConcurrent && !queue.isEmpty()) {
+            Task task = queue.pollFirst();
+            if (running.containsKey(task.path)) {
+                continue;
+            }
+            RepositoryMetrics.getInstance().recordDirectoryPrefetch();
+            RequestHandle handle = repository.prefetchDirectory(task.accessToken, task.path, task.dirMtime,
+                    () -> onPrefetchDone(task.path));
+            running.put(task.path, handle);
+        }
+    }
+
+    private void onPrefetchDone(String path) {
+        running.remove(path);
+        long now = System.currentTimeMillis();
+        recentlyPrefetched.put(path, now);
+        // 清理过期记录，避免长时间浏览后无限增长
+        Iterator<Long> it = recentlyPrefetched.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next() >= RECENT_PREFETCH_MS) {
+                it.remove();
+            }
+        }
+        pump();
+    }
+
+    private void removeQueued(String path) {
+        Iterator<Task> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().path.equals(path)) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.baidu.tv.player.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.baidu.tv.player.BaiduTVApplication;
+import com.baidu.tv.player.database.DlinkCacheDao;
+import com.baidu.tv.player.model.DlinkCache;
+import com.baidu.tv.player.model.FileInfo;
+import com.baidu.tv.player.utils.PreferenceUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * dlink解析器
+ * 按fsId缓存文件下载链接，并通过一次filemetas请求批量获取多个文件的dlink。
+ * 同一个fsId正在请求中时，后续的请求只登记回调，不再重复发起网络请求。
+ * 缓存同时持久化到数据库，应用重启后在有效期内仍可直接使用。
+ */
+public class DlinkResolver {
+    private static final String TAG = "DlinkResolver";
+
+    // filemetas接口单次最多支持的fsid数量
+    public static final int MAX_BATCH_SIZE = 100;
+    // 内存中最多保留的dlink数，淘汰的条目仍可从数据库读取
+    private static final int MAX_CACHED_DLINKS = 2000;
+
+    private static DlinkResolver instance;
+
+    private final FileRepository fileRepository;
+    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // fsId -> dlink缓存，按访问顺序淘汰
+    private final LinkedHashMap<Long, CachedDlink> dlinkTable =
+            new LinkedHashMap<Long, CachedDlink>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedDlink> eldest) {
+                    return size() > MAX_CACHED_DLINKS;
+                }
+            };
+    // 正在请求中的fsId -> 等待该结果的回调
+    private final Map<Long, List<DlinkCallback>> inFlight = new HashMap<>();
+    // 已失效的fsId，重新请求时需跳过HTTP缓存，避免再次拿到失效的dlink
+    private final Set<Long> invalidatedFsIds = new HashSet<>();
+
+    private static class CachedDlink {
+        final String dlink;
+        final long fetchedAt;
+
+        CachedDlink(String dlink, long fetchedAt) {
+            this.dlink = dlink;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - fetchedAt > getTtlMs();
+        }
+    }
+
+    /**
+     * dlink回调接口
+     */
+    public interface DlinkCallback {
+        void onSuccess(String dlink);
+        void onFailure(String error);
+    }
+
+    private DlinkResolver() {
+        fileRepository = FileRepository.getInstance();
+        // 清理数据库中已过期的dlink
+        dbExecutor.execute(() -> {
+            try {
+                getDao().deleteExpired(System.currentTimeMillis() - getTtlMs());
+            } catch (Exception e) {
+                Log.e(TAG, "清理过期dlink失败", e);
+            }
+        });
+    }
+
+    public static synchronized DlinkResolver getInstance() {
+        if (instance == null) {
+            instance = new DlinkResolver();
+        }
+        return instance;
+    }
+
+    /**
+     * 获取缓存中未过期的dlink，没有则返回null
+     */
+    public synchronized String getCachedDlink(long fsId) {
+        CachedDlink cached = dlinkTable.get(fsId);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.isExpired(System.currentTimeMillis())) {
+            dlinkTable.remove(fsId);
+            return null;
+        }
+        return cached.dlink;
+    }
+
+    /**
+     * 使某个文件的dlink失效（如播放时返回403）
+     */
+    public void invalidate(long fsId) {
+        Log.d(TAG, "dlink失效, fsId=" + fsId);
+        synchronized (this) {
+            dlinkTable.remove(fsId);
+            invalidatedFsIds.add(fsId);
+        }
+        dbExecutor.execute(() -> {
+            try {
+                getDao().deleteByFsId(fsId);
+            } catch (Exception e) {
+                Log.e(TAG, "删除dlink缓存失败", e);
+            }
+        });
+    }
+
+    /**
+     * 清空所有dlink缓存（如退出登录时，dlink与账号绑定）
+     */
+    public void clear() {
+        synchronized (this) {
+            dlinkTable.clear();
+            invalidatedFsIds.clear();
+        }
+        dbExecutor.execute(() -> {
+            try {
+                getDao().deleteAll();
+            } catch (Exception e) {
+                Log.e(TAG, "清空dlink缓存失败", e);
+            }
+        });
+    }
+
+    /**
+     * 获取指定文件的dlink
+     * 缓存未命中时，会把 prefetchFsIds 中尚未缓存的文件一起放进同一个批量请求
+     * @param fsId 需要的文件
+     * @param prefetchFsIds 接下来可能播放的文件（可为null），顺带获取
+     * @param callback 回调
+     */
+    public void resolve(String accessToken, long fsId, List<Long> prefetchFsIds, DlinkCallback callback) {
+        String cached = getCachedDlink(fsId);
+        if (cached != null) {
+            Log.d(TAG, "命中dlink缓存, fsId=" + fsId);
+            callback.onSuccess(cached);
+            return;
+        }
+
+        List<Long> batch;
+        synchronized (this) {
+            List<DlinkCallback> waiters = inFlight.get(fsId);
+            if (waiters != null) {
+                // 已有相同fsId的请求在进行中，合并等待
+                Log.d(TAG, "合并进行中的dlink请求, fsId=" + fsId);
+                waiters.add(callback);
+                return;
+            }
+            batch = collectBatch(fsId, prefetchFsIds);
+            inFlight.get(fsId).add(callback);
+        }
+        loadFromDiskThenRequest(accessToken, batch);
+    }
+
+    /**
+     * 预取一批文件的dlink（只请求未缓存且未在请求中的文件）
+     */
+    public void prefetch(String accessToken, List<Long> fsIds) {
+        if (fsIds == null || fsIds.isEmpty()) {
+            return;
+        }
+        List<Long> batch;
+        synchronized (this) {
+            batch = collectBatch(-1, fsIds);
+        }
+        if (!batch.isEmpty()) {
+            loadFromDiskThenRequest(accessToken, batch);
+        }
+    }
+
+    /**
+     * 收集本次请求的fsId，并登记为请求中（需持有锁）
+     */
+    private List<Long> collectBatch(long primaryFsId, List<Long> extraFsIds) {
+        Set<Long> batch = new HashSet<>();
+        List<Long> ordered = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        if (primaryFsId >= 0) {
+            batch.add(primaryFsId);
+            ordered.add(primaryFsId);
+        }
+        if (extraFsIds != null) {
+            for (Long id : extraFsIds) {
+                if (ordered.size() >= MAX_BATCH_SIZE) {
+                    break;
+                }
+                if (id == null || batch.contains(id) || inFlight.containsKey(id)) {
+                    continue;
+                }
+                CachedDlink cached = dlinkTable.get(id);
+                if (cached != null && !cached.isExpired(now)) {
+                    continue;
+                }
+                batch.add(id);
+                ordered.add(id);
+            }
+        }
+
+        for (Long id : ordered) {
+            inFlight.put(id, new ArrayList<>());
+        }
+        return ordered;
+    }
+
+    /**
+     * 先从数据库查找有效的dlink，找不到的再通过网络批量请求
+     */
+    private void loadFromDiskThenRequest(String accessToken, List<Long> batch) {
+        dbExecutor.execute(() -> {
+            Map<Long, String> found = new HashMap<>();
+            try {
+                long validAfter = System.currentTimeMillis() - getTtlMs();
+                for (int start = 0; start < batch.size(); start += MAX_BATCH_SIZE) {
+                    List<Long> chunk = batch.subList(start, Math.min(start + MAX_BATCH_SIZE, batch.size()));
+                    for (DlinkCache cache : getDao().getValidByFsIds(chunk, validAfter)) {
+                        if (cache.getDlink() != null && cache.getDlink().startsWith("http")) {
+                            found.put(cache.getFsId(), cache.getDlink());
+                            synchronized (this) {
+                                dlinkTable.put(cache.getFsId(), new CachedDlink(cache.getDlink(), cache.getFetchedAt()));
+                            }
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "读取dlink缓存失败", e);
+            }
+
+            List<Long> missing = new ArrayList<>();
+            for (Long id : batch) {
+                if (!found.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            Log.d(TAG, "数据库命中dlink: " + found.size() + "/" + batch.size());
+
+            mainHandler.post(() -> {
+                if (!found.isEmpty()) {
+                    completeWaiters(new ArrayList<>(found.keySet()), found);
+                }
+                if (!missing.isEmpty()) {
+                    requestBatch(accessToken, missing);
+                }
+            });
+        });
+    }
+
+    /**
+     * 结束指定fsId的请求，并通知等待的回调
+     */
+    private void completeWaiters(List<Long> fsIds, Map<Long, String> results) {
+        Map<Long, List<DlinkCallback>> completed = new HashMap<>();
+        synchronized (this) {
+            for (Long id : fsIds) {
+                completed.put(id, inFlight.remove(id));
+            }
+        }
+        for (Map.Entry<Long, List<DlinkCallback>> entry : completed.entrySet()) {
+            List<DlinkCallback> waiters = entry.getValue();
+            if (waiters == null) {
+                continue;
+            }
+            String dlink = results.get(entry.getKey());
+            for (DlinkCallback waiter : waiters) {
+                if (dlink != null) {
+                    waiter.onSuccess(dlink);
+                } else {
+                    waiter.onFailure("未获取到有效的dlink, fsId=" + entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * 把新获取的dlink写入数据库
+     */
+    private void persist(Map<Long, String> results, long fetchedAt) {
+        if (results.isEmpty()) {
+            return;
+        }
+        List<DlinkCache> caches = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : results.entrySet()) {
+            DlinkCache cache = new DlinkCache();
+            cache.setFsId(entry.getKey());
+            cache.setDlink(entry.getValue());
+            cache.setFetchedAt(fetchedAt);
+            caches.add(cache);
+        }
+        dbExecutor.execute(() -> {
+            try {
+                getDao().insertAll(caches);
+            } catch (Exception e) {
+                Log.e(TAG, "写入dlink缓存失败", e);
+            }
+        });
+    }
+
+    private static long getTtlMs() {
+        return PreferenceUtils.getDlinkCacheTtlHours(BaiduTVApplication.getInstance()) * 60 * 60 * 1000L;
+    }
+
+    private DlinkCacheDao getDao() {
+        return BaiduTVApplication.getInstance().getDatabase().dlinkCacheDao();
+    }
+
+    private void requestBatch(String accessToken, List<Long> batch) {
+        boolean forceRefresh = false;
+        synchronized (this) {
+            for (Long id : batch) {
+                if (invalidatedFsIds.remove(id)) {
+                    forceRefresh = true;
+                }
+            }
+        }
+        Log.d(TAG, "批量获取dlink, 文件数=" + batch.size() + ", 强制刷新=" + forceRefresh);
+        fileRepository.fetchFileDetails(accessToken, batch, forceRefresh, new FileRepository.FileDetailsCallback() {
+            @Override
+            public void onSuccess(List<FileInfo> files) {
+                long now = System.currentTimeMillis();
+                Map<Long, String> results = new HashMap<>();
+
+                synchronized (DlinkResolver.this) {
+                    for (FileInfo file : files) {
+                        String dlink = file.getDlink();
+                        if (dlink != null && dlink.startsWith("http")) {
+                            dlinkTable.put(file.getFsId(), new CachedDlink(dlink, now));
+                            results.put(file.getFsId(), dlink);
+                        }
+                    }
+                }
+
+                Log.d(TAG, "批量获取dlink完成, 请求=" + batch.size() + ", 成功=" + results.size());
+                persist(results, now);
+                completeWaiters(batch, results);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "批量获取dlink失败: " + error);
+                List<DlinkCallback> waiters = new ArrayList<>();
+                synchronized (DlinkResolver.this) {
+                    for (Long id : batch) {
+                        List<DlinkCallback> list = inFlight.remove(id);
+                        if (list != null) {
+                            waiters.addAll(list);
+                        }
+                    }
+                }
+                for (DlinkCallback waiter : waiters) {
+                    waiter.onFailure(error);
+                }
+            }
+        });
+    }
+}
@@ -1,18 +1,32 @@
 package com.baidu.tv.player.repository;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.baidu.tv.player.BaiduTVApplication;
+import com.baidu.tv.player.database.DirectoryCacheDao;
+import com.baidu.tv.player.model.DirectoryCache;
 import com.baidu.tv.player.model.FileInfo;
 import com.baidu.tv.player.model.FileListResponse;
 import com.baidu.tv.player.network.ApiConstants;
 import com.baidu.tv.player.network.BaiduPanService;
 import com.baidu.tv.player.network.RetrofitClient;
 
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -26,8 +40,47 @@ public class FileRepository {
     private static FileRepository instance;
     private BaiduPanService apiService;
 
+    // 递归扫描默认并发目录数
+    public static final int DEFAULT_CRAWL_CONCURRENCY = 6;
+    // 递归扫描最大目录数（防止无限递归）
+    private static final int MAX_CRAWL_DIRS = 100;
+
+    private volatile int crawlConcurrency = DEFAULT_CRAWL_CONCURRENCY;
+
+    // 单页最大条目数（list接口limit上限）
+    static final int PAGE_LIMIT = 1000;
+    // 大目录分页并发请求的默认窗口大小
+    public static final int DEFAULT_PAGE_FETCH_CONCURRENCY = 4;
+
+    private volatile int pageFetchConcurrency = DEFAULT_PAGE_FETCH_CONCURRENCY;
+
+    // 递归列表（listall）最大加载页数，避免内存溢出
+    private static final int RECURSIVE_MAX_PAGES = 100;
+
+    // 目录缓存最大条目数（超出后按最后访问时间LRU淘汰）
+    private static final int MAX_DIRECTORY_CACHE_ENTRIES = 200;
+    // 目录修改时间未知时（如根目录），缓存在该时间窗口内视为最新，不再请求网络
+    private static final long DIRECTORY_CACHE_FRESH_MS = 60 * 1000;
+
+    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Gson gson = new Gson();
+    private final Type fileListType = new TypeToken<List<FileInfo>>() {}.getType();
+
+    // 合并进行中的相同请求（如快速切换目录、播放与预加载同时请求同一文件）
+    private final RequestCoalescer<FileListResponse> listPageCoalescer = new RequestCoalescer<>("list");
+    private final RequestCoalescer<FileListResponse> listAllPageCoalescer = new RequestCoalescer<>("listall");
+    private final RequestCoalescer<List<FileInfo>> fileMetasCoalescer = new RequestCoalescer<>("filemetas");
+    private final RequestCoalescer<FileListResponse> categoryListCoalescer = new RequestCoalescer<>("categorylist");
+
+    // 浏览时最多加载的页数（按类型过滤时文件和目录各自计算）
+    private static final int STREAMING_MAX_PAGES = 5;
+    // categorylist接口是否可用，接口返回错误后本次运行改为客户端过滤
+    private volatile boolean categoryListAvailable = true;
+
     private FileRepository() {
         apiService = RetrofitClient.getPanApiInstance().create(BaiduPanService.class);
+        RepositoryMetrics.getInstance().setPageFetchConcurrency(pageFetchConcurrency);
     }
 
     public static synchronized FileRepository getInstance() {
@@ -37,6 +90,21 @@ public class FileRepository {
         return instance;
     }
 
+    /**
+     * 设置递归扫描时同时请求的目录数
+     */
+    public void setCrawlConcurrency(int concurrency) {
+        this.crawlConcurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * 设置大目录分页并发请求的窗口大小（1表示逐页串行请求）
+     */
+    public void setPageFetchConcurrency(int concurrency) {
+        this.pageFetchConcurrency = Math.max(1, concurrency);
+        RepositoryMetrics.getInstance().setPageFetchConcurrency(this.pageFetchConcurrency);
+    }
+
     /**
      * 获取文件列表（智能分页，最多加载前5页避免内存溢出）
      */
@@ -69,14 +137,320 @@ public class FileRepository {
         return data;
     }
 
+    /**
+     * 流式获取文件列表（最多加载前5页），每获取到一页立即回调已过滤的结果
+     * 用于文件浏览界面，首屏只需等待一次请求
+     */
+    public RequestHandle getFileListStreaming(String accessToken, String dirPath, int mediaType,
+                                              final PageCallback callback) {
+        return getFileListStreaming(accessToken, dirPath, mediaType, 0, callback);
+    }
+
+    /**
+     * 流式获取文件列表，全部分页完成后写入目录缓存
+     * @param dirMtime 目录自身的server_mtime（来自上级目录列表，未知传0），随缓存一起保存
+     */
+    public RequestHandle getFileListStreaming(String accessToken, String dirPath, int mediaType,
+                                              long dirMtime, final PageCallback callback) {
+        return getFileListStreaming(accessToken, dirPath, mediaType, dirMtime, false, callback);
+    }
+
+    /**
+     * 流式获取文件列表，全部分页完成后写入目录缓存
+     * @param dirMtime 目录自身的server_mtime（来自上级目录列表，未知传0），随缓存一起保存
+     * @param forceRefresh 是否跳过HTTP缓存，直接从服务器获取
+     * @return 请求句柄，取消后停止加载且不再回调
+     */
+    public RequestHandle getFileListStreaming(String accessToken, String dirPath, int mediaType,
+                                              long dirMtime, boolean forceRefresh, final PageCallback callback) {
+        Log.d(TAG, "开始流式获取文件列表: dirPath=" + dirPath + ", mediaType=" + mediaType + ", 强制刷新=" + forceRefresh);
+        final RequestHandle handle = new RequestHandle();
+        if (categoryListAvailable && categoryOf(mediaType) > 0) {
+            streamByCategory(accessToken, dirPath, mediaType, dirMtime, forceRefresh, handle, callback);
+        } else {
+            streamAndFilter(accessToken, dirPath, mediaType, dirMtime, forceRefresh, handle, callback);
+        }
+        return handle;
+    }
+
+    /**
+     * 获取目录下的全部条目，在客户端按媒体类型过滤；写入按路径保存的完整目录缓存
+     */
+    private void streamAndFilter(String accessToken, String dirPath, int mediaType, long dirMtime,
+                                 boolean forceRefresh, RequestHandle handle, final PageCallback callback) {
+        final List<FileInfo> rawFiles = new ArrayList<>();
+        fetchPagesStreaming(accessToken, dirPath, 0, STREAMING_MAX_PAGES, forceRefresh, handle, new PageCallback() {
+            @Override
+            public void onPage(List<FileInfo> page, int pageIndex) {
+                rawFiles.addAll(page);
+                List<FileInfo> filteredPage = filterFiles(page, mediaType);
+                Log.d(TAG, "第 " + (pageIndex + 1) + " 页过滤后文件数量: " + filteredPage.size());
+                callback.onPage(filteredPage, pageIndex);
+            }
+
+            @Override
+            public void onComplete(boolean hasMore) {
+                if (hasMore) {
+                    Log.w(TAG, "目录包含超过5000个文件，仅显示前5000个以避免内存溢出");
+                }
+                saveDirectoryCache(dirPath, rawFiles, dirMtime, hasMore);
+                callback.onComplete(hasMore);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "流式获取文件列表失败: " + error);
+                callback.onFailure(error);
+            }
+        });
+    }
+
+    /**
+     * 服务端按类型过滤：categorylist只返回当前目录下指定类型的文件，
+     * list(folder=1)只返回子目录用于导航，RAW、文档等其他文件不再下载。
+     * 结果写入按类型区分的目录缓存。categorylist第一页就失败时改为客户端过滤
+     */
+    private void streamByCategory(String accessToken, String dirPath, int mediaType, long dirMtime,
+                                  boolean forceRefresh, RequestHandle handle, final PageCallback callback) {
+        final List<FileInfo> files = new ArrayList<>();
+        final boolean[] receivedPage = {false};
+        final boolean[] filesHasMore = {false};
+        // 已回调的文件页数，子目录页的序号接在后面
+        final int[] filePageCount = {0};
+
+        PageCallback folderPages = new PageCallback() {
+            @Override
+            public void onPage(List<FileInfo> page, int pageIndex) {
+                files.addAll(page);
+                callback.onPage(page, pageIndex);
+            }
+
+            @Override
+            public void onComplete(boolean hasMore) {
+                hasMore = hasMore || filesHasMore[0];
+                saveDirectoryCache(categoryCacheKey(dirPath, mediaType), files, dirMtime, hasMore);
+                callback.onComplete(hasMore);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "获取子目录失败: " + error);
+                callback.onFailure(error);
+            }
+        };
+
+        fetchCategoryPages(accessToken, dirPath, categoryOf(mediaType), 0, 0, STREAMING_MAX_PAGES,
+                forceRefresh, handle, new PageCallback() {
+            @Override
+            public void onPage(List<FileInfo> page, int pageIndex) {
+                receivedPage[0] = true;
+                filePageCount[0] = pageIndex + 1;
+                List<FileInfo> filteredPage = filterFiles(page, mediaType);
+                files.addAll(filteredPage);
+                callback.onPage(filteredPage, pageIndex);
+            }
+
+            @Override
+            public void onComplete(boolean hasMore) {
+                filesHasMore[0] = hasMore;
+                fetchFolderPages(accessToken, dirPath, 0, filePageCount[0], STREAMING_MAX_PAGES,
+                        forceRefresh, handle, folderPages);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                if (receivedPage[0]) {
+                    callback.onFailure(error);
+                    return;
+                }
+                Log.w(TAG, "categorylist不可用，改为客户端过滤: " + error);
+                streamAndFilter(accessToken, dirPath, mediaType, dirMtime, forceRefresh, handle, callback);
+            }
+        });
+    }
+
+    /**
+     * 预取目录列表到目录缓存（缓存仍有效时不请求网络），用于文件浏览界面的焦点预取
+     * @param dirMtime 目录自身的server_mtime（来自上级目录列表，未知传0）
+     * @param onDone 预取结束（成功、失败或缓存有效而跳过）时在主线程回调，取消后不回调
+     * @return 请求句柄，真正的目录导航开始时可取消预取
+     */
+    public RequestHandle prefetchDirectory(String accessToken, String dirPath, long dirMtime, final Runnable onDone) {
+        final RequestHandle handle = new RequestHandle();
+        dbExecutor.execute(() -> {
+            boolean fresh = false;
+            try {
+                DirectoryCache cache = getDirectoryCacheDao().getByPath(dirPath);
+                fresh = cache != null && isDirectoryCacheFresh(cache, dirMtime, System.currentTimeMillis());
+            } catch (Exception e) {
+                Log.e(TAG, "读取目录缓存失败: " + dirPath, e);
+            }
+
+            final boolean skip = fresh;
+            mainHandler.post(() -> {
+                if (handle.isCanceled()) {
+                    return;
+                }
+                if (skip) {
+                    Log.d(TAG, "目录缓存有效，跳过预取: " + dirPath);
+                    onDone.run();
+                    return;
+                }
+                Log.d(TAG, "预取目录: " + dirPath);
+                fetchPagesWithLimit(accessToken, dirPath, 0, new ArrayList<>(), 5, false, handle,
+                        new FetchPagesCallback() {
+                    @Override
+                    public void onSuccess(List<FileInfo> allFiles, boolean hasMore) {
+                        saveDirectoryCache(dirPath, allFiles, dirMtime, hasMore);
+                        onDone.run();
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        Log.w(TAG, "预取目录失败: " + dirPath + ", " + error);
+                        onDone.run();
+                    }
+                });
+            });
+        });
+        return handle;
+    }
+
+    /**
+     * 目录缓存查询回调接口
+     */
+    public interface CachedListCallback {
+        /**
+         * @param files 已按媒体类型过滤的缓存列表，未命中时为null
+         * @param fresh 缓存是否仍然有效（为true时无需再请求网络）
+         */
+        void onResult(List<FileInfo> files, boolean fresh);
+    }
+
+    /**
+     * 查询目录列表缓存（在数据库线程执行，主线程回调）
+     * 目录修改时间与缓存时一致，或缓存获取时间在 DIRECTORY_CACHE_FRESH_MS 内，视为有效
+     * 完整列表和服务端按类型过滤的列表都存在时，使用较新的一个
+     * @param knownDirMtime 上级目录列表中该目录的server_mtime，未知传0
+     */
+    public void getCachedFileList(String dirPath, int mediaType, long knownDirMtime,
+                                  final CachedListCallback callback) {
+        dbExecutor.execute(() -> {
+            List<FileInfo> files = null;
+            boolean fresh = false;
+            try {
+                DirectoryCacheDao dao = getDirectoryCacheDao();
+                DirectoryCache cache = dao.getByPath(dirPath);
+                if (categoryOf(mediaType) > 0) {
+                    DirectoryCache filtered = dao.getByPath(categoryCacheKey(dirPath, mediaType));
+                    if (filtered != null && (cache == null || filtered.getFetchedAt() > cache.getFetchedAt())) {
+                        cache = filtered;
+                    }
+                }
+                if (cache != null && cache.getListingJson() != null) {
+                    long now = System.currentTimeMillis();
+                    List<FileInfo> cachedFiles = gson.fromJson(cache.getListingJson(), fileListType);
+                    if (cachedFiles != null) {
+                        files = filterFiles(cachedFiles, mediaType);
+                        fresh = isDirectoryCacheFresh(cache, knownDirMtime, now);
+                        dao.updateLastAccess(cache.getPath(), now);
+                        Log.d(TAG, "目录缓存命中: " + dirPath + ", 项目数=" + cache.getItemCount() + ", 有效=" + fresh);
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "读取目录缓存失败: " + dirPath, e);
+                files = null;
+            }
+
+            final List<FileInfo> result = files;
+            final boolean isFresh = fresh;
+            mainHandler.post(() -> callback.onResult(result, isFresh));
+        });
+    }
+
+    private static boolean isDirectoryCacheFresh(DirectoryCache cache, long knownDirMtime, long now) {
+        return (knownDirMtime > 0 && cache.getDirMtime() == knownDirMtime)
+                || now - cache.getFetchedAt() < DIRECTORY_CACHE_FRESH_MS;
+    }
+
+    /**
+     * 写入目录缓存，并按LRU淘汰超出上限的条目
+     */
+    private void saveDirectoryCache(String dirPath, List<FileInfo> rawFiles, long dirMtime, boolean hasMore) {
+        final int itemCount = rawFiles.size();
+        dbExecutor.execute(() -> {
+            try {
+                // 序列化放在数据库线程，避免阻塞主线程
+                String json = gson.toJson(rawFiles, fileListType);
+                DirectoryCacheDao dao = getDirectoryCacheDao();
+                long now = System.currentTimeMillis();
+                DirectoryCache cache = new DirectoryCache();
+                cache.setPath(dirPath);
+                cache.setListingJson(json);
+                cache.setDirMtime(dirMtime);
+                cache.setFetchedAt(now);
+                cache.setLastAccessAt(now);
+                cache.setItemCount(itemCount);
+                cache.setHasMore(hasMore);
+                dao.insert(cache);
+                dao.trimToSize(MAX_DIRECTORY_CACHE_ENTRIES);
+                Log.d(TAG, "目录缓存已更新: " + dirPath + ", 项目数=" + itemCount);
+            } catch (Exception e) {
+                Log.e(TAG, "写入目录缓存失败: " + dirPath, e);
+            }
+        });
+    }
+
+    /**
+     * 清空目录缓存
+     */
+    public void clearDirectoryCache() {
+        dbExecutor.execute(() -> getDirectoryCacheDao().deleteAll());
+    }
+
+    private DirectoryCacheDao getDirectoryCacheDao() {
+        return BaiduTVApplication.getInstance().getDatabase().directoryCacheDao();
+    }
+
+    /**
+     * 逐页回调接口
+     */
+    public interface PageCallback {
+        /**
+         * 获取到一页数据
+         * @param page 当前页的文件
+         * @param pageIndex 页序号（从0开始）
+         */
+        void onPage(List<FileInfo> page, int pageIndex);
+
+        /**
+         * 所有分页加载完成
+         * @param hasMore 是否因页数限制还有未加载的数据
+         */
+        void onComplete(boolean hasMore);
+
+        void onFailure(String error);
+    }
+
     /**
      * 分页回调接口
      */
-    private interface FetchPagesCallback {
+    interface FetchPagesCallback {
         void onSuccess(List<FileInfo> allFiles, boolean hasMore);
         void onFailure(String error);
     }
 
+    /**
+     * 递归扫描进度回调接口
+     */
+    public interface CrawlProgressCallback {
+        /**
+         * @param dirsDone 已完成的目录数
+         * @param filesFound 已找到的文件数（不含目录）
+         */
+        void onProgress(int dirsDone, int filesFound);
+    }
+
     /**
      * 文件列表回调接口
      */
@@ -88,12 +462,15 @@ public class FileRepository {
     /**
      * 非递归获取单个目录的文件列表（回调方式）
      * 只获取当前目录的文件，不递归子目录
+     * @return 请求句柄，取消后停止加载且不再回调
      */
-    public void fetchFilesNonRecursive(String accessToken, String dirPath, final FileListCallback callback) {
+    public RequestHandle fetchFilesNonRecursive(String accessToken, String dirPath, final FileListCallback callback) {
         Log.d(TAG, "fetchFilesNonRecursive开始: dirPath=" + dirPath);
+        final RequestHandle handle = new RequestHandle();
         
         // 获取所有文件，不限制页数
-        fetchPagesWithLimit(accessToken, dirPath, 0, new ArrayList<>(), Integer.MAX_VALUE, new FetchPagesCallback() {
+        fetchPagesWithLimit(accessToken, dirPath, 0, new ArrayList<>(), Integer.MAX_VALUE, false, handle,
+                new FetchPagesCallback() {
             @Override
             public void onSuccess(List<FileInfo> allFiles, boolean hasMore) {
                 Log.d(TAG, "fetchFilesNonRecursive完成: 文件数=" + allFiles.size());
@@ -117,17 +494,66 @@ public class FileRepository {
                 callback.onFailure(error);
             }
         });
+        return handle;
     }
     
     /**
      * 递归获取文件列表（回调方式，用于后台任务组合）
      * 使用手动递归实现，避免使用不稳定的xpan/multimedia?method=listall接口
      */
-    public void fetchFilesRecursive(String accessToken, String dirPath, final FileListCallback callback) {
-        Log.d(TAG, "fetchFilesRecursive开始: dirPath=" + dirPath);
+    public RequestHandle fetchFilesRecursive(String accessToken, String dirPath, final FileListCallback callback) {
+        return fetchFilesRecursive(accessToken, dirPath, null, callback);
+    }
+
+    /**
+     * 递归获取文件列表（带进度回调）
+     * 由 ParallelDirectoryCrawler 并发遍历目录树，最多处理100个目录，避免无限递归。
+     * 扫描进度会保存为断点，中断后再次扫描同一目录时从断点继续。
+     * @param progressCallback 进度回调（可为null），每完成一个目录回调一次
+     */
+    public RequestHandle fetchFilesRecursive(String accessToken, String dirPath,
+                                             final CrawlProgressCallback progressCallback,
+                                             final FileListCallback callback) {
+        return fetchFilesRecursive(accessToken, dirPath, progressCallback, false, callback);
+    }
+
+    /**
+     * 递归获取文件列表
+     * @param forceRefresh 是否跳过HTTP缓存，同时不使用本次请求之前保存的断点
+     * @return 请求句柄，取消后停止扫描（保存断点）且不再回调
+     */
+    public RequestHandle fetchFilesRecursive(String accessToken, String dirPath,
+                                             final CrawlProgressCallback progressCallback,
+                                             boolean forceRefresh,
+                                             final FileListCallback callback) {
+        return fetchFilesRecursive(accessToken, dirPath, progressCallback, forceRefresh,
+                forceRefresh ? System.currentTimeMillis() : 0, callback);
+    }
+
+    /**
+     * 递归获取文件列表
+     * @param forceRefresh 是否跳过HTTP缓存（如刷新播放列表时）
+     * @param checkpointNotBefore 早于该时间保存的断点不再使用，传0时使用任何未过期的断点
+     * @return 请求句柄，取消后停止扫描（保存断点）且不再回调
+     */
+    public RequestHandle fetchFilesRecursive(String accessToken, String dirPath,
+                                             final CrawlProgressCallback progressCallback,
+                                             boolean forceRefresh, long checkpointNotBefore,
+                                             final FileListCallback callback) {
+        RequestHandle handle = new RequestHandle();
+        fetchFilesRecursive(accessToken, dirPath, progressCallback, forceRefresh, checkpointNotBefore,
+                handle, callback);
+        return handle;
+    }
+
+    private void fetchFilesRecursive(String accessToken, String dirPath,
+                                     final CrawlProgressCallback progressCallback,
+                                     boolean forceRefresh, long checkpointNotBefore, RequestHandle handle,
+                                     final FileListCallback callback) {
+        Log.d(TAG, "fetchFilesRecursive开始: dirPath=" + dirPath + ", 并发数=" + crawlConcurrency + ", 强制刷新=" + forceRefresh);
         
-        // 使用手动递归，最多处理100个目录，避免无限递归
-        manualRecursiveFetch(accessToken, dirPath, new ArrayList<>(), new ArrayList<>(), 0, 100, new FetchPagesCallback() {
+        new ParallelDirectoryCrawler(this, accessToken, crawlConcurrency, MAX_CRAWL_DIRS, forceRefresh,
+                checkpointNotBefore, new CrawlCheckpointStore(dirPath), handle, progressCallback, new FetchPagesCallback() {
             @Override
             public void onSuccess(List<FileInfo> allFiles, boolean hasMore) {
                 // 添加调试日志
@@ -151,99 +577,303 @@ public class FileRepository {
                 Log.e(TAG, "fetchFilesRecursive失败: " + error);
                 callback.onFailure(error);
             }
-        });
+        }).start(dirPath);
     }
-    
+
     /**
-     * 手动递归获取文件列表（深度优先遍历）
-     * @param accessToken 访问令牌
-     * @param currentPath 当前路径
-     * @param allFiles 累积的所有文件
-     * @param pendingDirs 待处理的目录队列
-     * @param processedDirCount 已处理目录数
-     * @param maxDirs 最大处理目录数（防止无限递归）
-     * @param callback 回调
-     */
-    private void manualRecursiveFetch(String accessToken, String currentPath,
-                                     List<FileInfo> allFiles, List<String> pendingDirs,
-                                     int processedDirCount, int maxDirs,
+     * 智能分页加载（限制最大页数避免内存溢出）
+     * 基于 fetchPagesStreaming 实现，全部分页完成后一次性回调
+     */
+    void fetchPagesWithLimit(String accessToken, String dirPath, int start,
+                                     List<FileInfo> accumulatedFiles, int remainingPages,
                                      FetchPagesCallback callback) {
-        // 防止无限递归
-        if (processedDirCount >= maxDirs) {
-            Log.w(TAG, "已达到最大目录处理数限制: " + maxDirs);
-            callback.onSuccess(allFiles, true);
+        fetchPagesWithLimit(accessToken, dirPath, start, accumulatedFiles, remainingPages, false,
+                new RequestHandle(), callback);
+    }
+
+    void fetchPagesWithLimit(String accessToken, String dirPath, int start,
+                             List<FileInfo> accumulatedFiles, int remainingPages,
+                             boolean forceRefresh, RequestHandle handle, FetchPagesCallback callback) {
+        fetchPagesStreaming(accessToken, dirPath, start, remainingPages, forceRefresh, handle, new PageCallback() {
+            @Override
+            public void onPage(List<FileInfo> page, int pageIndex) {
+                accumulatedFiles.addAll(page);
+            }
+
+            @Override
+            public void onComplete(boolean hasMore) {
+                Log.d(TAG, "分页加载完成，总共 " + accumulatedFiles.size() + " 个文件");
+                callback.onSuccess(accumulatedFiles, hasMore);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
+            }
+        });
+    }
+
+    /**
+     * 逐页流式加载（限制最大页数避免内存溢出）
+     * 每获取到一页立即通过 onPage 回调，不等待全部分页完成。
+     * 第一页满页（说明目录较大）时，后续分页交给 ParallelPageFetcher 在窗口内并发请求
+     */
+    private void fetchPagesStreaming(String accessToken, String dirPath, int start,
+                                     int remainingPages, boolean forceRefresh, RequestHandle handle,
+                                     PageCallback callback) {
+        if (handle.isCanceled()) {
+            return;
+        }
+        if (remainingPages <= 0) {
+            Log.w(TAG, "达到最大页数限制，停止加载");
+            callback.onComplete(true);
             return;
         }
         
-        Log.d(TAG, "手动递归处理目录: " + currentPath + " (已处理: " + processedDirCount + "/" + maxDirs + ")");
-        
-        // 获取当前目录的文件列表（最多5页，5000个文件）
-        fetchPagesWithLimit(accessToken, currentPath, 0, new ArrayList<>(), 5, new FetchPagesCallback() {
+        fetchListPage(accessToken, dirPath, start, forceRefresh, handle, new SinglePageCallback() {
             @Override
-            public void onSuccess(List<FileInfo> files, boolean hasMore) {
-                Log.d(TAG, "目录 " + currentPath + " 包含 " + files.size() + " 个项目");
+            public void onSuccess(List<FileInfo> page, int rawCount) {
+                // 立即回调当前页
+                callback.onPage(page, start / PAGE_LIMIT);
                 
-                // 分离文件和目录
-                List<String> subDirs = new ArrayList<>();
-                for (FileInfo file : files) {
-                    if (file.isDirectory()) {
-                        subDirs.add(file.getPath());
+                // 如果当前页返回的条目数量（含解析时过滤掉的）等于LIMIT，说明可能还有下一页
+                if (rawCount == PAGE_LIMIT) {
+                    if (pageFetchConcurrency > 1 && remainingPages > 2) {
+                        // 大目录：并发预取后续分页
+                        new ParallelPageFetcher(FileRepository.this::fetchListPage, accessToken, dirPath,
+                                start + PAGE_LIMIT, remainingPages - 1, pageFetchConcurrency, forceRefresh,
+                                handle, callback).start();
                     } else {
-                        allFiles.add(file);
+                        // 继续获取下一页
+                        fetchPagesStreaming(accessToken, dirPath, start + PAGE_LIMIT,
+                                          remainingPages - 1, forceRefresh, handle, callback);
                     }
+                } else {
+                    // 没有更多页了
+                    Log.d(TAG, "所有分页获取完成，共 " + (start / PAGE_LIMIT + 1) + " 页");
+                    callback.onComplete(false);
                 }
-                
-                Log.d(TAG, "目录 " + currentPath + ": 文件数=" + (files.size() - subDirs.size()) + ", 子目录数=" + subDirs.size());
-                
-                // 将子目录添加到待处理队列
-                pendingDirs.addAll(subDirs);
-                
-                // 处理下一个目录
-                processNextDirectory(accessToken, allFiles, pendingDirs, processedDirCount + 1, maxDirs, callback);
             }
 
             @Override
             public void onFailure(String error) {
-                String errorMsg = error != null ? error : "未知错误";
-                Log.e(TAG, "获取目录 " + currentPath + " 失败: " + errorMsg);
-                // 即使当前目录失败，继续处理其他目录
-                processNextDirectory(accessToken, allFiles, pendingDirs, processedDirCount + 1, maxDirs, callback);
+                callback.onFailure(error);
             }
         });
     }
-    
+
     /**
-     * 处理下一个待处理的目录
+     * 逐页获取子目录（list接口folder=1），用于服务端按类型过滤时的目录导航
+     * @param pageIndex 回调给调用方的页序号
      */
-    private void processNextDirectory(String accessToken, List<FileInfo> allFiles,
-                                     List<String> pendingDirs, int processedDirCount,
-                                     int maxDirs, FetchPagesCallback callback) {
-        if (pendingDirs.isEmpty()) {
-            // 所有目录已处理完成
-            Log.d(TAG, "手动递归完成: 总文件数=" + allFiles.size() + ", 已处理目录数=" + processedDirCount);
-            callback.onSuccess(allFiles, false);
-        } else {
-            // 处理下一个目录
-            String nextDir = pendingDirs.remove(0);
-            manualRecursiveFetch(accessToken, nextDir, allFiles, pendingDirs, processedDirCount, maxDirs, callback);
+    private void fetchFolderPages(String accessToken, String dirPath, int start, int pageIndex,
+                                  int remainingPages, boolean forceRefresh, RequestHandle handle,
+                                  PageCallback callback) {
+        if (handle.isCanceled()) {
+            return;
+        }
+        if (remainingPages <= 0) {
+            Log.w(TAG, "子目录达到最大页数限制，停止加载");
+            callback.onComplete(true);
+            return;
         }
+
+        fetchListPage(accessToken, dirPath, start, true, forceRefresh, handle, new SinglePageCallback() {
+            @Override
+            public void onSuccess(List<FileInfo> page, int rawCount) {
+                callback.onPage(page, pageIndex);
+                if (rawCount == PAGE_LIMIT) {
+                    fetchFolderPages(accessToken, dirPath, start + PAGE_LIMIT, pageIndex + 1,
+                            remainingPages - 1, forceRefresh, handle, callback);
+                } else {
+                    callback.onComplete(false);
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
+            }
+        });
     }
 
     /**
-     * 智能分页加载（限制最大页数避免内存溢出）
+     * 逐页获取目录下指定类型的文件（categorylist，不递归），按响应中的has_more/cursor翻页
+     * @param category 文件类型：1视频、3图片
      */
-    private void fetchPagesWithLimit(String accessToken, String dirPath, int start,
-                                     List<FileInfo> accumulatedFiles, int remainingPages,
-                                     FetchPagesCallback callback) {
-        final int LIMIT = 1000;
-        
+    private void fetchCategoryPages(String accessToken, String dirPath, int category, int start, int pageIndex,
+                                    int remainingPages, boolean forceRefresh, RequestHandle handle,
+                                    PageCallback callback) {
+        if (handle.isCanceled()) {
+            return;
+        }
         if (remainingPages <= 0) {
-            Log.w(TAG, "达到最大页数限制，停止加载");
-            callback.onSuccess(accumulatedFiles, true);
+            Log.w(TAG, "按类型获取达到最大页数限制，停止加载");
+            callback.onComplete(true);
             return;
         }
-        
-        Log.d(TAG, "获取第 " + (start / LIMIT + 1) + " 页，start=" + start + ", 剩余页数=" + remainingPages);
+
+        String key = requestKey(accessToken, dirPath, category, start, forceRefresh);
+        categoryListCoalescer.execute(key, handle, new RequestCoalescer.ResultCallback<FileListResponse>() {
+            @Override
+            public void onSuccess(FileListResponse fileListResponse) {
+                List<FileInfo> fileList = fileListResponse.getList();
+                int rawCount = fileListResponse.getRawCount();
+                Log.d(TAG, "按类型获取第 " + (pageIndex + 1) + " 页: " + rawCount + " 个文件"
+                        + ", has_more=" + fileListResponse.getHasMore());
+                callback.onPage(fileList != null ? fileList : new ArrayList<>(), pageIndex);
+
+                int nextStart = parseCursor(fileListResponse.getCursor(), start + rawCount);
+                if (fileListResponse.getHasMore() == 1 && rawCount > 0 && nextStart > start) {
+                    fetchCategoryPages(accessToken, dirPath, category, nextStart, pageIndex + 1,
+                            remainingPages - 1, forceRefresh, handle, callback);
+                } else {
+                    callback.onComplete(false);
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
+            }
+        }, done -> requestCategoryPage(accessToken, dirPath, category, start, forceRefresh, done));
+    }
+
+    /**
+     * 请求categorylist接口的一页
+     * 接口返回错误（而不是网络异常或限流）时认为该接口不可用，之后改为客户端过滤
+     */
+    private Call<FileListResponse> requestCategoryPage(String accessToken, String dirPath, int category, int start,
+                                                       boolean forceRefresh,
+                                                       final RequestCoalescer.ResultCallback<FileListResponse> callback) {
+        Call<FileListResponse> call = apiService.getCategoryList(
+                "categorylist",
+                String.valueOf(category),
+                0,       // show_dir=0 不返回目录（目录由list接口folder=1获取）
+                dirPath,
+                0,       // recursion=0 只获取当前目录
+                "name",  // 按名称排序
+                0,       // desc=0 表示升序
+                start,
+                PAGE_LIMIT,
+                accessToken,
+                forceRefresh ? ApiConstants.CACHE_CONTROL_FORCE_REFRESH : null
+        );
+
+        call.enqueue(new Callback<FileListResponse>() {
+            @Override
+            public void onResponse(Call<FileListResponse> call, Response<FileListResponse> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    FileListResponse fileListResponse = response.body();
+                    if (fileListResponse.isSuccess()) {
+                        callback.onSuccess(fileListResponse);
+                        return;
+                    }
+                    int errno = fileListResponse.getErrno();
+                    if (errno != ApiConstants.ERRNO_RATE_LIMITED && errno != ApiConstants.ERRNO_FILE_NOT_FOUND) {
+                        markCategoryListUnavailable("errno=" + fileListResponse.getErrno());
+                    }
+                    String errMsg = fileListResponse.getErrmsg();
+                    if (errMsg == null || errMsg.isEmpty()) {
+                        errMsg = "API返回错误，errno=" + fileListResponse.getErrno();
+                    }
+                    callback.onFailure(errMsg);
+                } else {
+                    if (response.code() >= 400 && response.code() < 500 && response.code() != 429) {
+                        markCategoryListUnavailable("HTTP " + response.code());
+                    }
+                    callback.onFailure(response.code() + " - " + response.message());
+                }
+            }
+
+            @Override
+            public void onFailure(Call<FileListResponse> call, Throwable t) {
+                String errorMsg = t.getMessage();
+                if (errorMsg == null) {
+                    errorMsg = "网络请求失败: " + t.getClass().getSimpleName();
+                }
+                callback.onFailure(errorMsg);
+            }
+        });
+        return call;
+    }
+
+    private void markCategoryListUnavailable(String reason) {
+        if (categoryListAvailable) {
+            categoryListAvailable = false;
+            Log.w(TAG, "categorylist接口不可用(" + reason + ")，本次运行改为客户端过滤");
+        }
+    }
+
+    /**
+     * 媒体类型对应的categorylist文件类型，0表示不能由服务端过滤（全部类型）
+     */
+    private static int categoryOf(int mediaType) {
+        switch (mediaType) {
+            case 1: // 图片
+                return 3;
+            case 2: // 视频
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * 服务端按类型过滤的结果在目录缓存中的key（网盘路径都以/开头，不会与完整列表冲突）
+     */
+    private static String categoryCacheKey(String dirPath, int mediaType) {
+        return "category:" + mediaType + ":" + dirPath;
+    }
+
+    /**
+     * 单页回调接口
+     */
+    interface SinglePageCallback {
+        /**
+         * @param page 解析时已过滤的条目（只有目录和图片/视频）
+         * @param rawCount 接口返回的原始条目数，用于判断是否满页
+         */
+        void onSuccess(List<FileInfo> page, int rawCount);
+        void onFailure(String error);
+    }
+
+    /**
+     * 获取目录列表的一页（xpan/file?method=list）
+     * @param forceRefresh 是否跳过HTTP缓存
+     * @param handle 取消句柄，取消后不再回调
+     */
+    void fetchListPage(String accessToken, String dirPath, int start, boolean forceRefresh,
+                       RequestHandle handle, final SinglePageCallback callback) {
+        fetchListPage(accessToken, dirPath, start, false, forceRefresh, handle, callback);
+    }
+
+    /**
+     * 获取目录列表的一页
+     * @param foldersOnly 是否只返回子目录（folder=1）
+     */
+    private void fetchListPage(String accessToken, String dirPath, int start, boolean foldersOnly,
+                               boolean forceRefresh, RequestHandle handle, final SinglePageCallback callback) {
+        String key = requestKey(accessToken, dirPath, start, foldersOnly, forceRefresh);
+        listPageCoalescer.execute(key, handle, new RequestCoalescer.ResultCallback<FileListResponse>() {
+            @Override
+            public void onSuccess(FileListResponse fileListResponse) {
+                List<FileInfo> page = fileListResponse.getList();
+                callback.onSuccess(page != null ? page : new ArrayList<>(), fileListResponse.getRawCount());
+            }
+
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
+            }
+        }, done -> requestListPage(accessToken, dirPath, start, foldersOnly, forceRefresh, done));
+    }
+
+    private Call<FileListResponse> requestListPage(String accessToken, String dirPath, int start,
+                                                   boolean foldersOnly, boolean forceRefresh,
+                                                   final RequestCoalescer.ResultCallback<FileListResponse> callback) {
+        Log.d(TAG, "获取第 " + (start / PAGE_LIMIT + 1) + " 页，start=" + start + (foldersOnly ? "，仅目录" : ""));
+        RepositoryMetrics.getInstance().recordListPageRequest();
         
         Call<FileListResponse> call = apiService.getFileList(
                 "list",
@@ -251,10 +881,11 @@ public class FileRepository {
                 "name",  // 按名称排序
                 0,       // desc=0 表示升序
                 start,   // 动态start参数
-                LIMIT,   // limit=1000
+                PAGE_LIMIT,   // limit=1000
                 1,       // web=1
-                0,       // folder=0
-                accessToken
+                foldersOnly ? 1 : 0,  // folder=1 只返回目录
+                accessToken,
+                forceRefresh ? ApiConstants.CACHE_CONTROL_FORCE_REFRESH : null
         );
         
         call.enqueue(new Callback<FileListResponse>() {
@@ -266,26 +897,9 @@ public class FileRepository {
                     if (fileListResponse.isSuccess()) {
                         List<FileInfo> fileList = fileListResponse.getList();
                         int currentPageSize = fileList != null ? fileList.size() : 0;
-                        Log.d(TAG, "第 " + (start / LIMIT + 1) + " 页获取到 " + currentPageSize + " 个文件");
-                        
-                        if (fileList != null && !fileList.isEmpty()) {
-                            accumulatedFiles.addAll(fileList);
-                            
-                            // 如果当前页返回的文件数量等于LIMIT，说明可能还有下一页
-                            if (currentPageSize == LIMIT) {
-                                // 递归获取下一页
-                                fetchPagesWithLimit(accessToken, dirPath, start + LIMIT,
-                                                  accumulatedFiles, remainingPages - 1, callback);
-                            } else {
-                                // 没有更多页了，返回所有累积的文件
-                                Log.d(TAG, "所有分页获取完成，总共 " + accumulatedFiles.size() + " 个文件");
-                                callback.onSuccess(accumulatedFiles, false);
-                            }
-                        } else {
-                            // 当前页没有文件，返回累积的所有文件
-                            Log.d(TAG, "当前页无文件，总共 " + accumulatedFiles.size() + " 个文件");
-                            callback.onSuccess(accumulatedFiles, false);
-                        }
+                        Log.d(TAG, "第 " + (start / PAGE_LIMIT + 1) + " 页获取到 " + fileListResponse.getRawCount()
+                                + " 个条目，保留目录和媒体文件 " + currentPageSize + " 个");
+                        callback.onSuccess(fileListResponse);
                     } else {
                         String errMsg = fileListResponse.getErrmsg();
                         if (errMsg == null || errMsg.isEmpty()) {
@@ -313,28 +927,30 @@ public class FileRepository {
                 if (errorMsg == null) {
                     errorMsg = "网络请求失败: " + t.getClass().getSimpleName();
                 }
-                Log.e(TAG, "获取文件详情失败: " + errorMsg, t);
+                Log.e(TAG, "获取文件列表失败: " + errorMsg, t);
                 callback.onFailure(errorMsg);
             }
         });
+        return call;
     }
 
     /**
-     * 递归获取文件列表（智能分页，最多加载前10页避免内存溢出）
+     * 递归获取文件列表（一次性返回全部结果）
      */
     public LiveData<List<FileInfo>> getFileListRecursive(String accessToken, String dirPath, int mediaType) {
         MutableLiveData<List<FileInfo>> data = new MutableLiveData<>();
+        final List<FileInfo> allFiles = new ArrayList<>();
         
-        Log.d(TAG, "开始递归获取文件列表: dirPath=" + dirPath + ", mediaType=" + mediaType);
-        
-        // 获取所有文件，不限制页数
-        fetchPagesRecursiveWithLimit(accessToken, dirPath, 0, new ArrayList<>(), Integer.MAX_VALUE, new FetchPagesCallback() {
+        getFileListRecursiveStreaming(accessToken, dirPath, mediaType, new PageCallback() {
             @Override
-            public void onSuccess(List<FileInfo> allFiles, boolean hasMore) {
-                Log.d(TAG, "递归获取到文件数量: " + allFiles.size() + ", 还有更多: " + hasMore);
-                List<FileInfo> filteredList = filterFiles(allFiles, mediaType);
-                Log.d(TAG, "递归过滤后文件数量: " + filteredList.size());
-                data.setValue(filteredList);
+            public void onPage(List<FileInfo> page, int pageIndex) {
+                allFiles.addAll(page);
+            }
+
+            @Override
+            public void onComplete(boolean hasMore) {
+                Log.d(TAG, "递归过滤后文件数量: " + allFiles.size() + ", 还有更多: " + hasMore);
+                data.setValue(allFiles);
             }
 
             @Override
@@ -348,29 +964,145 @@ public class FileRepository {
     }
 
     /**
-     * 智能分页加载（递归模式，限制最大页数避免内存溢出）
+     * 递归流式获取文件列表（xpan/multimedia?method=listall），每获取到一页立即回调已过滤的结果
+     * 按响应中的has_more/cursor翻页，并按fsId去重；最多加载 RECURSIVE_MAX_PAGES 页避免内存溢出。
+     * 如果第一页就失败（如接口不可用），退回到并发逐目录爬取
+     * @return 请求句柄，取消后停止加载且不再回调
      */
-    private void fetchPagesRecursiveWithLimit(String accessToken, String dirPath, int start,
-                                             List<FileInfo> accumulatedFiles, int remainingPages,
-                                             FetchPagesCallback callback) {
-        final int LIMIT = 1000;
+    public RequestHandle getFileListRecursiveStreaming(String accessToken, String dirPath, int mediaType,
+                                                       final PageCallback callback) {
+        return getFileListRecursiveStreaming(accessToken, dirPath, mediaType, false, callback);
+    }
+
+    /**
+     * 递归流式获取文件列表
+     * @param forceRefresh 是否跳过HTTP缓存，直接从服务器获取
+     * @return 请求句柄，取消后停止加载且不再回调
+     */
+    public RequestHandle getFileListRecursiveStreaming(String accessToken, String dirPath, int mediaType,
+                                                       boolean forceRefresh, final PageCallback callback) {
+        Log.d(TAG, "开始递归获取文件列表: dirPath=" + dirPath + ", mediaType=" + mediaType + ", 强制刷新=" + forceRefresh);
+        final boolean[] receivedPage = {false};
+        final RequestHandle handle = new RequestHandle();
         
+        fetchListAllPages(accessToken, dirPath, 0, 0, RECURSIVE_MAX_PAGES, new HashSet<>(), forceRefresh, handle, new PageCallback() {
+            @Override
+            public void onPage(List<FileInfo> page, int pageIndex) {
+                receivedPage[0] = true;
+                callback.onPage(filterFiles(page, mediaType), pageIndex);
+            }
+
+            @Override
+            public void onComplete(boolean hasMore) {
+                if (hasMore) {
+                    Log.w(TAG, "递归结果超过 " + RECURSIVE_MAX_PAGES + " 页，仅显示前面部分以避免内存溢出");
+                }
+                callback.onComplete(hasMore);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                if (receivedPage[0]) {
+                    callback.onFailure(error);
+                    return;
+                }
+                Log.w(TAG, "listall接口失败，改用逐目录爬取: " + error);
+                fetchFilesRecursive(accessToken, dirPath, null, forceRefresh,
+                        forceRefresh ? System.currentTimeMillis() : 0, handle, new FileListCallback() {
+                    @Override
+                    public void onSuccess(List<FileInfo> files) {
+                        callback.onPage(filterFiles(files, mediaType), 0);
+                        callback.onComplete(false);
+                    }
+
+                    @Override
+                    public void onFailure(String crawlError) {
+                        callback.onFailure(crawlError);
+                    }
+                });
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * listall分页加载
+     * @param start 本页起始偏移（来自上一页响应的cursor）
+     * @param pageIndex 页序号
+     * @param remainingPages 剩余可加载页数
+     * @param seenFsIds 已返回过的fsId，用于跨页去重
+     * @param forceRefresh 是否跳过HTTP缓存
+     * @param handle 取消句柄，取消后停止翻页
+     */
+    private void fetchListAllPages(String accessToken, String path, int start, int pageIndex,
+                                   int remainingPages, Set<Long> seenFsIds, boolean forceRefresh,
+                                   RequestHandle handle, PageCallback callback) {
+        if (handle.isCanceled()) {
+            return;
+        }
         if (remainingPages <= 0) {
             Log.w(TAG, "递归达到最大页数限制，停止加载");
-            callback.onSuccess(accumulatedFiles, true);
+            callback.onComplete(true);
             return;
         }
         
-        Log.d(TAG, "递归获取第 " + (start / LIMIT + 1) + " 页，start=" + start + ", 剩余页数=" + remainingPages);
+        String key = requestKey(accessToken, path, start, forceRefresh);
+        listAllPageCoalescer.execute(key, handle, new RequestCoalescer.ResultCallback<FileListResponse>() {
+            @Override
+            public void onSuccess(FileListResponse fileListResponse) {
+                List<FileInfo> fileList = fileListResponse.getList();
+                // 翻页按原始条目数计算（解析时过滤掉的非媒体文件也占用偏移）
+                int currentPageSize = fileListResponse.getRawCount();
+                
+                // 按fsId去重
+                List<FileInfo> uniqueFiles = new ArrayList<>(fileList != null ? fileList.size() : 0);
+                if (fileList != null) {
+                    for (FileInfo file : fileList) {
+                        if (seenFsIds.add(file.getFsId())) {
+                            uniqueFiles.add(file);
+                        }
+                    }
+                }
+                Log.d(TAG, "递归第 " + (pageIndex + 1) + " 页获取到 " + currentPageSize + " 个文件，去重后 " + uniqueFiles.size()
+                        + ", has_more=" + fileListResponse.getHasMore() + ", cursor=" + fileListResponse.getCursor());
+                callback.onPage(uniqueFiles, pageIndex);
+                
+                int nextStart = parseCursor(fileListResponse.getCursor(), start + currentPageSize);
+                if (fileListResponse.getHasMore() == 1 && currentPageSize > 0 && nextStart > start) {
+                    fetchListAllPages(accessToken, path, nextStart, pageIndex + 1,
+                            remainingPages - 1, seenFsIds, forceRefresh, handle, callback);
+                } else {
+                    Log.d(TAG, "所有递归分页获取完成，共 " + seenFsIds.size() + " 个文件");
+                    callback.onComplete(false);
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
+            }
+        }, done -> requestListAllPage(accessToken, path, start, pageIndex, forceRefresh, done));
+    }
+
+    /**
+     * 请求listall接口的一页，成功时返回完整响应（包含has_more和cursor）
+     */
+    private Call<FileListResponse> requestListAllPage(String accessToken, String path, int start, int pageIndex,
+                                                      boolean forceRefresh,
+                                                      final RequestCoalescer.ResultCallback<FileListResponse> callback) {
+        Log.d(TAG, "递归获取第 " + (pageIndex + 1) + " 页，start=" + start);
+        RepositoryMetrics.getInstance().recordListAllPageRequest();
         
         Call<FileListResponse> call = apiService.getFileListRecursive(
                 "listall",
-                dirPath,
+                path,
                 "name",  // 按名称排序
                 0,       // desc=0 表示升序
-                LIMIT,   // limit=1000
+                start,
+                PAGE_LIMIT,   // limit=1000
                 1,       // recursion=1
-                accessToken
+                accessToken,
+                forceRefresh ? ApiConstants.CACHE_CONTROL_FORCE_REFRESH : null
         );
         
         call.enqueue(new Callback<FileListResponse>() {
@@ -380,30 +1112,13 @@ public class FileRepository {
                     FileListResponse fileListResponse = response.body();
                     
                     if (fileListResponse.isSuccess()) {
-                        List<FileInfo> fileList = fileListResponse.getList();
-                        int currentPageSize = fileList != null ? fileList.size() : 0;
-                        Log.d(TAG, "递归第 " + (start / LIMIT + 1) + " 页获取到 " + currentPageSize + " 个文件");
-                        
-                        if (fileList != null && !fileList.isEmpty()) {
-                            accumulatedFiles.addAll(fileList);
-                            
-                            // 如果当前页返回的文件数量等于LIMIT，说明可能还有下一页
-                            if (currentPageSize == LIMIT) {
-                                // 递归获取下一页
-                                fetchPagesRecursiveWithLimit(accessToken, dirPath, start + LIMIT,
-                                                           accumulatedFiles, remainingPages - 1, callback);
-                            } else {
-                                // 没有更多页了，返回所有累积的文件
-                                Log.d(TAG, "所有递归分页获取完成，总共 " + accumulatedFiles.size() + " 个文件");
-                                callback.onSuccess(accumulatedFiles, false);
-                            }
-                        } else {
-                            // 当前页没有文件，返回累积的所有文件
-                            Log.d(TAG, "递归当前页无文件，总共 " + accumulatedFiles.size() + " 个文件");
-                            callback.onSuccess(accumulatedFiles, false);
-                        }
+                        callback.onSuccess(fileListResponse);
                     } else {
-                        callback.onFailure(fileListResponse.getErrmsg());
+                        String errMsg = fileListResponse.getErrmsg();
+                        if (errMsg == null || errMsg.isEmpty()) {
+                            errMsg = "API返回错误，errno=" + fileListResponse.getErrno();
+                        }
+                        callback.onFailure(errMsg);
                     }
                 } else {
                     String errorMsg = response.code() + " - " + response.message();
@@ -420,9 +1135,29 @@ public class FileRepository {
 
             @Override
             public void onFailure(Call<FileListResponse> call, Throwable t) {
-                callback.onFailure(t.getMessage());
+                String errorMsg = t.getMessage();
+                if (errorMsg == null) {
+                    errorMsg = "网络请求失败: " + t.getClass().getSimpleName();
+                }
+                callback.onFailure(errorMsg);
             }
         });
+        return call;
+    }
+
+    /**
+     * 解析listall响应中的cursor（下一页的起始偏移），解析失败时使用默认值
+     */
+    private int parseCursor(String cursor, int defaultValue) {
+        if (cursor == null || cursor.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return (int) Double.parseDouble(cursor);
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "无法解析cursor: " + cursor);
+            return defaultValue;
+        }
     }
 
     /**
@@ -437,14 +1172,76 @@ public class FileRepository {
      * 获取单个文件详情（包含dlink）
      */
     public void fetchFileDetail(String accessToken, long fsId, final FileDetailCallback callback) {
-        // fsids需要是json数组格式: [12345]
-        String fsids = "[" + fsId + "]";
+        fetchFileDetails(accessToken, Collections.singletonList(fsId), false, new FileDetailsCallback() {
+            @Override
+            public void onSuccess(List<FileInfo> files) {
+                if (!files.isEmpty()) {
+                    callback.onSuccess(files.get(0));
+                } else {
+                    callback.onFailure("获取文件详情失败: 文件不存在");
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
+            }
+        });
+    }
+
+    /**
+     * 批量文件详情回调接口
+     */
+    public interface FileDetailsCallback {
+        void onSuccess(List<FileInfo> files);
+        void onFailure(String error);
+    }
+
+    /**
+     * 批量获取文件详情（包含dlink），filemetas接口一次最多支持100个fsid
+     */
+    public void fetchFileDetails(String accessToken, List<Long> fsIds, final FileDetailsCallback callback) {
+        fetchFileDetails(accessToken, fsIds, false, callback);
+    }
+
+    /**
+     * 批量获取文件详情
+     * @param forceRefresh 是否跳过HTTP缓存（如缓存的dlink已失效时）
+     */
+    public void fetchFileDetails(String accessToken, List<Long> fsIds, boolean forceRefresh,
+                                 final FileDetailsCallback callback) {
+        // fsids需要是json数组格式: [12345,67890]
+        StringBuilder fsids = new StringBuilder("[");
+        for (int i = 0; i < fsIds.size(); i++) {
+            if (i > 0) {
+                fsids.append(',');
+            }
+            fsids.append(fsIds.get(i));
+        }
+        fsids.append(']');
         
+        String key = requestKey(accessToken, fsids, forceRefresh);
+        fileMetasCoalescer.execute(key, new RequestHandle(), new RequestCoalescer.ResultCallback<List<FileInfo>>() {
+            @Override
+            public void onSuccess(List<FileInfo> files) {
+                callback.onSuccess(files);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
+            }
+        }, done -> requestFileDetails(accessToken, fsids.toString(), forceRefresh, done));
+    }
+
+    private Call<FileListResponse> requestFileDetails(String accessToken, String fsids, boolean forceRefresh,
+                                                      final RequestCoalescer.ResultCallback<List<FileInfo>> callback) {
         Call<FileListResponse> call = apiService.getFileInfo(
                 "filemetas",
                 fsids,
                 1, // dlink=1
-                accessToken
+                accessToken,
+                forceRefresh ? ApiConstants.CACHE_CONTROL_FORCE_REFRESH : null
         );
         
         call.enqueue(new Callback<FileListResponse>() {
@@ -452,30 +1249,46 @@ public class FileRepository {
             public void onResponse(Call<FileListResponse> call, Response<FileListResponse> response) {
                 if (response.isSuccessful() && response.body() != null) {
                     FileListResponse fileListResponse = response.body();
-                    if (fileListResponse.isSuccess() && fileListResponse.getList() != null && !fileListResponse.getList().isEmpty()) {
-                        callback.onSuccess(fileListResponse.getList().get(0));
+                    if (fileListResponse.isSuccess() && fileListResponse.getList() != null) {
+                        callback.onSuccess(fileListResponse.getList());
                     } else {
-                        callback.onFailure("获取文件详情失败: " + fileListResponse.getErrmsg());
+                        callback.onFailure("批量获取文件详情失败: " + fileListResponse.getErrmsg());
                     }
                 } else {
-                    callback.onFailure("获取文件详情失败: " + response.code());
+                    callback.onFailure("批量获取文件详情失败: " + response.code());
                 }
             }
 
             @Override
             public void onFailure(Call<FileListResponse> call, Throwable t) {
-                callback.onFailure("获取文件详情失败: " + t.getMessage());
+                callback.onFailure("批量获取文件详情失败: " + t.getMessage());
             }
         });
+        return call;
+    }
+
+    /**
+     * 生成请求合并用的key
+     */
+    private static String requestKey(Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : parts) {
+            key.append(part).append('|');
+        }
+        return key.toString();
     }
 
     /**
      * 根据媒体类型过滤文件
+     * 列表接口在解析时已去掉非媒体文件，所有条目都保留时直接返回原列表，不再复制
      */
     private List<FileInfo> filterFiles(List<FileInfo> files, int mediaType) {
         if (files == null || files.isEmpty()) {
             return new ArrayList<>();
         }
+        if (allMatch(files, mediaType)) {
+            return files;
+        }
 
         List<FileInfo> filteredList = new ArrayList<>();
         for (FileInfo file : files) {
@@ -512,4 +1325,28 @@ public class FileRepository {
         
         return filteredList;
     }
-}
\ No newline at end of file
+
+    private static boolean allMatch(List<FileInfo> files, int mediaType) {
+        for (FileInfo file : files) {
+            if (file.isDirectory()) {
+                continue;
+            }
+            boolean match;
+            switch (mediaType) {
+                case 1: // 图片
+                    match = file.isImage();
+                    break;
+                case 2: // 视频
+                    match = file.isVideo();
+                    break;
+                default: // 全部（图片+视频）
+                    match = file.isImage() || file.isVideo();
+                    break;
+            }
+            if (!match) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,321 @@
+package com.baidu.tv.player.repository;
+
+import android.util.Log;
+
+import com.baidu.tv.player.model.FileInfo;
+import com.baidu.tv.player.network.AdaptiveRateLimiter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 并发目录爬虫（广度优先）
+ * 同时发起最多 concurrency 个目录列表请求，替代逐个目录串行遍历。
+ * 每个目录最多加载5页（5000个文件），总目录数受 maxDirs 限制，防止无限递归。
+ * 指定 checkpointStore 时，扫描进度会定期保存，中断后再次扫描同一根目录时从断点继续；
+ * 扫描结束（包括部分目录失败）后删除断点，强制刷新时不使用刷新之前保存的断点。
+ * 请求句柄取消后停止发起新的目录请求、保存断点，并且不再回调。
+ */
+class ParallelDirectoryCrawler {
+    private static final String TAG = "DirectoryCrawler";
+
+    // 单个目录最多加载的页数（与原串行实现保持一致）
+    private static final int MAX_PAGES_PER_DIR = 5;
+    // 每完成多少个目录保存一次断点
+    private static final int CHECKPOINT_EVERY_DIRS = 10;
+    // 距上次保存断点超过该时间后，完成下一个目录时即保存
+    private static final long CHECKPOINT_INTERVAL_MS = 5000;
+    // 单个目录因限流失败后最多重新排队的次数
+    private static final int MAX_THROTTLE_REQUEUES = 3;
+
+    private final FileRepository repository;
+    private final String accessToken;
+    private final int concurrency;
+    private final int maxDirs;
+    private final boolean forceRefresh;
+    // 早于该时间保存的断点不再使用（0表示只要未过期都可以继续）
+    private final long checkpointNotBefore;
+    private final CrawlCheckpointStore checkpointStore;
+    private final RequestHandle handle;
+    private final FileRepository.CrawlProgressCallback progressCallback;
+    private final FileRepository.FetchPagesCallback callback;
+
+    // 待处理的目录队列（ArrayDeque出队为O(1)，替代ArrayList.remove(0)）
+    private final ArrayDeque<String> pendingDirs = new ArrayDeque<>();
+    private final List<FileInfo> allFiles = new ArrayList<>();
+    // 已完成的目录（恢复断点后用于跳过已扫描的目录）
+    private final Set<String> visitedDirs = new HashSet<>();
+    // 正在请求中的目录（保存断点时放回待处理队列）
+    private final Set<String> inFlightPaths = new LinkedHashSet<>();
+    // 请求失败的目录（扫描中断时保留在断点中，下次扫描时重试）
+    private final List<String> failedDirs = new ArrayList<>();
+    // 上次保存断点之后新找到的文件和新完成的目录
+    private final List<FileInfo> filesSinceCheckpoint = new ArrayList<>();
+    private final List<String> visitedSinceCheckpoint = new ArrayList<>();
+    // 因接口限流失败而重新排队的目录及次数
+    private final Map<String, Integer> throttleRequeues = new HashMap<>();
+
+    private int inFlightDirs = 0;     // 正在请求中的目录数
+    private int dispatchedDirs = 0;   // 已发出请求的目录数（用于maxDirs限制）
+    private int completedDirs = 0;    // 已完成（成功或失败）的目录数
+    private int dirsSinceCheckpoint = 0;
+    private long lastCheckpointAt = 0;
+    private boolean finished = false;
+    // 断点已加载、爬取状态有效（取消时才需要保存断点）
+    private boolean stateLoaded = false;
+
+    ParallelDirectoryCrawler(FileRepository repository, String accessToken,
+                             int concurrency, int maxDirs,
+                             FileRepository.CrawlProgressCallback progressCallback,
+                             FileRepository.FetchPagesCallback callback) {
+        this(repository, accessToken, concurrency, maxDirs, false, 0, null, new RequestHandle(),
+                progressCallback, callback);
+    }
+
+    ParallelDirectoryCrawler(FileRepository repository, String accessToken,
+                             int concurrency, int maxDirs, boolean forceRefresh, long checkpointNotBefore,
+                             CrawlCheckpointStore checkpointStore, RequestHandle handle,
+                             FileRepository.CrawlProgressCallback progressCallback,
+                             FileRepository.FetchPagesCallback callback) {
+        this.repository = repository;
+        this.accessToken = accessToken;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxDirs = maxDirs;
+        this.forceRefresh = forceRefresh;
+        this.checkpointNotBefore = checkpointNotBefore;
+        this.checkpointStore = checkpointStore;
+        this.handle = handle;
+        this.progressCallback = progressCallback;
+        this.callback = callback;
+    }
+
+    /**
+     * 从根目录开始爬取（有断点时从断点继续）
+     */
+    void start(String rootPath) {
+        Log.d(TAG, "开始并发爬取: " + rootPath + ", 并发数=" + concurrency + ", 最大目录数=" + maxDirs);
+        if (checkpointStore == null) {
+            handle.addCancelListener(this::onCanceled);
+            synchronized (this) {
+                pendingDirs.addLast(rootPath);
+                stateLoaded = true;
+            }
+            dispatch();
+            return;
+        }
+
+        // 先提交读取断点再注册取消监听，取消时的释放一定排在读取之后
+        checkpointStore.load(checkpointNotBefore, snapshot -> {
+            synchronized (this) {
+                if (snapshot != null && !snapshot.pendingDirs.isEmpty()) {
+                    Log.d(TAG, "从断点继续爬取: " + rootPath + ", 已完成目录=" + snapshot.dirsDone
+                            + ", 已找到文件=" + snapshot.files.size());
+                    pendingDirs.addAll(snapshot.pendingDirs);
+                    visitedDirs.addAll(snapshot.visitedDirs);
+                    allFiles.addAll(snapshot.files);
+                    completedDirs = snapshot.dirsDone;
+                    // 断点之前已处理的目录同样计入maxDirs限制
+                    dispatchedDirs = snapshot.dirsDone;
+                } else {
+                    pendingDirs.addLast(rootPath);
+                }
+                lastCheckpointAt = System.currentTimeMillis();
+                stateLoaded = true;
+            }
+            dispatch();
+        });
+        handle.addCancelListener(this::onCanceled);
+    }
+
+    /**
+     * 请求被取消：不再发起新请求，保存断点以便下次从当前进度继续
+     */
+    private void onCanceled() {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            Log.d(TAG, "爬取已取消: 已完成目录=" + completedDirs + ", 进行中=" + inFlightDirs
+                    + ", 待处理=" + pendingDirs.size());
+            if (checkpointStore != null) {
+                if (stateLoaded) {
+                    saveCheckpoint();
+                }
+                checkpointStore.release();
+            }
+        }
+    }
+
+    /**
+     * 在并发额度内发出新的目录请求；没有进行中的请求时结束爬取
+     */
+    private void dispatch() {
+        List<String> toLaunch = new ArrayList<>();
+        boolean done = false;
+        boolean truncated = false;
+
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            while (inFlightDirs < concurrency && !pendingDirs.isEmpty() && dispatchedDirs < maxDirs) {
+                String dirPath = pendingDirs.pollFirst();
+                if (visitedDirs.contains(dirPath)) {
+                    continue;
+                }
+                toLaunch.add(dirPath);
+                inFlightPaths.add(dirPath);
+                inFlightDirs++;
+                dispatchedDirs++;
+            }
+            if (inFlightDirs == 0) {
+                finished = true;
+                done = true;
+                truncated = !pendingDirs.isEmpty();
+            }
+        }
+
+        if (done) {
+            if (truncated) {
+                Log.w(TAG, "已达到最大目录处理数限制: " + maxDirs + ", 剩余未处理目录: " + pendingDirs.size());
+            }
+            Log.d(TAG, "并发爬取完成: 总文件数=" + allFiles.size() + ", 已处理目录数=" + completedDirs);
+            finishCheckpoint();
+            callback.onSuccess(allFiles, truncated);
+            return;
+        }
+
+        // 在锁外发起请求，避免回调同步返回时重入
+        for (String dirPath : toLaunch) {
+            listDirectory(dirPath);
+        }
+    }
+
+    private void listDirectory(String dirPath) {
+        repository.fetchPagesWithLimit(accessToken, dirPath, 0, new ArrayList<>(), MAX_PAGES_PER_DIR, forceRefresh,
+                handle, new FileRepository.FetchPagesCallback() {
+                    @Override
+                    public void onSuccess(List<FileInfo> files, boolean hasMore) {
+                        onDirectoryListed(dirPath, files);
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        String errorMsg = error != null ? error : "未知错误";
+                        if (requeueIfThrottled(dirPath)) {
+                            Log.w(TAG, "获取目录 " + dirPath + " 时接口被限流，稍后重试: " + errorMsg);
+                            dispatch();
+                            return;
+                        }
+                        Log.e(TAG, "获取目录 " + dirPath + " 失败: " + errorMsg);
+                        // 即使当前目录失败，继续处理其他目录
+                        onDirectoryListed(dirPath, null);
+                    }
+                });
+    }
+
+    /**
+     * 接口正处于限流退避时，失败多半是暂时性的，把目录放回队首重新请求而不是记为失败；
+     * 重新发出的请求在限流器中延后到熔断结束后才发出，爬取相当于暂停
+     */
+    private boolean requeueIfThrottled(String dirPath) {
+        if (!AdaptiveRateLimiter.getInstance().isBackingOff()) {
+            return false;
+        }
+        synchronized (this) {
+            int requeues = throttleRequeues.containsKey(dirPath) ? throttleRequeues.get(dirPath) : 0;
+            if (finished || requeues >= MAX_THROTTLE_REQUEUES) {
+                return false;
+            }
+            throttleRequeues.put(dirPath, requeues + 1);
+            inFlightDirs--;
+            dispatchedDirs--;
+            inFlightPaths.remove(dirPath);
+            pendingDirs.addFirst(dirPath);
+            return true;
+        }
+    }
+
+    private void onDirectoryListed(String dirPath, List<FileInfo> files) {
+        int dirsDone;
+        int filesFound;
+        synchronized (this) {
+            inFlightDirs--;
+            completedDirs++;
+            inFlightPaths.remove(dirPath);
+            if (files != null) {
+                visitedDirs.add(dirPath);
+                visitedSinceCheckpoint.add(dirPath);
+                int subDirCount = 0;
+                for (FileInfo file : files) {
+                    if (file.isDirectory()) {
+                        if (!visitedDirs.contains(file.getPath())) {
+                            pendingDirs.addLast(file.getPath());
+                        }
+                        subDirCount++;
+                    } else {
+                        allFiles.add(file);
+                        filesSinceCheckpoint.add(file);
+                    }
+                }
+                Log.d(TAG, "目录 " + dirPath + ": 文件数=" + (files.size() - subDirCount) + ", 子目录数=" + subDirCount);
+            } else {
+                failedDirs.add(dirPath);
+            }
+            dirsDone = completedDirs;
+            filesFound = allFiles.size();
+            dirsSinceCheckpoint++;
+            if (checkpointStore != null && !finished
+                    && (dirsSinceCheckpoint >= CHECKPOINT_EVERY_DIRS
+                        || System.currentTimeMillis() - lastCheckpointAt >= CHECKPOINT_INTERVAL_MS)) {
+                saveCheckpoint();
+            }
+        }
+
+        if (progressCallback != null) {
+            progressCallback.onProgress(dirsDone, filesFound);
+        }
+        dispatch();
+    }
+
+    /**
+     * 保存当前进度（需持有锁）
+     * 正在请求中和请求失败的目录都放回待处理队列，恢复时重新请求；
+     * 断点只记录已完成目录中的文件，保证恢复后不重复也不遗漏。
+     */
+    private void saveCheckpoint() {
+        List<String> pending = new ArrayList<>(inFlightPaths);
+        pending.addAll(failedDirs);
+        pending.addAll(pendingDirs);
+        checkpointStore.save(pending, new ArrayList<>(visitedSinceCheckpoint), new ArrayList<>(filesSinceCheckpoint),
+                completedDirs - failedDirs.size(), allFiles.size());
+        filesSinceCheckpoint.clear();
+        visitedSinceCheckpoint.clear();
+        dirsSinceCheckpoint = 0;
+        lastCheckpointAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 扫描结束：删除断点并释放
+     * 已结束的扫描不保留断点，否则下次扫描会直接沿用本次已完成目录的旧内容
+     */
+    private void finishCheckpoint() {
+        if (checkpointStore == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!failedDirs.isEmpty()) {
+                Log.w(TAG, "有 " + failedDirs.size() + " 个目录获取失败");
+            }
+            checkpointStore.clear();
+            checkpointStore.release();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.baidu.tv.player.repository;
+
+import android.util.Log;
+
+import com.baidu.tv.player.model.FileInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 大目录分页并发获取器
+ * 第一页满页后，在 concurrency 大小的窗口内同时请求后续分页（start=1000,2000,...），
+ * 遇到不满一页的分页即停止发起新请求，结果按偏移顺序依次回调。
+ * 请求句柄取消后不再发起新请求，也不再回调。
+ */
+class ParallelPageFetcher {
+    private static final String TAG = "ParallelPageFetcher";
+
+    /**
+     * 单页请求，由 FileRepository.fetchListPage 实现
+     */
+    interface PageSource {
+        void fetchListPage(String accessToken, String dirPath, int start, boolean forceRefresh,
+                           RequestHandle handle, FileRepository.SinglePageCallback callback);
+    }
+
+    private final PageSource pageSource;
+    private final String accessToken;
+    private final String dirPath;
+    private final int firstStart;
+    private final int maxPages;
+    private final int concurrency;
+    private final boolean forceRefresh;
+    private final RequestHandle handle;
+    private final FileRepository.PageCallback callback;
+    // 结束时从句柄上移除，避免句柄被复用时引用已结束的获取器
+    private final Runnable cancelListener = this::onCanceled;
+
+    // 已返回但还不能回调的分页（等待前面的分页），key为相对页序号
+    private final Map<Integer, List<FileInfo>> readyPages = new HashMap<>();
+
+    private int nextLaunchIndex = 0;              // 下一个要请求的相对页序号
+    private int nextEmitIndex = 0;                // 下一个要回调的相对页序号
+    private int lastPageIndex = Integer.MAX_VALUE; // 第一个不满页的相对页序号（即最后一页）
+    private int inFlightPages = 0;
+    private boolean finished = false;
+
+    ParallelPageFetcher(PageSource pageSource, String accessToken, String dirPath,
+                        int firstStart, int maxPages, int concurrency, boolean forceRefresh,
+                        RequestHandle handle, FileRepository.PageCallback callback) {
+        this.pageSource = pageSource;
+        this.accessToken = accessToken;
+        this.dirPath = dirPath;
+        this.firstStart = firstStart;
+        this.maxPages = maxPages;
+        this.concurrency = Math.max(1, concurrency);
+        this.forceRefresh = forceRefresh;
+        this.handle = handle;
+        this.callback = callback;
+    }
+
+    void start() {
+        Log.d(TAG, "开始并发获取分页: " + dirPath + ", 起始start=" + firstStart + ", 并发数=" + concurrency);
+        handle.addCancelListener(cancelListener);
+        launch();
+    }
+
+    /**
+     * 请求被取消：进行中的分页不会再回调，直接结束
+     */
+    private void onCanceled() {
+        int abandoned;
+        synchronized (this) {
+            finished = true;
+            abandoned = inFlightPages;
+            inFlightPages = 0;
+            readyPages.clear();
+        }
+        for (int i = 0; i < abandoned; i++) {
+            RepositoryMetrics.getInstance().onPageFetchFinished();
+        }
+        if (abandoned > 0) {
+            Log.d(TAG, "并发分页已取消: " + dirPath + ", 放弃进行中的分页 " + abandoned + " 个");
+        }
+    }
+
+    /**
+     * 在窗口内发起新的分页请求
+     */
+    private void launch() {
+        List<Integer> toLaunch = new ArrayList<>();
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            if (handle.isCanceled()) {
+                finished = true;
+                return;
+            }
+            while (inFlightPages < concurrency
+                    && nextLaunchIndex < maxPages
+                    && nextLaunchIndex <= lastPageIndex) {
+                toLaunch.add(nextLaunchIndex++);
+                inFlightPages++;
+            }
+        }
+
+        for (int index : toLaunch) {
+            RepositoryMetrics.getInstance().onPageFetchStarted();
+            int start = firstStart + index * FileRepository.PAGE_LIMIT;
+            pageSource.fetchListPage(accessToken, dirPath, start, forceRefresh, handle, new FileRepository.SinglePageCallback() {
+                @Override
+                public void onSuccess(List<FileInfo> page, int rawCount) {
+                    RepositoryMetrics.getInstance().onPageFetchFinished();
+                    onPageLoaded(index, page, rawCount);
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    RepositoryMetrics.getInstance().onPageFetchFinished();
+                    onPageFailed(index, error);
+                }
+            });
+        }
+    }
+
+    private void onPageLoaded(int index, List<FileInfo> page, int rawCount) {
+        List<List<FileInfo>> toEmit = new ArrayList<>();
+        List<Integer> emitIndices = new ArrayList<>();
+        boolean complete = false;
+        boolean hasMore = false;
+
+        synchronized (this) {
+            inFlightPages--;
+            if (finished || index > lastPageIndex) {
+                // 最后一页之后的预取结果，丢弃
+                RepositoryMetrics.getInstance().recordWastedSpeculativePage();
+                return;
+            }
+            if (rawCount < FileRepository.PAGE_LIMIT && index < lastPageIndex) {
+                lastPageIndex = index;
+                // 丢弃已返回的、位于最后一页之后的分页
+                for (Integer key : new ArrayList<>(readyPages.keySet())) {
+                    if (key > lastPageIndex) {
+                        readyPages.remove(key);
+                        RepositoryMetrics.getInstance().recordWastedSpeculativePage();
+                    }
+                }
+            }
+            readyPages.put(index, page);
+
+            // 按偏移顺序回调已就绪的分页
+            while (readyPages.containsKey(nextEmitIndex)) {
+                toEmit.add(readyPages.remove(nextEmitIndex));
+                emitIndices.add(nextEmitIndex);
+                if (nextEmitIndex == lastPageIndex) {
+                    complete = true;
+                }
+                nextEmitIndex++;
+                if (complete) {
+                    break;
+                }
+            }
+            if (!complete && nextEmitIndex >= maxPages) {
+                // 达到页数上限，最后一页仍是满页
+                complete = true;
+                hasMore = true;
+            }
+            if (complete) {
+                finished = true;
+            }
+        }
+
+        int basePageIndex = firstStart / FileRepository.PAGE_LIMIT;
+        for (int i = 0; i < toEmit.size(); i++) {
+            callback.onPage(toEmit.get(i), basePageIndex + emitIndices.get(i));
+        }
+
+        if (complete) {
+            handle.removeCancelListener(cancelListener);
+            Log.d(TAG, "并发分页获取完成: " + dirPath + ", 共 " + (basePageIndex + nextEmitIndex) + " 页, 还有更多=" + hasMore);
+            RepositoryMetrics.getInstance().logSummary();
+            callback.onComplete(hasMore);
+        } else {
+            launch();
+        }
+    }
+
+    private void onPageFailed(int index, String error) {
+        synchronized (this) {
+            inFlightPages--;
+            if (finished) {
+                return;
+            }
+            if (index > lastPageIndex) {
+                // 最后一页之后的预取失败，不影响结果
+                return;
+            }
+            finished = true;
+        }
+        handle.removeCancelListener(cancelListener);
+        Log.e(TAG, "并发获取分页失败: " + dirPath + ", 页=" + index + ", " + error);
+        callback.onFailure(error);
+    }
+}
@@ -15,6 +15,7 @@ import com.baidu.tv.player.model.FileInfo;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -29,6 +30,10 @@ import org.json.JSONException;
  */
 public class PlaylistRepository {
     private static final String TAG = "PlaylistRepository";
+    // 批量删除时每批的最大id数（SQLite默认参数上限为999）
+    private static final int DELETE_BATCH_SIZE = 500;
+    // 刷新播放列表时，继续使用该时间内保存的扫描断点（如上次刷新超时中断的扫描）
+    private static final long REFRESH_CHECKPOINT_WINDOW_MS = 30 * 60 * 1000L;
     
     private final Context context;
     private final PlaylistDao playlistDao;
@@ -171,6 +176,46 @@ public class PlaylistRepository {
         });
     }
     
+    /**
+     * 在同一个事务中插入播放列表及其所有项
+     * 播放列表项的playlistId由本方法设置，任一步失败时整体回滚，不会留下没有内容的空播放列表
+     */
+    public void createPlaylistWithItems(Playlist playlist, List<PlaylistItem> items, InsertCallback callback) {
+        createPlaylistWithItems(playlist, items, null, callback);
+    }
+
+    /**
+     * 同上，canceled 为true时不再写入（在开始事务前检查，任务已排队后调用方取消也能生效），
+     * 以 CancellationException 回调 onError
+     */
+    public void createPlaylistWithItems(Playlist playlist, List<PlaylistItem> items,
+                                        AtomicBoolean canceled, InsertCallback callback) {
+        executorService.execute(() -> {
+            try {
+                if (canceled != null && canceled.get()) {
+                    throw new CancellationException("创建播放列表已取消");
+                }
+                long[] playlistId = new long[1];
+                AppDatabase.getInstance(context).runInTransaction(() -> {
+                    playlistId[0] = playlistDao.insert(playlist);
+                    for (PlaylistItem item : items) {
+                        item.setPlaylistId(playlistId[0]);
+                    }
+                    playlistItemDao.insertAll(items);
+                });
+                Log.d(TAG, "播放列表创建成功, ID: " + playlistId[0] + ", 项数: " + items.size());
+                if (callback != null) {
+                    new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> callback.onSuccess(playlistId[0]));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "播放列表创建失败", e);
+                if (callback != null) {
+                    new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> callback.onError(e));
+                }
+            }
+        });
+    }
+
     /**
      * 删除播放列表的所有项
      */
@@ -205,6 +250,56 @@ public class PlaylistRepository {
      * @param onError 失败回调
      */
     public void refreshPlaylist(Playlist playlist, Runnable onSuccess, Runnable onError) {
+        refreshPlaylist(playlist, new RefreshCallback() {
+            @Override
+            public void onSuccess(RefreshResult result) {
+                if (onSuccess != null) {
+                    onSuccess.run();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (onError != null) {
+                    onError.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 刷新结果统计
+     */
+    public static class RefreshResult {
+        public final int added;      // 新增的文件数
+        public final int removed;    // 删除的文件数
+        public final int updated;    // 顺序或大小有变化的文件数
+        public final int unchanged;  // 未变化的文件数
+
+        RefreshResult(int added, int removed, int updated, int unchanged) {
+            this.added = added;
+            this.removed = removed;
+            this.updated = updated;
+            this.unchanged = unchanged;
+        }
+    }
+
+    /**
+     * 刷新回调接口
+     */
+    public interface RefreshCallback {
+        void onSuccess(RefreshResult result);
+        void onError(Exception e);
+    }
+
+    /**
+     * 增量刷新播放列表
+     * 按fsId比对新旧文件：只插入新增的文件、删除已移除的文件、更新顺序或大小有变化的文件，
+     * 未变化的行保持原id不动；lastPlayedIndex 按fsId重新定位，保证仍指向同一个文件
+     * @param playlist 要刷新的播放列表
+     * @param callback 回调（主线程）
+     */
+    public void refreshPlaylist(Playlist playlist, RefreshCallback callback) {
         executorService.execute(() -> {
             try {
                 Log.d(TAG, "开始刷新播放列表: " + playlist.getName());
@@ -213,9 +308,7 @@ public class PlaylistRepository {
                 String accessToken = BaiduAuthService.getInstance(context).getAccessToken();
                 if (accessToken == null || accessToken.isEmpty()) {
                     Log.e(TAG, "未获取到访问令牌，请先登录");
-                    if (onError != null) {
-                        new android.os.Handler(android.os.Looper.getMainLooper()).post(onError);
-                    }
+                    postError(callback, new IllegalStateException("未获取到访问令牌"));
                     return;
                 }
                 
@@ -223,9 +316,7 @@ public class PlaylistRepository {
                 String sourcePathsJson = playlist.getSourcePaths();
                 if (sourcePathsJson == null || sourcePathsJson.isEmpty()) {
                     Log.w(TAG, "播放列表没有源目录信息，无法刷新");
-                    if (onError != null) {
-                        new android.os.Handler(android.os.Looper.getMainLooper()).post(onError);
-                    }
+                    postError(callback, new IllegalStateException("播放列表没有源目录信息"));
                     return;
                 }
                 
@@ -238,17 +329,13 @@ public class PlaylistRepository {
                     }
                 } catch (org.json.JSONException e) {
                     Log.e(TAG, "解析源目录路径失败", e);
-                    if (onError != null) {
-                        new android.os.Handler(android.os.Looper.getMainLooper()).post(onError);
-                    }
+                    postError(callback, new IllegalStateException("解析源目录路径失败"));
                     return;
                 }
                 
                 if (sourcePaths.isEmpty()) {
                     Log.w(TAG, "播放列表源目录为空，无法刷新");
-                    if (onError != null) {
-                        new android.os.Handler(android.os.Looper.getMainLooper()).post(onError);
-                    }
+                    postError(callback, new IllegalStateException("播放列表源目录为空"));
                     return;
                 }
                 
@@ -256,9 +343,14 @@ public class PlaylistRepository {
                 List<com.baidu.tv.player.model.FileInfo> allFiles = new java.util.ArrayList<>();
                 final java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(sourcePaths.size());
                 final java.util.concurrent.atomic.AtomicBoolean hasError = new java.util.concurrent.atomic.AtomicBoolean(false);
+                final java.util.concurrent.atomic.AtomicReference<String> failedPath = new java.util.concurrent.atomic.AtomicReference<>();
+                List<RequestHandle> crawls = new ArrayList<>();
+                long checkpointNotBefore = System.currentTimeMillis() - REFRESH_CHECKPOINT_WINDOW_MS;
                 
                 for (String path : sourcePaths) {
-                    FileRepository.getInstance().fetchFilesRecursive(accessToken, path, new FileRepository.FileListCallback() {
+                    // 刷新时跳过HTTP缓存，确保拿到最新的目录内容；最近中断的扫描从断点继续
+                    crawls.add(FileRepository.getInstance().fetchFilesRecursive(accessToken, path, null, true,
+                            checkpointNotBefore, new FileRepository.FileListCallback() {
                         @Override
                         public void onSuccess(List<com.baidu.tv.player.model.FileInfo> files) {
                             synchronized (allFiles) {
@@ -270,24 +362,39 @@ public class PlaylistRepository {
                         @Override
                         public void onFailure(String error) {
                             Log.e(TAG, "获取目录文件失败: " + path + ", error: " + error);
-                            // 即使某个目录失败，也尝试继续处理其他目录
+                            // 缺少该目录的文件时比对结果会误删其播放列表项，本次刷新放弃
+                            failedPath.compareAndSet(null, path);
                             latch.countDown();
                         }
-                    });
+                    }));
                 }
                 
                 try {
                     // 等待所有文件获取完成，最长等待5分钟
-                    latch.await(5, java.util.concurrent.TimeUnit.MINUTES);
+                    if (!latch.await(5, java.util.concurrent.TimeUnit.MINUTES)) {
+                        // 超时时不使用不完整的文件列表（否则会误删播放列表项）；
+                        // 取消未完成的扫描以保存断点，下次刷新从断点继续
+                        Log.w(TAG, "等待文件获取超时，取消扫描并保存断点");
+                        for (RequestHandle crawl : crawls) {
+                            crawl.cancel();
+                        }
+                        postError(callback, new IllegalStateException("扫描文件超时，请稍后重试"));
+                        return;
+                    }
                 } catch (InterruptedException e) {
                     Log.e(TAG, "等待文件获取被中断", e);
+                    for (RequestHandle crawl : crawls) {
+                        crawl.cancel();
+                    }
                     hasError.set(true);
                 }
                 
                 if (hasError.get()) {
-                    if (onError != null) {
-                        new android.os.Handler(android.os.Looper.getMainLooper()).post(onError);
-                    }
+                    postError(callback, new IllegalStateException("等待文件获取被中断"));
+                    return;
+                }
+                if (failedPath.get() != null) {
+                    postError(callback, new IllegalStateException("获取目录失败: " + failedPath.get() + "，请稍后重试"));
                     return;
                 }
                 
@@ -302,8 +409,14 @@ public class PlaylistRepository {
                 // 检查播放列表类型
                 int targetMediaType = playlist.getMediaType();
                 
+                // 按fsId去重（多个源目录可能有重叠）
+                java.util.Set<Long> seenFsIds = new java.util.HashSet<>();
+                
                 for (int i = 0; i < allFiles.size(); i++) {
                     com.baidu.tv.player.model.FileInfo fileInfo = allFiles.get(i);
+                    if (!seenFsIds.add(fileInfo.getFsId())) {
+                        continue;
+                    }
                     
                     // 根据播放列表类型过滤
                     boolean shouldAdd = false;
@@ -322,7 +435,7 @@ public class PlaylistRepository {
                         item.setFilePath(fileInfo.getPath());
                         item.setFileName(fileInfo.getServerFilename());
                         item.setFileSize(fileInfo.getSize());
-                        item.setSortOrder(i);
+                        item.setSortOrder(newItems.size());
                         
                         if (fileInfo.isVideo()) {
                             item.setMediaType(1);
@@ -339,46 +452,106 @@ public class PlaylistRepository {
                     }
                 }
                 
-                // 4. 更新数据库
-                // 使用事务操作：删除旧项，插入新项，更新播放列表信息
+                // 4. 与数据库中的现有项比对，增量更新
+                final RefreshResult[] result = new RefreshResult[1];
                 AppDatabase.getInstance(null).runInTransaction(() -> {
-                    // 删除旧项
-                    playlistItemDao.deleteByPlaylistId(playlist.getId());
+                    List<PlaylistItem> existingItems = playlistItemDao.getItemsByPlaylistIdSync(playlist.getId());
+                    
+                    // 记录当前播放位置对应的文件
+                    long lastPlayedFsId = -1;
+                    int lastPlayedIndex = playlist.getLastPlayedIndex();
+                    if (lastPlayedIndex >= 0 && lastPlayedIndex < existingItems.size()) {
+                        lastPlayedFsId = existingItems.get(lastPlayedIndex).getFsId();
+                    }
                     
-                    // 插入新项
-                    playlistItemDao.insertAll(newItems);
+                    java.util.Map<Long, PlaylistItem> existingByFsId = new java.util.HashMap<>();
+                    List<Long> idsToDelete = new ArrayList<>();
+                    for (PlaylistItem existing : existingItems) {
+                        if (existingByFsId.containsKey(existing.getFsId())) {
+                            // 旧数据中的重复项直接删除
+                            idsToDelete.add(existing.getId());
+                        } else {
+                            existingByFsId.put(existing.getFsId(), existing);
+                        }
+                    }
                     
-                    // 更新播放列表统计信息
-                    playlist.setTotalItems(newItems.size());
-                    // 如果全是图片，时长为0；如果有视频，这里仅累加已知时长
-                    // 由于列表接口可能不返回时长，这里暂不更新时长，或者保持原有时长逻辑
+                    List<PlaylistItem> itemsToInsert = new ArrayList<>();
+                    List<PlaylistItem> itemsToUpdate = new ArrayList<>();
+                    int unchangedCount = 0;
+                    int newLastPlayedIndex = -1;
                     
-                    // 更新封面：如果原封面是其中的文件，保留；否则使用第一个文件的缩略图
-                    if (!newItems.isEmpty()) {
-                        String firstItemThumb = newItems.get(0).getFilePath(); // 这里应该使用缩略图地址，但暂时用路径代替
-                        // 实际上应该保持原封面，或者提供选项更新封面
-                        // 这里简单处理：如果当前没有封面，设置第一个项目的封面
-                        if (playlist.getCoverImagePath() == null || playlist.getCoverImagePath().isEmpty()) {
-                            // 注意：这里只是路径，实际显示时需要获取缩略图链接
-                            // 我们可以暂时不更新封面，或者需要额外的逻辑来获取缩略图
+                    for (PlaylistItem newItem : newItems) {
+                        if (newItem.getFsId() == lastPlayedFsId) {
+                            newLastPlayedIndex = newItem.getSortOrder();
                         }
+                        PlaylistItem existing = existingByFsId.remove(newItem.getFsId());
+                        if (existing == null) {
+                            itemsToInsert.add(newItem);
+                        } else if (existing.getSortOrder() != newItem.getSortOrder()
+                                || existing.getFileSize() != newItem.getFileSize()
+                                || !android.text.TextUtils.equals(existing.getFilePath(), newItem.getFilePath())
+                                || !android.text.TextUtils.equals(existing.getFileName(), newItem.getFileName())) {
+                            existing.setSortOrder(newItem.getSortOrder());
+                            existing.setFileSize(newItem.getFileSize());
+                            existing.setFilePath(newItem.getFilePath());
+                            existing.setFileName(newItem.getFileName());
+                            itemsToUpdate.add(existing);
+                        } else {
+                            unchangedCount++;
+                        }
+                    }
+                    
+                    // 剩下未匹配的旧项即为已删除的文件
+                    int removedCount = existingByFsId.size();
+                    for (PlaylistItem removed : existingByFsId.values()) {
+                        idsToDelete.add(removed.getId());
+                    }
+                    
+                    // 分批删除，避免超过SQLite参数数量限制
+                    for (int start = 0; start < idsToDelete.size(); start += DELETE_BATCH_SIZE) {
+                        int end = Math.min(start + DELETE_BATCH_SIZE, idsToDelete.size());
+                        playlistItemDao.deleteByIds(idsToDelete.subList(start, end));
+                    }
+                    if (!itemsToUpdate.isEmpty()) {
+                        playlistItemDao.updateAll(itemsToUpdate);
+                    }
+                    if (!itemsToInsert.isEmpty()) {
+                        playlistItemDao.insertAll(itemsToInsert);
+                    }
+                    
+                    // 更新播放列表统计信息
+                    playlist.setTotalItems(newItems.size());
+                    if (newLastPlayedIndex >= 0) {
+                        playlist.setLastPlayedIndex(newLastPlayedIndex);
+                    } else if (lastPlayedIndex >= newItems.size()) {
+                        // 上次播放的文件已被删除，且原位置超出新列表范围
+                        playlist.setLastPlayedIndex(Math.max(0, newItems.size() - 1));
                     }
                     
                     playlistDao.update(playlist);
+                    
+                    result[0] = new RefreshResult(itemsToInsert.size(), removedCount,
+                            itemsToUpdate.size(), unchangedCount);
                 });
                 
-                Log.d(TAG, "播放列表刷新完成，新文件数: " + newItems.size());
+                Log.d(TAG, "播放列表刷新完成，文件数: " + newItems.size() + ", 新增: " + result[0].added
+                        + ", 删除: " + result[0].removed + ", 更新: " + result[0].updated
+                        + ", 未变化: " + result[0].unchanged);
                 
-                if (onSuccess != null) {
-                    new android.os.Handler(android.os.Looper.getMainLooper()).post(onSuccess);
+                if (callback != null) {
+                    new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> callback.onSuccess(result[0]));
                 }
                 
             } catch (Exception e) {
                 Log.e(TAG, "刷新播放列表失败", e);
-                if (onError != null) {
-                    new android.os.Handler(android.os.Looper.getMainLooper()).post(onError);
-                }
+                postError(callback, e);
             }
         });
     }
+
+    private void postError(RefreshCallback callback, Exception e) {
+        if (callback != null) {
+            new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> callback.onError(e));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+package com.baidu.tv.player.repository;
+
+import android.util.Log;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据仓库运行指标
+ * 记录目录列表分页请求次数、并发情况、合并掉的重复请求数等，用于调优并发参数
+ */
+public class RepositoryMetrics {
+    private static final String TAG = "RepositoryMetrics";
+
+    private static RepositoryMetrics instance;
+
+    // list接口分页请求总数
+    private final AtomicLong listPageRequests = new AtomicLong();
+    // listall接口分页请求总数
+    private final AtomicLong listAllPageRequests = new AtomicLong();
+    // 并发预取的分页请求数
+    private final AtomicLong speculativePageRequests = new AtomicLong();
+    // 预取后被丢弃的分页数（位于最后一页之后）
+    private final AtomicLong wastedSpeculativePages = new AtomicLong();
+    // 当前进行中的并发分页请求数
+    private final AtomicInteger activePageFetches = new AtomicInteger();
+    // 观察到的最大并发分页请求数
+    private final AtomicInteger peakPageFetches = new AtomicInteger();
+    // 配置的分页并发数
+    private volatile int pageFetchConcurrency;
+    // 发起的目录预取数
+    private final AtomicLong directoryPrefetches = new AtomicLong();
+    // 因导航抢占而取消的目录预取数
+    private final AtomicLong preemptedPrefetches = new AtomicLong();
+    // 被合并（未实际发出）的重复请求数，按请求类型统计
+    private final Map<String, AtomicLong> coalescedCalls = new ConcurrentHashMap<>();
+
+    private RepositoryMetrics() {
+    }
+
+    public static synchronized RepositoryMetrics getInstance() {
+        if (instance == null) {
+            instance = new RepositoryMetrics();
+        }
+        return instance;
+    }
+
+    void recordListPageRequest() {
+        listPageRequests.incrementAndGet();
+    }
+
+    void recordListAllPageRequest() {
+        listAllPageRequests.incrementAndGet();
+    }
+
+    void onPageFetchStarted() {
+        speculativePageRequests.incrementAndGet();
+        int active = activePageFetches.incrementAndGet();
+        int peak;
+        do {
+            peak = peakPageFetches.get();
+        } while (active > peak && !peakPageFetches.compareAndSet(peak, active));
+    }
+
+    void onPageFetchFinished() {
+        activePageFetches.decrementAndGet();
+    }
+
+    void recordWastedSpeculativePage() {
+        wastedSpeculativePages.incrementAndGet();
+    }
+
+    void recordCoalescedCall(String name) {
+        coalescedCalls.computeIfAbsent(name, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    void recordDirectoryPrefetch() {
+        directoryPrefetches.incrementAndGet();
+    }
+
+    void recordPreemptedPrefetch() {
+        preemptedPrefetches.incrementAndGet();
+    }
+
+    void setPageFetchConcurrency(int concurrency) {
+        this.pageFetchConcurrency = concurrency;
+    }
+
+    public long getListPageRequests() {
+        return listPageRequests.get();
+    }
+
+    public long getListAllPageRequests() {
+        return listAllPageRequests.get();
+    }
+
+    public long getSpeculativePageRequests() {
+        return speculativePageRequests.get();
+    }
+
+    public long getWastedSpeculativePages() {
+        return wastedSpeculativePages.get();
+    }
+
+    public int getPeakPageFetches() {
+        return peakPageFetches.get();
+    }
+
+    public int getPageFetchConcurrency() {
+        return pageFetchConcurrency;
+    }
+
+    public long getDirectoryPrefetches() {
+        return directoryPrefetches.get();
+    }
+
+    public long getPreemptedPrefetches() {
+        return preemptedPrefetches.get();
+    }
+
+    /**
+     * 合并掉的重复请求总数（即节省的网络请求数）
+     */
+    public long getCoalescedCalls() {
+        long total = 0;
+        for (AtomicLong counter : coalescedCalls.values()) {
+            total += counter.get();
+        }
+        return total;
+    }
+
+    /**
+     * 指定请求类型（如list、filemetas）合并掉的重复请求数
+     */
+    public long getCoalescedCalls(String name) {
+        AtomicLong counter = coalescedCalls.get(name);
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * 获取指标摘要
+     */
+    public String getSummary() {
+        return "分页请求=" + listPageRequests.get()
+                + ", 递归分页请求=" + listAllPageRequests.get()
+                + ", 并发预取=" + speculativePageRequests.get()
+                + ", 预取浪费=" + wastedSpeculativePages.get()
+                + ", 峰值并发=" + peakPageFetches.get()
+                + ", 配置并发=" + pageFetchConcurrency
+                + ", 目录预取=" + directoryPrefetches.get()
+                + ", 预取被抢占=" + preemptedPrefetches.get()
+                + ", 合并请求=" + getCoalescedCalls() + getCoalescedDetail();
+    }
+
+    private String getCoalescedDetail() {
+        if (coalescedCalls.isEmpty()) {
+            return "";
+        }
+        Map<String, Long> detail = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : coalescedCalls.entrySet()) {
+            detail.put(entry.getKey(), entry.getValue().get());
+        }
+        return " " + detail;
+    }
+
+    public void logSummary() {
+        Log.d(TAG, getSummary());
+    }
+
+    /**
+     * 重置计数
+     */
+    public void reset() {
+        listPageRequests.set(0);
+        listAllPageRequests.set(0);
+        speculativePageRequests.set(0);
+        wastedSpeculativePages.set(0);
+        directoryPrefetches.set(0);
+        preemptedPrefetches.set(0);
+        coalescedCalls.clear();
+        peakPageFetches.set(activePageFetches.get());
+    }
+}
@@ -0,0 +1,221 @@
+package com.baidu.tv.player.repository;
+
+import android.util.Log;
+
+import com.baidu.tv.player.network.AdaptiveRateLimiter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+
+/**
+ * 进行中请求合并（single-flight）
+ * 相同key的请求正在进行时，后续调用只登记回调，不再发起网络请求，
+ * 第一个请求返回后把同一个结果分发给所有等待的调用方。
+ * 请求结束后立即移除，之后相同key的调用会重新发起请求。
+ * 调用方取消时只移除自己的回调，所有调用方都取消后才取消底层的网络请求。
+ * 结果对象由多个调用方共享，调用方不应修改。
+ * 请求在发出前向 AdaptiveRateLimiter 申请令牌，令牌不足时延后发出而不是占用OkHttp的调度线程等待；
+ * 接口处于限流退避时失败的请求按退避时间延后重发，重试期间合并关系保持不变。
+ */
+class RequestCoalescer<T> {
+    private static final String TAG = "RequestCoalescer";
+    // 限流退避期间失败的请求最多重试次数
+    private static final int MAX_THROTTLE_RETRIES = 3;
+
+    /**
+     * 请求结果回调
+     */
+    interface ResultCallback<T> {
+        void onSuccess(T result);
+        void onFailure(String error);
+    }
+
+    /**
+     * 实际发起请求，返回已发出的Call，完成后必须调用一次 callback
+     */
+    interface Request<T> {
+        Call<?> start(ResultCallback<T> callback);
+    }
+
+    private static class Waiter<T> {
+        final ResultCallback<T> callback;
+        final RequestHandle handle;
+        Runnable cancelListener;
+
+        Waiter(ResultCallback<T> callback, RequestHandle handle) {
+            this.callback = callback;
+            this.handle = handle;
+        }
+    }
+
+    private static class Entry<T> {
+        final List<Waiter<T>> waiters = new ArrayList<>();
+        Call<?> call;
+        // 所有调用方都已取消
+        boolean abandoned;
+        // 因限流已重试的次数
+        int retries;
+    }
+
+    // 请求类型名称，用于统计
+    private final String name;
+    // 进行中的请求key -> 等待该结果的调用方
+    private final Map<String, Entry<T>> inFlight = new HashMap<>();
+
+    RequestCoalescer(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 执行请求，相同key的请求正在进行时直接合并
+     * @param key 请求的唯一标识（接口参数组合）
+     * @param handle 调用方的取消句柄
+     * @param callback 调用方回调（取消后不再回调）
+     * @param request 没有进行中的相同请求时用于发起请求
+     */
+    void execute(String key, RequestHandle handle, ResultCallback<T> callback, Request<T> request) {
+        if (handle.isCanceled()) {
+            return;
+        }
+
+        Waiter<T> waiter = new Waiter<>(callback, handle);
+        Entry<T> entry;
+        boolean first;
+        synchronized (this) {
+            entry = inFlight.get(key);
+            first = entry == null;
+            if (first) {
+                entry = new Entry<>();
+                inFlight.put(key, entry);
+            } else {
+                RepositoryMetrics.getInstance().recordCoalescedCall(name);
+                Log.d(TAG, "合并进行中的" + name + "请求, 等待数=" + (entry.waiters.size() + 1));
+            }
+            entry.waiters.add(waiter);
+        }
+
+        final Entry<T> target = entry;
+        waiter.cancelListener = () -> leave(key, target, waiter);
+        handle.addCancelListener(waiter.cancelListener);
+        if (!first) {
+            return;
+        }
+
+        AdaptiveRateLimiter.getInstance().runWhenPermitted(
+                () -> isAbandoned(target), () -> start(key, target, request));
+    }
+
+    /**
+     * 发出请求（已获得限流令牌）
+     */
+    private void start(String key, Entry<T> target, Request<T> request) {
+        try {
+            Call<?> call = request.start(new ResultCallback<T>() {
+                @Override
+                public void onSuccess(T result) {
+                    for (Waiter<T> w : complete(key, target)) {
+                        if (!w.handle.isCanceled()) {
+                            w.callback.onSuccess(result);
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    if (retryIfThrottled(key, target, request, error)) {
+                        return;
+                    }
+                    for (Waiter<T> w : complete(key, target)) {
+                        if (!w.handle.isCanceled()) {
+                            w.callback.onFailure(error);
+                        }
+                    }
+                }
+            });
+            boolean cancelNow;
+            synchronized (this) {
+                target.call = call;
+                cancelNow = target.abandoned;
+            }
+            if (cancelNow && call != null) {
+                call.cancel();
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "发起" + name + "请求失败", e);
+            for (Waiter<T> w : complete(key, target)) {
+                w.callback.onFailure("发起请求失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 接口正处于限流退避时，失败多半是暂时性的，退避后重新发出请求而不是把失败分发给调用方
+     */
+    private boolean retryIfThrottled(String key, Entry<T> target, Request<T> request, String error) {
+        AdaptiveRateLimiter limiter = AdaptiveRateLimiter.getInstance();
+        if (!limiter.isBackingOff()) {
+            return false;
+        }
+        int attempt;
+        synchronized (this) {
+            if (target.abandoned || target.retries >= MAX_THROTTLE_RETRIES) {
+                return false;
+            }
+            attempt = target.retries++;
+            target.call = null;
+        }
+        long delayMs = limiter.retryDelayMs(attempt);
+        limiter.recordRetry();
+        Log.w(TAG, name + "请求被限流，" + delayMs + "ms后第" + (attempt + 1) + "次重试: " + error);
+        limiter.runWhenPermitted(delayMs, () -> isAbandoned(target), () -> start(key, target, request));
+        return true;
+    }
+
+    private synchronized boolean isAbandoned(Entry<T> entry) {
+        return entry.abandoned;
+    }
+
+    /**
+     * 调用方取消：移除其回调，没有其他调用方时取消网络请求
+     */
+    private void leave(String key, Entry<T> entry, Waiter<T> waiter) {
+        Call<?> toCancel = null;
+        synchronized (this) {
+            if (!entry.waiters.remove(waiter) || !entry.waiters.isEmpty()) {
+                return;
+            }
+            entry.abandoned = true;
+            if (inFlight.get(key) == entry) {
+                inFlight.remove(key);
+            }
+            toCancel = entry.call;
+        }
+        if (toCancel != null) {
+            Log.d(TAG, "调用方均已取消，取消" + name + "请求");
+            toCancel.cancel();
+        }
+    }
+
+    private List<Waiter<T>> complete(String key, Entry<T> entry) {
+        List<Waiter<T>> waiters;
+        synchronized (this) {
+            if (inFlight.get(key) == entry) {
+                inFlight.remove(key);
+            }
+            if (entry.waiters.isEmpty()) {
+                return Collections.emptyList();
+            }
+            waiters = new ArrayList<>(entry.waiters);
+            entry.waiters.clear();
+        }
+        for (Waiter<T> waiter : waiters) {
+            waiter.handle.removeCancelListener(waiter.cancelListener);
+        }
+        return waiters;
+    }
+}
@@ -0,0 +1,59 @@
+package com.baidu.tv.player.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 可取消的请求句柄
+ * 目录列表、递归扫描等多步请求返回该句柄，调用 cancel() 后取消正在进行的网络请求、
+ * 停止后续分页和子目录请求，并且不再回调调用方。
+ */
+public class RequestHandle {
+
+    private final Set<Runnable> cancelListeners = new LinkedHashSet<>();
+    private boolean canceled = false;
+
+    /**
+     * 取消请求（可重复调用）
+     */
+    public void cancel() {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (canceled) {
+                return;
+            }
+            canceled = true;
+            listeners = new ArrayList<>(cancelListeners);
+            cancelListeners.clear();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    public synchronized boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * 登记取消时要执行的操作，已取消时立即执行
+     */
+    void addCancelListener(Runnable listener) {
+        synchronized (this) {
+            if (!canceled) {
+                cancelListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * 请求正常结束后移除登记的操作
+     */
+    synchronized void removeCancelListener(Runnable listener) {
+        cancelListeners.remove(listener);
+    }
+}
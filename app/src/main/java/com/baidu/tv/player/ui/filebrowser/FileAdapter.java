@@ -29,6 +29,7 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
     private List<FileInfo> fileList;
     private OnItemClickListener onItemClickListener;
     private OnItemLongClickListener onItemLongClickListener;
+    private OnItemFocusListener onItemFocusListener;
     private SimpleDateFormat dateFormat;
     private boolean multiSelectMode = false;
     private Set<String> selectedPaths = new HashSet<>();
@@ -38,9 +39,54 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
     }
 
-    public void setFileList(List<FileInfo> fileList) {
-        this.fileList = fileList != null ? fileList : new ArrayList<>();
-        notifyDataSetChanged();
+    /**
+     * 设置文件列表
+     * 如果新列表只是在旧列表基础上插入了新项（分页追加/归并），只通知插入的区间，
+     * 避免整表刷新导致焦点和滚动位置丢失
+     * @return 是否为增量更新
+     */
+    public boolean setFileList(List<FileInfo> fileList) {
+        List<FileInfo> oldList = this.fileList;
+        List<FileInfo> newList = fileList != null ? fileList : new ArrayList<>();
+        this.fileList = newList;
+
+        if (oldList == newList || oldList.isEmpty() || !isSubsequence(oldList, newList)) {
+            notifyDataSetChanged();
+            return false;
+        }
+
+        // 按升序通知插入区间，每段的起始位置即为其在新列表中的位置
+        int i = 0;
+        int j = 0;
+        while (j < newList.size()) {
+            if (i < oldList.size() && oldList.get(i) == newList.get(j)) {
+                i++;
+                j++;
+                continue;
+            }
+            int rangeStart = j;
+            while (j < newList.size() && (i >= oldList.size() || oldList.get(i) != newList.get(j))) {
+                j++;
+            }
+            notifyItemRangeInserted(rangeStart, j - rangeStart);
+        }
+        return true;
+    }
+
+    /**
+     * 判断旧列表中的项是否按原顺序全部出现在新列表中（按对象引用比较）
+     */
+    private boolean isSubsequence(List<FileInfo> oldList, List<FileInfo> newList) {
+        if (newList.size() < oldList.size()) {
+            return false;
+        }
+        int i = 0;
+        for (int j = 0; j < newList.size() && i < oldList.size(); j++) {
+            if (oldList.get(i) == newList.get(j)) {
+                i++;
+            }
+        }
+        return i == oldList.size();
     }
 
     public void setOnItemClickListener(OnItemClickListener listener) {
@@ -50,6 +96,10 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
     public void setOnItemLongClickListener(OnItemLongClickListener listener) {
         this.onItemLongClickListener = listener;
     }
+
+    public void setOnItemFocusListener(OnItemFocusListener listener) {
+        this.onItemFocusListener = listener;
+    }
     
     /**
      * 设置多选模式
@@ -113,6 +163,25 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
         return fileList.size();
     }
 
+    /**
+     * 获取指定位置的文件，位置无效时返回null
+     */
+    public FileInfo getItem(int position) {
+        return position >= 0 && position < fileList.size() ? fileList.get(position) : null;
+    }
+
+    /**
+     * 查找fsId对应的位置，没有时返回-1
+     */
+    public int indexOfFsId(long fsId) {
+        for (int i = 0; i < fileList.size(); i++) {
+            if (fileList.get(i).getFsId() == fsId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     class FileViewHolder extends RecyclerView.ViewHolder {
         private ImageView ivFileIcon;
         private TextView tvFileName;
@@ -140,6 +209,13 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
                 }
                 return false;
             });
+
+            itemView.setOnFocusChangeListener((v, hasFocus) -> {
+                int position = getAdapterPosition();
+                if (hasFocus && position != RecyclerView.NO_POSITION && onItemFocusListener != null) {
+                    onItemFocusListener.onItemFocused(fileList.get(position), position);
+                }
+            });
         }
 
         public void bind(FileInfo file) {
@@ -218,4 +294,8 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileViewHolder
     public interface OnItemLongClickListener {
         boolean onItemLongClick(FileInfo file, int position);
     }
+
+    public interface OnItemFocusListener {
+        void onItemFocused(FileInfo file, int position);
+    }
 }
\ No newline at end of file
@@ -22,15 +22,25 @@ import com.baidu.tv.player.model.Playlist;
 import com.baidu.tv.player.model.PlaylistItem;
 import com.baidu.tv.player.repository.FileRepository;
 import com.baidu.tv.player.repository.PlaylistRepository;
+import com.baidu.tv.player.repository.RequestHandle;
 import com.baidu.tv.player.ui.playback.PlaybackActivity;
 import com.baidu.tv.player.utils.PlaylistCache;
 import com.baidu.tv.player.utils.PreferenceUtils;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 文件浏览Fragment
@@ -49,6 +59,21 @@ public class FileBrowserFragment extends Fragment {
     private int mediaType;
     private String initialPath;
     private boolean multiSelectMode = false;
+    
+    // 确认选择后的扫描任务（页面销毁时取消）
+    private CompletableFuture<Integer> selectionTask;
+    private List<CompletableFuture<List<FileInfo>>> scanParts = new ArrayList<>();
+    // 各选中目录的列表请求（页面销毁时取消，停止网络请求和递归扫描）
+    private final List<RequestHandle> scanRequests = new ArrayList<>();
+    // 各选中目录的扫描进度：路径 -> {已完成目录数, 已找到文件数}
+    private final Map<String, int[]> scanProgress = new ConcurrentHashMap<>();
+    private final ExecutorService scanExecutor = Executors.newFixedThreadPool(2);
+    // 页面已销毁：已提交到数据库线程的播放列表写入在开始事务前检查
+    private final AtomicBoolean destroyed = new AtomicBoolean(false);
+    
+    // 焦点停留多久后预取目录列表（毫秒）
+    private static final long FOCUS_PREFETCH_DELAY_MS = 300;
+    private Runnable pendingFocusPrefetch;
 
     public FileBrowserFragment() {
         // Required empty public constructor
@@ -92,6 +117,28 @@ public class FileBrowserFragment extends Fragment {
         return view;
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        destroyed.set(true);
+        // 取消未完成的扫描任务，避免页面销毁后继续写入数据库和更新界面
+        if (selectionTask != null && !selectionTask.isDone()) {
+            android.util.Log.d("FileBrowserFragment", "页面销毁，取消扫描任务");
+            selectionTask.cancel(true);
+        }
+        for (CompletableFuture<List<FileInfo>> part : scanParts) {
+            part.cancel(true);
+        }
+        for (RequestHandle request : scanRequests) {
+            request.cancel();
+        }
+        scanRequests.clear();
+        scanExecutor.shutdownNow();
+        if (recyclerView != null && pendingFocusPrefetch != null) {
+            recyclerView.removeCallbacks(pendingFocusPrefetch);
+        }
+    }
+
     private void initViews(View view) {
         tvCurrentPath = view.findViewById(R.id.tv_current_path);
         btnRecursive = view.findViewById(R.id.btn_recursive);
@@ -159,7 +206,17 @@ public class FileBrowserFragment extends Fragment {
         
         // 观察文件列表
         viewModel.getFileList().observe(getViewLifecycleOwner(), files -> {
-            adapter.setFileList(files);
+            // 后台重新验证替换同一目录的列表时，记住当前获得焦点的文件
+            FileInfo focusedFile = null;
+            int focusedPosition = -1;
+            if (recyclerView != null && viewModel.isRevalidatedList(files)) {
+                View focusedChild = recyclerView.getFocusedChild();
+                if (focusedChild != null) {
+                    focusedPosition = recyclerView.getChildAdapterPosition(focusedChild);
+                    focusedFile = adapter.getItem(focusedPosition);
+                }
+            }
+            boolean appended = adapter.setFileList(files);
             
             if (files == null || files.isEmpty()) {
                 tvEmptyMessage.setVisibility(View.VISIBLE);
@@ -167,8 +224,27 @@ public class FileBrowserFragment extends Fragment {
             } else {
                 tvEmptyMessage.setVisibility(View.GONE);
                 
-                // 列表更新时，滚动到顶部并让第一个项目获取焦点
-                if (recyclerView != null) {
+                int focusedIndex = -1;
+                if (focusedFile != null) {
+                    focusedIndex = adapter.indexOfFsId(focusedFile.getFsId());
+                    if (focusedIndex < 0) {
+                        // 原来的文件已被删除，焦点留在原位置附近
+                        focusedIndex = Math.min(focusedPosition, files.size() - 1);
+                    }
+                }
+                if (recyclerView != null && !appended && focusedIndex >= 0) {
+                    // 重新验证后的列表：焦点保持在原来的文件上
+                    final int restoreIndex = focusedIndex;
+                    recyclerView.scrollToPosition(restoreIndex);
+                    recyclerView.post(() -> {
+                        androidx.recyclerview.widget.RecyclerView.ViewHolder holder =
+                                recyclerView.findViewHolderForAdapterPosition(restoreIndex);
+                        if (holder != null) {
+                            holder.itemView.requestFocus();
+                        }
+                    });
+                } else if (recyclerView != null && !appended) {
+                    // 列表更新时，滚动到顶部并让第一个项目获取焦点（分页追加时保持当前位置和焦点）
                     recyclerView.scrollToPosition(0);
                     // 延迟执行以确保布局已完成
                     recyclerView.postDelayed(() -> {
@@ -310,6 +386,18 @@ public class FileBrowserFragment extends Fragment {
             return false;
         });
         
+        // 焦点在目录上停留一小段时间后预取其列表，快速移动焦点时不触发
+        adapter.setOnItemFocusListener((file, position) -> {
+            if (pendingFocusPrefetch != null) {
+                recyclerView.removeCallbacks(pendingFocusPrefetch);
+                pendingFocusPrefetch = null;
+            }
+            if (file.isDirectory()) {
+                pendingFocusPrefetch = () -> viewModel.onDirectoryFocused(file);
+                recyclerView.postDelayed(pendingFocusPrefetch, FOCUS_PREFETCH_DELAY_MS);
+            }
+        });
+        
         recyclerView.setAdapter(adapter);
     }
 
@@ -344,360 +432,304 @@ public class FileBrowserFragment extends Fragment {
             return;
         }
         
+        if (selectionTask != null && !selectionTask.isDone()) {
+            android.widget.Toast.makeText(requireContext(),
+                "正在扫描文件，请稍候...",
+                android.widget.Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
         // 显示加载提示
         android.widget.Toast.makeText(requireContext(),
             "正在扫描文件，请稍候...",
             android.widget.Toast.LENGTH_SHORT).show();
         
-        // 在后台线程执行文件扫描和播放列表创建
-        new Thread(() -> {
-            try {
-                // 使用统一的认证服务获取访问令牌，确保令牌有效
-                com.baidu.tv.player.auth.BaiduAuthService authService =
-                    com.baidu.tv.player.auth.BaiduAuthService.getInstance(requireContext());
-                String accessToken = authService.getAccessToken();
-                FileRepository fileRepository = FileRepository.getInstance();
-                PlaylistRepository playlistRepository = new PlaylistRepository(requireContext());
-                
-                // 获取当前文件列表，用于判断选中项是文件还是目录
-                List<FileInfo> currentFiles = viewModel.getFileList().getValue();
-                if (currentFiles == null) {
-                    currentFiles = new ArrayList<>();
-                }
-                
-                // 创建路径到FileInfo的映射
-                java.util.Map<String, FileInfo> pathToFileMap = new java.util.HashMap<>();
-                for (FileInfo file : currentFiles) {
-                    pathToFileMap.put(file.getPath(), file);
-                }
-                
-                // 收集所有媒体文件
-                List<FileInfo> allMediaFiles = new ArrayList<>();
-                Set<String> sourcePaths = new HashSet<>(); // 记录源目录用于刷新
-                final boolean[] hasIgnoredSubDirs = {false}; // 记录是否忽略了子目录
-                
-                // 获取递归加载开关状态
-                boolean isRecursiveEnabled = viewModel.getIsRecursive().getValue() != null
-                    ? viewModel.getIsRecursive().getValue() : false;
-                
-                android.util.Log.d("FileBrowserFragment", "递归加载开关状态: " + isRecursiveEnabled);
-                
-                // 对每个选中的路径进行处理
-                for (String selectedPath : selectedPaths) {
-                    FileInfo selectedFile = pathToFileMap.get(selectedPath);
-                    
-                    android.util.Log.d("FileBrowserFragment", "处理选中路径: " + selectedPath + ", FileInfo: " + (selectedFile != null ? selectedFile.getServerFilename() : "null"));
-                    
-                    if (selectedFile != null && selectedFile.isDirectory()) {
-                        // 目录：根据递归开关决定是否递归获取
-                        sourcePaths.add(selectedPath);
-                        
-                        if (isRecursiveEnabled) {
-                            // 递归模式：递归获取所有文件
-                            android.util.Log.d("FileBrowserFragment", "递归模式：开始递归获取目录: " + selectedPath);
-                            
-                            // 使用回调方式递归获取文件
-                            final List<FileInfo> dirFiles = new ArrayList<>();
-                            final boolean[] completed = {false};
-                            final boolean[] error = {false};
-                            
-                            fileRepository.fetchFilesRecursive(accessToken, selectedPath,
-                                new FileRepository.FileListCallback() {
-                                    @Override
-                                    public void onSuccess(List<FileInfo> files) {
-                                        android.util.Log.d("FileBrowserFragment", "递归获取成功，文件数量: " + (files != null ? files.size() : 0));
-                                        if (files != null) {
-                                            dirFiles.addAll(files);
-                                            // 打印前5个文件的信息
-                                            for (int i = 0; i < Math.min(5, files.size()); i++) {
-                                                FileInfo f = files.get(i);
-                                                android.util.Log.d("FileBrowserFragment", "  文件" + i + ": " + f.getServerFilename() +
-                                                    ", isDir=" + f.isDirectory() + ", isImage=" + f.isImage() + ", isVideo=" + f.isVideo());
-                                            }
-                                        }
-                                        completed[0] = true;
-                                    }
-                                    
-                                    @Override
-                                    public void onFailure(String errorMsg) {
-                                        android.util.Log.e("FileBrowserFragment",
-                                            "递归获取文件失败: " + errorMsg);
-                                        error[0] = true;
-                                        completed[0] = true;
-                                    }
-                                });
-                            
-                            // 等待异步操作完成（最多等待30秒）
-                            int waitCount = 0;
-                            while (!completed[0] && waitCount < 300) {
-                                Thread.sleep(100);
-                                waitCount++;
-                            }
-                            
-                            android.util.Log.d("FileBrowserFragment", "等待完成，completed=" + completed[0] + ", error=" + error[0] + ", waitCount=" + waitCount);
-                            
-                            if (error[0]) {
-                                android.util.Log.w("FileBrowserFragment", "跳过失败的目录: " + selectedPath);
-                                continue; // 跳过失败的目录
-                            }
-                            
-                            // 添加日志
-                            android.util.Log.d("FileBrowserFragment", "递归获取到目录 " + selectedPath + " 的文件数量: " + dirFiles.size());
-                            
-                            // 过滤出媒体文件（排除目录）
-                            int beforeFilterCount = dirFiles.size();
-                            int afterFilterCount = 0;
-                            for (FileInfo file : dirFiles) {
-                                boolean isDir = file.isDirectory();
-                                boolean isImg = file.isImage();
-                                boolean isVid = file.isVideo();
-                                String filename = file.getServerFilename();
-                                
-                                android.util.Log.d("FileBrowserFragment", "检查文件: " + filename +
-                                    ", isDir=" + isDir + ", isImage=" + isImg + ", isVideo=" + isVid);
-                                
-                                if (!isDir && (isImg || isVid)) {
-                                    allMediaFiles.add(file);
-                                    afterFilterCount++;
-                                }
-                            }
-                            android.util.Log.d("FileBrowserFragment", "目录 " + selectedPath + " 过滤前: " + beforeFilterCount + ", 过滤后: " + afterFilterCount);
-                        } else {
-                            // 非递归模式：只获取当前目录的文件
-                            android.util.Log.d("FileBrowserFragment", "非递归模式：只获取当前目录的文件: " + selectedPath);
-                            
-                            // 使用回调方式获取当前目录的文件（非递归）
-                            final List<FileInfo> dirFiles = new ArrayList<>();
-                            final boolean[] completed = {false};
-                            final boolean[] error = {false};
-                            
-                            fileRepository.fetchFilesNonRecursive(accessToken, selectedPath,
-                                new FileRepository.FileListCallback() {
-                                    @Override
-                                    public void onSuccess(List<FileInfo> files) {
-                                        android.util.Log.d("FileBrowserFragment", "获取当前目录成功，文件数量: " + (files != null ? files.size() : 0));
-                                        if (files != null) {
-                                            dirFiles.addAll(files);
-                                            // 打印前5个文件的信息
-                                            for (int i = 0; i < Math.min(5, files.size()); i++) {
-                                                FileInfo f = files.get(i);
-                                                android.util.Log.d("FileBrowserFragment", "  文件" + i + ": " + f.getServerFilename() +
-                                                    ", isDir=" + f.isDirectory() + ", isImage=" + f.isImage() + ", isVideo=" + f.isVideo());
-                                            }
-                                        }
-                                        completed[0] = true;
-                                    }
-                                    
-                                    @Override
-                                    public void onFailure(String errorMsg) {
-                                        android.util.Log.e("FileBrowserFragment",
-                                            "获取当前目录文件失败: " + errorMsg);
-                                        error[0] = true;
-                                        completed[0] = true;
-                                    }
-                                });
-                            
-                            // 等待异步操作完成（最多等待30秒）
-                            int waitCount = 0;
-                            while (!completed[0] && waitCount < 300) {
-                                Thread.sleep(100);
-                                waitCount++;
-                            }
-                            
-                            android.util.Log.d("FileBrowserFragment", "等待完成，completed=" + completed[0] + ", error=" + error[0] + ", waitCount=" + waitCount);
-                            
-                            if (error[0]) {
-                                android.util.Log.w("FileBrowserFragment", "跳过失败的目录: " + selectedPath);
-                                continue; // 跳过失败的目录
-                            }
-                            
-                            // 添加日志
-                            android.util.Log.d("FileBrowserFragment", "获取到目录 " + selectedPath + " 的文件数量: " + dirFiles.size());
-                            
-                            // 过滤出媒体文件（排除目录）
-                            int beforeFilterCount = dirFiles.size();
-                            int afterFilterCount = 0;
-                            for (FileInfo file : dirFiles) {
-                                boolean isDir = file.isDirectory();
-                                boolean isImg = file.isImage();
-                                boolean isVid = file.isVideo();
-                                String filename = file.getServerFilename();
-                                
-                                android.util.Log.d("FileBrowserFragment", "检查文件: " + filename +
-                                    ", isDir=" + isDir + ", isImage=" + isImg + ", isVideo=" + isVid);
-                                
-                                if (!isDir && (isImg || isVid)) {
-                                    allMediaFiles.add(file);
-                                    afterFilterCount++;
-                                }
-                            }
-                            android.util.Log.d("FileBrowserFragment", "目录 " + selectedPath + " 过滤前: " + beforeFilterCount + ", 过滤后: " + afterFilterCount);
-                        }
-                    } else {
-                        // 文件：直接添加（如果是媒体文件）
-                        if (selectedFile != null && !selectedFile.isDirectory()
-                            && (selectedFile.isImage() || selectedFile.isVideo())) {
-                            allMediaFiles.add(selectedFile);
-                        }
+        // 使用统一的认证服务获取访问令牌，确保令牌有效
+        com.baidu.tv.player.auth.BaiduAuthService authService =
+            com.baidu.tv.player.auth.BaiduAuthService.getInstance(requireContext());
+        String accessToken = authService.getAccessToken();
+        PlaylistRepository playlistRepository = new PlaylistRepository(requireContext());
+        
+        // 获取当前文件列表，用于判断选中项是文件还是目录
+        List<FileInfo> currentFiles = viewModel.getFileList().getValue();
+        if (currentFiles == null) {
+            currentFiles = new ArrayList<>();
+        }
+        
+        // 创建路径到FileInfo的映射
+        Map<String, FileInfo> pathToFileMap = new HashMap<>();
+        for (FileInfo file : currentFiles) {
+            pathToFileMap.put(file.getPath(), file);
+        }
+        
+        // 获取递归加载开关状态
+        boolean isRecursiveEnabled = viewModel.getIsRecursive().getValue() != null
+            ? viewModel.getIsRecursive().getValue() : false;
+        
+        android.util.Log.d("FileBrowserFragment", "递归加载开关状态: " + isRecursiveEnabled);
+        
+        // 每个选中项对应一个扫描任务，所有目录并行扫描
+        Set<String> sourcePaths = new LinkedHashSet<>(); // 记录源目录用于刷新
+        List<CompletableFuture<List<FileInfo>>> parts = new ArrayList<>();
+        scanProgress.clear();
+        scanRequests.clear();
+        for (String selectedPath : selectedPaths) {
+            FileInfo selectedFile = pathToFileMap.get(selectedPath);
+            
+            android.util.Log.d("FileBrowserFragment", "处理选中路径: " + selectedPath + ", FileInfo: " + (selectedFile != null ? selectedFile.getServerFilename() : "null"));
+            
+            if (selectedFile != null && selectedFile.isDirectory()) {
+                // 目录：根据递归开关决定是否递归获取，返回后在后台线程过滤出媒体文件
+                sourcePaths.add(selectedPath);
+                parts.add(fetchDirectoryFiles(accessToken, selectedPath, isRecursiveEnabled)
+                    .thenApplyAsync(files -> filterMediaFiles(selectedPath, files), scanExecutor));
+            } else if (selectedFile != null && (selectedFile.isImage() || selectedFile.isVideo())) {
+                // 文件：直接添加（如果是媒体文件）
+                List<FileInfo> single = new ArrayList<>();
+                single.add(selectedFile);
+                parts.add(CompletableFuture.completedFuture(single));
+            }
+        }
+        scanParts = parts;
+        
+        // 每个扫描任务完成时立即按选择顺序并入结果（前面的任务还没完成时先暂存），
+        // 全部完成后同一遍中生成播放列表项，并在一个事务中写入数据库
+        List<FileInfo> allMediaFiles = new ArrayList<>();
+        List<List<FileInfo>> finishedParts = new ArrayList<>(java.util.Collections.nCopies(parts.size(), null));
+        int[] nextPartToMerge = {0};
+        List<CompletableFuture<Void>> merges = new ArrayList<>();
+        for (int i = 0; i < parts.size(); i++) {
+            final int partIndex = i;
+            merges.add(parts.get(i).thenAccept(files -> {
+                synchronized (allMediaFiles) {
+                    finishedParts.set(partIndex, files);
+                    while (nextPartToMerge[0] < finishedParts.size()
+                            && finishedParts.get(nextPartToMerge[0]) != null) {
+                        allMediaFiles.addAll(finishedParts.get(nextPartToMerge[0]));
+                        // 已并入的部分不再持有
+                        finishedParts.set(nextPartToMerge[0], java.util.Collections.emptyList());
+                        nextPartToMerge[0]++;
                     }
                 }
-                
+            }));
+        }
+        
+        selectionTask = CompletableFuture.allOf(merges.toArray(new CompletableFuture[0]))
+            .thenComposeAsync(ignored -> {
                 android.util.Log.d("FileBrowserFragment", "最终收集到的媒体文件数量: " + allMediaFiles.size());
-                // 打印前5个媒体文件的信息
-                for (int i = 0; i < Math.min(5, allMediaFiles.size()); i++) {
-                    FileInfo f = allMediaFiles.get(i);
-                    android.util.Log.d("FileBrowserFragment", "  媒体文件" + i + ": " + f.getServerFilename());
-                }
-                
                 if (allMediaFiles.isEmpty()) {
-                    requireActivity().runOnUiThread(() -> {
-                        android.widget.Toast.makeText(requireContext(),
-                            "未找到任何媒体文件",
-                            android.widget.Toast.LENGTH_SHORT).show();
-                    });
-                    return;
+                    return CompletableFuture.completedFuture(0);
                 }
-                
-                // 生成播放列表名称（使用第一个目录名或默认名称）
-                String playlistName = "新建播放列表";
-                if (!sourcePaths.isEmpty()) {
-                    String firstPath = sourcePaths.iterator().next();
-                    playlistName = firstPath.substring(firstPath.lastIndexOf('/') + 1);
+                return savePlaylist(playlistRepository, sourcePaths, allMediaFiles);
+            }, scanExecutor);
+        
+        selectionTask.whenComplete((count, throwable) -> {
+            android.app.Activity activity = getActivity();
+            if (activity == null || !isAdded()) {
+                return;
+            }
+            activity.runOnUiThread(() -> {
+                if (!isAdded()) {
+                    return;
                 }
+                // 扫描结束，恢复确认按钮文字
+                btnPlaySelected.setText("确认选择");
                 
-                // 创建播放列表
-                Playlist playlist = new Playlist();
-                playlist.setName(playlistName);
-                playlist.setCreatedAt(System.currentTimeMillis());
-                playlist.setLastPlayedAt(0);
-                playlist.setLastPlayedIndex(0);
-                playlist.setMediaType(0); // 0=混合
-                playlist.setTotalItems(allMediaFiles.size());
-                playlist.setTotalDuration(0); // 暂不计算总时长
-                
-                // 生成封面（使用第一个有缩略图的图片或视频）
-                String coverPath = null;
-                for (FileInfo file : allMediaFiles) {
-                    // 优先使用图片的缩略图
-                    if (file.isImage() && file.getThumbs() != null && file.getThumbs().getUrl1() != null) {
-                        coverPath = file.getThumbs().getUrl1();
-                        android.util.Log.d("FileBrowserFragment", "使用图片缩略图作为封面: " + coverPath);
-                        break;
-                    }
+                Throwable error = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+                if (error instanceof CancellationException) {
+                    android.util.Log.d("FileBrowserFragment", "扫描任务已取消");
+                    return;
                 }
-                // 如果没有图片缩略图，尝试使用视频缩略图
-                if (coverPath == null) {
-                    for (FileInfo file : allMediaFiles) {
-                        if (file.isVideo() && file.getThumbs() != null && file.getThumbs().getUrl1() != null) {
-                            coverPath = file.getThumbs().getUrl1();
-                            android.util.Log.d("FileBrowserFragment", "使用视频缩略图作为封面: " + coverPath);
-                            break;
-                        }
-                    }
+                if (error != null) {
+                    android.util.Log.e("FileBrowserFragment", "创建播放列表失败", error);
+                    android.widget.Toast.makeText(requireContext(),
+                        "创建播放列表失败: " + error.getMessage(),
+                        android.widget.Toast.LENGTH_SHORT).show();
+                    return;
                 }
-                // 如果都没有缩略图，使用默认封面
-                if (coverPath == null) {
-                    android.util.Log.d("FileBrowserFragment", "没有找到缩略图，使用默认封面");
-                    coverPath = ""; // 空字符串表示使用默认封面
+                if (count == null || count == 0) {
+                    android.widget.Toast.makeText(requireContext(),
+                        "未找到任何媒体文件",
+                        android.widget.Toast.LENGTH_SHORT).show();
+                    return;
                 }
-                playlist.setCoverImagePath(coverPath);
                 
-                // 保存源目录路径（JSON格式）
-                if (!sourcePaths.isEmpty()) {
-                    try {
-                        org.json.JSONArray jsonArray = new org.json.JSONArray(sourcePaths);
-                        playlist.setSourcePaths(jsonArray.toString());
-                    } catch (Exception e) {
-                        android.util.Log.e("FileBrowserFragment",
-                            "保存源路径失败", e);
-                    }
-                }
+                android.widget.Toast.makeText(requireContext(),
+                    "播放列表创建成功！\n共添加 " + count + " 个文件",
+                    android.widget.Toast.LENGTH_SHORT).show();
                 
-                // 插入播放列表到数据库 - 使用回调方式，避免线程阻塞和竞态条件
-                playlistRepository.insertPlaylist(playlist, new PlaylistRepository.InsertCallback() {
-                    @Override
-                    public void onSuccess(long id) {
-                        android.util.Log.d("FileBrowserFragment", "播放列表创建成功，ID=" + id);
-                        
-                        // 在后台线程准备播放列表项
-                        new Thread(() -> {
-                            try {
-                                // 创建播放列表项
-                                List<PlaylistItem> items = new ArrayList<>();
-                                int sortOrder = 0;
-                                for (FileInfo file : allMediaFiles) {
-                                    PlaylistItem item = new PlaylistItem();
-                                    item.setPlaylistId(id); // 使用正确的long类型ID
-                                    item.setFilePath(file.getPath());
-                                    item.setFileName(file.getServerFilename());
-                                    item.setFsId(file.getFsId());
-                                    item.setMediaType(file.isImage() ? 2 : 1); // 1=视频, 2=图片
-                                    item.setSortOrder(sortOrder++);
-                                    item.setDuration(file.getSize()); // 暂时用文件大小代替时长
-                                    item.setFileSize(file.getSize());
-                                    items.add(item);
-                                }
-                                
-                                // 插入播放列表项到数据库
-                                playlistRepository.insertPlaylistItems(items,
-                                    () -> {
-                                        android.util.Log.d("FileBrowserFragment", "播放列表项插入成功，数量: " + items.size());
-                                        requireActivity().runOnUiThread(() -> {
-                                            android.widget.Toast.makeText(requireContext(),
-                                                "播放列表创建成功！\n共添加 " + allMediaFiles.size() + " 个文件",
-                                                android.widget.Toast.LENGTH_SHORT).show();
-                                            
-                                            // 设置返回结果，通知MainFragment刷新播放列表
-                                            android.content.Intent resultIntent = new android.content.Intent();
-                                            requireActivity().setResult(android.app.Activity.RESULT_OK, resultIntent);
-                                            
-                                            // 返回首页
-                                            requireActivity().finish();
-                                        });
-                                    },
-                                    () -> {
-                                        android.util.Log.e("FileBrowserFragment", "播放列表项插入失败");
-                                        requireActivity().runOnUiThread(() -> {
-                                            android.widget.Toast.makeText(requireContext(),
-                                                "播放列表项保存失败",
-                                                android.widget.Toast.LENGTH_SHORT).show();
-                                        });
-                                    });
-                                    
-                            } catch (Exception e) {
-                                android.util.Log.e("FileBrowserFragment", "准备播放列表项失败", e);
-                                requireActivity().runOnUiThread(() -> {
-                                    android.widget.Toast.makeText(requireContext(),
-                                        "准备数据失败: " + e.getMessage(),
-                                        android.widget.Toast.LENGTH_SHORT).show();
-                                });
-                            }
-                        }).start();
-                    }
-                    
-                    @Override
-                    public void onError(Exception e) {
-                        android.util.Log.e("FileBrowserFragment", "创建播放列表失败", e);
-                        requireActivity().runOnUiThread(() -> {
-                            android.widget.Toast.makeText(requireContext(),
-                                "创建播放列表失败: " + e.getMessage(),
-                                android.widget.Toast.LENGTH_SHORT).show();
-                        });
-                    }
-                });
+                // 设置返回结果，通知MainFragment刷新播放列表
+                Intent resultIntent = new Intent();
+                requireActivity().setResult(android.app.Activity.RESULT_OK, resultIntent);
                 
+                // 返回首页
+                requireActivity().finish();
+            });
+        });
+    }
+
+    /**
+     * 获取选中目录的文件（递归或仅当前目录）
+     * 获取失败时返回空列表，跳过该目录，不影响其他目录
+     */
+    private CompletableFuture<List<FileInfo>> fetchDirectoryFiles(String accessToken, String dirPath, boolean recursive) {
+        CompletableFuture<List<FileInfo>> future = new CompletableFuture<>();
+        FileRepository.FileListCallback callback = new FileRepository.FileListCallback() {
+            @Override
+            public void onSuccess(List<FileInfo> files) {
+                android.util.Log.d("FileBrowserFragment", "获取目录 " + dirPath + " 成功，文件数量: " + (files != null ? files.size() : 0));
+                future.complete(files != null ? files : new ArrayList<>());
+            }
+            
+            @Override
+            public void onFailure(String errorMsg) {
+                android.util.Log.e("FileBrowserFragment", "获取目录文件失败: " + dirPath + ", " + errorMsg);
+                android.util.Log.w("FileBrowserFragment", "跳过失败的目录: " + dirPath);
+                future.complete(new ArrayList<>());
+            }
+        };
+        
+        FileRepository fileRepository = FileRepository.getInstance();
+        if (recursive) {
+            android.util.Log.d("FileBrowserFragment", "递归模式：开始递归获取目录: " + dirPath);
+            scanRequests.add(fileRepository.fetchFilesRecursive(accessToken, dirPath,
+                (dirsDone, filesFound) -> onScanProgress(dirPath, dirsDone, filesFound), callback));
+        } else {
+            android.util.Log.d("FileBrowserFragment", "非递归模式：只获取当前目录的文件: " + dirPath);
+            scanRequests.add(fileRepository.fetchFilesNonRecursive(accessToken, dirPath, callback));
+        }
+        return future;
+    }
+
+    /**
+     * 过滤出媒体文件（排除目录）
+     */
+    private List<FileInfo> filterMediaFiles(String dirPath, List<FileInfo> files) {
+        List<FileInfo> mediaFiles = new ArrayList<>();
+        for (FileInfo file : files) {
+            if (!file.isDirectory() && (file.isImage() || file.isVideo())) {
+                mediaFiles.add(file);
+            }
+        }
+        android.util.Log.d("FileBrowserFragment", "目录 " + dirPath + " 过滤前: " + files.size() + ", 过滤后: " + mediaFiles.size());
+        return mediaFiles;
+    }
+
+    /**
+     * 生成播放列表及播放列表项并写入数据库
+     * 播放列表项和封面在同一遍遍历中生成
+     * @return 写入的播放列表项数量
+     */
+    private CompletableFuture<Integer> savePlaylist(PlaylistRepository playlistRepository,
+                                                    Set<String> sourcePaths, List<FileInfo> allMediaFiles) {
+        // 生成播放列表名称（使用第一个目录名或默认名称）
+        String playlistName = "新建播放列表";
+        if (!sourcePaths.isEmpty()) {
+            String firstPath = sourcePaths.iterator().next();
+            playlistName = firstPath.substring(firstPath.lastIndexOf('/') + 1);
+        }
+        
+        // 创建播放列表项，同时查找封面（优先使用图片的缩略图，其次视频缩略图）
+        List<PlaylistItem> items = new ArrayList<>(allMediaFiles.size());
+        String imageCover = null;
+        String videoCover = null;
+        int sortOrder = 0;
+        for (FileInfo file : allMediaFiles) {
+            PlaylistItem item = new PlaylistItem();
+            item.setFilePath(file.getPath());
+            item.setFileName(file.getServerFilename());
+            item.setFsId(file.getFsId());
+            item.setMediaType(file.isImage() ? 2 : 1); // 1=视频, 2=图片
+            item.setSortOrder(sortOrder++);
+            item.setDuration(file.getSize()); // 暂时用文件大小代替时长
+            item.setFileSize(file.getSize());
+            items.add(item);
+            
+            if (file.getThumbs() != null && file.getThumbs().getUrl1() != null) {
+                if (imageCover == null && file.isImage()) {
+                    imageCover = file.getThumbs().getUrl1();
+                } else if (videoCover == null && file.isVideo()) {
+                    videoCover = file.getThumbs().getUrl1();
+                }
+            }
+        }
+        
+        String coverPath = imageCover != null ? imageCover : videoCover;
+        if (coverPath == null) {
+            android.util.Log.d("FileBrowserFragment", "没有找到缩略图，使用默认封面");
+            coverPath = ""; // 空字符串表示使用默认封面
+        } else {
+            android.util.Log.d("FileBrowserFragment", "使用缩略图作为封面: " + coverPath);
+        }
+        
+        // 创建播放列表
+        Playlist playlist = new Playlist();
+        playlist.setName(playlistName);
+        playlist.setCreatedAt(System.currentTimeMillis());
+        playlist.setLastPlayedAt(0);
+        playlist.setLastPlayedIndex(0);
+        playlist.setMediaType(0); // 0=混合
+        playlist.setTotalItems(items.size());
+        playlist.setTotalDuration(0); // 暂不计算总时长
+        playlist.setCoverImagePath(coverPath);
+        
+        // 保存源目录路径（JSON格式）
+        if (!sourcePaths.isEmpty()) {
+            try {
+                org.json.JSONArray jsonArray = new org.json.JSONArray(sourcePaths);
+                playlist.setSourcePaths(jsonArray.toString());
             } catch (Exception e) {
                 android.util.Log.e("FileBrowserFragment",
-                    "创建播放列表失败", e);
-                requireActivity().runOnUiThread(() -> {
-                    android.widget.Toast.makeText(requireContext(),
-                        "创建播放列表失败: " + e.getMessage(),
-                        android.widget.Toast.LENGTH_SHORT).show();
-                });
+                    "保存源路径失败", e);
             }
-        }).start();
+        }
+        
+        // 播放列表和播放列表项在同一个事务中插入
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        playlistRepository.createPlaylistWithItems(playlist, items, destroyed, new PlaylistRepository.InsertCallback() {
+            @Override
+            public void onSuccess(long id) {
+                android.util.Log.d("FileBrowserFragment", "播放列表创建成功，ID=" + id + ", 项数: " + items.size());
+                future.complete(items.size());
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
     }
-    
+
+    /**
+     * 汇总所有选中目录的扫描进度
+     */
+    private void onScanProgress(String rootPath, int dirsDone, int filesFound) {
+        scanProgress.put(rootPath, new int[]{dirsDone, filesFound});
+        int totalDirs = 0;
+        int totalFiles = 0;
+        for (int[] progress : scanProgress.values()) {
+            totalDirs += progress[0];
+            totalFiles += progress[1];
+        }
+        showScanProgress(totalDirs, totalFiles);
+    }
+
+    /**
+     * 显示递归扫描进度（在确认按钮上显示已完成目录数和已找到文件数）
+     */
+    private void showScanProgress(int dirsDone, int filesFound) {
+        if (!isAdded() || getActivity() == null) {
+            return;
+        }
+        requireActivity().runOnUiThread(() -> {
+            if (btnPlaySelected != null) {
+                btnPlaySelected.setText("扫描中: " + dirsDone + "个目录 / " + filesFound + "个文件");
+            }
+        });
+    }
+
     /**
      * 处理返回键
      */
@@ -9,11 +9,17 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.baidu.tv.player.auth.BaiduAuthService;
 import com.baidu.tv.player.model.FileInfo;
+import com.baidu.tv.player.repository.DirectoryPrefetcher;
 import com.baidu.tv.player.repository.FileRepository;
+import com.baidu.tv.player.repository.RequestHandle;
 import com.baidu.tv.player.utils.PreferenceUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 import java.util.Collections;
 import java.util.Comparator;
@@ -54,6 +60,8 @@ public class FileBrowserViewModel extends AndroidViewModel {
     private MutableLiveData<String> errorMessage;
     private MutableLiveData<String> currentPath;
     private MutableLiveData<SortMode> sortMode;
+    // 最近一次后台重新验证替换的列表（界面据此保持焦点，而不是回到第一项）
+    private List<FileInfo> revalidatedList;
     
     // 目录导航栈
     private Stack<String> pathStack;
@@ -64,9 +72,29 @@ public class FileBrowserViewModel extends AndroidViewModel {
     // 是否递归
     private boolean isRecursive;
 
+    // 加载序号，用于丢弃过期请求（如快速切换目录时）的分页结果
+    private int loadGeneration = 0;
+
+    // 当前目录的加载请求，切换目录或ViewModel销毁时取消
+    private RequestHandle currentRequest;
+
+    // 同时进行的目录预取数
+    private static final int PREFETCH_CONCURRENCY = 2;
+    // 列表显示后预取的前几个子目录数
+    private static final int PREFETCH_LEADING_DIRS = 3;
+
+    // 子目录列表预取（焦点停留或列表刚显示时）
+    private final DirectoryPrefetcher prefetcher;
+    // 最近一次加载使用的访问令牌，供预取使用
+    private String lastAccessToken;
+
+    // 已知目录的修改时间（来自已加载的目录列表），用于判断目录缓存是否仍然有效
+    private final Map<String, Long> knownDirMtimes = new HashMap<>();
+
     public FileBrowserViewModel(@NonNull Application application) {
         super(application);
         repository = FileRepository.getInstance();
+        prefetcher = new DirectoryPrefetcher(repository, PREFETCH_CONCURRENCY);
         fileList = new MutableLiveData<>();
         isLoading = new MutableLiveData<>();
         errorMessage = new MutableLiveData<>();
@@ -118,7 +146,14 @@ public class FileBrowserViewModel extends AndroidViewModel {
      * 对文件列表进行排序
      */
     private void sortFileList(List<FileInfo> files, SortMode mode) {
-        Collections.sort(files, (f1, f2) -> {
+        Collections.sort(files, getComparator(mode));
+    }
+
+    /**
+     * 获取排序比较器
+     */
+    private Comparator<FileInfo> getComparator(SortMode mode) {
+        return (f1, f2) -> {
             // 目录永远排在文件前面
             if (f1.isDirectory() && !f2.isDirectory()) return -1;
             if (!f1.isDirectory() && f2.isDirectory()) return 1;
@@ -135,7 +170,31 @@ public class FileBrowserViewModel extends AndroidViewModel {
                 default:
                     return 0;
             }
-        });
+        };
+    }
+
+    /**
+     * 归并两个已排序的列表（返回新列表，不修改入参）
+     * 相等元素优先保留已有列表中的顺序
+     */
+    private List<FileInfo> mergeSorted(List<FileInfo> existing, List<FileInfo> page, Comparator<FileInfo> comparator) {
+        List<FileInfo> merged = new ArrayList<>(existing.size() + page.size());
+        int i = 0;
+        int j = 0;
+        while (i < existing.size() && j < page.size()) {
+            if (comparator.compare(page.get(j), existing.get(i)) < 0) {
+                merged.add(page.get(j++));
+            } else {
+                merged.add(existing.get(i++));
+            }
+        }
+        while (i < existing.size()) {
+            merged.add(existing.get(i++));
+        }
+        while (j < page.size()) {
+            merged.add(page.get(j++));
+        }
+        return merged;
     }
     
     // 添加获取递归状态的LiveData封装，以便Fragment可以观察
@@ -145,6 +204,13 @@ public class FileBrowserViewModel extends AndroidViewModel {
         return isRecursiveLiveData;
     }
 
+    /**
+     * 列表是否为后台重新验证后替换的同一目录的新内容
+     */
+    public boolean isRevalidatedList(List<FileInfo> files) {
+        return files != null && files == revalidatedList;
+    }
+
     public LiveData<List<FileInfo>> getFileList() {
         return fileList;
     }
@@ -198,25 +264,220 @@ public class FileBrowserViewModel extends AndroidViewModel {
         String accessToken = authService.getAccessToken();
         android.util.Log.d("FileBrowserViewModel", "accessToken: " + (accessToken != null ? accessToken.substring(0, Math.min(20, accessToken.length())) + "..." : "null"));
 
-        LiveData<List<FileInfo>> result;
+        final int generation = ++loadGeneration;
+        cancelCurrentRequest();
+        // 真正的导航优先：取消其他目录的预取（目标目录的预取保留，加载时与其合并）
+        prefetcher.preempt(path);
+        lastAccessToken = accessToken;
+
         if (isRecursive) {
-            result = repository.getFileListRecursive(accessToken, path, mediaType);
+            // 递归模式：listall分页流式加载（不使用目录缓存）
+            loadFileListStreaming(accessToken, path, generation, 0, true);
         } else {
-            result = repository.getFileList(accessToken, path, mediaType);
+            loadFileListWithCache(accessToken, path, generation);
         }
+    }
+
+    /**
+     * 优先使用目录缓存：命中时立即显示，缓存过期则在后台重新验证
+     * 未命中时走流式加载
+     */
+    private void loadFileListWithCache(String accessToken, String path, int generation) {
+        Long mtime = knownDirMtimes.get(path);
+        final long knownDirMtime = mtime != null ? mtime : 0;
 
-        // 观察结果
-        result.observeForever(files -> {
-            android.util.Log.d("FileBrowserViewModel", "收到文件列表: " + (files != null ? files.size() : 0) + " 个文件");
-            if (files != null) {
-                sortFileList(files, sortMode.getValue());
+        repository.getCachedFileList(path, mediaType, knownDirMtime, (cachedFiles, fresh) -> {
+            if (generation != loadGeneration) {
+                return;
             }
-            fileList.setValue(files);
+            if (cachedFiles == null) {
+                loadFileListStreaming(accessToken, path, generation, knownDirMtime, false);
+                return;
+            }
+
+            List<FileInfo> sorted = new ArrayList<>(cachedFiles);
+            sortFileList(sorted, sortMode.getValue());
+            rememberDirMtimes(sorted);
+            fileList.setValue(sorted);
             currentPath.setValue(path);
             isLoading.setValue(false);
+            prefetchLeadingDirectories(sorted);
+
+            if (!fresh) {
+                revalidateFileList(accessToken, path, generation, knownDirMtime);
+            }
         });
     }
 
+    /**
+     * 后台重新验证目录缓存：加载完成后仅在内容有变化时替换当前列表
+     */
+    private void revalidateFileList(String accessToken, String path, int generation, long dirMtime) {
+        android.util.Log.d("FileBrowserViewModel", "后台重新验证目录: " + path);
+        final List<FileInfo> freshFiles = new ArrayList<>();
+
+        // 缓存已过期或目录已修改，跳过HTTP缓存直接从服务器获取
+        currentRequest = repository.getFileListStreaming(accessToken, path, mediaType, dirMtime, true, new FileRepository.PageCallback() {
+            @Override
+            public void onPage(List<FileInfo> page, int pageIndex) {
+                freshFiles.addAll(page);
+            }
+
+            @Override
+            public void onComplete(boolean hasMore) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                if (isSameListing(fileList.getValue(), freshFiles)) {
+                    android.util.Log.d("FileBrowserViewModel", "目录未变化: " + path);
+                    return;
+                }
+                android.util.Log.d("FileBrowserViewModel", "目录已变化，更新列表: " + path);
+                sortFileList(freshFiles, sortMode.getValue());
+                rememberDirMtimes(freshFiles);
+                revalidatedList = freshFiles;
+                fileList.setValue(freshFiles);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                // 重新验证失败时继续显示缓存内容
+                android.util.Log.w("FileBrowserViewModel", "后台重新验证失败: " + error);
+            }
+        });
+    }
+
+    /**
+     * 判断两个列表内容是否一致（按fsId、修改时间和大小比较，忽略顺序）
+     */
+    private boolean isSameListing(List<FileInfo> oldFiles, List<FileInfo> newFiles) {
+        if (oldFiles == null || oldFiles.size() != newFiles.size()) {
+            return false;
+        }
+        Set<String> keys = new HashSet<>();
+        for (FileInfo file : oldFiles) {
+            keys.add(file.getFsId() + ":" + file.getServerMtime() + ":" + file.getSize());
+        }
+        for (FileInfo file : newFiles) {
+            if (!keys.contains(file.getFsId() + ":" + file.getServerMtime() + ":" + file.getSize())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 记录列表中子目录的修改时间，供下次进入该目录时判断缓存是否有效
+     */
+    private void rememberDirMtimes(List<FileInfo> files) {
+        for (FileInfo file : files) {
+            if (file.isDirectory() && file.getServerMtime() > 0) {
+                knownDirMtimes.put(file.getPath(), file.getServerMtime());
+            }
+        }
+    }
+
+    /**
+     * 流式加载当前目录：每收到一页立即排序并归并到已显示的列表中
+     * 首页到达即结束加载状态，后续分页追加显示
+     */
+    private void loadFileListStreaming(String accessToken, String path, int generation, long dirMtime, boolean recursive) {
+        final boolean[] firstPage = {true};
+
+        FileRepository.PageCallback pageCallback = new FileRepository.PageCallback() {
+            @Override
+            public void onPage(List<FileInfo> page, int pageIndex) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                Comparator<FileInfo> comparator = getComparator(sortMode.getValue());
+                List<FileInfo> sortedPage = new ArrayList<>(page);
+                Collections.sort(sortedPage, comparator);
+                rememberDirMtimes(sortedPage);
+
+                List<FileInfo> current = firstPage[0] ? null : fileList.getValue();
+                List<FileInfo> merged = current != null
+                        ? mergeSorted(current, sortedPage, comparator)
+                        : sortedPage;
+                android.util.Log.d("FileBrowserViewModel", "收到第 " + (pageIndex + 1) + " 页: " + page.size() + " 个文件，累计 " + merged.size());
+
+                fileList.setValue(merged);
+                if (firstPage[0]) {
+                    firstPage[0] = false;
+                    currentPath.setValue(path);
+                    if (!recursive) {
+                        prefetchLeadingDirectories(merged);
+                    }
+                }
+                if (!merged.isEmpty()) {
+                    isLoading.setValue(false);
+                }
+            }
+
+            @Override
+            public void onComplete(boolean hasMore) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                isLoading.setValue(false);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                if (firstPage[0]) {
+                    fileList.setValue(new ArrayList<>());
+                    currentPath.setValue(path);
+                }
+                isLoading.setValue(false);
+            }
+        };
+
+        if (recursive) {
+            currentRequest = repository.getFileListRecursiveStreaming(accessToken, path, mediaType, pageCallback);
+        } else {
+            currentRequest = repository.getFileListStreaming(accessToken, path, mediaType, dirMtime, pageCallback);
+        }
+    }
+
+    /**
+     * 焦点在目录上停留一段时间后调用，优先预取该目录的列表
+     */
+    public void onDirectoryFocused(FileInfo dir) {
+        if (isRecursive || dir == null || !dir.isDirectory()) {
+            return;
+        }
+        prefetcher.prefetch(lastAccessToken, dir.getPath(), dir.getServerMtime(), true);
+    }
+
+    /**
+     * 预取列表中排在最前面的几个子目录（首屏可见的目录最可能被进入）
+     */
+    private void prefetchLeadingDirectories(List<FileInfo> files) {
+        int count = 0;
+        for (FileInfo file : files) {
+            if (count >= PREFETCH_LEADING_DIRS) {
+                break;
+            }
+            if (file.isDirectory()) {
+                prefetcher.prefetch(lastAccessToken, file.getPath(), file.getServerMtime(), false);
+                count++;
+            }
+        }
+    }
+
+    /**
+     * 取消正在进行的目录加载（停止后续分页和网络请求）
+     */
+    private void cancelCurrentRequest() {
+        if (currentRequest != null) {
+            currentRequest.cancel();
+            currentRequest = null;
+        }
+    }
+
     /**
      * 进入目录
      */
@@ -256,4 +517,12 @@ public class FileBrowserViewModel extends AndroidViewModel {
         }
         return files;
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        // 界面已销毁，停止仍在进行的加载和预取，避免继续占用带宽和内存
+        cancelCurrentRequest();
+        prefetcher.cancelAll();
+    }
+}
@@ -255,26 +255,33 @@ public class MainFragment extends Fragment {
             android.widget.Toast.LENGTH_SHORT).show();
         
         // 执行刷新操作（BaiduAuthService会在PlaylistRepository内部处理认证）
-        playlistRepository.refreshPlaylist(playlist,
-            () -> {
+        playlistRepository.refreshPlaylist(playlist, new PlaylistRepository.RefreshCallback() {
+            @Override
+            public void onSuccess(PlaylistRepository.RefreshResult result) {
                 // 刷新成功
-                requireActivity().runOnUiThread(() -> {
-                    android.widget.Toast.makeText(requireContext(),
-                        "播放列表刷新成功",
-                        android.widget.Toast.LENGTH_SHORT).show();
-                    
-                    // 刷新播放列表显示
-                    loadPlaylists();
-                });
-            },
-            () -> {
+                if (!isAdded()) {
+                    return;
+                }
+                android.widget.Toast.makeText(requireContext(),
+                    "播放列表刷新成功：新增 " + result.added + "，删除 " + result.removed
+                        + "，更新 " + result.updated + "，未变化 " + result.unchanged,
+                    android.widget.Toast.LENGTH_SHORT).show();
+                
+                // 刷新播放列表显示
+                loadPlaylists();
+            }
+
+            @Override
+            public void onError(Exception e) {
                 // 刷新失败
-                requireActivity().runOnUiThread(() -> {
-                    android.widget.Toast.makeText(requireContext(),
-                        "刷新播放列表失败，请检查网络连接或重新登录",
-                        android.widget.Toast.LENGTH_SHORT).show();
-                });
-            });
+                if (!isAdded()) {
+                    return;
+                }
+                android.widget.Toast.makeText(requireContext(),
+                    "刷新播放列表失败，请检查网络连接或重新登录",
+                    android.widget.Toast.LENGTH_SHORT).show();
+            }
+        });
     }
     
     /**
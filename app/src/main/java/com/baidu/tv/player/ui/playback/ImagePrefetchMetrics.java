@@ -0,0 +1,109 @@
+package com.baidu.tv.player.ui.playback;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 图片预加载运行指标
+ * 记录幻灯片切换时图片是否已提前准备好（直接命中内存缓存）、未准备好时的等待时间，
+ * 以及预加载的发起/完成/失败/取消次数，用于评估预加载深度K是否合适
+ */
+public class ImagePrefetchMetrics {
+
+    private static ImagePrefetchMetrics instance;
+
+    // 显示过的图片数
+    private final AtomicLong slidesShown = new AtomicLong();
+    // 切换时已准备好（命中内存缓存）的图片数
+    private final AtomicLong slidesReadyInTime = new AtomicLong();
+    // 未准备好的图片累计等待时间
+    private final AtomicLong lateWaitMs = new AtomicLong();
+    // 发起的预加载数
+    private final AtomicLong prefetchesStarted = new AtomicLong();
+    private final AtomicLong prefetchesCompleted = new AtomicLong();
+    private final AtomicLong prefetchesFailed = new AtomicLong();
+    // 播放顺序变化后不再需要而取消的预加载数
+    private final AtomicLong prefetchesCancelled = new AtomicLong();
+    // 当前预加载深度和平均加载耗时（由ImagePrefetcher更新）
+    private volatile int prefetchDepth;
+    private volatile long averageLoadMs;
+
+    private ImagePrefetchMetrics() {
+    }
+
+    public static synchronized ImagePrefetchMetrics getInstance() {
+        if (instance == null) {
+            instance = new ImagePrefetchMetrics();
+        }
+        return instance;
+    }
+
+    /**
+     * 记录一张图片显示出来
+     * @param readyInTime 是否在切换时已准备好
+     * @param waitMs 从开始切换到图片显示的耗时
+     */
+    void recordSlideShown(boolean readyInTime, long waitMs) {
+        slidesShown.incrementAndGet();
+        if (readyInTime) {
+            slidesReadyInTime.incrementAndGet();
+        } else {
+            lateWaitMs.addAndGet(waitMs);
+        }
+    }
+
+    void recordPrefetchStarted() {
+        prefetchesStarted.incrementAndGet();
+    }
+
+    void recordPrefetchCompleted() {
+        prefetchesCompleted.incrementAndGet();
+    }
+
+    void recordPrefetchFailed() {
+        prefetchesFailed.incrementAndGet();
+    }
+
+    void recordPrefetchCancelled() {
+        prefetchesCancelled.incrementAndGet();
+    }
+
+    void setPrefetchState(int depth, long averageLoadMs) {
+        this.prefetchDepth = depth;
+        this.averageLoadMs = averageLoadMs;
+    }
+
+    /**
+     * 切换时图片已准备好的比例（0~1），还没有显示过图片时返回0
+     */
+    public double getReadyRatio() {
+        long shown = slidesShown.get();
+        return shown > 0 ? (double) slidesReadyInTime.get() / shown : 0;
+    }
+
+    /**
+     * 获取指标摘要
+     */
+    public String getSummary() {
+        long late = slidesShown.get() - slidesReadyInTime.get();
+        return String.format(Locale.US, "图片预加载: 显示=%d, 按时就绪=%d (%.1f%%), 未就绪平均等待=%dms, "
+                        + "预加载 发起=%d/完成=%d/失败=%d/取消=%d, 深度K=%d, 平均加载=%dms",
+                slidesShown.get(), slidesReadyInTime.get(), getReadyRatio() * 100,
+                late > 0 ? lateWaitMs.get() / late : 0,
+                prefetchesStarted.get(), prefetchesCompleted.get(), prefetchesFailed.get(),
+                prefetchesCancelled.get(), prefetchDepth, averageLoadMs);
+    }
+
+    /**
+     * 重置计数
+     */
+    public void reset() {
+        slidesShown.set(0);
+        slidesReadyInTime.set(0);
+        lateWaitMs.set(0);
+        prefetchesStarted.set(0);
+        prefetchesCompleted.set(0);
+        prefetchesFailed.set(0);
+        prefetchesCancelled.set(0);
+    }
+}
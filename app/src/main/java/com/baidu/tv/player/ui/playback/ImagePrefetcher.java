@@ -0,0 +1,288 @@
+package com.baidu.tv.player.ui.playback;
+
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.fragment.app.FragmentActivity;
+
+import com.baidu.tv.player.model.FileInfo;
+import com.baidu.tv.player.utils.ImageDecodePolicy;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 幻灯片图片预加载
+ * 按真实的播放顺序（顺序、倒序或随机顺序）提前获取接下来K张图片的dlink并用Glide预加载，
+ * 解码时直接缩小到屏幕尺寸（并受 ImageDecodePolicy 的最大解码尺寸限制）。
+ * 预加载和显示使用同样的请求参数（按fsId缓存、相同的尺寸和缩放方式），轮到该图片时直接命中Glide内存缓存；
+ * 预加载还没完成时，显示请求会合并到同一个加载任务上。
+ * K根据实测的加载耗时（获取dlink+下载+解码）与图片展示时长自动调整，并受内存缓存容量限制。
+ * 只在主线程调用。
+ */
+public class ImagePrefetcher {
+    private static final String TAG = "ImagePrefetcher";
+
+    private static final int MIN_DEPTH = 1;
+    private static final int MAX_DEPTH = 5;
+    // 还没有测量到加载耗时时假设的耗时
+    private static final long INITIAL_LOAD_MS = 2000;
+    // 加载耗时的指数滑动平均系数
+    private static final double LOAD_TIME_SMOOTHING = 0.3;
+
+    private final FragmentActivity activity;
+    private final PlaybackViewModel viewModel;
+    private final RequestManager requestManager;
+    // 图片显示区域（全屏），预加载时用它的尺寸解码
+    private final View sizeReference;
+    private final ImageDecodePolicy decodePolicy;
+    private final ImagePrefetchMetrics metrics = ImagePrefetchMetrics.getInstance();
+
+    // 正在预加载的图片：fsId -> 任务
+    private final Map<Long, PendingLoad> inFlight = new HashMap<>();
+    // 已预加载完成、还没有显示的图片
+    private final Set<Long> prepared = new LinkedHashSet<>();
+    private double averageLoadMs = -1;
+
+    private static final class PendingLoad {
+        final long startTime = SystemClock.elapsedRealtime();
+        Target<Drawable> target;
+    }
+
+    /**
+     * 按fsId缓存的图片地址：dlink中的token会变化，Glide的内存缓存和磁盘缓存都以fsId为key
+     */
+    private static final class FsIdGlideUrl extends GlideUrl {
+        private final String cacheKey;
+
+        FsIdGlideUrl(String url, long fsId) {
+            super(url);
+            this.cacheKey = "fsid:" + fsId;
+        }
+
+        @Override
+        public String getCacheKey() {
+            return cacheKey;
+        }
+    }
+
+    public ImagePrefetcher(FragmentActivity activity, PlaybackViewModel viewModel, View sizeReference) {
+        this.activity = activity;
+        this.viewModel = viewModel;
+        this.sizeReference = sizeReference;
+        this.requestManager = Glide.with(activity);
+        this.decodePolicy = ImageDecodePolicy.getInstance(activity);
+    }
+
+    /**
+     * 创建图片加载请求，显示和预加载都必须通过这里创建，才能命中同一个缓存
+     * @param fsId 文件fsId，未知时传0（只按URL缓存）
+     */
+    public RequestBuilder<Drawable> buildRequest(long fsId, String url) {
+        int[] size = getTargetSize();
+        Object model = fsId > 0 ? new FsIdGlideUrl(url, fsId) : url;
+        // 显式指定缩放方式，into(ImageView)时不会再按scaleType追加变换，保证与预加载的缓存key一致
+        return requestManager.load(model)
+                .override(size[0], size[1])
+                .fitCenter();
+    }
+
+    /**
+     * 一张图片显示出来（图片加载完成时调用）
+     * @param readyInTime 是否直接命中了内存缓存
+     * @param waitMs 从开始切换到图片显示的耗时
+     */
+    public void onSlideShown(long fsId, boolean readyInTime, long waitMs) {
+        prepared.remove(fsId);
+        metrics.recordSlideShown(readyInTime, waitMs);
+        if (!readyInTime) {
+            Log.d(TAG, "图片未按时就绪, fsId=" + fsId + ", 等待=" + waitMs + "ms, K=" + computeDepth());
+        }
+    }
+
+    /**
+     * 预加载按播放顺序接下来的K张图片，不再排在前K个的预加载会被取消
+     */
+    public void prefetchUpcoming(String accessToken) {
+        if (accessToken == null || activity.isFinishing()) {
+            return;
+        }
+        int depth = computeDepth();
+        List<FileInfo> upcoming = viewModel.getUpcomingFiles(depth);
+        Set<Long> wanted = new HashSet<>();
+        List<FileInfo> images = new ArrayList<>();
+        for (FileInfo file : upcoming) {
+            if (file.isImage()) {
+                wanted.add(file.getFsId());
+                images.add(file);
+            }
+        }
+
+        // 播放顺序变化（切换模式、跳转）后不再需要的预加载
+        Iterator<Map.Entry<Long, PendingLoad>> it = inFlight.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, PendingLoad> entry = it.next();
+            if (!wanted.contains(entry.getKey())) {
+                if (entry.getValue().target != null) {
+                    requestManager.clear(entry.getValue().target);
+                }
+                it.remove();
+                metrics.recordPrefetchCancelled();
+            }
+        }
+        prepared.retainAll(wanted);
+
+        for (FileInfo file : images) {
+            long fsId = file.getFsId();
+            if (!inFlight.containsKey(fsId) && !prepared.contains(fsId)) {
+                start(accessToken, file);
+            }
+        }
+    }
+
+    /**
+     * 取消所有预加载（界面销毁时）
+     */
+    public void cancelAll() {
+        for (PendingLoad pending : inFlight.values()) {
+            if (pending.target != null) {
+                requestManager.clear(pending.target);
+            }
+        }
+        inFlight.clear();
+        prepared.clear();
+    }
+
+    private void start(String accessToken, FileInfo file) {
+        final long fsId = file.getFsId();
+        final PendingLoad pending = new PendingLoad();
+        inFlight.put(fsId, pending);
+        metrics.recordPrefetchStarted();
+
+        viewModel.prepareUpcomingUrl(accessToken, file, new PlaybackViewModel.UpcomingUrlCallback() {
+            @Override
+            public void onReady(FileInfo resolvedFile, String url) {
+                load(fsId, pending, url);
+            }
+
+            @Override
+            public void onFailure(FileInfo failedFile, String error) {
+                // 移除任务，仍在预加载窗口内时下次会重新获取
+                if (inFlight.get(fsId) == pending) {
+                    inFlight.remove(fsId);
+                    metrics.recordPrefetchFailed();
+                }
+            }
+        });
+    }
+
+    /**
+     * 用获取到的地址预加载图片
+     */
+    private void load(long fsId, PendingLoad pending, String url) {
+        // 获取dlink期间已被取消
+        if (inFlight.get(fsId) != pending || activity.isFinishing()) {
+            return;
+        }
+        Target<Drawable> target = buildRequest(fsId, url)
+                .listener(new RequestListener<Drawable>() {
+                    @Override
+                    public boolean onLoadFailed(@Nullable GlideException e, Object model,
+                                                Target<Drawable> target, boolean isFirstResource) {
+                        if (inFlight.get(fsId) == pending) {
+                            inFlight.remove(fsId);
+                        }
+                        metrics.recordPrefetchFailed();
+                        Log.w(TAG, "图片预加载失败, fsId=" + fsId + ": " + (e != null ? e.getMessage() : ""));
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                                   DataSource dataSource, boolean isFirstResource) {
+                        if (inFlight.get(fsId) == pending) {
+                            inFlight.remove(fsId);
+                        }
+                        prepared.add(fsId);
+                        metrics.recordPrefetchCompleted();
+                        // 已在内存缓存中的不计入耗时，避免拉低平均值
+                        if (dataSource != DataSource.MEMORY_CACHE) {
+                            recordLoadTime(SystemClock.elapsedRealtime() - pending.startTime);
+                        }
+                        return false;
+                    }
+                })
+                .preload();
+        // 命中内存缓存时preload()内已同步完成
+        if (inFlight.get(fsId) == pending) {
+            pending.target = target;
+        }
+    }
+
+    private void recordLoadTime(long loadMs) {
+        if (averageLoadMs < 0) {
+            averageLoadMs = loadMs;
+        } else {
+            averageLoadMs = LOAD_TIME_SMOOTHING * loadMs + (1 - LOAD_TIME_SMOOTHING) * averageLoadMs;
+        }
+    }
+
+    /**
+     * 计算预加载深度K
+     * 一张图片从开始加载到可以显示平均需要L毫秒、每张展示D毫秒时，至少要提前 ceil(L/D) 张开始加载，
+     * 再多留一张余量应对加载时间的波动；同时不能超过内存缓存能容纳的图片数，否则预加载的图片会互相挤出缓存
+     */
+    private int computeDepth() {
+        Integer duration = viewModel.getImageDisplayDuration().getValue();
+        long displayMs = duration != null && duration > 0 ? duration : 5000;
+        double loadMs = averageLoadMs >= 0 ? averageLoadMs : INITIAL_LOAD_MS;
+
+        int depth = (int) Math.ceil(loadMs / displayMs) + 1;
+        depth = Math.min(depth, MAX_DEPTH);
+        depth = Math.min(depth, getMemoryLimitedDepth());
+        depth = Math.max(depth, MIN_DEPTH);
+        metrics.setPrefetchState(depth, (long) loadMs);
+        return depth;
+    }
+
+    /**
+     * 内存缓存能同时容纳的预加载图片数（留出一张给正在显示的图片）
+     */
+    private int getMemoryLimitedDepth() {
+        int[] size = getTargetSize();
+        long bytesPerImage = (long) size[0] * size[1] * decodePolicy.getBytesPerPixel();
+        return (int) Math.max(1, decodePolicy.getMemoryCacheBytes() / bytesPerImage - 1);
+    }
+
+    /**
+     * 图片解码的目标尺寸：显示区域的尺寸（还没有完成布局时使用屏幕尺寸），再按解码策略限制最大尺寸
+     */
+    private int[] getTargetSize() {
+        int width = sizeReference.getWidth();
+        int height = sizeReference.getHeight();
+        if (width <= 0 || height <= 0) {
+            DisplayMetrics displayMetrics = activity.getResources().getDisplayMetrics();
+            width = displayMetrics.widthPixels;
+            height = displayMetrics.heightPixels;
+        }
+        return decodePolicy.limitDecodeSize(width, height);
+    }
+}
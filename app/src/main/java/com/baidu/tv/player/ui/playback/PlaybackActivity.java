@@ -26,6 +26,7 @@ import androidx.fragment.app.FragmentActivity;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.baidu.tv.player.R;
+import com.baidu.tv.player.model.CompactMediaList;
 import com.baidu.tv.player.model.FileInfo;
 import com.baidu.tv.player.effects.ImageEffectFactory;
 import com.baidu.tv.player.effects.ImageEffectStrategy;
@@ -39,9 +40,10 @@ import com.baidu.tv.player.repository.PlaylistRepository;
 import com.baidu.tv.player.utils.LocationUtils;
 import com.baidu.tv.player.ui.view.BlindsImageView;
 import com.baidu.tv.player.utils.PlaylistCache;
+import com.baidu.tv.player.utils.VideoCacheManager;
+import com.baidu.tv.player.utils.VideoPreloader;
 import com.baidu.tv.player.utils.ImageBackgroundUtils;
 import com.baidu.tv.player.utils.PreferenceUtils;
-import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
 import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.target.Target;
@@ -101,6 +103,12 @@ public class PlaybackActivity extends FragmentActivity {
     // ExoPlayer 播放器 (主力播放器)
     private ExoPlayer exoPlayer;
     
+    // 下一个视频的预缓冲（视频缓存关闭时为null）
+    private VideoPreloader videoPreloader;
+    
+    // 接下来几张图片的预加载
+    private ImagePrefetcher imagePrefetcher;
+    
     // 播放模式：true使用VLC，false使用ExoPlayer
     // 默认使用 ExoPlayer (主力播放器)，失败时切换到 VLC
     private boolean useVlc = false;
@@ -115,6 +123,8 @@ public class PlaybackActivity extends FragmentActivity {
     
     // 当前播放的URL
     private String currentMediaUrl = null;
+    // 是否已因链接失效重新获取过dlink（避免无限重试）
+    private boolean dlinkRefreshAttempted = false;
     
     // 记录最后一次prepare的时间，用于性能分析
     private long lastPrepareTime = 0;
@@ -396,6 +406,7 @@ public class PlaybackActivity extends FragmentActivity {
                         loadingIndicator.setVisibility(View.GONE);
                         updatePlayPauseButton(true);
                         startProgressUpdate();
+                        prefetchUpcomingMedia();
                         break;
                     case MediaPlayer.Event.Paused:
                         updatePlayPauseButton(false);
@@ -483,22 +494,42 @@ public class PlaybackActivity extends FragmentActivity {
             // 使用标准的User-Agent，模拟Android设备，避免被服务器识别为异常客户端
             String userAgent = com.google.android.exoplayer2.util.Util.getUserAgent(this, "BaiduTVPlayer");
             
-            com.google.android.exoplayer2.upstream.DefaultHttpDataSource.Factory httpDataSourceFactory =
-                new com.google.android.exoplayer2.upstream.DefaultHttpDataSource.Factory()
-                    .setUserAgent(userAgent)
-                    .setConnectTimeoutMs(15000) // 减少连接超时到15秒
-                    .setReadTimeoutMs(15000)    // 减少读取超时到15秒
-                    .setAllowCrossProtocolRedirects(true)
-                    .setKeepPostFor302Redirects(true);
+            // 基于全局共享的OkHttpClient，与API请求、缩略图复用连接池和DNS缓存（OkHttp默认跟随跨协议重定向）
+            okhttp3.OkHttpClient mediaHttpClient = com.baidu.tv.player.network.HttpClientProvider.getSharedClient()
+                .newBuilder()
+                .connectTimeout(15, java.util.concurrent.TimeUnit.SECONDS) // 减少连接超时到15秒
+                .readTimeout(15, java.util.concurrent.TimeUnit.SECONDS)    // 减少读取超时到15秒
+                .build();
+            
+            // PCS对单个连接限速：在设置中开启后用多条连接分段并行下载，服务器不支持Range时自动退回单连接
+            com.google.android.exoplayer2.upstream.DataSource.Factory httpDataSourceFactory;
+            if (PreferenceUtils.getParallelVideoDownload(this)) {
+                httpDataSourceFactory = new com.baidu.tv.player.network.ParallelRangeDataSource.Factory(mediaHttpClient)
+                    .setUserAgent(userAgent);
+            } else {
+                httpDataSourceFactory = new com.google.android.exoplayer2.ext.okhttp.OkHttpDataSource.Factory(mediaHttpClient)
+                    .setUserAgent(userAgent);
+            }
             
             // 使用带带宽测量的DataSource，有助于ExoPlayer调整缓冲策略
             com.google.android.exoplayer2.upstream.DefaultBandwidthMeter bandwidthMeter =
                 new com.google.android.exoplayer2.upstream.DefaultBandwidthMeter.Builder(this).build();
                 
-            com.google.android.exoplayer2.upstream.DefaultDataSource.Factory dataSourceFactory =
+            com.google.android.exoplayer2.upstream.DefaultDataSource.Factory upstreamFactory =
                 new com.google.android.exoplayer2.upstream.DefaultDataSource.Factory(this, httpDataSourceFactory)
                     .setTransferListener(bandwidthMeter);
             
+            // 外包一层按fsId缓存的磁盘缓存，循环播放和回退进度时直接读取本地数据
+            com.google.android.exoplayer2.upstream.DataSource.Factory dataSourceFactory =
+                VideoCacheManager.getInstance().createDataSourceFactory(upstreamFactory);
+            
+            // 预缓冲与播放器写入同一个缓存，切换到下一个视频时直接命中
+            com.google.android.exoplayer2.upstream.cache.CacheDataSource.Factory preloadFactory =
+                VideoCacheManager.getInstance().createCacheDataSourceFactory(upstreamFactory);
+            if (preloadFactory != null) {
+                videoPreloader = new VideoPreloader(preloadFactory);
+            }
+            
             exoPlayer = new ExoPlayer.Builder(this)
                 .setRenderersFactory(renderersFactory)
                 .setLoadControl(loadControl)
@@ -523,6 +554,15 @@ public class PlaybackActivity extends FragmentActivity {
                     android.util.Log.e("PlaybackActivity", "ExoPlayer error: " + error.getMessage(), error);
                     android.util.Log.e("PlaybackActivity", "Error type: " + error.errorCode);
                     
+                    // dlink过期（403/410等）：清除缓存后重新获取链接，只重试一次
+                    if (isExpiredLinkError(error) && !dlinkRefreshAttempted) {
+                        android.util.Log.w("PlaybackActivity", "播放链接已失效，重新获取dlink");
+                        dlinkRefreshAttempted = true;
+                        viewModel.invalidateCurrentDlink();
+                        playCurrentFile();
+                        return;
+                    }
+                    
                     // 特别处理解码器错误
                     if (error.errorCode == com.google.android.exoplayer2.PlaybackException.ERROR_CODE_DECODING_FAILED ||
                         error.errorCode == com.google.android.exoplayer2.PlaybackException.ERROR_CODE_DECODER_INIT_FAILED) {
@@ -572,6 +612,7 @@ public class PlaybackActivity extends FragmentActivity {
                     android.util.Log.d("PlaybackActivity", "ExoPlayer state changed: " + stateName);
                     
                     if (playbackState == Player.STATE_READY) {
+                        dlinkRefreshAttempted = false;
                         long readyTime = System.currentTimeMillis();
                         android.util.Log.d("PlaybackActivity", "ExoPlayer is ready, hiding loading indicator");
                         android.util.Log.d("PlaybackActivity", "从prepare到READY的总耗时: " +
@@ -607,6 +648,8 @@ public class PlaybackActivity extends FragmentActivity {
                         updateProgress();
                         // ExoPlayer 成功播放，重置错误计数
                         exoErrorCount = 0;
+                        // 当前视频起播后再预加载后面的文件，避免争抢起播带宽
+                        prefetchUpcomingMedia();
                     } else if (playbackState == Player.STATE_BUFFERING) {
                         android.util.Log.d("PlaybackActivity", "ExoPlayer is buffering, showing loading indicator");
                         loadingIndicator.setVisibility(View.VISIBLE);
@@ -624,6 +667,18 @@ public class PlaybackActivity extends FragmentActivity {
         }
     }
 
+    /**
+     * 判断是否为播放链接失效导致的错误（HTTP 403/410）
+     */
+    private boolean isExpiredLinkError(com.google.android.exoplayer2.PlaybackException error) {
+        Throwable cause = error.getCause();
+        if (cause instanceof com.google.android.exoplayer2.upstream.HttpDataSource.InvalidResponseCodeException) {
+            int code = ((com.google.android.exoplayer2.upstream.HttpDataSource.InvalidResponseCodeException) cause).responseCode;
+            return code == 403 || code == 410;
+        }
+        return false;
+    }
+
     /**
      * 处理 ExoPlayer 播放错误，尝试切换到 VLC
      */
@@ -666,6 +721,7 @@ public class PlaybackActivity extends FragmentActivity {
 
     private void initViewModel() {
         viewModel = new ViewModelProvider(this).get(PlaybackViewModel.class);
+        imagePrefetcher = new ImagePrefetcher(this, viewModel, findViewById(android.R.id.content));
         
         // 初始化播放器指示器（在 viewModel 创建后）
         updatePlayerIndicator();
@@ -680,6 +736,7 @@ public class PlaybackActivity extends FragmentActivity {
         // 观察当前索引
         viewModel.getCurrentIndex().observe(this, index -> {
             if (index != null) {
+                dlinkRefreshAttempted = false;
                 playCurrentFile();
             }
         });
@@ -826,31 +883,27 @@ public class PlaybackActivity extends FragmentActivity {
                             // 从数据库获取播放列表项
                             List<PlaylistItem> playlistItems = playlistRepository.getPlaylistItemsSync(playlistDatabaseId);
                             
-                            // 转换为FileInfo列表（需要实时获取dlink）
-                            List<FileInfo> files = new ArrayList<>();
+                            // 直接构建紧凑播放列表，不为每个条目创建FileInfo（dlink为空，播放时通过prepareMediaUrl获取）
+                            CompactMediaList.Builder builder = new CompactMediaList.Builder(playlistItems.size());
                             for (PlaylistItem item : playlistItems) {
-                                FileInfo fileInfo = new FileInfo();
-                                fileInfo.setPath(item.getFilePath());
-                                fileInfo.setServerFilename(item.getFileName());
-                                fileInfo.setFsId(item.getFsId());
-                                fileInfo.setSize(item.getFileSize());
-                                fileInfo.setDlink(null); // 显式置空，强制使用prepareMediaUrl获取
-                                
                                 // 根据文件扩展名判断媒体类型
+                                byte type = CompactMediaList.TYPE_OTHER;
                                 String fileName = item.getFileName().toLowerCase();
                                 if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg") ||
                                     fileName.endsWith(".png") || fileName.endsWith(".gif") ||
                                     fileName.endsWith(".bmp") || fileName.endsWith(".webp")) {
-                                    fileInfo.setCategory(3); // 图片
+                                    type = CompactMediaList.TYPE_IMAGE;
                                 } else if (fileName.endsWith(".mp4") || fileName.endsWith(".avi") ||
                                            fileName.endsWith(".mkv") || fileName.endsWith(".mov") ||
                                            fileName.endsWith(".wmv") || fileName.endsWith(".flv") ||
                                            fileName.endsWith(".webm") || fileName.endsWith(".m4v")) {
-                                    fileInfo.setCategory(1); // 视频
+                                    type = CompactMediaList.TYPE_VIDEO;
                                 }
                                 
-                                files.add(fileInfo);
+                                builder.add(item.getFsId(), item.getFilePath(), item.getFileName(),
+                                        item.getFileSize(), type, null);
                             }
+                            CompactMediaList files = builder.build();
                             
                             android.util.Log.d("PlaybackActivity", "从数据库加载播放列表: " + files.size() + " 个文件");
                             
@@ -880,7 +933,7 @@ public class PlaybackActivity extends FragmentActivity {
             } else {
                 // 优先从缓存加载播放列表
                 String playlistId = getIntent().getStringExtra("playlistId");
-                List<FileInfo> files = null;
+                CompactMediaList files = null;
                 
                 if (playlistId != null) {
                     // 从缓存中获取并移除播放列表（一次性使用）
@@ -889,7 +942,10 @@ public class PlaybackActivity extends FragmentActivity {
                 
                 // 如果缓存中没有，则尝试从Intent中获取（兼容旧版本）
                 if (files == null) {
-                    files = getIntent().getParcelableArrayListExtra("files");
+                    List<FileInfo> legacyFiles = getIntent().getParcelableArrayListExtra("files");
+                    if (legacyFiles != null) {
+                        files = CompactMediaList.fromFiles(legacyFiles);
+                    }
                 }
                 
                 if (files != null && !files.isEmpty()) {
@@ -981,6 +1037,11 @@ public class PlaybackActivity extends FragmentActivity {
         // 停止之前的播放
         stopCurrentPlayback();
         
+        // 取消未完成的预缓冲，由播放器接着下载（已缓存的部分直接读取）
+        if (videoPreloader != null) {
+            videoPreloader.cancel();
+        }
+        
         // 立即隐藏之前的地点信息
         tvLocation.setVisibility(View.GONE);
         tvLocation.setAlpha(1.0f); // 重置透明度
@@ -1072,8 +1133,13 @@ public class PlaybackActivity extends FragmentActivity {
                 // 清除之前的媒体项，防止上一个视频的帧残留
                 exoPlayer.clearMediaItems();
                 
-                MediaItem mediaItem = MediaItem.fromUri(videoUrl);
-                exoPlayer.setMediaItem(mediaItem);
+                // 缓存key使用fsId：dlink中的token和签名会变化，同一个文件仍能命中缓存
+                MediaItem.Builder mediaItemBuilder = new MediaItem.Builder().setUri(videoUrl);
+                FileInfo currentFile = viewModel.getCurrentFile();
+                if (currentFile != null) {
+                    mediaItemBuilder.setCustomCacheKey(VideoCacheManager.cacheKeyFor(currentFile.getFsId()));
+                }
+                exoPlayer.setMediaItem(mediaItemBuilder.build());
                 
                 // 记录prepare开始时间
                 lastPrepareTime = System.currentTimeMillis();
@@ -1095,6 +1161,31 @@ public class PlaybackActivity extends FragmentActivity {
         }
     }
 
+    /**
+     * 当前文件开始显示后，按播放顺序预加载接下来的图片和下一个视频
+     */
+    private void prefetchUpcomingMedia() {
+        String accessToken = authRepository.getAccessToken();
+        imagePrefetcher.prefetchUpcoming(accessToken);
+        preloadUpcomingVideo(accessToken);
+    }
+
+    /**
+     * 预缓冲按播放模式排在下一个的视频
+     * 把开头一段数据写入视频缓存，切换过去时不必重新建立连接和起播缓冲
+     */
+    private void preloadUpcomingVideo(String accessToken) {
+        if (videoPreloader == null || !PreferenceUtils.getPreloadNextVideo(this)) {
+            return;
+        }
+        viewModel.prepareUpcomingVideoUrl(accessToken, (file, url) -> {
+            if (videoPreloader != null && !isFinishing()) {
+                android.util.Log.d("PlaybackActivity", "预缓冲下一个视频: " + file.getServerFilename());
+                videoPreloader.preload(file.getFsId(), url, file.getSize());
+            }
+        });
+    }
+
     /**
      * 使用URL播放图片
      */
@@ -1133,12 +1224,25 @@ public class PlaybackActivity extends FragmentActivity {
                 transitionOptions = DrawableTransitionOptions.withCrossFade(300);
             }
             
-            Glide.with(this)
-                    .load(imageUrl)
+            // 与预加载使用同样的请求参数（按fsId缓存、缩小到屏幕尺寸解码），预加载过的图片直接命中内存缓存
+            FileInfo slideFile = viewModel.getCurrentFile();
+            final long slideFsId = slideFile != null ? slideFile.getFsId() : 0;
+            final long slideStartTime = android.os.SystemClock.elapsedRealtime();
+            imagePrefetcher.buildRequest(slideFsId, imageUrl)
                     .transition(transitionOptions)
                     .listener(new RequestListener<android.graphics.drawable.Drawable>() {
                         @Override
                         public boolean onLoadFailed(@androidx.annotation.Nullable com.bumptech.glide.load.engine.GlideException e, Object model, Target<android.graphics.drawable.Drawable> target, boolean isFirstResource) {
+                            // 图片链接失效（403）时清除dlink缓存，下次播放到该图片时重新获取
+                            if (e != null) {
+                                for (Throwable cause : e.getRootCauses()) {
+                                    if (cause instanceof com.bumptech.glide.load.HttpException
+                                            && ((com.bumptech.glide.load.HttpException) cause).getStatusCode() == 403) {
+                                        viewModel.invalidateCurrentDlink();
+                                        break;
+                                    }
+                                }
+                            }
                             return false;
                         }
 
@@ -1152,6 +1256,13 @@ public class PlaybackActivity extends FragmentActivity {
                             
                             // 更新背景（主色调或毛玻璃效果）
                             updateImageBackground(resource);
+                            
+                            // 记录切换时图片是否已提前准备好
+                            imagePrefetcher.onSlideShown(slideFsId, dataSource == com.bumptech.glide.load.DataSource.MEMORY_CACHE,
+                                android.os.SystemClock.elapsedRealtime() - slideStartTime);
+                            
+                            // 图片展示期间预加载后面的图片和视频
+                            prefetchUpcomingMedia();
                             return false;
                         }
                     })
@@ -1743,6 +1854,13 @@ public class PlaybackActivity extends FragmentActivity {
         if (exoPlayer != null) {
             exoPlayer.release();
         }
+        if (videoPreloader != null) {
+            videoPreloader.release();
+            videoPreloader = null;
+        }
+        if (imagePrefetcher != null) {
+            imagePrefetcher.cancelAll();
+        }
         
         // 清理Handler
         if (imageHandler != null) {
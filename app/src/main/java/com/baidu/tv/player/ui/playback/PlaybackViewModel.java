@@ -9,16 +9,16 @@ import androidx.lifecycle.MutableLiveData;
 
 import android.util.Log;
 
+import com.baidu.tv.player.model.CompactMediaList;
 import com.baidu.tv.player.model.FileInfo;
 import com.baidu.tv.player.model.ImageEffect;
 import com.baidu.tv.player.model.PlayMode;
 import com.baidu.tv.player.model.Playlist;
-import com.baidu.tv.player.repository.FileRepository;
+import com.baidu.tv.player.repository.DlinkResolver;
 import com.baidu.tv.player.repository.PlaylistRepository;
 import com.baidu.tv.player.utils.PreferenceUtils;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -26,14 +26,16 @@ import java.util.Random;
  * 播放器ViewModel
  */
 public class PlaybackViewModel extends AndroidViewModel {
-    private MutableLiveData<List<FileInfo>> playList;
+    // 播放列表以紧凑形式保存，FileInfo只为当前及附近的条目按需创建
+    private MutableLiveData<CompactMediaList> playList;
     private MutableLiveData<Integer> currentIndex;
     private MutableLiveData<PlayMode> playMode;
     private MutableLiveData<Boolean> isPlaying;
     private MutableLiveData<String> currentLocation;
     
-    // 随机播放的索引列表
-    private List<Integer> randomIndices;
+    // 随机播放顺序：randomOrder[位置] = 索引，randomPositions[索引] = 位置
+    private int[] randomOrder = new int[0];
+    private int[] randomPositions = new int[0];
     private Random random;
     
     // 播放列表数据库ID（用于更新播放进度）
@@ -50,11 +52,25 @@ public class PlaybackViewModel extends AndroidViewModel {
     
     // 准备好的媒体URL (用于播放)
     private MutableLiveData<String> preparedMediaUrl;
-    private FileRepository fileRepository;
     
-    // 预加载相关
-    private String preloadedDlink = null;
-    private int preloadedIndex = -1;
+    // 预加载相关：批量获取接下来 DLINK_WINDOW_SIZE 个文件的dlink，
+    // 当接下来 DLINK_PREFETCH_TRIGGER 个文件中有未缓存的才发起请求
+    private static final int DLINK_WINDOW_SIZE = 20;
+    private static final int DLINK_PREFETCH_TRIGGER = 2;
+    private DlinkResolver dlinkResolver;
+    
+    /**
+     * 预加载文件播放地址的回调
+     */
+    public interface UpcomingUrlCallback {
+        void onReady(FileInfo file, String url);
+
+        /**
+         * 获取播放地址失败
+         */
+        default void onFailure(FileInfo file, String error) {
+        }
+    }
 
     public PlaybackViewModel(@NonNull Application application) {
         super(application);
@@ -64,7 +80,6 @@ public class PlaybackViewModel extends AndroidViewModel {
                 PreferenceUtils.getPlayMode(application)));
         isPlaying = new MutableLiveData<>(false);
         currentLocation = new MutableLiveData<>();
-        randomIndices = new ArrayList<>();
         random = new Random();
         
         // 从设置中读取图片特效配置
@@ -82,8 +97,8 @@ public class PlaybackViewModel extends AndroidViewModel {
         // 初始化 preparedMediaUrl
         preparedMediaUrl = new MutableLiveData<>();
         
-        // 初始化 FileRepository
-        fileRepository = FileRepository.getInstance();
+        // 初始化 DlinkResolver
+        dlinkResolver = DlinkResolver.getInstance();
         
         // 初始化 PlaylistRepository
         playlistRepository = new PlaylistRepository(application);
@@ -106,7 +121,7 @@ public class PlaybackViewModel extends AndroidViewModel {
         Log.d("PlaybackViewModel", "设置已重新加载: 显示时长=" + imageDisplayDuration.getValue() + "ms");
     }
 
-    public LiveData<List<FileInfo>> getPlayList() {
+    public LiveData<CompactMediaList> getPlayList() {
         return playList;
     }
 
@@ -158,43 +173,14 @@ public class PlaybackViewModel extends AndroidViewModel {
             return;
         }
 
-        // 1. 检查是否有预加载的dlink
-        Integer currentIndexVal = currentIndex.getValue();
-        if (currentIndexVal != null && currentIndexVal == preloadedIndex && preloadedDlink != null) {
-            Log.d("PlaybackViewModel", "命中预加载缓存，索引: " + preloadedIndex);
-            
-            String finalUrl = preloadedDlink;
-            // 确保token是最新的
-            if (finalUrl.contains("access_token=")) {
-                // 替换现有token
-                finalUrl = finalUrl.replaceAll("access_token=[^&]*", "access_token=" + accessToken);
-            } else {
-                finalUrl += (finalUrl.contains("?") ? "&" : "?") + "access_token=" + accessToken;
-            }
-            
-            preparedMediaUrl.setValue(finalUrl);
-            
-            // 清除使用的缓存
-            preloadedDlink = null;
-            preloadedIndex = -1;
-            
-            // 触发下一次预加载
-            preloadNextFile(accessToken);
-            return;
-        }
-
-        // 2. 如果dlink已经存在且有效（以http开头），直接使用
+        // 1. 如果dlink已经存在且有效（以http开头），直接使用
         String currentDlink = file.getDlink();
         if (currentDlink != null && !currentDlink.isEmpty() && currentDlink.startsWith("http")) {
             Log.d("PlaybackViewModel", "使用现有的dlink: " + currentDlink);
-            String finalUrl = currentDlink;
-            if (!finalUrl.contains("access_token=")) {
-                finalUrl += (finalUrl.contains("?") ? "&" : "?") + "access_token=" + accessToken;
-            }
-            preparedMediaUrl.setValue(finalUrl);
+            preparedMediaUrl.setValue(appendAccessToken(currentDlink, accessToken));
             
             // 触发预加载
-            preloadNextFile(accessToken);
+            prefetchUpcomingDlinks(accessToken);
             return;
         } else {
             if (currentDlink != null) {
@@ -202,119 +188,217 @@ public class PlaybackViewModel extends AndroidViewModel {
             }
         }
 
-        // 3. 否则，通过API获取文件详情
-        Log.d("PlaybackViewModel", "正在获取文件详情以获取dlink, fsId=" + file.getFsId());
-        fileRepository.fetchFileDetail(accessToken, file.getFsId(), new FileRepository.FileDetailCallback() {
+        // 2. 否则通过dlink解析器获取（命中缓存时直接返回，未命中时与后续文件一起批量请求）
+        Log.d("PlaybackViewModel", "正在获取dlink, fsId=" + file.getFsId());
+        final long fsId = file.getFsId();
+        dlinkResolver.resolve(accessToken, fsId, getUpcomingFsIds(DLINK_WINDOW_SIZE), new DlinkResolver.DlinkCallback() {
             @Override
-            public void onSuccess(FileInfo fileInfo) {
-                String dlink = fileInfo.getDlink();
-                Log.d("PlaybackViewModel", "获取文件详情成功, dlink=" + dlink);
-                
-                if (dlink != null && !dlink.isEmpty()) {
-                    if (!dlink.startsWith("http")) {
-                        Log.e("PlaybackViewModel", "API返回的dlink无效(不是http开头): " + dlink);
-                        preparedMediaUrl.setValue(null);
-                        return;
-                    }
-                    
-                    // 附加access_token到dlink
-                    String finalUrl = dlink;
-                    if (!finalUrl.contains("access_token=")) {
-                        finalUrl += (finalUrl.contains("?") ? "&" : "?") + "access_token=" + accessToken;
-                    }
-                    Log.d("PlaybackViewModel", "准备播放URL: " + finalUrl);
-                    preparedMediaUrl.setValue(finalUrl);
-                    
-                    // 触发预加载
-                    preloadNextFile(accessToken);
-                } else {
-                    Log.e("PlaybackViewModel", "获取到的dlink为空: " + fileInfo.getPath());
-                    preparedMediaUrl.setValue(null);
+            public void onSuccess(String dlink) {
+                if (!isCurrentFile(fsId)) {
+                    Log.d("PlaybackViewModel", "dlink返回时已切换文件，忽略, fsId=" + fsId);
+                    return;
                 }
+                String finalUrl = appendAccessToken(dlink, accessToken);
+                Log.d("PlaybackViewModel", "准备播放URL: " + finalUrl);
+                preparedMediaUrl.setValue(finalUrl);
+                
+                // 触发预加载
+                prefetchUpcomingDlinks(accessToken);
             }
 
             @Override
             public void onFailure(String error) {
-                Log.e("PlaybackViewModel", "获取文件详情失败: " + error);
+                if (!isCurrentFile(fsId)) {
+                    return;
+                }
+                Log.e("PlaybackViewModel", "获取dlink失败: " + error);
                 preparedMediaUrl.setValue(null);
             }
         });
     }
 
     /**
-     * 预加载下一个文件
+     * 按当前播放模式获取下一个要播放的文件，单曲循环或列表只有一个文件时返回null
      */
-    private void preloadNextFile(String accessToken) {
-        List<FileInfo> files = playList.getValue();
-        if (files == null || files.isEmpty()) return;
-        
-        Integer current = currentIndex.getValue();
-        if (current == null) return;
-        
-        // 计算下一个索引
-        int nextIndex;
-        PlayMode mode = playMode.getValue();
-        if (mode == null) mode = PlayMode.SEQUENTIAL;
-        
-        switch (mode) {
-            case SEQUENTIAL:
-                nextIndex = (current + 1) % files.size();
-                break;
-            case REVERSE:
-                nextIndex = (current - 1 + files.size()) % files.size();
-                break;
-            case RANDOM:
-                nextIndex = getNextRandomIndex(current);
-                break;
-            case SINGLE:
-                nextIndex = current; // 单曲循环预加载自己
-                break;
-            default:
-                nextIndex = (current + 1) % files.size();
+    public FileInfo getUpcomingFile() {
+        CompactMediaList files = playList.getValue();
+        List<Integer> upcoming = getUpcomingIndices(1);
+        if (files == null || upcoming.isEmpty()) {
+            return null;
         }
-        
-        // 如果只有一个文件且不是单曲循环，不需要预加载
-        if (files.size() <= 1 && mode != PlayMode.SINGLE) return;
-        
-        // 如果已经是预加载的索引，跳过
-        if (nextIndex == preloadedIndex && preloadedDlink != null) return;
-        
-        FileInfo nextFile = files.get(nextIndex);
-        
-        // 如果已经有dlink，不需要请求API，但可以缓存索引
-        if (nextFile.getDlink() != null && nextFile.getDlink().startsWith("http")) {
-            preloadedDlink = nextFile.getDlink();
-            preloadedIndex = nextIndex;
-            Log.d("PlaybackViewModel", "预加载完成(使用现有dlink)，索引: " + nextIndex);
+        return files.get(upcoming.get(0));
+    }
+
+    /**
+     * 按当前播放模式获取接下来要播放的文件（不含当前文件），最多 count 个
+     */
+    public List<FileInfo> getUpcomingFiles(int count) {
+        List<FileInfo> result = new ArrayList<>();
+        CompactMediaList files = playList.getValue();
+        if (files == null) {
+            return result;
+        }
+        for (int index : getUpcomingIndices(count)) {
+            result.add(files.get(index));
+        }
+        return result;
+    }
+
+    /**
+     * 准备下一个视频的播放地址（用于预缓冲）
+     * 下一个文件不是视频时不回调；dlink返回时下一个文件已变化（切换了文件或播放模式）也不回调
+     */
+    public void prepareUpcomingVideoUrl(String accessToken, UpcomingUrlCallback callback) {
+        FileInfo upcoming = getUpcomingFile();
+        if (upcoming == null || !upcoming.isVideo()) {
             return;
         }
-        
-        Log.d("PlaybackViewModel", "开始预加载下一个文件，索引: " + nextIndex + ", 文件: " + nextFile.getServerFilename());
-        
-        // 异步获取详情
-        final int targetIndex = nextIndex;
-        fileRepository.fetchFileDetail(accessToken, nextFile.getFsId(), new FileRepository.FileDetailCallback() {
+        final long fsId = upcoming.getFsId();
+        prepareUpcomingUrl(accessToken, upcoming, (file, url) -> {
+            FileInfo current = getUpcomingFile();
+            if (current != null && current.getFsId() == fsId) {
+                callback.onReady(current, url);
+            }
+        });
+    }
+
+    /**
+     * 准备接下来要播放的文件的播放地址（用于预加载）
+     * 命中dlink缓存时同步回调，否则与后续文件一起批量获取
+     */
+    public void prepareUpcomingUrl(String accessToken, FileInfo file, UpcomingUrlCallback callback) {
+        if (accessToken == null || file == null || file.isDirectory()) {
+            return;
+        }
+
+        String dlink = file.getDlink();
+        if (dlink != null && dlink.startsWith("http")) {
+            callback.onReady(file, appendAccessToken(dlink, accessToken));
+            return;
+        }
+
+        dlinkResolver.resolve(accessToken, file.getFsId(), getUpcomingFsIds(DLINK_WINDOW_SIZE), new DlinkResolver.DlinkCallback() {
             @Override
-            public void onSuccess(FileInfo fileInfo) {
-                String dlink = fileInfo.getDlink();
-                if (dlink != null && !dlink.isEmpty() && dlink.startsWith("http")) {
-                    preloadedDlink = dlink;
-                    preloadedIndex = targetIndex;
-                    Log.d("PlaybackViewModel", "预加载成功，索引: " + targetIndex);
-                }
+            public void onSuccess(String resolved) {
+                callback.onReady(file, appendAccessToken(resolved, accessToken));
             }
 
             @Override
             public void onFailure(String error) {
-                Log.w("PlaybackViewModel", "预加载失败: " + error);
+                Log.w("PlaybackViewModel", "预加载获取dlink失败, fsId=" + file.getFsId() + ": " + error);
+                callback.onFailure(file, error);
             }
         });
     }
 
+    /**
+     * 当前文件的dlink已失效（播放返回403等），清除缓存，下次播放时重新获取
+     */
+    public void invalidateCurrentDlink() {
+        CompactMediaList files = playList.getValue();
+        Integer index = currentIndex.getValue();
+        if (files == null || index == null || index < 0 || index >= files.size()) return;
+        long fsId = files.getFsId(index);
+        Log.w("PlaybackViewModel", "dlink已失效，清除缓存, fsId=" + fsId);
+        files.clearDlink(index);
+        dlinkResolver.invalidate(fsId);
+    }
+
+    /**
+     * 附加access_token到dlink（已有token时替换为最新的）
+     */
+    private String appendAccessToken(String dlink, String accessToken) {
+        if (dlink.contains("access_token=")) {
+            return dlink.replaceAll("access_token=[^&]*", "access_token=" + accessToken);
+        }
+        return dlink + (dlink.contains("?") ? "&" : "?") + "access_token=" + accessToken;
+    }
+
+    private boolean isCurrentFile(long fsId) {
+        CompactMediaList files = playList.getValue();
+        Integer index = currentIndex.getValue();
+        return files != null && index != null && index >= 0 && index < files.size()
+                && files.getFsId(index) == fsId;
+    }
+
+    /**
+     * 预加载接下来的文件的dlink
+     * 只有即将播放的文件还没有dlink时才发起请求，并一次性获取整个窗口，
+     * 这样连续播放时大约每 DLINK_WINDOW_SIZE 个文件才需要一次网络请求
+     */
+    private void prefetchUpcomingDlinks(String accessToken) {
+        CompactMediaList files = playList.getValue();
+        if (files == null || files.size() <= 1) return;
+
+        List<Integer> upcoming = getUpcomingIndices(DLINK_PREFETCH_TRIGGER);
+        boolean needFetch = false;
+        for (int index : upcoming) {
+            if (files.isDirectory(index)) continue;
+            if (files.getDlink(index) == null
+                    && dlinkResolver.getCachedDlink(files.getFsId(index)) == null) {
+                needFetch = true;
+                break;
+            }
+        }
+        if (!needFetch) return;
+
+        Log.d("PlaybackViewModel", "预加载接下来 " + DLINK_WINDOW_SIZE + " 个文件的dlink");
+        dlinkResolver.prefetch(accessToken, getUpcomingFsIds(DLINK_WINDOW_SIZE));
+    }
+
+    /**
+     * 按当前播放模式计算接下来要播放的索引（不含当前索引）
+     */
+    private List<Integer> getUpcomingIndices(int count) {
+        List<Integer> result = new ArrayList<>();
+        CompactMediaList files = playList.getValue();
+        Integer current = currentIndex.getValue();
+        if (files == null || files.isEmpty() || current == null) return result;
+
+        PlayMode mode = playMode.getValue();
+        if (mode == null) mode = PlayMode.SEQUENTIAL;
+        // 单曲循环只会重复播放当前文件
+        if (mode == PlayMode.SINGLE) return result;
+
+        int limit = Math.min(count, files.size() - 1);
+        int index = current;
+        for (int i = 0; i < limit; i++) {
+            switch (mode) {
+                case REVERSE:
+                    index = (index - 1 + files.size()) % files.size();
+                    break;
+                case RANDOM:
+                    index = getNextRandomIndex(index);
+                    break;
+                case SEQUENTIAL:
+                default:
+                    index = (index + 1) % files.size();
+            }
+            result.add(index);
+        }
+        return result;
+    }
+
+    /**
+     * 接下来要播放的文件中，尚未带有dlink的fsId列表
+     */
+    private List<Long> getUpcomingFsIds(int count) {
+        List<Long> fsIds = new ArrayList<>();
+        CompactMediaList files = playList.getValue();
+        if (files == null) return fsIds;
+        for (int index : getUpcomingIndices(count)) {
+            if (files.isDirectory(index)) continue;
+            if (files.getDlink(index) == null) {
+                fsIds.add(files.getFsId(index));
+            }
+        }
+        return fsIds;
+    }
+
     /**
      * 设置播放列表
      */
-    public void setPlayList(List<FileInfo> files) {
+    public void setPlayList(CompactMediaList files) {
         setPlayList(files, false);
     }
 
@@ -323,12 +407,15 @@ public class PlaybackViewModel extends AndroidViewModel {
      * @param files 文件列表
      * @param resetIndex 是否根据播放模式重置索引
      */
-    public void setPlayList(List<FileInfo> files, boolean resetIndex) {
+    public void setPlayList(CompactMediaList files, boolean resetIndex) {
         playList.setValue(files);
         
-        // 如果是随机模式，需要生成随机索引列表
+        // 如果是随机模式，需要生成随机索引列表；否则丢弃旧列表的随机顺序，需要时再生成
         if (playMode.getValue() == PlayMode.RANDOM) {
             generateRandomIndices();
+        } else {
+            randomOrder = new int[0];
+            randomPositions = new int[0];
         }
         
         // 根据播放模式设置初始索引
@@ -344,9 +431,8 @@ public class PlaybackViewModel extends AndroidViewModel {
                 // 倒序播放：从最后一个开始
                 initialIndex = files.size() - 1;
             } else if (mode == PlayMode.RANDOM) {
-                // 随机播放：从随机列表的第一个索引开始（该索引对应的文件是随机的）
-                // randomIndices列表已经被打乱，取第一个元素作为初始播放索引
-                initialIndex = randomIndices.isEmpty() ? 0 : randomIndices.get(0);
+                // 随机播放：从随机顺序的第一个索引开始（该索引对应的文件是随机的）
+                initialIndex = randomOrder.length == 0 ? 0 : randomOrder[0];
                 Log.d("PlaybackViewModel", "随机模式：初始索引 = " + initialIndex);
             } else {
                 // 其他模式：从第一个开始
@@ -407,7 +493,7 @@ public class PlaybackViewModel extends AndroidViewModel {
      * 播放下一个
      */
     public void playNext() {
-        List<FileInfo> files = playList.getValue();
+        CompactMediaList files = playList.getValue();
         if (files == null || files.isEmpty()) {
             return;
         }
@@ -437,19 +523,13 @@ public class PlaybackViewModel extends AndroidViewModel {
         }
 
         currentIndex.setValue(nextIndex);
-        
-        // 清除预加载缓存（如果需要）
-        if (preloadedIndex != nextIndex) {
-            preloadedDlink = null;
-            preloadedIndex = -1;
-        }
     }
 
     /**
      * 播放上一个
      */
     public void playPrevious() {
-        List<FileInfo> files = playList.getValue();
+        CompactMediaList files = playList.getValue();
         if (files == null || files.isEmpty()) {
             return;
         }
@@ -479,19 +559,13 @@ public class PlaybackViewModel extends AndroidViewModel {
         }
 
         currentIndex.setValue(prevIndex);
-        
-        // 清除预加载缓存（如果需要）
-        if (preloadedIndex != prevIndex) {
-            preloadedDlink = null;
-            preloadedIndex = -1;
-        }
     }
 
     /**
      * 跳转到指定索引
      */
     public void seekTo(int index) {
-        List<FileInfo> files = playList.getValue();
+        CompactMediaList files = playList.getValue();
         if (files != null && index >= 0 && index < files.size()) {
             currentIndex.setValue(index);
             updatePlaylistProgress(index);
@@ -502,7 +576,7 @@ public class PlaybackViewModel extends AndroidViewModel {
      * 设置当前索引（用于初始化播放列表时指定起始位置）
      */
     public void setCurrentIndex(int index) {
-        List<FileInfo> files = playList.getValue();
+        CompactMediaList files = playList.getValue();
         if (files != null && index >= 0 && index < files.size()) {
             currentIndex.setValue(index);
             updatePlaylistProgress(index);
@@ -562,65 +636,94 @@ public class PlaybackViewModel extends AndroidViewModel {
     }
 
     /**
-     * 生成随机索引列表
+     * 生成随机播放顺序（Fisher-Yates洗牌），同时记录每个索引所在的位置，查找时无需遍历
      */
     private void generateRandomIndices() {
-        List<FileInfo> files = playList.getValue();
+        CompactMediaList files = playList.getValue();
         if (files == null || files.isEmpty()) {
-            randomIndices.clear();
+            randomOrder = new int[0];
+            randomPositions = new int[0];
             return;
         }
 
-        randomIndices = new ArrayList<>();
-        for (int i = 0; i < files.size(); i++) {
-            randomIndices.add(i);
+        int count = files.size();
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        int[] positions = new int[count];
+        for (int pos = 0; pos < count; pos++) {
+            positions[order[pos]] = pos;
         }
-        Collections.shuffle(randomIndices, random);
+        randomOrder = order;
+        randomPositions = positions;
+    }
+
+    /**
+     * 索引在随机顺序中的位置，不在其中时返回-1
+     */
+    private int getRandomPosition(int index) {
+        if (index < 0 || index >= randomPositions.length) {
+            return -1;
+        }
+        return randomPositions[index];
     }
 
     /**
      * 获取下一个随机索引
      */
     private int getNextRandomIndex(int currentIndex) {
-        if (randomIndices.isEmpty()) {
+        if (randomOrder.length == 0) {
             generateRandomIndices();
         }
+        if (randomOrder.length == 0) {
+            return currentIndex;
+        }
         
-        // 找到当前索引在随机列表中的位置
-        int currentPos = randomIndices.indexOf(currentIndex);
+        // 找到当前索引在随机顺序中的位置
+        int currentPos = getRandomPosition(currentIndex);
         if (currentPos == -1) {
-            return randomIndices.get(0);
+            return randomOrder[0];
         }
         
         // 返回下一个
-        int nextPos = (currentPos + 1) % randomIndices.size();
-        return randomIndices.get(nextPos);
+        int nextPos = (currentPos + 1) % randomOrder.length;
+        return randomOrder[nextPos];
     }
 
     /**
      * 获取上一个随机索引
      */
     private int getPreviousRandomIndex(int currentIndex) {
-        if (randomIndices.isEmpty()) {
+        if (randomOrder.length == 0) {
             generateRandomIndices();
         }
+        if (randomOrder.length == 0) {
+            return currentIndex;
+        }
         
-        // 找到当前索引在随机列表中的位置
-        int currentPos = randomIndices.indexOf(currentIndex);
+        // 找到当前索引在随机顺序中的位置
+        int currentPos = getRandomPosition(currentIndex);
         if (currentPos == -1) {
-            return randomIndices.get(0);
+            return randomOrder[0];
         }
         
         // 返回上一个
-        int prevPos = (currentPos - 1 + randomIndices.size()) % randomIndices.size();
-        return randomIndices.get(prevPos);
+        int prevPos = (currentPos - 1 + randomOrder.length) % randomOrder.length;
+        return randomOrder[prevPos];
     }
 
     /**
-     * 获取当前播放的文件
+     * 获取当前播放的文件（按需创建，附近条目的对象会被复用）
      */
     public FileInfo getCurrentFile() {
-        List<FileInfo> files = playList.getValue();
+        CompactMediaList files = playList.getValue();
         Integer index = currentIndex.getValue();
         
         if (files != null && index != null && index >= 0 && index < files.size()) {
@@ -14,7 +14,16 @@ import com.baidu.tv.player.R;
 import com.baidu.tv.player.auth.LoginActivity;
 import com.baidu.tv.player.model.ImageEffect;
 import com.baidu.tv.player.model.PlayMode;
+import com.baidu.tv.player.network.AdaptiveRateLimiter;
+import com.baidu.tv.player.network.HttpClientProvider;
+import com.baidu.tv.player.network.NetworkMetrics;
+import com.baidu.tv.player.repository.DlinkResolver;
+import com.baidu.tv.player.repository.FileRepository;
+import com.baidu.tv.player.repository.RepositoryMetrics;
+import com.baidu.tv.player.ui.playback.ImagePrefetchMetrics;
+import com.baidu.tv.player.utils.ImageDecodePolicy;
 import com.baidu.tv.player.utils.PreferenceUtils;
+import com.baidu.tv.player.utils.VideoCacheManager;
 
 /**
  * 设置Activity
@@ -28,6 +37,18 @@ public class SettingsActivity extends FragmentActivity {
     private Switch switchShowLocation;
     private RadioGroup rgPlayMode;
     private RadioGroup rgBackgroundMode;
+    private RadioGroup rgDlinkCacheTtl;
+    private RadioGroup rgImageDecodeClass;
+    private TextView tvImageDecodePolicy;
+    private Switch switchParallelVideoDownload;
+    private RadioGroup rgVideoCacheSize;
+    private TextView tvVideoCacheStats;
+    private Switch switchPreloadNextVideo;
+    private Button btnClearVideoCache;
+    private Switch switchNetworkDebug;
+    private TextView tvNetworkMetrics;
+    private Button btnRefreshMetrics;
+    private Button btnResetMetrics;
     private Button btnLogout;
     
     private boolean isUpdatingEffectSelection = false; // 防止递归触发
@@ -50,6 +71,18 @@ public class SettingsActivity extends FragmentActivity {
         switchShowLocation = findViewById(R.id.switch_show_location);
         rgPlayMode = findViewById(R.id.rg_play_mode);
         rgBackgroundMode = findViewById(R.id.rg_background_mode);
+        rgDlinkCacheTtl = findViewById(R.id.rg_dlink_cache_ttl);
+        rgImageDecodeClass = findViewById(R.id.rg_image_decode_class);
+        tvImageDecodePolicy = findViewById(R.id.tv_image_decode_policy);
+        switchParallelVideoDownload = findViewById(R.id.switch_parallel_video_download);
+        rgVideoCacheSize = findViewById(R.id.rg_video_cache_size);
+        tvVideoCacheStats = findViewById(R.id.tv_video_cache_stats);
+        switchPreloadNextVideo = findViewById(R.id.switch_preload_next_video);
+        btnClearVideoCache = findViewById(R.id.btn_clear_video_cache);
+        switchNetworkDebug = findViewById(R.id.switch_network_debug);
+        tvNetworkMetrics = findViewById(R.id.tv_network_metrics);
+        btnRefreshMetrics = findViewById(R.id.btn_refresh_metrics);
+        btnResetMetrics = findViewById(R.id.btn_reset_metrics);
         btnLogout = findViewById(R.id.btn_logout);
     }
 
@@ -129,6 +162,56 @@ public class SettingsActivity extends FragmentActivity {
                 rgBackgroundMode.check(R.id.rb_background_blur);
                 break;
         }
+        
+        // 加载播放链接缓存时长设置
+        int dlinkTtlHours = PreferenceUtils.getDlinkCacheTtlHours(this);
+        if (dlinkTtlHours <= 1) {
+            rgDlinkCacheTtl.check(R.id.rb_dlink_ttl_1h);
+        } else if (dlinkTtlHours >= 8) {
+            rgDlinkCacheTtl.check(R.id.rb_dlink_ttl_8h);
+        } else {
+            rgDlinkCacheTtl.check(R.id.rb_dlink_ttl_4h);
+        }
+        
+        // 加载图片解码档位设置
+        switch (PreferenceUtils.getImageDecodeClass(this)) {
+            case ImageDecodePolicy.DEVICE_CLASS_LOW:
+                rgImageDecodeClass.check(R.id.rb_image_decode_low);
+                break;
+            case ImageDecodePolicy.DEVICE_CLASS_MEDIUM:
+                rgImageDecodeClass.check(R.id.rb_image_decode_medium);
+                break;
+            case ImageDecodePolicy.DEVICE_CLASS_HIGH:
+                rgImageDecodeClass.check(R.id.rb_image_decode_high);
+                break;
+            default:
+                rgImageDecodeClass.check(R.id.rb_image_decode_auto);
+                break;
+        }
+        tvImageDecodePolicy.setText(ImageDecodePolicy.getInstance(this).getSummary());
+        
+        // 加载多连接下载视频设置
+        switchParallelVideoDownload.setChecked(PreferenceUtils.getParallelVideoDownload(this));
+        
+        // 加载视频缓存大小设置
+        int videoCacheSizeMb = PreferenceUtils.getVideoCacheSizeMb(this);
+        if (videoCacheSizeMb <= 0) {
+            rgVideoCacheSize.check(R.id.rb_video_cache_off);
+        } else if (videoCacheSizeMb <= 256) {
+            rgVideoCacheSize.check(R.id.rb_video_cache_256);
+        } else if (videoCacheSizeMb <= 512) {
+            rgVideoCacheSize.check(R.id.rb_video_cache_512);
+        } else if (videoCacheSizeMb <= 1024) {
+            rgVideoCacheSize.check(R.id.rb_video_cache_1024);
+        } else {
+            rgVideoCacheSize.check(R.id.rb_video_cache_2048);
+        }
+        switchPreloadNextVideo.setChecked(PreferenceUtils.getPreloadNextVideo(this));
+        refreshVideoCacheStats();
+        
+        // 加载网络调试设置
+        switchNetworkDebug.setChecked(PreferenceUtils.getNetworkDebugMode(this));
+        refreshNetworkMetrics();
     }
 
     private void setupListeners() {
@@ -209,11 +292,101 @@ public class SettingsActivity extends FragmentActivity {
             PreferenceUtils.saveBackgroundMode(this, mode);
         });
         
+        // 播放链接缓存时长选择
+        rgDlinkCacheTtl.setOnCheckedChangeListener((group, ttlCheckedId) -> {
+            int hours;
+            if (ttlCheckedId == R.id.rb_dlink_ttl_1h) {
+                hours = 1;
+            } else if (ttlCheckedId == R.id.rb_dlink_ttl_8h) {
+                hours = 8;
+            } else {
+                hours = 4;
+            }
+            PreferenceUtils.saveDlinkCacheTtlHours(this, hours);
+        });
+        
+        // 图片解码档位选择（重启应用后生效）
+        rgImageDecodeClass.setOnCheckedChangeListener((group, decodeCheckedId) -> {
+            int deviceClass;
+            if (decodeCheckedId == R.id.rb_image_decode_low) {
+                deviceClass = ImageDecodePolicy.DEVICE_CLASS_LOW;
+            } else if (decodeCheckedId == R.id.rb_image_decode_medium) {
+                deviceClass = ImageDecodePolicy.DEVICE_CLASS_MEDIUM;
+            } else if (decodeCheckedId == R.id.rb_image_decode_high) {
+                deviceClass = ImageDecodePolicy.DEVICE_CLASS_HIGH;
+            } else {
+                deviceClass = ImageDecodePolicy.DEVICE_CLASS_AUTO;
+            }
+            PreferenceUtils.saveImageDecodeClass(this, deviceClass);
+        });
+        
+        // 多连接下载视频开关
+        switchParallelVideoDownload.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            PreferenceUtils.saveParallelVideoDownload(this, isChecked);
+        });
+        
+        // 视频缓存大小选择（重启应用后生效）
+        rgVideoCacheSize.setOnCheckedChangeListener((group, cacheCheckedId) -> {
+            int sizeMb;
+            if (cacheCheckedId == R.id.rb_video_cache_off) {
+                sizeMb = 0;
+            } else if (cacheCheckedId == R.id.rb_video_cache_256) {
+                sizeMb = 256;
+            } else if (cacheCheckedId == R.id.rb_video_cache_1024) {
+                sizeMb = 1024;
+            } else if (cacheCheckedId == R.id.rb_video_cache_2048) {
+                sizeMb = 2048;
+            } else {
+                sizeMb = 512;
+            }
+            PreferenceUtils.saveVideoCacheSizeMb(this, sizeMb);
+        });
+        
+        // 预缓冲下一个视频开关
+        switchPreloadNextVideo.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            PreferenceUtils.savePreloadNextVideo(this, isChecked);
+        });
+        
+        // 清空视频缓存
+        btnClearVideoCache.setOnClickListener(v -> {
+            btnClearVideoCache.setEnabled(false);
+            new Thread(() -> {
+                VideoCacheManager.getInstance().clear();
+                runOnUiThread(() -> {
+                    btnClearVideoCache.setEnabled(true);
+                    refreshVideoCacheStats();
+                });
+            }, "ClearVideoCache").start();
+        });
+        
+        // 网络调试模式开关
+        switchNetworkDebug.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            PreferenceUtils.saveNetworkDebugMode(this, isChecked);
+            HttpClientProvider.setDebugMode(isChecked);
+        });
+        
+        // 网络统计
+        btnRefreshMetrics.setOnClickListener(v -> refreshNetworkMetrics());
+        btnResetMetrics.setOnClickListener(v -> {
+            NetworkMetrics.getInstance().reset();
+            RepositoryMetrics.getInstance().reset();
+            AdaptiveRateLimiter.getInstance().resetStats();
+            VideoCacheManager.getInstance().resetStats();
+            ImagePrefetchMetrics.getInstance().reset();
+            refreshNetworkMetrics();
+            refreshVideoCacheStats();
+        });
+        
         // 退出登录
         btnLogout.setOnClickListener(v -> {
             // 清除认证信息
             PreferenceUtils.clearAuthInfo(this);
             
+            // 清空网盘接口缓存，避免下一个账号读到上一个账号的数据
+            new Thread(HttpClientProvider::clearPanApiCache, "ClearHttpCache").start();
+            FileRepository.getInstance().clearDirectoryCache();
+            DlinkResolver.getInstance().clear();
+            
             // 跳转到登录界面
             Intent intent = new Intent(this, LoginActivity.class);
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -222,6 +395,25 @@ public class SettingsActivity extends FragmentActivity {
         });
     }
     
+    /**
+     * 显示网络请求统计
+     */
+    private void refreshNetworkMetrics() {
+        tvNetworkMetrics.setText(HttpClientProvider.getCacheSummary()
+                + "\n" + AdaptiveRateLimiter.getInstance().getSummary()
+                + "\n\n" + NetworkMetrics.getInstance().getSummary()
+                + "\n\n" + RepositoryMetrics.getInstance().getSummary()
+                + "\n\n" + VideoCacheManager.getInstance().getSummary()
+                + "\n" + ImagePrefetchMetrics.getInstance().getSummary());
+    }
+    
+    /**
+     * 显示视频缓存占用和命中率
+     */
+    private void refreshVideoCacheStats() {
+        tvVideoCacheStats.setText(VideoCacheManager.getInstance().getSummary());
+    }
+    
     /**
      * 保存图片特效
      */
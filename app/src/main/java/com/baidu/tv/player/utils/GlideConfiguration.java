@@ -5,11 +5,14 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.baidu.tv.player.network.HttpClientProvider;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.Registry;
 import com.bumptech.glide.annotation.GlideModule;
 import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.module.AppGlideModule;
 
@@ -21,7 +24,7 @@ import okhttp3.logging.HttpLoggingInterceptor;
 
 /**
  * Glide 配置模块
- * 用于配置更长的超时时间和重试机制
+ * 用于配置更长的超时时间和重试机制，以及按设备档位设置解码格式和内存预算（见 ImageDecodePolicy）
  */
 @GlideModule
 public class GlideConfiguration extends AppGlideModule {
@@ -31,21 +34,27 @@ public class GlideConfiguration extends AppGlideModule {
     public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
         // 设置日志级别
         builder.setLogLevel(Log.INFO);
+        
+        // 内存缓存和Bitmap池按应用内存上限分配，低档设备对不透明图片使用RGB_565（同时禁用HARDWARE Bitmap）
+        ImageDecodePolicy policy = ImageDecodePolicy.getInstance(context);
+        builder.setMemoryCache(new LruResourceCache(policy.getMemoryCacheBytes()));
+        builder.setBitmapPool(new LruBitmapPool(policy.getBitmapPoolBytes()));
+        builder.setDefaultRequestOptions(policy.getDefaultRequestOptions());
     }
 
     @Override
     public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
-        // 创建日志拦截器
-        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor(new HttpLoggingInterceptor.Logger() {
-            @Override
-            public void log(@NonNull String message) {
-                Log.d(TAG, "OkHttp: " + message);
-            }
-        });
-        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
+        // 创建日志拦截器（仅在网络调试模式下输出）
+        HttpLoggingInterceptor loggingInterceptor = HttpClientProvider.createLoggingInterceptor(
+                new HttpLoggingInterceptor.Logger() {
+                    @Override
+                    public void log(@NonNull String message) {
+                        Log.d(TAG, "OkHttp: " + message);
+                    }
+                }, HttpLoggingInterceptor.Level.BASIC);
         
-        // 创建自定义的 OkHttpClient，配置更长的超时时间
-        OkHttpClient client = new OkHttpClient.Builder()
+        // 基于全局共享的 OkHttpClient 派生，与API请求复用连接池，配置更长的超时时间
+        OkHttpClient client = HttpClientProvider.getSharedClient().newBuilder()
                 .connectTimeout(30, TimeUnit.SECONDS)  // 连接超时30秒
                 .readTimeout(30, TimeUnit.SECONDS)     // 读取超时30秒
                 .writeTimeout(30, TimeUnit.SECONDS)    // 写入超时30秒
@@ -0,0 +1,179 @@
+package com.baidu.tv.player.utils;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.RequestOptions;
+
+import java.util.Locale;
+
+/**
+ * 图片解码策略
+ * 手机拍摄的4800万~1亿像素照片按原尺寸解码成ARGB_8888，单张就要占用数百MB，
+ * 长时间播放幻灯片时频繁GC甚至OOM。这里按设备档位决定：
+ * 解码的最大尺寸（不超过显示区域，低档设备在4K屏上也只解码到1080p）、
+ * 是否对不透明图片（JPEG）使用RGB_565（Android 8.0起Glide默认解码成HARDWARE Bitmap，会忽略解码格式，
+ * 因此低档设备同时禁用HARDWARE Bitmap），以及Glide内存缓存和Bitmap池的大小（按应用内存上限的比例分配）。
+ * 档位默认按 ActivityManager.getMemoryClass() 自动判断，也可以在设置中指定，重启应用后生效。
+ */
+public class ImageDecodePolicy {
+    private static final String TAG = "ImageDecodePolicy";
+
+    public static final int DEVICE_CLASS_AUTO = 0;
+    public static final int DEVICE_CLASS_LOW = 1;
+    public static final int DEVICE_CLASS_MEDIUM = 2;
+    public static final int DEVICE_CLASS_HIGH = 3;
+
+    // 自动判断档位的内存上限阈值（MB）
+    private static final int LOW_MEMORY_CLASS_MB = 128;
+    private static final int MEDIUM_MEMORY_CLASS_MB = 256;
+
+    private static ImageDecodePolicy instance;
+
+    private final int deviceClass;
+    private final boolean autoDetected;
+    private final int memoryClassMb;
+    private final DecodeFormat decodeFormat;
+    private final int maxDecodeWidth;
+    private final int maxDecodeHeight;
+    private final long memoryCacheBytes;
+    private final long bitmapPoolBytes;
+
+    ImageDecodePolicy(int deviceClass, boolean autoDetected, int memoryClassMb) {
+        this.deviceClass = deviceClass;
+        this.autoDetected = autoDetected;
+        this.memoryClassMb = memoryClassMb;
+        long memoryClassBytes = memoryClassMb * 1024L * 1024L;
+        switch (deviceClass) {
+            case DEVICE_CLASS_LOW:
+                decodeFormat = DecodeFormat.PREFER_RGB_565;
+                maxDecodeWidth = 1920;
+                maxDecodeHeight = 1080;
+                memoryCacheBytes = memoryClassBytes / 8;
+                bitmapPoolBytes = memoryClassBytes / 8;
+                break;
+            case DEVICE_CLASS_MEDIUM:
+                decodeFormat = DecodeFormat.PREFER_ARGB_8888;
+                maxDecodeWidth = 1920;
+                maxDecodeHeight = 1080;
+                memoryCacheBytes = memoryClassBytes / 6;
+                bitmapPoolBytes = memoryClassBytes / 8;
+                break;
+            case DEVICE_CLASS_HIGH:
+            default:
+                decodeFormat = DecodeFormat.PREFER_ARGB_8888;
+                maxDecodeWidth = 3840;
+                maxDecodeHeight = 2160;
+                memoryCacheBytes = memoryClassBytes / 4;
+                bitmapPoolBytes = memoryClassBytes / 6;
+                break;
+        }
+    }
+
+    /**
+     * 获取当前生效的解码策略（首次调用时确定，之后修改设置需重启应用）
+     */
+    public static synchronized ImageDecodePolicy getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            ActivityManager activityManager =
+                    (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+            int memoryClassMb = activityManager.getMemoryClass();
+            int configured = PreferenceUtils.getImageDecodeClass(appContext);
+            boolean auto = configured == DEVICE_CLASS_AUTO;
+            int deviceClass = auto ? detectDeviceClass(memoryClassMb, activityManager.isLowRamDevice()) : configured;
+            instance = new ImageDecodePolicy(deviceClass, auto, memoryClassMb);
+            Log.d(TAG, instance.getSummary());
+        }
+        return instance;
+    }
+
+    /**
+     * 按应用内存上限判断设备档位
+     * @param lowRamDevice ActivityManager.isLowRamDevice()
+     */
+    static int detectDeviceClass(int memoryClassMb, boolean lowRamDevice) {
+        if (lowRamDevice || memoryClassMb <= LOW_MEMORY_CLASS_MB) {
+            return DEVICE_CLASS_LOW;
+        }
+        if (memoryClassMb <= MEDIUM_MEMORY_CLASS_MB) {
+            return DEVICE_CLASS_MEDIUM;
+        }
+        return DEVICE_CLASS_HIGH;
+    }
+
+    public int getDeviceClass() {
+        return deviceClass;
+    }
+
+    public DecodeFormat getDecodeFormat() {
+        return decodeFormat;
+    }
+
+    /**
+     * 是否允许Glide解码成HARDWARE Bitmap（使用RGB_565时必须禁用，否则解码格式不生效）
+     */
+    public boolean isHardwareBitmapAllowed() {
+        return decodeFormat != DecodeFormat.PREFER_RGB_565;
+    }
+
+    /**
+     * Glide的默认请求选项
+     */
+    public RequestOptions getDefaultRequestOptions() {
+        RequestOptions options = new RequestOptions().format(decodeFormat);
+        return isHardwareBitmapAllowed() ? options : options.disallowHardwareConfig();
+    }
+
+    public long getMemoryCacheBytes() {
+        return memoryCacheBytes;
+    }
+
+    public long getBitmapPoolBytes() {
+        return bitmapPoolBytes;
+    }
+
+    /**
+     * 估算一张解码后的图片每个像素占用的字节数（RGB_565只用于不透明图片，照片基本都是JPEG）
+     */
+    public int getBytesPerPixel() {
+        return decodeFormat == DecodeFormat.PREFER_RGB_565 ? 2 : 4;
+    }
+
+    /**
+     * 计算解码的目标尺寸：显示区域按比例缩小到不超过档位允许的最大尺寸
+     */
+    public int[] limitDecodeSize(int width, int height) {
+        float scale = Math.min(1f, Math.min((float) maxDecodeWidth / Math.max(width, height),
+                (float) maxDecodeHeight / Math.min(width, height)));
+        return new int[]{Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale))};
+    }
+
+    /**
+     * 获取策略摘要
+     */
+    public String getSummary() {
+        return String.format(Locale.US, "图片解码: 档位=%s%s, 应用内存上限=%dMB, 格式=%s%s, 最大解码尺寸=%dx%d, 内存缓存=%dMB, Bitmap池=%dMB",
+                getDeviceClassName(deviceClass), autoDetected ? "(自动)" : "", memoryClassMb,
+                decodeFormat == DecodeFormat.PREFER_RGB_565 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888,
+                isHardwareBitmapAllowed() ? "" : "(禁用HARDWARE)",
+                maxDecodeWidth, maxDecodeHeight,
+                memoryCacheBytes / (1024 * 1024), bitmapPoolBytes / (1024 * 1024));
+    }
+
+    private static String getDeviceClassName(int deviceClass) {
+        switch (deviceClass) {
+            case DEVICE_CLASS_LOW:
+                return "省内存";
+            case DEVICE_CLASS_MEDIUM:
+                return "均衡";
+            case DEVICE_CLASS_HIGH:
+                return "高画质";
+            default:
+                return "自动";
+        }
+    }
+}
@@ -10,6 +10,7 @@ import android.util.Log;
 
 import com.baidu.tv.player.config.BaiduConfig;
 import com.baidu.tv.player.geocoding.GeocodingFactory;
+import com.baidu.tv.player.network.HttpClientProvider;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -19,11 +20,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 
 /**
  * 地点识别工具类
@@ -56,6 +60,20 @@ public class LocationUtils {
     private static final int CONNECTION_TIMEOUT = 3000;  // 3秒连接超时
     private static final int READ_TIMEOUT = 5000;        // 5秒读取超时
     
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_PARTIAL = 206;
+    
+    // 基于全局共享客户端派生，与播放、缩略图复用到PCS域名的连接
+    private static final OkHttpClient IMAGE_HTTP_CLIENT = HttpClientProvider.getSharedClient().newBuilder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .build();
+    // 视频头尾下载缩短超时时间到5秒，避免长时间阻塞
+    private static final OkHttpClient VIDEO_HTTP_CLIENT = HttpClientProvider.getSharedClient().newBuilder()
+            .connectTimeout(5, TimeUnit.SECONDS)
+            .readTimeout(5, TimeUnit.SECONDS)
+            .build();
+    
     // 启用测试模式（用于调试）
     private static final boolean ENABLE_TEST_MODE = false;
     // 测试坐标：北京天安门
@@ -73,26 +91,23 @@ public class LocationUtils {
     public static String getLocationFromImage(Context context, String imageUrl) {
         File tempFile = null;
         InputStream inputStream = null;
-        HttpURLConnection connection = null;
+        Response response = null;
         
         try {
             Log.d(TAG, "开始从图片获取地点: " + imageUrl);
             
-            // 从URL下载图片到临时文件
-            URL url = new URL(imageUrl);
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setDoInput(true);
-            // 设置百度网盘需要的User-Agent
-            connection.setRequestProperty("User-Agent", "pan.baidu.com");
-            connection.setConnectTimeout(10000);
-            connection.setReadTimeout(10000);
-            connection.connect();
+            // 从URL下载图片到临时文件（设置百度网盘需要的User-Agent）
+            Request request = new Request.Builder()
+                    .url(imageUrl)
+                    .header("User-Agent", "pan.baidu.com")
+                    .build();
+            response = IMAGE_HTTP_CLIENT.newCall(request).execute();
             
-            int responseCode = connection.getResponseCode();
+            int responseCode = response.code();
             Log.d(TAG, "图片请求响应码: " + responseCode);
             
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                inputStream = connection.getInputStream();
+            if (responseCode == HTTP_OK && response.body() != null) {
+                inputStream = response.body().byteStream();
                 
                 // 创建临时文件
                 tempFile = File.createTempFile("location_exif_", ".tmp", context.getCacheDir());
@@ -144,12 +159,8 @@ public class LocationUtils {
                 // ignore
             }
             
-            try {
-                if (connection != null) {
-                    connection.disconnect();
-                }
-            } catch (Exception e) {
-                // ignore
+            if (response != null) {
+                response.close();
             }
             
             // 删除临时文件
@@ -746,42 +757,33 @@ public class LocationUtils {
     
     private static byte[] downloadVideoHeader(String videoUrl, int maxSize) {
         Log.d(TAG, GPS_DEBUG + "准备下载文件头，目标大小: " + maxSize + " bytes");
-        HttpURLConnection connection = null;
-        
         try {
-            URL url = new URL(videoUrl);
-            connection = (HttpURLConnection) url.openConnection();
-            
-            // 设置请求头
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", "pan.baidu.com");
-            connection.setConnectTimeout(5000); // 缩短超时时间到5秒，避免长时间阻塞
-            connection.setReadTimeout(5000);
-            
             // 首先尝试使用Range请求
             String rangeHeader = "bytes=0-" + (maxSize - 1);
-            connection.setRequestProperty("Range", rangeHeader);
+            Request request = new Request.Builder()
+                    .url(videoUrl)
+                    .header("User-Agent", "pan.baidu.com")
+                    .header("Range", rangeHeader)
+                    .build();
             Log.d(TAG, GPS_DEBUG + "发送Range请求: " + rangeHeader);
             
-            // 检查响应码
-            int responseCode = connection.getResponseCode();
-            Log.d(TAG, GPS_DEBUG + "服务器响应码: " + responseCode);
-            
-            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
-                Log.d(TAG, GPS_DEBUG + "服务器支持Range请求");
-                return readInputStream(connection.getInputStream(), maxSize);
-            } else if (responseCode == HttpURLConnection.HTTP_OK) {
-                Log.d(TAG, GPS_DEBUG + "服务器不支持Range请求，但返回了完整文件，尝试读取前" + maxSize + "字节");
-                return readInputStream(connection.getInputStream(), maxSize);
-            } else {
-                Log.d(TAG, GPS_DEBUG + "服务器返回错误: " + responseCode);
+            try (Response response = VIDEO_HTTP_CLIENT.newCall(request).execute()) {
+                // 检查响应码
+                int responseCode = response.code();
+                Log.d(TAG, GPS_DEBUG + "服务器响应码: " + responseCode);
+                
+                if (responseCode == HTTP_PARTIAL && response.body() != null) {
+                    Log.d(TAG, GPS_DEBUG + "服务器支持Range请求");
+                    return readInputStream(response.body().byteStream(), maxSize);
+                } else if (responseCode == HTTP_OK && response.body() != null) {
+                    Log.d(TAG, GPS_DEBUG + "服务器不支持Range请求，但返回了完整文件，尝试读取前" + maxSize + "字节");
+                    return readInputStream(response.body().byteStream(), maxSize);
+                } else {
+                    Log.d(TAG, GPS_DEBUG + "服务器返回错误: " + responseCode);
+                }
             }
         } catch (Exception e) {
             Log.e(TAG, GPS_DEBUG + "下载文件头失败: " + e.getMessage());
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
         }
         
         return null;
@@ -789,20 +791,19 @@ public class LocationUtils {
     
     private static byte[] downloadVideoTail(String videoUrl, int tailSize) {
         Log.d(TAG, GPS_DEBUG + "准备下载文件尾部，目标大小: " + tailSize + " bytes");
-        HttpURLConnection connection = null;
-        
         try {
-            URL url = new URL(videoUrl);
-            connection = (HttpURLConnection) url.openConnection();
-            
             // 首先需要获取文件总大小
-            connection.setRequestMethod("HEAD");
-            connection.setRequestProperty("User-Agent", "pan.baidu.com");
-            connection.setConnectTimeout(5000);
-            
-            int contentLength = connection.getContentLength();
+            Request headRequest = new Request.Builder()
+                    .url(videoUrl)
+                    .head()
+                    .header("User-Agent", "pan.baidu.com")
+                    .build();
+            long contentLength;
+            try (Response headResponse = VIDEO_HTTP_CLIENT.newCall(headRequest).execute()) {
+                String lengthHeader = headResponse.header("Content-Length");
+                contentLength = lengthHeader != null ? Long.parseLong(lengthHeader) : -1;
+            }
             Log.d(TAG, GPS_DEBUG + "文件总大小: " + contentLength);
-            connection.disconnect();
             
             if (contentLength <= 0) {
                 Log.d(TAG, GPS_DEBUG + "无法获取文件总大小，无法定位尾部");
@@ -814,32 +815,28 @@ public class LocationUtils {
                 return downloadVideoHeader(videoUrl, tailSize);
             }
 
-            // 重新建立连接下载尾部
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", "pan.baidu.com");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-
+            // 复用连接下载尾部
             String range = "bytes=" + (contentLength - tailSize) + "-" + (contentLength - 1);
-            connection.setRequestProperty("Range", range);
+            Request request = new Request.Builder()
+                    .url(videoUrl)
+                    .header("User-Agent", "pan.baidu.com")
+                    .header("Range", range)
+                    .build();
             Log.d(TAG, GPS_DEBUG + "请求Range: " + range);
 
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
-                Log.d(TAG, GPS_DEBUG + "服务器支持Range请求，下载尾部成功");
-                return readInputStream(connection.getInputStream(), tailSize);
-            } else {
-                Log.d(TAG, GPS_DEBUG + "服务器不支持Range请求尾部 (Code: " + responseCode + ")");
-                return null;
+            try (Response response = VIDEO_HTTP_CLIENT.newCall(request).execute()) {
+                int responseCode = response.code();
+                if (responseCode == HTTP_PARTIAL && response.body() != null) {
+                    Log.d(TAG, GPS_DEBUG + "服务器支持Range请求，下载尾部成功");
+                    return readInputStream(response.body().byteStream(), tailSize);
+                } else {
+                    Log.d(TAG, GPS_DEBUG + "服务器不支持Range请求尾部 (Code: " + responseCode + ")");
+                    return null;
+                }
             }
 
         } catch (Exception e) {
             Log.e(TAG, GPS_DEBUG + "下载文件尾部失败: " + e.getMessage());
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
         }
         return null;
     }
@@ -1,19 +1,19 @@
 package com.baidu.tv.player.utils;
 
+import com.baidu.tv.player.model.CompactMediaList;
 import com.baidu.tv.player.model.FileInfo;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 播放列表缓存工具
  * 用于解决通过Intent传递大量数据导致TransactionTooLargeException的问题
+ * 播放列表以 CompactMediaList 的形式保存，大列表也只占用少量内存
  */
 public class PlaylistCache {
     private static PlaylistCache instance;
-    private final ConcurrentHashMap<String, List<FileInfo>> cache;
+    private final ConcurrentHashMap<String, CompactMediaList> cache;
 
     private PlaylistCache() {
         cache = new ConcurrentHashMap<>();
@@ -33,8 +33,8 @@ public class PlaylistCache {
      */
     public void put(String key, List<FileInfo> playlist) {
         if (key != null && playlist != null) {
-            // 创建副本以避免外部修改影响
-            cache.put(key, new ArrayList<>(playlist));
+            // 转换为紧凑列表，同时避免外部修改影响
+            cache.put(key, CompactMediaList.fromFiles(playlist));
         }
     }
 
@@ -43,7 +43,7 @@ public class PlaylistCache {
      * @param key 唯一标识符
      * @return 播放列表，如果不存在则返回null
      */
-    public List<FileInfo> getAndRemove(String key) {
+    public CompactMediaList getAndRemove(String key) {
         if (key == null) return null;
         return cache.remove(key);
     }
@@ -53,10 +53,9 @@ public class PlaylistCache {
      * @param key 唯一标识符
      * @return 播放列表，如果不存在则返回null
      */
-    public List<FileInfo> get(String key) {
+    public CompactMediaList get(String key) {
         if (key == null) return null;
-        List<FileInfo> list = cache.get(key);
-        return list != null ? new ArrayList<>(list) : null;
+        return cache.get(key);
     }
 
     /**
@@ -31,6 +31,20 @@ public class PreferenceUtils {
     
     // 背景模式相关
     private static final String KEY_BACKGROUND_MODE = "background_mode";
+    
+    // 播放链接缓存相关
+    private static final String KEY_DLINK_CACHE_TTL_HOURS = "dlink_cache_ttl_hours";
+    
+    // 视频缓存相关
+    private static final String KEY_VIDEO_CACHE_SIZE_MB = "video_cache_size_mb";
+    private static final String KEY_PRELOAD_NEXT_VIDEO = "preload_next_video";
+    private static final String KEY_PARALLEL_VIDEO_DOWNLOAD = "parallel_video_download";
+    
+    // 图片解码相关
+    private static final String KEY_IMAGE_DECODE_CLASS = "image_decode_class";
+    
+    // 调试相关
+    private static final String KEY_NETWORK_DEBUG_MODE = "network_debug_mode";
 
     // 默认值
     private static final int DEFAULT_IMAGE_EFFECT = 0; // 淡入淡出
@@ -38,6 +52,11 @@ public class PreferenceUtils {
     private static final int DEFAULT_IMAGE_TRANSITION_DURATION = 1000; // 1秒
     private static final boolean DEFAULT_SHOW_LOCATION = true;
     private static final int DEFAULT_BACKGROUND_MODE = 1; // 主色调背景
+    private static final int DEFAULT_DLINK_CACHE_TTL_HOURS = 4; // 百度dlink约8小时有效，保守取4小时
+    private static final int DEFAULT_VIDEO_CACHE_SIZE_MB = 512; // 电视盒子存储空间有限
+    private static final boolean DEFAULT_PRELOAD_NEXT_VIDEO = true;
+    private static final boolean DEFAULT_PARALLEL_VIDEO_DOWNLOAD = false;
+    private static final int DEFAULT_IMAGE_DECODE_CLASS = 0; // 按设备内存自动判断
 
     /**
      * 获取SharedPreferences实例
@@ -277,4 +296,109 @@ public class PreferenceUtils {
         // 默认为1 (主色调背景)
         return getPreferences(context).getInt(KEY_BACKGROUND_MODE, DEFAULT_BACKGROUND_MODE);
     }
-}
\ No newline at end of file
+    
+    // ========== 播放链接缓存相关 ==========
+    
+    /**
+     * 保存播放链接（dlink）缓存有效时长（小时）
+     */
+    public static void saveDlinkCacheTtlHours(Context context, int hours) {
+        getPreferences(context).edit()
+                .putInt(KEY_DLINK_CACHE_TTL_HOURS, hours)
+                .apply();
+    }
+    
+    /**
+     * 获取播放链接（dlink）缓存有效时长（小时）
+     */
+    public static int getDlinkCacheTtlHours(Context context) {
+        return getPreferences(context).getInt(KEY_DLINK_CACHE_TTL_HOURS, DEFAULT_DLINK_CACHE_TTL_HOURS);
+    }
+    
+    // ========== 视频缓存相关 ==========
+    
+    /**
+     * 保存视频磁盘缓存大小（MB，0表示关闭缓存）
+     */
+    public static void saveVideoCacheSizeMb(Context context, int sizeMb) {
+        getPreferences(context).edit()
+                .putInt(KEY_VIDEO_CACHE_SIZE_MB, sizeMb)
+                .apply();
+    }
+    
+    /**
+     * 获取视频磁盘缓存大小（MB，0表示关闭缓存）
+     */
+    public static int getVideoCacheSizeMb(Context context) {
+        return getPreferences(context).getInt(KEY_VIDEO_CACHE_SIZE_MB, DEFAULT_VIDEO_CACHE_SIZE_MB);
+    }
+    
+    /**
+     * 保存是否预缓冲下一个视频
+     */
+    public static void savePreloadNextVideo(Context context, boolean enabled) {
+        getPreferences(context).edit()
+                .putBoolean(KEY_PRELOAD_NEXT_VIDEO, enabled)
+                .apply();
+    }
+    
+    /**
+     * 获取是否预缓冲下一个视频
+     */
+    public static boolean getPreloadNextVideo(Context context) {
+        return getPreferences(context).getBoolean(KEY_PRELOAD_NEXT_VIDEO, DEFAULT_PRELOAD_NEXT_VIDEO);
+    }
+    
+    /**
+     * 保存是否多连接分段下载视频
+     */
+    public static void saveParallelVideoDownload(Context context, boolean enabled) {
+        getPreferences(context).edit()
+                .putBoolean(KEY_PARALLEL_VIDEO_DOWNLOAD, enabled)
+                .apply();
+    }
+    
+    /**
+     * 获取是否多连接分段下载视频
+     */
+    public static boolean getParallelVideoDownload(Context context) {
+        return getPreferences(context).getBoolean(KEY_PARALLEL_VIDEO_DOWNLOAD, DEFAULT_PARALLEL_VIDEO_DOWNLOAD);
+    }
+    
+    // ========== 图片解码相关 ==========
+    
+    /**
+     * 保存图片解码档位
+     * 0: 自动, 1: 省内存, 2: 均衡, 3: 高画质（见 ImageDecodePolicy）
+     */
+    public static void saveImageDecodeClass(Context context, int deviceClass) {
+        getPreferences(context).edit()
+                .putInt(KEY_IMAGE_DECODE_CLASS, deviceClass)
+                .apply();
+    }
+    
+    /**
+     * 获取图片解码档位
+     */
+    public static int getImageDecodeClass(Context context) {
+        return getPreferences(context).getInt(KEY_IMAGE_DECODE_CLASS, DEFAULT_IMAGE_DECODE_CLASS);
+    }
+    
+    // ========== 调试相关 ==========
+    
+    /**
+     * 保存网络调试模式开关（开启后输出完整的请求和响应日志）
+     */
+    public static void saveNetworkDebugMode(Context context, boolean enabled) {
+        getPreferences(context).edit()
+                .putBoolean(KEY_NETWORK_DEBUG_MODE, enabled)
+                .apply();
+    }
+    
+    /**
+     * 获取网络调试模式开关
+     */
+    public static boolean getNetworkDebugMode(Context context) {
+        return getPreferences(context).getBoolean(KEY_NETWORK_DEBUG_MODE, false);
+    }
+}
@@ -0,0 +1,251 @@
+package com.baidu.tv.player.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.baidu.tv.player.BaiduTVApplication;
+import com.google.android.exoplayer2.database.StandaloneDatabaseProvider;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 视频磁盘缓存管理器
+ * ExoPlayer通过 CacheDataSource 读取视频时，已下载的数据写入 SimpleCache（按LRU淘汰），
+ * 循环播放、回退进度时直接从本地读取，不再从PCS重新下载。
+ * dlink带有会变化的token和签名，缓存key使用文件的fsId（通过MediaItem的customCacheKey传入），
+ * 同一个文件换了链接也能命中缓存。
+ * 缓存大小在设置中调整，下次启动应用后生效（SimpleCache创建后不能修改容量）。
+ * SimpleCache创建时要扫描磁盘上的缓存索引，在后台线程完成（应用启动时开始），
+ * 完成之前播放的视频直接从网络读取。
+ */
+public class VideoCacheManager {
+    private static final String TAG = "VideoCacheManager";
+
+    private static final String CACHE_DIR_NAME = "video_cache";
+
+    private static VideoCacheManager instance;
+
+    private final Context appContext;
+    private final long maxBytes;
+    // 缓存大小设置为0（关闭）、初始化失败或还没有初始化完成时为null
+    private volatile SimpleCache cache;
+    private final CountDownLatch initialized = new CountDownLatch(1);
+
+    // 命中率统计：从缓存读取的字节数、为播放从网络下载的字节数
+    private final AtomicLong cachedBytesRead = new AtomicLong();
+    private final AtomicLong networkBytesRead = new AtomicLong();
+    private final AtomicLong cacheIgnoredCount = new AtomicLong();
+
+    private final TransferListener networkCounter = new TransferListener() {
+        @Override
+        public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        }
+
+        @Override
+        public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        }
+
+        @Override
+        public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+            if (isNetwork) {
+                networkBytesRead.addAndGet(bytesTransferred);
+            }
+        }
+
+        @Override
+        public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        }
+    };
+
+    private VideoCacheManager(Context context) {
+        appContext = context.getApplicationContext();
+        maxBytes = PreferenceUtils.getVideoCacheSizeMb(appContext) * 1024L * 1024L;
+        if (maxBytes > 0) {
+            new Thread(this::initCache, "VideoCacheInit").start();
+        } else {
+            Log.d(TAG, "视频缓存已关闭");
+            initialized.countDown();
+        }
+    }
+
+    /**
+     * 创建SimpleCache（后台线程）
+     */
+    private void initCache() {
+        SimpleCache created = null;
+        try {
+            created = new SimpleCache(getCacheDir(appContext),
+                    new LeastRecentlyUsedCacheEvictor(maxBytes),
+                    new StandaloneDatabaseProvider(appContext));
+            Log.d(TAG, "视频缓存初始化完成, 容量=" + maxBytes / (1024 * 1024) + "MB, 已用="
+                    + created.getCacheSpace() / (1024 * 1024) + "MB");
+        } catch (Exception e) {
+            // 缓存目录被其他实例占用或损坏时不使用缓存，直接从网络播放
+            Log.e(TAG, "视频缓存初始化失败，不使用缓存", e);
+        }
+        cache = created;
+        initialized.countDown();
+    }
+
+    /**
+     * 获取实例（不会阻塞，缓存在后台初始化）
+     */
+    public static synchronized VideoCacheManager getInstance() {
+        if (instance == null) {
+            instance = new VideoCacheManager(BaiduTVApplication.getInstance());
+        }
+        return instance;
+    }
+
+    private static File getCacheDir(Context context) {
+        return new File(context.getCacheDir(), CACHE_DIR_NAME);
+    }
+
+    /**
+     * 文件在视频缓存中的key，设置到 MediaItem.Builder#setCustomCacheKey
+     */
+    public static String cacheKeyFor(long fsId) {
+        return "fsid:" + fsId;
+    }
+
+    /**
+     * 缓存是否可用
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * 视频缓存实例，关闭时返回null
+     */
+    public Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * 在网络数据源外包一层缓存：优先读取缓存，未缓存的部分从网络下载并写入缓存
+     * 缓存关闭时只附加流量统计，直接返回网络数据源
+     */
+    public DataSource.Factory createDataSourceFactory(DataSource.Factory upstreamFactory) {
+        if (cache == null) {
+            if (maxBytes > 0 && initialized.getCount() > 0) {
+                Log.d(TAG, "视频缓存还在初始化，本次直接从网络读取");
+            }
+            return createCountingFactory(upstreamFactory);
+        }
+        return createCacheDataSourceFactory(upstreamFactory);
+    }
+
+    /**
+     * 创建读写视频缓存的 CacheDataSource 工厂（预缓冲时交给 CacheWriter 使用），缓存关闭时返回null
+     */
+    public CacheDataSource.Factory createCacheDataSourceFactory(DataSource.Factory upstreamFactory) {
+        SimpleCache current = cache;
+        if (current == null) {
+            return null;
+        }
+        return new CacheDataSource.Factory()
+                .setCache(current)
+                .setUpstreamDataSourceFactory(createCountingFactory(upstreamFactory))
+                // 读取缓存出错时退回网络，而不是播放失败
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+                .setEventListener(new CacheDataSource.EventListener() {
+                    @Override
+                    public void onCachedBytesRead(long cacheSizeBytes, long cachedBytes) {
+                        cachedBytesRead.addAndGet(cachedBytes);
+                    }
+
+                    @Override
+                    public void onCacheIgnored(int reason) {
+                        cacheIgnoredCount.incrementAndGet();
+                    }
+                });
+    }
+
+    private DataSource.Factory createCountingFactory(DataSource.Factory upstreamFactory) {
+        return () -> {
+            DataSource dataSource = upstreamFactory.createDataSource();
+            dataSource.addTransferListener(networkCounter);
+            return dataSource;
+        };
+    }
+
+    /**
+     * 已使用的缓存空间（字节）
+     */
+    public long getCacheSpace() {
+        SimpleCache current = cache;
+        return current != null ? current.getCacheSpace() : 0;
+    }
+
+    /**
+     * 按字节计算的命中率（0~1），还没有读取过数据时返回0
+     */
+    public double getHitRatio() {
+        long cached = cachedBytesRead.get();
+        long total = cached + networkBytesRead.get();
+        return total > 0 ? (double) cached / total : 0;
+    }
+
+    /**
+     * 获取缓存状态摘要
+     */
+    public String getSummary() {
+        if (cache == null) {
+            return maxBytes > 0 && initialized.getCount() > 0 ? "视频缓存: 初始化中" : "视频缓存: 已关闭";
+        }
+        return String.format(Locale.US, "视频缓存: 已用 %.1f/%dMB, 命中率 %.1f%% (缓存读取 %.1fMB, 网络下载 %.1fMB), 跳过缓存=%d",
+                getCacheSpace() / (1024.0 * 1024.0), maxBytes / (1024 * 1024),
+                getHitRatio() * 100,
+                cachedBytesRead.get() / (1024.0 * 1024.0),
+                networkBytesRead.get() / (1024.0 * 1024.0),
+                cacheIgnoredCount.get());
+    }
+
+    /**
+     * 重置命中率统计
+     */
+    public void resetStats() {
+        cachedBytesRead.set(0);
+        networkBytesRead.set(0);
+        cacheIgnoredCount.set(0);
+    }
+
+    /**
+     * 清空视频缓存（涉及磁盘操作，需在后台线程调用）
+     * 正在播放的文件被锁定的部分会保留
+     */
+    public void clear() {
+        try {
+            initialized.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        SimpleCache current = cache;
+        if (current == null) {
+            return;
+        }
+        int removed = 0;
+        for (String key : new ArrayList<>(current.getKeys())) {
+            try {
+                current.removeResource(key);
+                removed++;
+            } catch (Exception e) {
+                Log.w(TAG, "删除视频缓存失败: " + key, e);
+            }
+        }
+        Log.d(TAG, "视频缓存已清空, 文件数=" + removed + ", 剩余=" + getCacheSpace() / 1024 + "KB");
+    }
+}
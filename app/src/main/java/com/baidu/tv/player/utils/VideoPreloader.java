@@ -0,0 +1,135 @@
+package com.baidu.tv.player.utils;
+
+import android.net.Uri;
+import android.util.Log;
+
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheWriter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 下一个视频的预缓冲
+ * 当前文件开始播放后，把下一个视频开头的数据提前写入视频缓存（key与播放时相同，都是fsId），
+ * 切换过去时建立连接、解析文件头和起播缓冲都直接读取本地数据，不必等上一个视频结束后才从头下载。
+ * 同一时间只预缓冲一个文件，开始新的预缓冲或切换文件时取消正在进行的任务。
+ * preload/cancel 只在主线程调用，下载在单独的后台线程进行。
+ */
+public class VideoPreloader {
+    private static final String TAG = "VideoPreloader";
+
+    // 预缓冲的字节数：按常见的1080p码率约为起播前几秒的数据，包含大多数文件的文件头
+    private static final long PRELOAD_BYTES = 4L * 1024 * 1024;
+
+    private final CacheDataSource.Factory dataSourceFactory;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "VideoPreloader");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private PreloadTask currentTask;
+
+    /**
+     * @param dataSourceFactory 与播放器共用视频缓存的 CacheDataSource 工厂
+     */
+    public VideoPreloader(CacheDataSource.Factory dataSourceFactory) {
+        this.dataSourceFactory = dataSourceFactory;
+    }
+
+    /**
+     * 预缓冲视频开头的数据，已在预缓冲同一个文件时忽略
+     * @param fileSize 文件大小，未知时传0
+     */
+    public void preload(long fsId, String url, long fileSize) {
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        if (currentTask != null && currentTask.fsId == fsId && !currentTask.isFinished()) {
+            return;
+        }
+        cancel();
+
+        long length = fileSize > 0 ? Math.min(fileSize, PRELOAD_BYTES) : PRELOAD_BYTES;
+        DataSpec dataSpec = new DataSpec.Builder()
+                .setUri(Uri.parse(url))
+                .setPosition(0)
+                .setLength(length)
+                .setKey(VideoCacheManager.cacheKeyFor(fsId))
+                .build();
+        currentTask = new PreloadTask(fsId, dataSpec);
+        executor.execute(currentTask);
+    }
+
+    /**
+     * 取消正在进行的预缓冲（切换文件时调用，避免与播放器重复下载同一段数据）
+     */
+    public void cancel() {
+        if (currentTask != null) {
+            currentTask.cancel();
+            currentTask = null;
+        }
+    }
+
+    /**
+     * 释放资源（界面销毁时）
+     */
+    public void release() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private final class PreloadTask implements Runnable {
+        final long fsId;
+        private final DataSpec dataSpec;
+        private CacheWriter writer;
+        private boolean cancelled;
+        private volatile boolean finished;
+
+        PreloadTask(long fsId, DataSpec dataSpec) {
+            this.fsId = fsId;
+            this.dataSpec = dataSpec;
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (writer != null) {
+                writer.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            CacheWriter cacheWriter;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cacheWriter = new CacheWriter(dataSourceFactory.createDataSource(), dataSpec,
+                        null, null);
+                writer = cacheWriter;
+            }
+            long startTime = System.currentTimeMillis();
+            try {
+                cacheWriter.cache();
+                Log.d(TAG, "预缓冲完成, fsId=" + fsId + ", 字节数=" + dataSpec.length
+                        + ", 耗时=" + (System.currentTimeMillis() - startTime) + "ms");
+            } catch (InterruptedIOException e) {
+                Log.d(TAG, "预缓冲已取消, fsId=" + fsId);
+            } catch (IOException e) {
+                // 预缓冲失败不影响播放，切换时由播放器重新从网络加载
+                Log.w(TAG, "预缓冲失败, fsId=" + fsId + ": " + e.getMessage());
+            } finally {
+                finished = true;
+            }
+        }
+    }
+}
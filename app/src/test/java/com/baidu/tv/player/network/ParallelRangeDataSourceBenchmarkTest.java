@@ -0,0 +1,94 @@
+package com.baidu.tv.player.network;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * 单连接与多连接分段下载的吞吐量对比
+ * 服务器对每条连接限速（与PCS的单连接限速相同），多连接时总速度应接近 连接数 x 单连接速度
+ * 结果受机器负载影响，默认跳过，通过 ./gradlew test -PrunBenchmarks=true 手动运行；
+ * 分段读取的正确性由 ParallelRangeDataSourceTest 覆盖
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ParallelRangeDataSourceBenchmarkTest {
+
+    private static final int FILE_SIZE = 4 * 1024 * 1024;
+    // 单连接限速 64KB / 50ms = 1.25MB/s
+    private static final long THROTTLE_BYTES = 64 * 1024;
+    private static final long THROTTLE_PERIOD_MS = 50;
+    private static final int CONNECTIONS = 4;
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws IOException {
+        assumeTrue("吞吐量基准测试默认跳过", Boolean.getBoolean("runBenchmarks"));
+        data = new byte[FILE_SIZE];
+        new Random(7).nextBytes(data);
+        server = new MockWebServer();
+        server.setDispatcher(new RangeDispatcher(data).throttle(THROTTLE_BYTES, THROTTLE_PERIOD_MS));
+        server.start();
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelDownloadIsFasterThanSingleConnection() throws IOException {
+        DataSpec dataSpec = new DataSpec.Builder()
+                .setUri(Uri.parse(server.url("/video.mp4").toString()))
+                .build();
+
+        long singleMs = timeRead(new OkHttpDataSource.Factory(client).createDataSource(), dataSpec);
+        long parallelMs = timeRead(new ParallelRangeDataSource.Factory(client)
+                .setConnections(CONNECTIONS)
+                .setChunkSize(512 * 1024)
+                .createDataSource(), dataSpec);
+
+        System.out.println(String.format(Locale.US, "单连接: %dms (%.2fMB/s), %d连接分段: %dms (%.2fMB/s), 提升 %.1fx",
+                singleMs, throughputMbPerSecond(singleMs), CONNECTIONS,
+                parallelMs, throughputMbPerSecond(parallelMs), (double) singleMs / parallelMs));
+        // 理论上接近4倍，留出足够余量避免测试环境波动导致失败
+        assertTrue("分段下载应明显快于单连接: single=" + singleMs + "ms, parallel=" + parallelMs + "ms",
+                parallelMs * 2 < singleMs);
+    }
+
+    private long timeRead(DataSource source, DataSpec dataSpec) throws IOException {
+        long start = System.nanoTime();
+        byte[] read = ParallelRangeDataSourceTest.readAll(source, dataSpec);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertArrayEquals(data, read);
+        return Math.max(1, elapsedMs);
+    }
+
+    private static double throughputMbPerSecond(long elapsedMs) {
+        return FILE_SIZE / 1024.0 / 1024.0 * 1000 / elapsedMs;
+    }
+}
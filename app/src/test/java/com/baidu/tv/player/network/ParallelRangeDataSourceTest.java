@@ -0,0 +1,186 @@
+package com.baidu.tv.player.network;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+
+@RunWith(RobolectricTestRunner.class)
+public class ParallelRangeDataSourceTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // 不是分段大小的整数倍，最后一个分段不完整
+    private static final int FILE_SIZE = CHUNK_SIZE * 10 + 123;
+
+    private MockWebServer server;
+    private ParallelRangeDataSource.Factory factory;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        data = new byte[FILE_SIZE];
+        new Random(42).nextBytes(data);
+        factory = new ParallelRangeDataSource.Factory(new OkHttpClient())
+                .setConnections(4)
+                .setChunkSize(CHUNK_SIZE)
+                .setMaxBufferedChunks(6);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void reassemblesChunksInOrderWhenTheyCompleteOutOfOrder() throws IOException {
+        RangeDispatcher dispatcher = new RangeDispatcher(data).randomDelay(50);
+        server.setDispatcher(dispatcher);
+
+        byte[] read = readAll(factory.createDataSource(), dataSpec(0, C.LENGTH_UNSET));
+
+        assertArrayEquals(data, read);
+        // 探测请求之后每个分段一个请求
+        assertEquals(11, dispatcher.getRequestedRanges().size());
+    }
+
+    @Test
+    public void readsRequestedSubRange() throws IOException {
+        server.setDispatcher(new RangeDispatcher(data).randomDelay(20));
+        long position = 1000;
+        long length = CHUNK_SIZE * 3 + 17;
+
+        byte[] read = readAll(factory.createDataSource(), dataSpec(position, length));
+
+        assertArrayEquals(Arrays.copyOfRange(data, (int) position, (int) (position + length)), read);
+    }
+
+    @Test
+    public void reopensSameSourceAtNewPosition() throws IOException {
+        server.setDispatcher(new RangeDispatcher(data).randomDelay(20));
+        ParallelRangeDataSource source = factory.createDataSource();
+
+        // 只读一部分就关闭（模拟seek），再从另一个位置打开
+        source.open(dataSpec(0, C.LENGTH_UNSET));
+        source.read(new byte[1024], 0, 1024);
+        source.close();
+        long position = CHUNK_SIZE * 5 + 9;
+        byte[] read = readAll(source, dataSpec(position, C.LENGTH_UNSET));
+
+        assertArrayEquals(Arrays.copyOfRange(data, (int) position, data.length), read);
+    }
+
+    @Test
+    public void fallsBackToSingleStreamWhenServerIgnoresRange() throws IOException {
+        RangeDispatcher dispatcher = new RangeDispatcher(data).ignoreRange();
+        server.setDispatcher(dispatcher);
+        long position = 5000;
+
+        byte[] read = readAll(factory.createDataSource(), dataSpec(position, C.LENGTH_UNSET));
+
+        assertArrayEquals(Arrays.copyOfRange(data, (int) position, data.length), read);
+        assertEquals(1, dispatcher.getRequestedRanges().size());
+    }
+
+    @Test
+    public void fallsBackToSingleStreamOnMalformedContentRange() throws IOException {
+        RangeDispatcher dispatcher = new RangeDispatcher(data).contentRange("bytes garbage");
+        server.setDispatcher(dispatcher);
+        long position = 777;
+
+        byte[] read = readAll(factory.createDataSource(), dataSpec(position, C.LENGTH_UNSET));
+
+        assertArrayEquals(Arrays.copyOfRange(data, (int) position, data.length), read);
+        List<long[]> ranges = dispatcher.getRequestedRanges();
+        assertEquals(2, ranges.size());
+        // 第二个请求不限结束位置
+        assertEquals(position, ranges.get(1)[0]);
+        assertEquals(data.length - 1, ranges.get(1)[1]);
+    }
+
+    @Test
+    public void returnsNoDataWhenOpenedAtEndOfFile() throws IOException {
+        server.setDispatcher(new RangeDispatcher(data));
+        ParallelRangeDataSource source = factory.createDataSource();
+
+        long length = source.open(dataSpec(data.length, C.LENGTH_UNSET));
+
+        assertEquals(0, length);
+        assertEquals(C.RESULT_END_OF_INPUT, source.read(new byte[16], 0, 16));
+        source.close();
+    }
+
+    @Test
+    public void throwsWhenOpenedBeyondEndOfFile() {
+        server.setDispatcher(new RangeDispatcher(data));
+        ParallelRangeDataSource source = factory.createDataSource();
+
+        assertThrows(DataSourceException.class, () -> source.open(dataSpec(data.length + 10, C.LENGTH_UNSET)));
+        source.close();
+    }
+
+    @Test
+    public void retriesTruncatedChunkFromWhereItStopped() throws IOException {
+        long truncatedStart = CHUNK_SIZE * 3;
+        RangeDispatcher dispatcher = new RangeDispatcher(data).truncateOnce(truncatedStart);
+        server.setDispatcher(dispatcher);
+
+        byte[] read = readAll(factory.createDataSource(), dataSpec(0, C.LENGTH_UNSET));
+
+        assertArrayEquals(data, read);
+        int requestsForChunk = 0;
+        for (long[] range : dispatcher.getRequestedRanges()) {
+            if (range[0] >= truncatedStart && range[0] < truncatedStart + CHUNK_SIZE) {
+                requestsForChunk++;
+                assertEquals(truncatedStart + CHUNK_SIZE - 1, range[1]);
+            }
+        }
+        assertTrue("截断的分段应该重新请求", requestsForChunk >= 2);
+    }
+
+    private DataSpec dataSpec(long position, long length) {
+        return new DataSpec.Builder()
+                .setUri(Uri.parse(server.url("/video.mp4").toString()))
+                .setPosition(position)
+                .setLength(length)
+                .build();
+    }
+
+    static byte[] readAll(DataSource source, DataSpec dataSpec) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            source.open(dataSpec);
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = source.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            source.close();
+        }
+        return out.toByteArray();
+    }
+}
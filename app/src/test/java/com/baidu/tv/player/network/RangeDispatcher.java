@@ -0,0 +1,133 @@
+package com.baidu.tv.player.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+/**
+ * 模拟PCS下载服务器：按Range请求头返回206分段，可以模拟单连接限速、乱序完成、
+ * 忽略Range、Content-Range异常和分段传输中断
+ */
+final class RangeDispatcher extends Dispatcher {
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final byte[] data;
+    private final Random random = new Random(1);
+    // 收到的请求范围 {from, to}（to包含在内）
+    private final List<long[]> requestedRanges = new ArrayList<>();
+
+    private boolean ignoreRange;
+    private String contentRangeOverride;
+    private long truncateOnceAt = -1;
+    private boolean truncated;
+    private long throttleBytes;
+    private long throttlePeriodMs;
+    private int maxDelayMs;
+
+    RangeDispatcher(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * 忽略Range，总是返回200和完整内容
+     */
+    RangeDispatcher ignoreRange() {
+        this.ignoreRange = true;
+        return this;
+    }
+
+    /**
+     * 206响应使用指定的Content-Range
+     */
+    RangeDispatcher contentRange(String contentRange) {
+        this.contentRangeOverride = contentRange;
+        return this;
+    }
+
+    /**
+     * 第一次请求从start开始的范围时，只发送一半内容就断开连接
+     */
+    RangeDispatcher truncateOnce(long start) {
+        this.truncateOnceAt = start;
+        return this;
+    }
+
+    /**
+     * 每个响应（即每条连接）每 periodMs 毫秒最多发送 bytes 字节
+     */
+    RangeDispatcher throttle(long bytes, long periodMs) {
+        this.throttleBytes = bytes;
+        this.throttlePeriodMs = periodMs;
+        return this;
+    }
+
+    /**
+     * 每个响应随机延迟 0~maxDelayMs 毫秒，使分段乱序完成
+     */
+    RangeDispatcher randomDelay(int maxDelayMs) {
+        this.maxDelayMs = maxDelayMs;
+        return this;
+    }
+
+    synchronized List<long[]> getRequestedRanges() {
+        return new ArrayList<>(requestedRanges);
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        String range = request.getHeader("Range");
+        long from = 0;
+        long to = data.length - 1;
+        boolean partial = false;
+        if (!ignoreRange && range != null) {
+            Matcher matcher = RANGE.matcher(range);
+            if (matcher.matches()) {
+                from = Long.parseLong(matcher.group(1));
+                if (!matcher.group(2).isEmpty()) {
+                    to = Math.min(to, Long.parseLong(matcher.group(2)));
+                }
+                partial = true;
+            }
+        }
+        synchronized (this) {
+            requestedRanges.add(new long[]{from, to});
+        }
+        if (partial && from >= data.length) {
+            return new MockResponse()
+                    .setResponseCode(416)
+                    .setHeader("Content-Range", "bytes */" + data.length);
+        }
+
+        MockResponse response = new MockResponse()
+                .setBody(new Buffer().write(data, (int) from, (int) (to - from + 1)));
+        if (partial) {
+            response.setResponseCode(206)
+                    .setHeader("Content-Range", contentRangeOverride != null ? contentRangeOverride
+                            : "bytes " + from + "-" + to + "/" + data.length);
+        } else {
+            response.setResponseCode(200);
+        }
+        synchronized (this) {
+            if (from == truncateOnceAt && !truncated) {
+                truncated = true;
+                response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+            }
+        }
+        if (throttleBytes > 0) {
+            response.throttleBody(throttleBytes, throttlePeriodMs, TimeUnit.MILLISECONDS);
+        }
+        if (maxDelayMs > 0) {
+            response.setBodyDelay(random.nextInt(maxDelayMs + 1), TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+}
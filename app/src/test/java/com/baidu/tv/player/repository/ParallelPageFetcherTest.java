@@ -0,0 +1,204 @@
+package com.baidu.tv.player.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.baidu.tv.player.model.FileInfo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ParallelPageFetcherTest {
+
+    private static final int FULL = FileRepository.PAGE_LIMIT;
+    // 第一页（start=0）已由调用方获取，获取器从第二页开始
+    private static final int FIRST_START = FileRepository.PAGE_LIMIT;
+
+    private final FakePageSource source = new FakePageSource();
+    private final RecordingPageCallback callback = new RecordingPageCallback();
+    private final RequestHandle handle = new RequestHandle();
+
+    private ParallelPageFetcher fetcher(int maxPages, int concurrency) {
+        return new ParallelPageFetcher(source, "token", "/photos", FIRST_START, maxPages, concurrency,
+                false, handle, callback);
+    }
+
+    @Test
+    public void launchesUpToConcurrencyPages() {
+        fetcher(10, 3).start();
+
+        assertEquals(Arrays.asList(1000, 2000, 3000), source.requestedStarts);
+    }
+
+    @Test
+    public void emitsPagesInOffsetOrderWhenTheyArriveOutOfOrder() {
+        fetcher(10, 3).start();
+
+        source.complete(3000, FULL);
+        source.complete(2000, FULL);
+        assertTrue(callback.pageIndices.isEmpty());
+
+        source.complete(1000, FULL);
+        assertEquals(Arrays.asList(1, 2, 3), callback.pageIndices);
+        // 每完成一页补发一个请求，保持窗口大小
+        assertEquals(Arrays.asList(1000, 2000, 3000, 4000, 5000, 6000), source.requestedStarts);
+
+        source.complete(4000, 10);
+        assertEquals(Arrays.asList(1, 2, 3, 4), callback.pageIndices);
+        assertEquals(Boolean.FALSE, callback.completedHasMore);
+    }
+
+    @Test
+    public void shortPageArrivingEarlyStopsLaunchingAndDropsLaterPages() {
+        long wastedBefore = RepositoryMetrics.getInstance().getWastedSpeculativePages();
+        fetcher(10, 3).start();
+
+        source.complete(2000, 10);
+        // 已知最后一页，不再发起新请求
+        assertEquals(Arrays.asList(1000, 2000, 3000), source.requestedStarts);
+        source.complete(3000, FULL);
+        assertNull(callback.completedHasMore);
+
+        source.complete(1000, FULL);
+        assertEquals(Arrays.asList(1, 2), callback.pageIndices);
+        assertEquals(Boolean.FALSE, callback.completedHasMore);
+        assertEquals(1, RepositoryMetrics.getInstance().getWastedSpeculativePages() - wastedBefore);
+    }
+
+    @Test
+    public void countsSpeculativePagesReturnedAfterCompletionAsWasted() {
+        long wastedBefore = RepositoryMetrics.getInstance().getWastedSpeculativePages();
+        fetcher(10, 3).start();
+
+        source.complete(1000, 10);
+        assertEquals(Collections.singletonList(1), callback.pageIndices);
+        assertEquals(Boolean.FALSE, callback.completedHasMore);
+
+        source.complete(2000, FULL);
+        source.complete(3000, FULL);
+        assertEquals(Collections.singletonList(1), callback.pageIndices);
+        assertEquals(2, RepositoryMetrics.getInstance().getWastedSpeculativePages() - wastedBefore);
+    }
+
+    @Test
+    public void ignoresFailureOfPageBeyondLastPage() {
+        fetcher(10, 3).start();
+
+        source.complete(2000, 10);
+        source.fail(3000, "超时");
+        source.complete(1000, FULL);
+
+        assertNull(callback.failure);
+        assertEquals(Arrays.asList(1, 2), callback.pageIndices);
+        assertEquals(Boolean.FALSE, callback.completedHasMore);
+    }
+
+    @Test
+    public void failsOnceWhenNeededPageFails() {
+        fetcher(10, 3).start();
+
+        source.fail(2000, "超时");
+        source.complete(1000, FULL);
+        source.fail(3000, "超时");
+
+        assertEquals("超时", callback.failure);
+        assertEquals(1, callback.failures);
+        assertTrue(callback.pageIndices.isEmpty());
+        assertNull(callback.completedHasMore);
+        assertEquals(3, source.requestedStarts.size());
+    }
+
+    @Test
+    public void reportsHasMoreWhenMaxPagesReached() {
+        fetcher(2, 4).start();
+
+        assertEquals(Arrays.asList(1000, 2000), source.requestedStarts);
+        source.complete(2000, FULL);
+        source.complete(1000, FULL);
+
+        assertEquals(Arrays.asList(1, 2), callback.pageIndices);
+        assertEquals(Boolean.TRUE, callback.completedHasMore);
+    }
+
+    @Test
+    public void cancelStopsLaunchingAndCallbacks() {
+        fetcher(10, 3).start();
+
+        handle.cancel();
+        source.complete(1000, FULL);
+        source.complete(2000, FULL);
+        source.complete(3000, 10);
+
+        assertEquals(3, source.requestedStarts.size());
+        assertTrue(callback.pageIndices.isEmpty());
+        assertNull(callback.completedHasMore);
+        assertNull(callback.failure);
+    }
+
+    @Test
+    public void cancelAfterCompletionDoesNothing() {
+        fetcher(10, 1).start();
+        source.complete(1000, 10);
+        assertFalse(callback.pageIndices.isEmpty());
+
+        handle.cancel();
+
+        assertEquals(Collections.singletonList(1), callback.pageIndices);
+        assertEquals(Boolean.FALSE, callback.completedHasMore);
+    }
+
+    /**
+     * 记录请求的分页，由测试按任意顺序返回结果
+     */
+    private static final class FakePageSource implements ParallelPageFetcher.PageSource {
+        final List<Integer> requestedStarts = new ArrayList<>();
+        private final Map<Integer, FileRepository.SinglePageCallback> pending = new HashMap<>();
+
+        @Override
+        public void fetchListPage(String accessToken, String dirPath, int start, boolean forceRefresh,
+                                  RequestHandle handle, FileRepository.SinglePageCallback callback) {
+            requestedStarts.add(start);
+            pending.put(start, callback);
+        }
+
+        void complete(int start, int rawCount) {
+            pending.remove(start).onSuccess(new ArrayList<>(), rawCount);
+        }
+
+        void fail(int start, String error) {
+            pending.remove(start).onFailure(error);
+        }
+    }
+
+    private static final class RecordingPageCallback implements FileRepository.PageCallback {
+        final List<Integer> pageIndices = new ArrayList<>();
+        Boolean completedHasMore;
+        String failure;
+        int failures;
+
+        @Override
+        public void onPage(List<FileInfo> page, int pageIndex) {
+            pageIndices.add(pageIndex);
+        }
+
+        @Override
+        public void onComplete(boolean hasMore) {
+            assertNull("onComplete 只应回调一次", completedHasMore);
+            completedHasMore = hasMore;
+        }
+
+        @Override
+        public void onFailure(String error) {
+            failure = error;
+            failures++;
+        }
+    }
+}
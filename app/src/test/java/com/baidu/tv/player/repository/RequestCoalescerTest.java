@@ -0,0 +1,278 @@
+package com.baidu.tv.player.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+public class RequestCoalescerTest {
+
+    private RequestCoalescer<String> coalescer;
+
+    @Before
+    public void setUp() {
+        coalescer = new RequestCoalescer<>("test");
+    }
+
+    @Test
+    public void sharesOneRequestAndFansOutResultToAllWaiters() throws InterruptedException {
+        FakeRequest request = new FakeRequest();
+        List<RecordingCallback> callbacks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RecordingCallback callback = new RecordingCallback();
+            callbacks.add(callback);
+            coalescer.execute("key", new RequestHandle(), callback, request);
+        }
+
+        request.awaitStarted(1);
+        request.succeed("result");
+
+        assertEquals(1, request.starts);
+        for (RecordingCallback callback : callbacks) {
+            assertEquals("result", callback.result);
+        }
+    }
+
+    @Test
+    public void fansOutFailureToAllWaiters() throws InterruptedException {
+        FakeRequest request = new FakeRequest();
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        coalescer.execute("key", new RequestHandle(), first, request);
+        coalescer.execute("key", new RequestHandle(), second, request);
+
+        request.awaitStarted(1);
+        request.fail("boom");
+
+        assertEquals("boom", first.error);
+        assertEquals("boom", second.error);
+    }
+
+    @Test
+    public void differentKeysAreNotCoalesced() throws InterruptedException {
+        FakeRequest first = new FakeRequest();
+        FakeRequest second = new FakeRequest();
+        coalescer.execute("a", new RequestHandle(), new RecordingCallback(), first);
+        coalescer.execute("b", new RequestHandle(), new RecordingCallback(), second);
+
+        first.awaitStarted(1);
+        second.awaitStarted(1);
+    }
+
+    @Test
+    public void startsNewRequestAfterPreviousCompleted() throws InterruptedException {
+        FakeRequest request = new FakeRequest();
+        coalescer.execute("key", new RequestHandle(), new RecordingCallback(), request);
+        request.awaitStarted(1);
+        request.succeed("first");
+
+        RecordingCallback callback = new RecordingCallback();
+        coalescer.execute("key", new RequestHandle(), callback, request);
+        request.awaitStarted(2);
+        request.succeed("second");
+
+        assertEquals("second", callback.result);
+    }
+
+    @Test
+    public void cancelsSharedCallOnlyWhenLastWaiterLeaves() throws InterruptedException {
+        FakeRequest request = new FakeRequest();
+        RequestHandle firstHandle = new RequestHandle();
+        RequestHandle secondHandle = new RequestHandle();
+        coalescer.execute("key", firstHandle, new RecordingCallback(), request);
+        coalescer.execute("key", secondHandle, new RecordingCallback(), request);
+        request.awaitStarted(1);
+
+        firstHandle.cancel();
+        assertFalse(request.call.isCanceled());
+
+        secondHandle.cancel();
+        assertTrue(request.call.awaitCanceled());
+    }
+
+    @Test
+    public void canceledWaiterIsNotCalledBack() throws InterruptedException {
+        FakeRequest request = new FakeRequest();
+        RequestHandle canceledHandle = new RequestHandle();
+        RecordingCallback canceled = new RecordingCallback();
+        RecordingCallback remaining = new RecordingCallback();
+        coalescer.execute("key", canceledHandle, canceled, request);
+        coalescer.execute("key", new RequestHandle(), remaining, request);
+        request.awaitStarted(1);
+
+        canceledHandle.cancel();
+        request.succeed("result");
+
+        assertNull(canceled.result);
+        assertEquals("result", remaining.result);
+    }
+
+    @Test
+    public void waiterJoiningAfterOthersLeftStartsNewRequest() throws InterruptedException {
+        FakeRequest request = new FakeRequest();
+        RequestHandle handle = new RequestHandle();
+        coalescer.execute("key", handle, new RecordingCallback(), request);
+        request.awaitStarted(1);
+        FakeCall abandonedCall = request.call;
+        handle.cancel();
+
+        // 被取消的请求不再合并新的调用方
+        RecordingCallback callback = new RecordingCallback();
+        coalescer.execute("key", new RequestHandle(), callback, request);
+        request.awaitStarted(2);
+
+        assertTrue(abandonedCall.awaitCanceled());
+        request.succeed("fresh");
+        assertEquals("fresh", callback.result);
+    }
+
+    @Test
+    public void alreadyCanceledHandleDoesNotStartRequest() {
+        FakeRequest request = new FakeRequest();
+        RequestHandle handle = new RequestHandle();
+        handle.cancel();
+
+        coalescer.execute("key", handle, new RecordingCallback(), request);
+
+        assertEquals(0, request.starts);
+    }
+
+    @Test
+    public void completingRemovesCancelListeners() throws InterruptedException {
+        FakeRequest request = new FakeRequest();
+        RequestHandle handle = new RequestHandle();
+        coalescer.execute("key", handle, new RecordingCallback(), request);
+        request.awaitStarted(1);
+        FakeCall call = request.call;
+        request.succeed("result");
+
+        // 请求结束后取消句柄不应再影响已完成的请求
+        handle.cancel();
+        assertFalse(call.isCanceled());
+    }
+
+    /**
+     * 记录发起次数的请求，回调由测试手动触发
+     * 发起可能被限流器延后到其他线程，测试通过 awaitStarted 等待
+     */
+    private static final class FakeRequest implements RequestCoalescer.Request<String> {
+        private final List<CountDownLatch> startLatches = new ArrayList<>();
+        volatile int starts;
+        volatile FakeCall call;
+        volatile RequestCoalescer.ResultCallback<String> callback;
+
+        FakeRequest() {
+            for (int i = 0; i < 8; i++) {
+                startLatches.add(new CountDownLatch(1));
+            }
+        }
+
+        @Override
+        public synchronized Call<?> start(RequestCoalescer.ResultCallback<String> callback) {
+            this.callback = callback;
+            this.call = new FakeCall();
+            startLatches.get(starts++).countDown();
+            return call;
+        }
+
+        void awaitStarted(int count) throws InterruptedException {
+            assertTrue("请求没有发起", startLatches.get(count - 1).await(5, TimeUnit.SECONDS));
+        }
+
+        void succeed(String result) {
+            callback.onSuccess(result);
+        }
+
+        void fail(String error) {
+            callback.onFailure(error);
+        }
+    }
+
+    private static final class RecordingCallback implements RequestCoalescer.ResultCallback<String> {
+        String result;
+        String error;
+
+        @Override
+        public void onSuccess(String result) {
+            this.result = result;
+        }
+
+        @Override
+        public void onFailure(String error) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * 只记录是否被取消的Call
+     */
+    private static final class FakeCall implements Call<Object> {
+        private final CountDownLatch canceledLatch = new CountDownLatch(1);
+
+        @Override
+        public Response<Object> execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<Object> callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+            canceledLatch.countDown();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceledLatch.getCount() == 0;
+        }
+
+        /**
+         * 请求在限流器线程上发起时，取消可能稍后才传到Call
+         */
+        boolean awaitCanceled() throws InterruptedException {
+            return canceledLatch.await(5, TimeUnit.SECONDS);
+        }
+
+        @NonNull
+        @Override
+        public Call<Object> clone() {
+            return new FakeCall();
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return new Request.Builder().url("https://pan.baidu.com/").build();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+    }
+}
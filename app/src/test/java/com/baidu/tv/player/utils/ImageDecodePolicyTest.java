@@ -0,0 +1,125 @@
+package com.baidu.tv.player.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.bumptech.glide.load.DecodeFormat;
+
+import org.junit.Test;
+
+public class ImageDecodePolicyTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    private static ImageDecodePolicy policy(int deviceClass, int memoryClassMb) {
+        return new ImageDecodePolicy(deviceClass, false, memoryClassMb);
+    }
+
+    // ========== 解码尺寸 ==========
+
+    @Test
+    public void lowClassLimitsTo1080p() {
+        ImageDecodePolicy low = policy(ImageDecodePolicy.DEVICE_CLASS_LOW, 128);
+        assertArrayEquals(new int[]{1920, 1080}, low.limitDecodeSize(1920, 1080));
+        assertArrayEquals(new int[]{1280, 720}, low.limitDecodeSize(1280, 720));
+        // 4K屏上也只解码到1080p
+        assertArrayEquals(new int[]{1920, 1080}, low.limitDecodeSize(3840, 2160));
+    }
+
+    @Test
+    public void lowClassKeepsPortraitOrientation() {
+        ImageDecodePolicy low = policy(ImageDecodePolicy.DEVICE_CLASS_LOW, 128);
+        assertArrayEquals(new int[]{1080, 1920}, low.limitDecodeSize(1080, 1920));
+        assertArrayEquals(new int[]{1080, 1920}, low.limitDecodeSize(2160, 3840));
+    }
+
+    @Test
+    public void mediumClassLimitsTo1080p() {
+        ImageDecodePolicy medium = policy(ImageDecodePolicy.DEVICE_CLASS_MEDIUM, 256);
+        assertArrayEquals(new int[]{1920, 1080}, medium.limitDecodeSize(1920, 1080));
+        assertArrayEquals(new int[]{1080, 1920}, medium.limitDecodeSize(1080, 1920));
+        assertArrayEquals(new int[]{1920, 1080}, medium.limitDecodeSize(3840, 2160));
+    }
+
+    @Test
+    public void highClassAllows4k() {
+        ImageDecodePolicy high = policy(ImageDecodePolicy.DEVICE_CLASS_HIGH, 512);
+        assertArrayEquals(new int[]{1920, 1080}, high.limitDecodeSize(1920, 1080));
+        assertArrayEquals(new int[]{3840, 2160}, high.limitDecodeSize(3840, 2160));
+        assertArrayEquals(new int[]{2160, 3840}, high.limitDecodeSize(2160, 3840));
+        assertArrayEquals(new int[]{3840, 2160}, high.limitDecodeSize(7680, 4320));
+    }
+
+    @Test
+    public void limitKeepsAspectRatioForWideAreas() {
+        ImageDecodePolicy low = policy(ImageDecodePolicy.DEVICE_CLASS_LOW, 128);
+        // 宽度先达到上限
+        assertArrayEquals(new int[]{1920, 810}, low.limitDecodeSize(2560, 1080));
+    }
+
+    // ========== 内存预算 ==========
+
+    @Test
+    public void lowClassBudgets() {
+        ImageDecodePolicy low = policy(ImageDecodePolicy.DEVICE_CLASS_LOW, 128);
+        assertEquals(DecodeFormat.PREFER_RGB_565, low.getDecodeFormat());
+        assertEquals(2, low.getBytesPerPixel());
+        assertEquals(16 * MB, low.getMemoryCacheBytes());
+        assertEquals(16 * MB, low.getBitmapPoolBytes());
+        // HARDWARE Bitmap会忽略RGB_565
+        assertFalse(low.isHardwareBitmapAllowed());
+    }
+
+    @Test
+    public void mediumClassBudgets() {
+        ImageDecodePolicy medium = policy(ImageDecodePolicy.DEVICE_CLASS_MEDIUM, 256);
+        assertEquals(DecodeFormat.PREFER_ARGB_8888, medium.getDecodeFormat());
+        assertEquals(4, medium.getBytesPerPixel());
+        assertEquals(256 * MB / 6, medium.getMemoryCacheBytes());
+        assertEquals(32 * MB, medium.getBitmapPoolBytes());
+        assertTrue(medium.isHardwareBitmapAllowed());
+    }
+
+    @Test
+    public void highClassBudgets() {
+        ImageDecodePolicy high = policy(ImageDecodePolicy.DEVICE_CLASS_HIGH, 512);
+        assertEquals(DecodeFormat.PREFER_ARGB_8888, high.getDecodeFormat());
+        assertEquals(4, high.getBytesPerPixel());
+        assertEquals(128 * MB, high.getMemoryCacheBytes());
+        assertEquals(512 * MB / 6, high.getBitmapPoolBytes());
+    }
+
+    @Test
+    public void budgetsScaleWithMemoryClass() {
+        ImageDecodePolicy small = policy(ImageDecodePolicy.DEVICE_CLASS_HIGH, 256);
+        ImageDecodePolicy large = policy(ImageDecodePolicy.DEVICE_CLASS_HIGH, 512);
+        assertEquals(2 * small.getMemoryCacheBytes(), large.getMemoryCacheBytes());
+    }
+
+    // ========== 自动判断档位 ==========
+
+    @Test
+    public void detectsLowClassUpTo128Mb() {
+        assertEquals(ImageDecodePolicy.DEVICE_CLASS_LOW, ImageDecodePolicy.detectDeviceClass(96, false));
+        assertEquals(ImageDecodePolicy.DEVICE_CLASS_LOW, ImageDecodePolicy.detectDeviceClass(128, false));
+    }
+
+    @Test
+    public void detectsMediumClassUpTo256Mb() {
+        assertEquals(ImageDecodePolicy.DEVICE_CLASS_MEDIUM, ImageDecodePolicy.detectDeviceClass(129, false));
+        assertEquals(ImageDecodePolicy.DEVICE_CLASS_MEDIUM, ImageDecodePolicy.detectDeviceClass(256, false));
+    }
+
+    @Test
+    public void detectsHighClassAbove256Mb() {
+        assertEquals(ImageDecodePolicy.DEVICE_CLASS_HIGH, ImageDecodePolicy.detectDeviceClass(257, false));
+        assertEquals(ImageDecodePolicy.DEVICE_CLASS_HIGH, ImageDecodePolicy.detectDeviceClass(512, false));
+    }
+
+    @Test
+    public void lowRamDeviceIsAlwaysLowClass() {
+        assertEquals(ImageDecodePolicy.DEVICE_CLASS_LOW, ImageDecodePolicy.detectDeviceClass(512, true));
+    }
+}